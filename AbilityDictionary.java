@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * Interns ability names into dense int ids. Lookups hash and compare a char
+ * range in place, so a name already in the dictionary costs no allocation;
+ * a {@link String} is created only the first time a name is seen. Names are
+ * matched case-insensitively and keep the spelling of their first occurrence.
+ */
+public final class AbilityDictionary {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int EMPTY = -1;
+
+    private String[] names = new String[INITIAL_CAPACITY / 2];
+    private int[] slots = newSlots(INITIAL_CAPACITY);
+    private int size;
+
+    /**
+     * Creates an empty dictionary.
+     */
+    public AbilityDictionary() {
+        // Default constructor
+    }
+
+    /**
+     * Allocates an empty hash slot array.
+     *
+     * @param capacity power-of-two slot count
+     * @return slots filled with {@link #EMPTY}
+     */
+    private static int[] newSlots(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    /**
+     * Returns the number of distinct names.
+     *
+     * @return name count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the name of an id.
+     *
+     * @param id ability id
+     * @return name
+     */
+    public String nameOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown ability id: " + id);
+        }
+        return names[id];
+    }
+
+    /**
+     * Returns the id of a name without adding it.
+     *
+     * @param name ability name, case-insensitive
+     * @return id, or -1 when unknown
+     */
+    public int lookup(CharSequence name) {
+        return name == null ? EMPTY : find(name, 0, name.length());
+    }
+
+    /**
+     * Returns the id for a char range, adding the name when new.
+     *
+     * @param source text holding the name
+     * @param start  first char inclusive
+     * @param end    last char exclusive
+     * @return ability id
+     */
+    public int intern(CharSequence source, int start, int end) {
+        int id = find(source, start, end);
+        if (id != EMPTY) {
+            return id;
+        }
+
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        id = size++;
+        names[id] = source.subSequence(start, end).toString();
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insert(id, hash(source, start, end));
+        }
+        return id;
+    }
+
+    /**
+     * Finds the id of a char range.
+     *
+     * @param source text holding the name
+     * @param start  first char inclusive
+     * @param end    last char exclusive
+     * @return id, or {@link #EMPTY}
+     */
+    private int find(CharSequence source, int start, int end) {
+        int mask = slots.length - 1;
+        int slot = hash(source, start, end) & mask;
+        while (slots[slot] != EMPTY) {
+            int id = slots[slot];
+            if (matches(names[id], source, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Places an id at the first free slot of its probe chain.
+     *
+     * @param id   ability id
+     * @param hash hash of its name
+     */
+    private void insert(int id, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id;
+    }
+
+    /**
+     * Rebuilds the slot array at a new capacity.
+     *
+     * @param capacity new power-of-two slot count
+     */
+    private void rehash(int capacity) {
+        slots = newSlots(capacity);
+        for (int id = 0; id < size; id++) {
+            insert(id, hash(names[id], 0, names[id].length()));
+        }
+    }
+
+    /**
+     * Case-insensitive hash of a char range.
+     *
+     * @param source text
+     * @param start  first char inclusive
+     * @param end    last char exclusive
+     * @return mixed hash
+     */
+    private static int hash(CharSequence source, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toLowerCase(source.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Case-insensitive comparison of a name and a char range.
+     *
+     * @param name   interned name
+     * @param source text
+     * @param start  first char inclusive
+     * @param end    last char exclusive
+     * @return true if equal ignoring case
+     */
+    private static boolean matches(String name, CharSequence source, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase(name.charAt(i)) != Character.toLowerCase(source.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
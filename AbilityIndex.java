@@ -0,0 +1,245 @@
+import java.util.Arrays;
+
+/**
+ * Inverted index from ability to the rows that have it.
+ *
+ * <p>The {@code abilities} column holds a Python-style list literal such as
+ * {@code ['Overgrow', 'Chlorophyll']}. {@link #parseAbilityList} decodes it
+ * by scanning for quoted segments and interning each one straight from the
+ * source text, so no intermediate strings are built. Both the per-row
+ * ability lists and the per-ability posting lists are stored as CSR arrays:
+ * an offsets array plus one flat int array.</p>
+ */
+public class AbilityIndex {
+    private static final int INITIAL_ROW_CAPACITY = 8;
+
+    private final AbilityDictionary dictionary;
+    private final int rowCount;
+    private final int[] rowOffsets;
+    private final int[] rowAbilities;
+    private final int[] postingOffsets;
+    private final int[] postings;
+    private final int[] byFrequency;
+
+    /**
+     * Builds the index for every row of a stat table.
+     *
+     * @param table source table
+     */
+    public AbilityIndex(PokemonStatTable table) {
+        dictionary = new AbilityDictionary();
+        rowCount = table.getRowCount();
+        rowOffsets = new int[rowCount + 1];
+
+        int[] flat = new int[Math.max(INITIAL_ROW_CAPACITY, rowCount * 3)];
+        int[] scratch = new int[INITIAL_ROW_CAPACITY];
+        int written = 0;
+        for (int row = 0; row < rowCount; row++) {
+            rowOffsets[row] = written;
+            int count = parseAbilityList(table.getAbilitiesText(row), dictionary, scratch);
+            if (count > scratch.length) {
+                scratch = new int[count];
+                count = parseAbilityList(table.getAbilitiesText(row), dictionary, scratch);
+            }
+            if (written + count > flat.length) {
+                flat = Arrays.copyOf(flat, Math.max(flat.length * 2, written + count));
+            }
+            // Sorted, de-duplicated ids per row make shared-ability checks a merge
+            Arrays.sort(scratch, 0, count);
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || scratch[i] != scratch[i - 1]) {
+                    flat[written++] = scratch[i];
+                }
+            }
+        }
+        rowOffsets[rowCount] = written;
+        rowAbilities = Arrays.copyOf(flat, written);
+
+        int abilityCount = dictionary.size();
+        postingOffsets = new int[abilityCount + 1];
+        for (int ability : rowAbilities) {
+            postingOffsets[ability + 1]++;
+        }
+        for (int a = 0; a < abilityCount; a++) {
+            postingOffsets[a + 1] += postingOffsets[a];
+        }
+        postings = new int[written];
+        int[] cursor = Arrays.copyOf(postingOffsets, abilityCount);
+        for (int row = 0; row < rowCount; row++) {
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                postings[cursor[rowAbilities[i]]++] = row;
+            }
+        }
+
+        byFrequency = rankByFrequency();
+    }
+
+    /**
+     * Decodes a list literal into interned ability ids. Single or double
+     * quotes delimit names; anything outside quotes is ignored.
+     *
+     * @param text       list literal, such as {@code ['Levitate']}
+     * @param dictionary dictionary used to intern names
+     * @param out        receives ids; may be too small
+     * @return number of names in the list, which can exceed {@code out.length}
+     */
+    public static int parseAbilityList(CharSequence text, AbilityDictionary dictionary, int[] out) {
+        if (text == null) {
+            return 0;
+        }
+        int count = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char quote = text.charAt(i);
+            if (quote != '\'' && quote != '"') {
+                i++;
+                continue;
+            }
+            int start = i + 1;
+            int end = start;
+            while (end < length && text.charAt(end) != quote) {
+                end++;
+            }
+            int trimmedStart = start;
+            int trimmedEnd = end;
+            while (trimmedStart < trimmedEnd && text.charAt(trimmedStart) == ' ') {
+                trimmedStart++;
+            }
+            while (trimmedEnd > trimmedStart && text.charAt(trimmedEnd - 1) == ' ') {
+                trimmedEnd--;
+            }
+            if (trimmedEnd > trimmedStart) {
+                int id = dictionary.intern(text, trimmedStart, trimmedEnd);
+                if (count < out.length) {
+                    out[count] = id;
+                }
+                count++;
+            }
+            i = end + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Orders ability ids by posting length descending, then name.
+     *
+     * @return ranked ids
+     */
+    private int[] rankByFrequency() {
+        int abilityCount = dictionary.size();
+        Integer[] ids = new Integer[abilityCount];
+        for (int a = 0; a < abilityCount; a++) {
+            ids[a] = a;
+        }
+        Arrays.sort(ids, (a, b) -> {
+            int compare = Integer.compare(frequency(b), frequency(a));
+            return compare != 0 ? compare
+                    : String.CASE_INSENSITIVE_ORDER.compare(dictionary.nameOf(a), dictionary.nameOf(b));
+        });
+        int[] ranked = new int[abilityCount];
+        for (int i = 0; i < abilityCount; i++) {
+            ranked[i] = ids[i];
+        }
+        return ranked;
+    }
+
+    /**
+     * Returns the dictionary of ability names.
+     *
+     * @return dictionary
+     */
+    public AbilityDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the number of distinct abilities.
+     *
+     * @return ability count
+     */
+    public int getAbilityCount() {
+        return dictionary.size();
+    }
+
+    /**
+     * Returns how many rows have an ability.
+     *
+     * @param abilityId ability id
+     * @return posting list length
+     */
+    public int frequency(int abilityId) {
+        return postingOffsets[abilityId + 1] - postingOffsets[abilityId];
+    }
+
+    /**
+     * Returns the rows that have an ability.
+     *
+     * @param abilityName ability name, case-insensitive
+     * @return ascending row ids, empty when unknown
+     */
+    public int[] rowsWithAbility(String abilityName) {
+        int id = dictionary.lookup(abilityName == null ? null : abilityName.trim());
+        return id < 0 ? new int[0] : rowsWithAbility(id);
+    }
+
+    /**
+     * Returns the rows that have an ability.
+     *
+     * @param abilityId ability id
+     * @return ascending row ids
+     */
+    public int[] rowsWithAbility(int abilityId) {
+        return Arrays.copyOfRange(postings, postingOffsets[abilityId], postingOffsets[abilityId + 1]);
+    }
+
+    /**
+     * Returns the abilities of a row.
+     *
+     * @param row row id
+     * @return ascending ability ids
+     */
+    public int[] abilitiesOf(int row) {
+        return Arrays.copyOfRange(rowAbilities, rowOffsets[row], rowOffsets[row + 1]);
+    }
+
+    /**
+     * Returns the abilities every given row has in common.
+     *
+     * @param rows row ids, such as a team
+     * @return ascending ability ids, empty when no rows are given
+     */
+    public int[] sharedAbilities(int... rows) {
+        if (rows.length == 0) {
+            return new int[0];
+        }
+        int[] shared = abilitiesOf(rows[0]);
+        int size = shared.length;
+        for (int r = 1; r < rows.length && size > 0; r++) {
+            int row = rows[r];
+            int kept = 0;
+            int j = rowOffsets[row];
+            int end = rowOffsets[row + 1];
+            for (int i = 0; i < size; i++) {
+                while (j < end && rowAbilities[j] < shared[i]) {
+                    j++;
+                }
+                if (j < end && rowAbilities[j] == shared[i]) {
+                    shared[kept++] = shared[i];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(shared, size);
+    }
+
+    /**
+     * Returns the most common abilities.
+     *
+     * @param limit maximum abilities to return
+     * @return ability ids by descending frequency, ties by name
+     */
+    public int[] mostFrequent(int limit) {
+        return Arrays.copyOf(byFrequency, Math.max(0, Math.min(limit, byFrequency.length)));
+    }
+}
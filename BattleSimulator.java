@@ -0,0 +1,439 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simplified, seeded battle simulator for 1v1 and team-vs-team matchups.
+ *
+ * <p>Each Pokemon attacks with the better of its physical or special stat
+ * using a fixed-power move of its strongest own type, scaled by the
+ * defender's {@code against_*} multiplier, a random roll and an occasional
+ * critical hit. Faster Pokemon move first. The inner battle loop works only
+ * on primitive arrays and never allocates.</p>
+ *
+ * <p>Every matchup (or chunk of team battles) draws from its own
+ * {@link SplittableRandom} derived from the caller's seed, so results are
+ * reproducible no matter how the fork-join pool schedules the work.</p>
+ */
+public class BattleSimulator {
+    private static final int LEVEL = 50;
+    private static final int MOVE_POWER = 80;
+    private static final double SAME_TYPE_BONUS = 1.5;
+    private static final double CRITICAL_MULTIPLIER = 1.5;
+    private static final int CRITICAL_ODDS = 16;
+    private static final double MIN_ROLL = 0.85;
+    private static final double ROLL_SPAN = 0.15;
+    private static final int MAX_TURNS = 100;
+    private static final int ROWS_PER_TASK = 8;
+    private static final int BATTLES_PER_CHUNK = 4096;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int count;
+    private final int[] hp;
+    private final int[] attack;
+    private final int[] defense;
+    private final int[] spAttack;
+    private final int[] spDefense;
+    private final int[] speed;
+    private final byte[] type1;
+    private final byte[] type2;
+    private final float[] against;
+
+    /**
+     * Copies the battle-relevant columns of a stat table.
+     *
+     * @param table source table
+     */
+    public BattleSimulator(PokemonStatTable table) {
+        count = table.getRowCount();
+        hp = new int[count];
+        attack = new int[count];
+        defense = new int[count];
+        spAttack = new int[count];
+        spDefense = new int[count];
+        speed = new int[count];
+        type1 = new byte[count];
+        type2 = new byte[count];
+        against = new float[count * PokemonTypes.TYPE_COUNT];
+
+        for (int row = 0; row < count; row++) {
+            hp[row] = table.getHp(row);
+            attack[row] = table.getAttack(row);
+            defense[row] = Math.max(1, table.getDefense(row));
+            spAttack[row] = table.getSpAttack(row);
+            spDefense[row] = Math.max(1, table.getSpDefense(row));
+            speed[row] = table.getSpeed(row);
+            type1[row] = (byte) table.getType1(row);
+            type2[row] = (byte) table.getType2(row);
+            for (int t = 0; t < PokemonTypes.TYPE_COUNT; t++) {
+                against[row * PokemonTypes.TYPE_COUNT + t] = table.getAgainst(row, t);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of Pokemon known to the simulator.
+     *
+     * @return row count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Computes the damage of one hit before the random roll and critical hit.
+     *
+     * @param attacker attacking row
+     * @param defender defending row
+     * @return base damage
+     */
+    double baseDamage(int attacker, int defender) {
+        double physical = (double) attack[attacker] / defense[defender];
+        double special = (double) spAttack[attacker] / spDefense[defender];
+        double raw = (2.0 * LEVEL / 5 + 2) * MOVE_POWER * Math.max(physical, special) / 50 + 2;
+
+        int first = type1[attacker];
+        int second = type2[attacker];
+        if (first < 0 && second < 0) {
+            return raw;
+        }
+        int base = defender * PokemonTypes.TYPE_COUNT;
+        double best = first < 0 ? 0 : against[base + first];
+        if (second >= 0) {
+            best = Math.max(best, against[base + second]);
+        }
+        return raw * SAME_TYPE_BONUS * best;
+    }
+
+    /**
+     * Fights two Pokemon until one faints.
+     *
+     * @param a     first row
+     * @param hpA   current HP of the first row
+     * @param dmgA  base damage the first row deals
+     * @param b     second row
+     * @param hpB   current HP of the second row
+     * @param dmgB  base damage the second row deals
+     * @param rng   random source
+     * @return remaining HP of the winner, negated when the second row wins
+     */
+    private int fight(int a, int hpA, double dmgA, int b, int hpB, double dmgB, SplittableRandom rng) {
+        boolean aFirst = speed[a] != speed[b] ? speed[a] > speed[b] : rng.nextBoolean();
+        for (int turn = 0; turn < MAX_TURNS; turn++) {
+            if (aFirst) {
+                hpB -= roll(dmgA, rng);
+                if (hpB <= 0) {
+                    return hpA;
+                }
+                hpA -= roll(dmgB, rng);
+                if (hpA <= 0) {
+                    return -hpB;
+                }
+            } else {
+                hpA -= roll(dmgB, rng);
+                if (hpA <= 0) {
+                    return -hpB;
+                }
+                hpB -= roll(dmgA, rng);
+                if (hpB <= 0) {
+                    return hpA;
+                }
+            }
+        }
+
+        // Stalemate: the side with more remaining HP relative to its maximum wins
+        long left = (long) hpA * hp[b];
+        long right = (long) hpB * hp[a];
+        boolean aWins = left != right ? left > right : rng.nextBoolean();
+        return aWins ? hpA : -hpB;
+    }
+
+    /**
+     * Applies the random roll and critical hit to base damage.
+     *
+     * @param base base damage
+     * @param rng  random source
+     * @return damage of at least one
+     */
+    private static int roll(double base, SplittableRandom rng) {
+        double damage = base * (MIN_ROLL + ROLL_SPAN * rng.nextDouble());
+        if (rng.nextInt(CRITICAL_ODDS) == 0) {
+            damage *= CRITICAL_MULTIPLIER;
+        }
+        return Math.max(1, (int) damage);
+    }
+
+    /**
+     * Simulates one 1v1 battle.
+     *
+     * @param a   first row
+     * @param b   second row
+     * @param rng random source
+     * @return true if the first row wins
+     */
+    public boolean duel(int a, int b, SplittableRandom rng) {
+        return fight(a, hp[a], baseDamage(a, b), b, hp[b], baseDamage(b, a), rng) > 0;
+    }
+
+    /**
+     * Simulates a series of 1v1 battles.
+     *
+     * @param a       first row
+     * @param b       second row
+     * @param battles number of battles
+     * @param seed    random seed
+     * @return number of battles the first row won
+     */
+    public int countDuelWins(int a, int b, int battles, long seed) {
+        SplittableRandom rng = new SplittableRandom(mix(seed, a, b));
+        double dmgA = baseDamage(a, b);
+        double dmgB = baseDamage(b, a);
+        int wins = 0;
+        for (int i = 0; i < battles; i++) {
+            if (fight(a, hp[a], dmgA, b, hp[b], dmgB, rng) > 0) {
+                wins++;
+            }
+        }
+        return wins;
+    }
+
+    /**
+     * Simulates one team battle. The active Pokemon fight until one faints;
+     * the winner keeps its remaining HP against the next opponent.
+     *
+     * @param teamA rows of the first team, in sending order
+     * @param teamB rows of the second team, in sending order
+     * @param rng   random source
+     * @return true if the first team wins
+     */
+    public boolean teamBattle(int[] teamA, int[] teamB, SplittableRandom rng) {
+        int ia = 0;
+        int ib = 0;
+        int hpA = teamA.length == 0 ? 0 : hp[teamA[0]];
+        int hpB = teamB.length == 0 ? 0 : hp[teamB[0]];
+        while (ia < teamA.length && ib < teamB.length) {
+            int a = teamA[ia];
+            int b = teamB[ib];
+            int result = fight(a, hpA, baseDamage(a, b), b, hpB, baseDamage(b, a), rng);
+            if (result > 0) {
+                hpA = result;
+                if (++ib < teamB.length) {
+                    hpB = hp[teamB[ib]];
+                }
+            } else {
+                hpB = -result;
+                if (++ia < teamA.length) {
+                    hpA = hp[teamA[ia]];
+                }
+            }
+        }
+        return ia < teamA.length;
+    }
+
+    /**
+     * Estimates the first team's win rate with battles spread over a pool.
+     *
+     * @param teamA   rows of the first team
+     * @param teamB   rows of the second team
+     * @param battles number of battles
+     * @param seed    random seed
+     * @param pool    pool to run on
+     * @return fraction of battles won by the first team
+     */
+    public double teamWinRate(int[] teamA, int[] teamB, int battles, long seed, ForkJoinPool pool) {
+        if (battles <= 0) {
+            return 0;
+        }
+        int chunks = (battles + BATTLES_PER_CHUNK - 1) / BATTLES_PER_CHUNK;
+        long wins = pool.invoke(new TeamChunkTask(teamA, teamB, battles, seed, 0, chunks));
+        return (double) wins / battles;
+    }
+
+    /**
+     * Computes the win rate of every roster member against every other.
+     *
+     * @param roster  rows to compare
+     * @param battles battles per matchup
+     * @param seed    random seed
+     * @param pool    pool to run on
+     * @return row-major matrix where {@code [i * roster.length + j]} is the
+     *         rate at which roster[i] beats roster[j]; the diagonal is 0.5
+     */
+    public float[] computeWinRates(int[] roster, int battles, long seed, ForkJoinPool pool) {
+        return computeWinRates(roster, battles, seed, pool, QueryContext.unbounded());
+    }
+
+    /**
+     * Computes the win rate of every roster member against every other,
+     * checking the context before each matrix row.
+     *
+     * @param roster  rows to compare
+     * @param battles battles per matchup
+     * @param seed    random seed
+     * @param pool    pool to run on
+     * @param context deadline and cancellation flag of the query
+     * @return row-major matrix as for {@link #computeWinRates(int[], int, long, ForkJoinPool)}
+     * @throws java.util.concurrent.CancellationException if the query is
+     *         cancelled or runs past its deadline
+     */
+    public float[] computeWinRates(int[] roster, int battles, long seed, ForkJoinPool pool, QueryContext context) {
+        float[] rates = new float[roster.length * roster.length];
+        if (battles > 0 && roster.length > 0) {
+            pool.invoke(new MatchupTask(roster, battles, seed, rates, 0, roster.length, context));
+        }
+        return rates;
+    }
+
+    /**
+     * Averages each roster member's win rate across all opponents.
+     *
+     * @param rates  matrix from {@link #computeWinRates}
+     * @param roster number of roster members
+     * @return average win rate per roster member
+     */
+    public static double[] averageWinRates(float[] rates, int roster) {
+        double[] averages = new double[roster];
+        if (roster < 2) {
+            return averages;
+        }
+        for (int i = 0; i < roster; i++) {
+            double sum = 0;
+            for (int j = 0; j < roster; j++) {
+                if (i != j) {
+                    sum += rates[i * roster + j];
+                }
+            }
+            averages[i] = sum / (roster - 1);
+        }
+        return averages;
+    }
+
+    /**
+     * Derives an independent seed for a matchup or chunk.
+     *
+     * @param seed caller seed
+     * @param a    first key
+     * @param b    second key
+     * @return mixed seed
+     */
+    private static long mix(long seed, long a, long b) {
+        long z = seed + GOLDEN_GAMMA * (a * 0x1F1F1F1FL + b + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Fills rows [from, to) of the win-rate matrix, splitting by row range.
+     */
+    private final class MatchupTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] roster;
+        private final int battles;
+        private final long seed;
+        private final float[] rates;
+        private final int from;
+        private final int to;
+        private final QueryContext context;
+
+        /**
+         * Creates a task for a block of matrix rows.
+         *
+         * @param roster  rows to compare
+         * @param battles battles per matchup
+         * @param seed    random seed
+         * @param rates   output matrix
+         * @param from    first roster index inclusive
+         * @param to      last roster index exclusive
+         * @param context checked before each row
+         */
+        MatchupTask(int[] roster, int battles, long seed, float[] rates, int from, int to, QueryContext context) {
+            this.roster = roster;
+            this.battles = battles;
+            this.seed = seed;
+            this.rates = rates;
+            this.from = from;
+            this.to = to;
+            this.context = context;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new MatchupTask(roster, battles, seed, rates, from, mid, context),
+                        new MatchupTask(roster, battles, seed, rates, mid, to, context));
+                return;
+            }
+
+            int n = roster.length;
+            for (int i = from; i < to; i++) {
+                context.checkpoint();
+                rates[i * n + i] = 0.5f;
+                // Each task owns the upper triangle of its rows and mirrors it
+                for (int j = i + 1; j < n; j++) {
+                    float rate = (float) countDuelWins(roster[i], roster[j], battles, seed) / battles;
+                    rates[i * n + j] = rate;
+                    rates[j * n + i] = 1.0f - rate;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a range of team battle chunks and returns the wins.
+     */
+    private final class TeamChunkTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] teamA;
+        private final int[] teamB;
+        private final int battles;
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a task for a range of chunks.
+         *
+         * @param teamA   first team
+         * @param teamB   second team
+         * @param battles total battles across all chunks
+         * @param seed    random seed
+         * @param from    first chunk inclusive
+         * @param to      last chunk exclusive
+         */
+        TeamChunkTask(int[] teamA, int[] teamB, int battles, long seed, int from, int to) {
+            this.teamA = teamA;
+            this.teamB = teamB;
+            this.battles = battles;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                TeamChunkTask left = new TeamChunkTask(teamA, teamB, battles, seed, from, mid);
+                left.fork();
+                long right = new TeamChunkTask(teamA, teamB, battles, seed, mid, to).compute();
+                return left.join() + right;
+            }
+
+            SplittableRandom rng = new SplittableRandom(mix(seed, -1, from));
+            int start = from * BATTLES_PER_CHUNK;
+            int end = Math.min(battles, start + BATTLES_PER_CHUNK);
+            long wins = 0;
+            for (int i = start; i < end; i++) {
+                if (teamBattle(teamA, teamB, rng)) {
+                    wins++;
+                }
+            }
+            return wins;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bitmap indexes over the low-cardinality columns of a stat table: type1,
+ * type2, generation and is_legendary. Filters are answered by combining
+ * precomputed {@link RowBitmap}s, so no row data is touched. HP and speed
+ * ranges are turned into bitmaps from sorted row orders so they combine
+ * with the categorical filters the same way. Character results map back to
+ * rows by instance, so rows that share a name keep their own bits.
+ */
+public class BitmapIndex {
+    private final int rowCount;
+    private final Map<PokemonCharacter, Integer> rowByCharacter = new IdentityHashMap<>();
+    private final RowBitmap[] type1;
+    private final RowBitmap[] type2;
+    private final RowBitmap[] anyType;
+    private final RowBitmap noType2;
+    private final TreeMap<Integer, RowBitmap> generations = new TreeMap<>();
+    private final RowBitmap legendary;
+    private final RowBitmap empty;
+    private final int[] rowsByHp;
+    private final int[] hpKeys;
+    private final int[] rowsBySpeed;
+    private final int[] speedKeys;
+
+    /**
+     * Builds every index in one pass over the table, without a mapping for
+     * {@link #fromCharacters}.
+     *
+     * @param table source table
+     */
+    public BitmapIndex(PokemonStatTable table) {
+        this(table, null);
+    }
+
+    /**
+     * Builds every index in one pass over the table and remembers the row of
+     * each character, for {@link #fromCharacters}.
+     *
+     * @param table      source table
+     * @param characters character of each table row, null for rows without
+     *                   one, as from {@link PokemonDataset#getStatRowCharacters};
+     *                   may be null
+     */
+    public BitmapIndex(PokemonStatTable table, List<PokemonCharacter> characters) {
+        rowCount = table.getRowCount();
+        type1 = new RowBitmap[PokemonTypes.TYPE_COUNT];
+        type2 = new RowBitmap[PokemonTypes.TYPE_COUNT];
+        for (int t = 0; t < PokemonTypes.TYPE_COUNT; t++) {
+            type1[t] = new RowBitmap(rowCount);
+            type2[t] = new RowBitmap(rowCount);
+        }
+        noType2 = new RowBitmap(rowCount);
+        legendary = new RowBitmap(rowCount);
+        empty = new RowBitmap(rowCount);
+
+        for (int row = 0; row < rowCount; row++) {
+            // A replacing row without stats shares the character of the row that has them
+            PokemonCharacter character = characters == null || row >= characters.size() ? null
+                    : characters.get(row);
+            if (character != null) {
+                rowByCharacter.putIfAbsent(character, row);
+            }
+            if (table.getType1(row) >= 0) {
+                type1[table.getType1(row)].set(row);
+            }
+            if (table.getType2(row) >= 0) {
+                type2[table.getType2(row)].set(row);
+            } else {
+                noType2.set(row);
+            }
+            generations.computeIfAbsent(table.getGeneration(row), k -> new RowBitmap(rowCount)).set(row);
+            if (table.isLegendary(row)) {
+                legendary.set(row);
+            }
+        }
+
+        anyType = new RowBitmap[PokemonTypes.TYPE_COUNT];
+        for (int t = 0; t < PokemonTypes.TYPE_COUNT; t++) {
+            anyType[t] = type1[t].or(type2[t]);
+        }
+
+        int[] hp = new int[rowCount];
+        int[] speed = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            hp[row] = table.getHp(row);
+            speed[row] = table.getSpeed(row);
+        }
+        rowsByHp = sortedRows(hp);
+        hpKeys = keysInOrder(hp, rowsByHp);
+        rowsBySpeed = sortedRows(speed);
+        speedKeys = keysInOrder(speed, rowsBySpeed);
+    }
+
+    /**
+     * Orders row ids by a column value using packed primitive keys.
+     *
+     * @param values column values per row
+     * @return row ids sorted by value, then row id
+     */
+    private static int[] sortedRows(int[] values) {
+        long[] packed = new long[values.length];
+        for (int row = 0; row < values.length; row++) {
+            packed[row] = ((long) values[row] << 32) | row;
+        }
+        Arrays.sort(packed);
+        int[] rows = new int[values.length];
+        for (int i = 0; i < packed.length; i++) {
+            rows[i] = (int) packed[i];
+        }
+        return rows;
+    }
+
+    /**
+     * Gathers column values in a given row order.
+     *
+     * @param values column values per row
+     * @param order  row order
+     * @return values in that order
+     */
+    private static int[] keysInOrder(int[] values, int[] order) {
+        int[] keys = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = values[order[i]];
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the number of rows indexed.
+     *
+     * @return row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns every row.
+     *
+     * @return full bitmap
+     */
+    public RowBitmap all() {
+        return RowBitmap.all(rowCount);
+    }
+
+    /**
+     * Returns rows whose primary type matches.
+     *
+     * @param typeId type id
+     * @return bitmap, empty for unknown types
+     */
+    public RowBitmap type1(int typeId) {
+        return typeId < 0 || typeId >= PokemonTypes.TYPE_COUNT ? empty : type1[typeId];
+    }
+
+    /**
+     * Returns rows whose secondary type matches; {@link PokemonTypes#NO_TYPE}
+     * selects single-type rows.
+     *
+     * @param typeId type id
+     * @return bitmap
+     */
+    public RowBitmap type2(int typeId) {
+        if (typeId == PokemonTypes.NO_TYPE) {
+            return noType2;
+        }
+        return typeId < 0 || typeId >= PokemonTypes.TYPE_COUNT ? empty : type2[typeId];
+    }
+
+    /**
+     * Returns rows having the type in either slot.
+     *
+     * @param typeId type id
+     * @return bitmap, empty for unknown types
+     */
+    public RowBitmap anyType(int typeId) {
+        return typeId < 0 || typeId >= PokemonTypes.TYPE_COUNT ? empty : anyType[typeId];
+    }
+
+    /**
+     * Returns rows of a generation.
+     *
+     * @param generation generation number
+     * @return bitmap, empty when no row has that generation
+     */
+    public RowBitmap generation(int generation) {
+        return generations.getOrDefault(generation, empty);
+    }
+
+    /**
+     * Returns legendary or non-legendary rows.
+     *
+     * @param isLegendary true for legendary rows
+     * @return bitmap
+     */
+    public RowBitmap legendary(boolean isLegendary) {
+        return isLegendary ? legendary : legendary.not();
+    }
+
+    /**
+     * Returns the row count per generation without touching rows.
+     *
+     * @return generation to count, ascending
+     */
+    public TreeMap<Integer, Integer> generationCounts() {
+        TreeMap<Integer, Integer> counts = new TreeMap<>();
+        for (Map.Entry<Integer, RowBitmap> entry : generations.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().cardinality());
+        }
+        return counts;
+    }
+
+    /**
+     * Returns rows whose HP falls within the inclusive range.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return bitmap
+     */
+    public RowBitmap hpRange(int minHp, int maxHp) {
+        return rangeBitmap(rowsByHp, hpKeys, minHp, maxHp);
+    }
+
+    /**
+     * Returns rows whose speed falls within the inclusive range.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return bitmap
+     */
+    public RowBitmap speedRange(int minSpeed, int maxSpeed) {
+        return rangeBitmap(rowsBySpeed, speedKeys, minSpeed, maxSpeed);
+    }
+
+    /**
+     * Converts a result set such as {@code collectCharactersByHpRange} into a
+     * bitmap of the rows the characters were loaded from. Characters are
+     * matched by instance, so duplicates of a name each set their own row;
+     * characters not loaded with this index's table are ignored.
+     *
+     * @param characters characters to convert
+     * @return bitmap, empty when the index was built without characters
+     */
+    public RowBitmap fromCharacters(Collection<PokemonCharacter> characters) {
+        RowBitmap bitmap = new RowBitmap(rowCount);
+        for (PokemonCharacter character : characters) {
+            Integer row = rowByCharacter.get(character);
+            if (row != null) {
+                bitmap.set(row);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Sets the rows whose key is in range.
+     *
+     * @param rows row ids in key order
+     * @param keys sorted keys
+     * @param min  minimum inclusive
+     * @param max  maximum inclusive
+     * @return bitmap
+     */
+    private RowBitmap rangeBitmap(int[] rows, int[] keys, int min, int max) {
+        RowBitmap bitmap = new RowBitmap(rowCount);
+        if (min > max) {
+            return bitmap;
+        }
+        int end = upperBound(keys, max);
+        for (int i = lowerBound(keys, min); i < end; i++) {
+            bitmap.set(rows[i]);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Finds the first index whose key is at least the value.
+     *
+     * @param keys  sorted keys
+     * @param value value to search for
+     * @return insertion index
+     */
+    private static int lowerBound(int[] keys, int value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first index whose key is greater than the value.
+     *
+     * @param keys  sorted keys
+     * @param value value to search for
+     * @return insertion index
+     */
+    private static int upperBound(int[] keys, int value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Stand-alone benchmark and conformance check for {@link CharacterSortKeys}.
+ *
+ * <p>Builds a large set of characters with realistic stats and many names
+ * differing only in case, checks that the packed-key sort gives exactly the
+ * comparator order for both orderings, then times the comparator sort, the
+ * key sort with ranking and the key sort with ranks already known. Run with
+ * {@code java CharacterSortBenchmark [characters] [rounds]}.</p>
+ */
+public final class CharacterSortBenchmark {
+    private static final int DEFAULT_CHARACTERS = 1_000_000;
+    private static final int DEFAULT_ROUNDS = 5;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final long SEED = 41;
+
+    private CharacterSortBenchmark() {
+        // Entry point only
+    }
+
+    /**
+     * Runs the conformance check and the benchmark.
+     *
+     * @param args optional character count and number of timed rounds
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHARACTERS;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+        PokemonCharacter[] characters = randomCharacters(size);
+        int[] ranks = CharacterSortKeys.collationRanks(characters);
+
+        for (CharacterSortKeys.Ordering ordering : CharacterSortKeys.Ordering.values()) {
+            PokemonCharacter[] expected = characters.clone();
+            Arrays.sort(expected, ordering.comparator());
+            PokemonCharacter[] actual = CharacterSortKeys.sort(characters, ordering);
+            int mismatches = 0;
+            for (int i = 0; i < expected.length; i++) {
+                if (expected[i] != actual[i]) {
+                    mismatches++;
+                }
+            }
+            System.out.println(ordering + ": checked " + size + " characters, " + mismatches + " mismatches.");
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            comparatorSort(characters);
+            keySort(characters);
+            keySortRanked(characters, ranks);
+        }
+        report("Comparator sort", size, rounds, time(() -> comparatorSort(characters), rounds));
+        report("Key sort with ranking", size, rounds, time(() -> keySort(characters), rounds));
+        report("Key sort, ranks known", size, rounds, time(() -> keySortRanked(characters, ranks), rounds));
+    }
+
+    /**
+     * Creates characters with stats spread like the real data. A quarter of
+     * the names repeat an earlier name in upper case.
+     *
+     * @param size number of characters
+     * @return characters in random order
+     */
+    private static PokemonCharacter[] randomCharacters(int size) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        PokemonCharacter[] characters = new PokemonCharacter[size];
+        for (int i = 0; i < size; i++) {
+            String name = i > 0 && random.nextInt(4) == 0
+                    ? characters[random.nextInt(i)].getName().toUpperCase()
+                    : "Mon" + Long.toString(random.nextLong(1L << 40), 36);
+            int hp = (int) Math.max(1, Math.min(255, Math.round(69 + random.nextGaussian() * 26.6)));
+            int speed = (int) Math.max(5, Math.min(180, Math.round(66 + random.nextGaussian() * 28.9)));
+            characters[i] = new PokemonCharacter(name, "", hp, speed);
+        }
+        return characters;
+    }
+
+    /**
+     * Sorts both orderings with the comparators.
+     *
+     * @param characters input
+     * @return checksum that keeps the work alive
+     */
+    private static int comparatorSort(PokemonCharacter[] characters) {
+        PokemonCharacter[] byHp = characters.clone();
+        Arrays.sort(byHp, PokemonCharacter.BY_HP_ASC);
+        PokemonCharacter[] bySpeed = characters.clone();
+        Arrays.sort(bySpeed, PokemonCharacter.BY_SPEED_ASC);
+        return byHp[0].getHp() + bySpeed[0].getSpeed();
+    }
+
+    /**
+     * Ranks names once and sorts both orderings by key.
+     *
+     * @param characters input
+     * @return checksum that keeps the work alive
+     */
+    private static int keySort(PokemonCharacter[] characters) {
+        return keySortRanked(characters, CharacterSortKeys.collationRanks(characters));
+    }
+
+    /**
+     * Sorts both orderings by key with known ranks.
+     *
+     * @param characters input
+     * @param ranks      name ranks
+     * @return checksum that keeps the work alive
+     */
+    private static int keySortRanked(PokemonCharacter[] characters, int[] ranks) {
+        PokemonCharacter[] byHp = CharacterSortKeys.sort(characters, ranks, CharacterSortKeys.Ordering.BY_HP);
+        PokemonCharacter[] bySpeed = CharacterSortKeys.sort(characters, ranks, CharacterSortKeys.Ordering.BY_SPEED);
+        return byHp[0].getHp() + bySpeed[0].getSpeed();
+    }
+
+    /**
+     * Times a task.
+     *
+     * @param task   work to run
+     * @param rounds repetitions
+     * @return total nanoseconds
+     */
+    private static long time(Runnable task, int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            task.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Prints the time per round.
+     *
+     * @param label  what was timed
+     * @param size   characters per sort
+     * @param rounds repetitions timed
+     * @param nanos  total time
+     */
+    private static void report(String label, int size, int rounds, long nanos) {
+        System.out.println(label + ": " + (nanos / rounds / 1_000_000) + " ms per round of " + size);
+    }
+}
@@ -0,0 +1,287 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Sorts characters by packed {@code long} keys instead of a chained
+ * comparator.
+ *
+ * <p>A key holds the primary stat in its top 16 bits, the secondary stat in
+ * the next 16 and the name's collation rank in the low 32. The rank is the
+ * position of the name among the distinct names of the set in
+ * {@link String#CASE_INSENSITIVE_ORDER}, so names equal ignoring case get
+ * the same rank. Comparing two keys as unsigned numbers therefore gives
+ * the same result as the matching comparator. Keys are sorted with a
+ * stable LSD radix sort, so characters with equal keys keep their input
+ * order, just as with {@link Arrays#sort(Object[], Comparator)}.</p>
+ *
+ * <p>Ranks cost one string sort per set of characters. After that, any
+ * subset sorts with no string comparisons. Stats outside the signed 16-bit
+ * range cannot be packed; such sets fall back to the comparator.</p>
+ */
+public final class CharacterSortKeys {
+    private static final int STAT_BIAS = 0x8000;
+    private static final int STAT_LIMIT = 0xFFFF;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int DIGITS = Long.SIZE / RADIX_BITS;
+
+    /**
+     * Orderings that can be packed into keys.
+     */
+    public enum Ordering {
+        BY_HP(PokemonCharacter.BY_HP_ASC),
+        BY_SPEED(PokemonCharacter.BY_SPEED_ASC);
+
+        private final Comparator<PokemonCharacter> comparator;
+
+        Ordering(Comparator<PokemonCharacter> comparator) {
+            this.comparator = comparator;
+        }
+
+        /**
+         * Returns the comparator the keys reproduce.
+         *
+         * @return comparator
+         */
+        public Comparator<PokemonCharacter> comparator() {
+            return comparator;
+        }
+
+        /**
+         * Returns the stat compared first.
+         *
+         * @param character character
+         * @return primary stat
+         */
+        int primary(PokemonCharacter character) {
+            return this == BY_HP ? character.getHp() : character.getSpeed();
+        }
+
+        /**
+         * Returns the stat compared second.
+         *
+         * @param character character
+         * @return secondary stat
+         */
+        int secondary(PokemonCharacter character) {
+            return this == BY_HP ? character.getSpeed() : character.getHp();
+        }
+    }
+
+    private CharacterSortKeys() {
+        // Utility class
+    }
+
+    /**
+     * Computes the collation rank of every character's name. Names are case
+     * folded one char at a time, exactly as {@link String#CASE_INSENSITIVE_ORDER}
+     * folds them, so the folded strings can be sorted with the much cheaper
+     * natural string order. Names with surrogate pairs, which that
+     * comparator folds by code point, are ranked with the comparator itself.
+     *
+     * @param characters characters
+     * @return rank per character, in input order
+     */
+    public static int[] collationRanks(PokemonCharacter[] characters) {
+        FoldedName[] folded = new FoldedName[characters.length];
+        for (int i = 0; i < characters.length; i++) {
+            String name = fold(characters[i].getName());
+            if (name == null) {
+                return comparatorRanks(characters);
+            }
+            folded[i] = new FoldedName(name, i);
+        }
+        Arrays.sort(folded);
+
+        int[] ranks = new int[folded.length];
+        int rank = -1;
+        for (int i = 0; i < folded.length; i++) {
+            if (i == 0 || !folded[i - 1].name.equals(folded[i].name)) {
+                rank++;
+            }
+            ranks[folded[i].position] = rank;
+        }
+        return ranks;
+    }
+
+    /**
+     * Folds case the way {@link String#CASE_INSENSITIVE_ORDER} compares chars.
+     *
+     * @param name name
+     * @return folded name, or null if it contains a surrogate
+     */
+    private static String fold(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (Character.isSurrogate(c)) {
+                return null;
+            }
+            chars[i] = Character.toLowerCase(Character.toUpperCase(c));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Computes collation ranks by sorting names with the comparator.
+     *
+     * @param characters characters
+     * @return rank per character, in input order
+     */
+    private static int[] comparatorRanks(PokemonCharacter[] characters) {
+        String[] names = new String[characters.length];
+        for (int i = 0; i < characters.length; i++) {
+            names[i] = characters[i].getName();
+        }
+        String[] distinct = names.clone();
+        Arrays.sort(distinct, String.CASE_INSENSITIVE_ORDER);
+        int count = 0;
+        for (String name : distinct) {
+            if (count == 0 || String.CASE_INSENSITIVE_ORDER.compare(distinct[count - 1], name) != 0) {
+                distinct[count++] = name;
+            }
+        }
+
+        int[] ranks = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ranks[i] = Arrays.binarySearch(distinct, 0, count, names[i], String.CASE_INSENSITIVE_ORDER);
+        }
+        return ranks;
+    }
+
+    /**
+     * Packs a character's sort key.
+     *
+     * @param character character
+     * @param rank      collation rank of its name
+     * @param ordering  ordering to encode
+     * @return key, or -1 when a stat does not fit in 16 bits
+     */
+    public static long key(PokemonCharacter character, int rank, Ordering ordering) {
+        long primary = ordering.primary(character) + (long) STAT_BIAS;
+        long secondary = ordering.secondary(character) + (long) STAT_BIAS;
+        if (primary < 0 || primary > STAT_LIMIT || secondary < 0 || secondary > STAT_LIMIT) {
+            return -1;
+        }
+        return primary << 48 | secondary << 32 | (rank & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns a sorted copy of characters, computing name ranks first.
+     *
+     * @param characters characters in any order
+     * @param ordering   ordering to sort by
+     * @return new array, in the same order the comparator would give
+     */
+    public static PokemonCharacter[] sort(PokemonCharacter[] characters, Ordering ordering) {
+        return sort(characters, collationRanks(characters), ordering);
+    }
+
+    /**
+     * Returns a sorted copy of characters whose name ranks are known.
+     *
+     * @param characters characters in any order
+     * @param ranks      collation rank of each character's name
+     * @param ordering   ordering to sort by
+     * @return new array, in the same order the comparator would give
+     */
+    public static PokemonCharacter[] sort(PokemonCharacter[] characters, int[] ranks, Ordering ordering) {
+        long[] keys = new long[characters.length];
+        int[] positions = new int[characters.length];
+        for (int i = 0; i < characters.length; i++) {
+            keys[i] = key(characters[i], ranks[i], ordering);
+            if (keys[i] == -1) {
+                PokemonCharacter[] sorted = characters.clone();
+                Arrays.sort(sorted, ordering.comparator());
+                return sorted;
+            }
+            positions[i] = i;
+        }
+        radixSort(keys, positions);
+
+        PokemonCharacter[] sorted = new PokemonCharacter[characters.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = characters[positions[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Sorts keys as unsigned numbers, moving a payload with them. The sort
+     * is stable and skips every byte position where all keys agree, which
+     * for real stats and rank counts is most of them.
+     *
+     * @param keys    keys to sort in place
+     * @param payload value carried with each key, sorted in place
+     */
+    public static void radixSort(long[] keys, int[] payload) {
+        int n = keys.length;
+        int[][] counts = new int[DIGITS][RADIX];
+        for (long key : keys) {
+            for (int d = 0; d < DIGITS; d++) {
+                counts[d][(int) (key >>> (d * RADIX_BITS)) & (RADIX - 1)]++;
+            }
+        }
+
+        long[] keyBuffer = null;
+        int[] payloadBuffer = null;
+        long[] sourceKeys = keys;
+        int[] sourcePayload = payload;
+        for (int d = 0; d < DIGITS && n > 1; d++) {
+            int shift = d * RADIX_BITS;
+            int[] count = counts[d];
+            if (count[(int) (sourceKeys[0] >>> shift) & (RADIX - 1)] == n) {
+                continue;
+            }
+            if (keyBuffer == null) {
+                keyBuffer = new long[n];
+                payloadBuffer = new int[n];
+            }
+            long[] targetKeys = sourceKeys == keys ? keyBuffer : keys;
+            int[] targetPayload = sourcePayload == payload ? payloadBuffer : payload;
+
+            int start = 0;
+            for (int b = 0; b < RADIX; b++) {
+                int size = count[b];
+                count[b] = start;
+                start += size;
+            }
+            for (int i = 0; i < n; i++) {
+                long key = sourceKeys[i];
+                int slot = count[(int) (key >>> shift) & (RADIX - 1)]++;
+                targetKeys[slot] = key;
+                targetPayload[slot] = sourcePayload[i];
+            }
+            sourceKeys = targetKeys;
+            sourcePayload = targetPayload;
+        }
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, n);
+            System.arraycopy(sourcePayload, 0, payload, 0, n);
+        }
+    }
+
+    /**
+     * A case-folded name and the position of its character, sorted by name.
+     */
+    private static final class FoldedName implements Comparable<FoldedName> {
+        private final String name;
+        private final int position;
+
+        /**
+         * Creates an entry.
+         *
+         * @param name     folded name
+         * @param position index of the character
+         */
+        FoldedName(String name, int position) {
+            this.name = name;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(FoldedName other) {
+            return name.compareTo(other.name);
+        }
+    }
+}
@@ -0,0 +1,932 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Joins a CSV file with an auxiliary CSV file on one key column, such as the
+ * Pokedex with a move, learnset or location file keyed by
+ * {@code pokedex_number} or {@code name}.
+ *
+ * <p>The build file is loaded into hash tables that map a 64-bit hash of
+ * the key to chains of row ids held in primitive arrays. The probe file is
+ * then streamed through the tokenizer in batches and every row is looked
+ * up. Each output row is the probe row followed by one matching build row,
+ * in probe order and then build file order. Keys match ignoring case, and
+ * integer keys match by value, so {@code 001} joins {@code 1}. Large build
+ * sides are split into partitions whose tables are built in parallel, and
+ * probe batches are split across the same workers.</p>
+ *
+ * <p>When the build side would exceed the memory budget, the join becomes a
+ * grace hash join: both files are split by key hash into partition files in
+ * a spill directory, and matching partitions are joined in parallel, each
+ * within its share of the budget. A partition that is still too large is
+ * split again on other hash bits, up to a fixed depth. Spilled joins write
+ * one partition after another, so their rows are grouped by partition
+ * rather than in probe order.</p>
+ */
+public class CsvHashJoin {
+    // Estimated heap cost of a build row beyond its characters
+    private static final int ROW_OVERHEAD_BYTES = 96;
+    private static final int PROBE_BATCH_ROWS = 4_096;
+    private static final int PARALLEL_BUILD_ROWS = 1 << 16;
+    private static final int PARTITION_BITS = 8;
+    private static final int MAX_PARTITIONS = 1 << PARTITION_BITS;
+    private static final int MAX_SPILL_DEPTH = 3;
+
+    private long memoryBudget = 256L << 20;
+    private int partitions = 16;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String spillDirectory = System.getProperty("java.io.tmpdir");
+    private boolean keepUnmatched;
+
+    /**
+     * Creates a join with default settings: a 256 MB build budget, 16
+     * partitions, one thread per processor and inner join semantics.
+     */
+    public CsvHashJoin() {
+        // Default settings
+    }
+
+    /**
+     * Sets the memory the build side may use before the join spills.
+     *
+     * @param bytes estimated heap bytes, at least 1
+     * @return this join
+     */
+    public CsvHashJoin memoryBudget(long bytes) {
+        this.memoryBudget = Math.max(1, bytes);
+        return this;
+    }
+
+    /**
+     * Sets the minimum number of partitions for parallel and spilled joins.
+     *
+     * @param count partitions, rounded up to a power of two of at most 256
+     * @return this join
+     */
+    public CsvHashJoin partitions(int count) {
+        this.partitions = powerOfTwo(count);
+        return this;
+    }
+
+    /**
+     * Sets the number of worker threads.
+     *
+     * @param count threads, at least 1
+     * @return this join
+     */
+    public CsvHashJoin threads(int count) {
+        this.threads = Math.max(1, count);
+        return this;
+    }
+
+    /**
+     * Sets the directory that holds partition files while a join spills.
+     *
+     * @param directory existing directory
+     * @return this join
+     */
+    public CsvHashJoin spillDirectory(String directory) {
+        this.spillDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Chooses whether probe rows without a match are kept, with empty build
+     * columns, as in a left outer join.
+     *
+     * @param keep true to keep unmatched probe rows
+     * @return this join
+     */
+    public CsvHashJoin keepUnmatched(boolean keep) {
+        this.keepUnmatched = keep;
+        return this;
+    }
+
+    /**
+     * Joins two files and writes the result, replacing any existing file.
+     * The output header is the probe header followed by the build header.
+     *
+     * @param probeFile   file streamed through the join, such as the Pokedex
+     * @param probeKey    key column of the probe file
+     * @param buildFile   file loaded into the hash tables
+     * @param buildKey    key column of the build file
+     * @param outputFile  output CSV path
+     * @return join summary, or null if a file cannot be read or written or
+     *         a key column is missing
+     */
+    public Result join(String probeFile, String probeKey, String buildFile, String buildKey, String outputFile) {
+        if (isBlank(probeFile) || isBlank(buildFile) || isBlank(outputFile) || probeKey == null
+                || buildKey == null || spillDirectory == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pokemon-join");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (BufferedReader probe = open(Paths.get(probeFile.trim()));
+             BufferedReader build = open(Paths.get(buildFile.trim()))) {
+            String probeHeader = probe.readLine();
+            String buildHeader = build.readLine();
+            if (probeHeader == null || buildHeader == null) {
+                return null;
+            }
+            int probeColumn = PokemonCsvUtils.findColumnIndex(probeHeader, probeKey);
+            int buildColumn = PokemonCsvUtils.findColumnIndex(buildHeader, buildKey);
+            if (probeColumn < 0 || buildColumn < 0) {
+                return null;
+            }
+
+            Run run = new Run(pool, probeColumn, buildColumn,
+                    PokemonCsvUtils.splitCsvRecord(buildHeader).size());
+            try (BufferedWriter out = Files.newBufferedWriter(Paths.get(outputFile.trim()), StandardCharsets.UTF_8)) {
+                out.write(probeHeader);
+                out.write(',');
+                out.write(buildHeader);
+                out.write('\n');
+
+                BuildSide side = BuildSide.read(build, buildColumn, memoryBudget);
+                run.buildRows = side.rowsRead;
+                if (side.complete) {
+                    run.joinInMemory(side, probe, out);
+                } else {
+                    long fileSize = Files.size(Paths.get(buildFile.trim()));
+                    Path directory = Files.createTempDirectory(Paths.get(spillDirectory.trim()), "pokemon-join");
+                    try {
+                        run.joinSpilled(side, fileSize, build, probe, out, directory);
+                    } finally {
+                        deleteTree(directory);
+                    }
+                }
+            }
+            return new Result(run, System.nanoTime() - start);
+        } catch (IOException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Opens a file for reading as UTF-8.
+     *
+     * @param path file to open
+     * @return buffered reader
+     * @throws IOException if the file cannot be opened
+     */
+    private static BufferedReader open(Path path) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(path.toFile()), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks for a null or blank string.
+     *
+     * @param text text to check
+     * @return true when there is nothing to use
+     */
+    private static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+
+    /**
+     * Rounds a partition count up to a power of two within the limits.
+     *
+     * @param count requested count
+     * @return power of two between 1 and {@link #MAX_PARTITIONS}
+     */
+    private static int powerOfTwo(long count) {
+        if (count <= 1) {
+            return 1;
+        }
+        if (count >= MAX_PARTITIONS) {
+            return MAX_PARTITIONS;
+        }
+        return Integer.highestOneBit((int) count - 1) << 1;
+    }
+
+    /**
+     * Deletes a directory and everything in it, ignoring failures.
+     *
+     * @param directory directory to delete
+     */
+    private static void deleteTree(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Nothing useful to do
+        }
+    }
+
+    /**
+     * Normalizes a key token: integers by value, anything else in lower case.
+     *
+     * @param token raw token, may be null
+     * @return key, or an empty string when the token is blank
+     */
+    static String normalizeKey(String token) {
+        if (token == null || token.isBlank()) {
+            return "";
+        }
+        long number = NumericParser.parseInt(token);
+        return number != NumericParser.MISSING ? Long.toString(number) : token.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Hashes a normalized key.
+     *
+     * @param key normalized key
+     * @return well-mixed 64-bit hash
+     */
+    static long hashKey(String key) {
+        long z = 0;
+        for (int i = 0; i < key.length(); i++) {
+            z = z * 0x100000001B3L + key.charAt(i);
+        }
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the partition of a hash at a level of partitioning. Each level
+     * uses its own hash bits, so a partition split again spreads evenly.
+     *
+     * @param hash  key hash
+     * @param level partitioning level, starting at 0
+     * @param count partitions, a power of two
+     * @return partition
+     */
+    private static int partitionOf(long hash, int level, int count) {
+        return (int) (hash >>> (level * PARTITION_BITS)) & (count - 1);
+    }
+
+    /**
+     * Extracts and normalizes the key of a CSV row.
+     *
+     * @param line   raw row
+     * @param column key column
+     * @return normalized key, empty when the row has none
+     */
+    private static String keyOf(String line, int column) {
+        List<String> tokens = PokemonCsvUtils.splitCsvRecord(line);
+        return column < tokens.size() ? normalizeKey(tokens.get(column)) : "";
+    }
+
+    /**
+     * Runs the main join from the command line: {@code CsvHashJoin <probe>
+     * <probeKey> <build> <buildKey> <output> [budgetMB] [threads] [outer]}.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 5) {
+            System.out.println("Usage: CsvHashJoin <probeFile> <probeKey> <buildFile> <buildKey> <outputFile> "
+                    + "[budgetMB] [threads] [outer]");
+            return;
+        }
+        CsvHashJoin join = new CsvHashJoin();
+        if (args.length > 5) {
+            join.memoryBudget(Long.parseLong(args[5]) << 20);
+        }
+        if (args.length > 6) {
+            join.threads(Integer.parseInt(args[6]));
+        }
+        if (args.length > 7) {
+            join.keepUnmatched("outer".equalsIgnoreCase(args[7]));
+        }
+
+        Result result = join.join(args[0], args[1], args[2], args[3], args[4]);
+        if (result == null) {
+            System.out.println("Failed to join " + args[0] + " with " + args[2]);
+            return;
+        }
+        for (String line : result.formatDetails()) {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * State of one join: its workers, key columns and counters.
+     */
+    private final class Run {
+        private final ExecutorService pool;
+        private final int probeColumn;
+        private final int buildColumn;
+        private final String padding;
+        private final AtomicLong outputRows = new AtomicLong();
+        private final AtomicInteger spilledPartitions = new AtomicInteger();
+        private final AtomicInteger deepestLevel = new AtomicInteger();
+        private long buildRows;
+        private long probeRows;
+        private int tables;
+
+        /**
+         * Creates the state of a join.
+         *
+         * @param pool         worker threads
+         * @param probeColumn  key column of the probe file
+         * @param buildColumn  key column of the build file
+         * @param buildColumns columns in the build header
+         */
+        Run(ExecutorService pool, int probeColumn, int buildColumn, int buildColumns) {
+            this.pool = pool;
+            this.probeColumn = probeColumn;
+            this.buildColumn = buildColumn;
+            this.padding = ",".repeat(buildColumns);
+        }
+
+        /**
+         * Joins a build side that fits in memory, streaming the probe file
+         * in batches.
+         *
+         * @param side  complete build side
+         * @param probe probe reader positioned after the header
+         * @param out   output
+         * @throws IOException          if reading or writing fails
+         * @throws ExecutionException   if a worker fails
+         * @throws InterruptedException if interrupted while waiting
+         */
+        void joinInMemory(BuildSide side, BufferedReader probe, Writer out)
+                throws IOException, ExecutionException, InterruptedException {
+            JoinTable[] built = buildTables(side);
+            tables = built.length;
+            List<String> batch = new ArrayList<>(PROBE_BATCH_ROWS);
+            String line;
+            while ((line = probe.readLine()) != null) {
+                batch.add(line);
+                if (batch.size() == PROBE_BATCH_ROWS) {
+                    probeBatch(batch, built, out);
+                    batch.clear();
+                }
+            }
+            probeBatch(batch, built, out);
+        }
+
+        /**
+         * Builds the tables of an in-memory join: one table for small build
+         * sides, otherwise one per partition, built in parallel.
+         *
+         * @param side complete build side
+         * @return tables indexed by level-0 partition
+         * @throws ExecutionException   if a worker fails
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private JoinTable[] buildTables(BuildSide side) throws ExecutionException, InterruptedException {
+            if (side.size < PARALLEL_BUILD_ROWS || threads == 1) {
+                return new JoinTable[] {new JoinTable(side, null, new int[side.size])};
+            }
+            int count = partitions;
+            int[][] rows = new int[count][];
+            int[] sizes = new int[count];
+            for (int row = 0; row < side.size; row++) {
+                sizes[partitionOf(side.hashes[row], 0, count)]++;
+            }
+            for (int p = 0; p < count; p++) {
+                rows[p] = new int[sizes[p]];
+                sizes[p] = 0;
+            }
+            for (int row = 0; row < side.size; row++) {
+                int p = partitionOf(side.hashes[row], 0, count);
+                rows[p][sizes[p]++] = row;
+            }
+
+            // Partitions hold disjoint rows, so their tables share one chain array
+            int[] chains = new int[side.size];
+            List<Future<JoinTable>> pending = new ArrayList<>(count);
+            for (int p = 0; p < count; p++) {
+                int[] partitionRows = rows[p];
+                pending.add(pool.submit(() -> new JoinTable(side, partitionRows, chains)));
+            }
+            JoinTable[] built = new JoinTable[count];
+            for (int p = 0; p < count; p++) {
+                built[p] = pending.get(p).get();
+            }
+            return built;
+        }
+
+        /**
+         * Probes one batch, splitting large batches across the workers and
+         * writing their output in batch order.
+         *
+         * @param batch  probe rows
+         * @param tables tables indexed by level-0 partition
+         * @param out    output
+         * @throws IOException          if writing fails
+         * @throws ExecutionException   if a worker fails
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private void probeBatch(List<String> batch, JoinTable[] tables, Writer out)
+                throws IOException, ExecutionException, InterruptedException {
+            probeRows += batch.size();
+            if (threads == 1 || batch.size() < PROBE_BATCH_ROWS) {
+                StringBuilder text = new StringBuilder();
+                outputRows.addAndGet(probeRange(batch, 0, batch.size(), tables, text));
+                out.append(text);
+                return;
+            }
+            int chunk = (batch.size() + threads - 1) / threads;
+            List<Future<StringBuilder>> pending = new ArrayList<>(threads);
+            for (int from = 0; from < batch.size(); from += chunk) {
+                int start = from;
+                int end = Math.min(batch.size(), from + chunk);
+                pending.add(pool.submit(() -> {
+                    StringBuilder text = new StringBuilder();
+                    outputRows.addAndGet(probeRange(batch, start, end, tables, text));
+                    return text;
+                }));
+            }
+            for (Future<StringBuilder> text : pending) {
+                out.append(text.get());
+            }
+        }
+
+        /**
+         * Probes a range of rows.
+         *
+         * @param lines  probe rows
+         * @param from   first row inclusive
+         * @param to     last row exclusive
+         * @param tables tables indexed by level-0 partition
+         * @param text   receives the output rows
+         * @return output rows written
+         */
+        private long probeRange(List<String> lines, int from, int to, JoinTable[] tables, StringBuilder text) {
+            long written = 0;
+            for (int i = from; i < to; i++) {
+                written += probeLine(lines.get(i), tables, text);
+            }
+            return written;
+        }
+
+        /**
+         * Looks up one probe row and appends its output rows.
+         *
+         * @param line   probe row
+         * @param tables tables indexed by level-0 partition
+         * @param text   receives the output rows
+         * @return output rows written
+         */
+        private int probeLine(String line, JoinTable[] tables, StringBuilder text) {
+            String key = keyOf(line, probeColumn);
+            int written = 0;
+            if (!key.isEmpty()) {
+                long hash = hashKey(key);
+                JoinTable table = tables[partitionOf(hash, 0, tables.length)];
+                for (int row = table.first(hash, key); row >= 0; row = table.next(row, key)) {
+                    text.append(line).append(',').append(table.side.lines[row]).append('\n');
+                    written++;
+                }
+            }
+            if (written == 0 && keepUnmatched) {
+                text.append(line).append(padding).append('\n');
+                written++;
+            }
+            return written;
+        }
+
+        /**
+         * Runs a grace hash join at the top level: spills both files into
+         * partitions, joins the partitions in parallel into their own output
+         * files and appends those to the output in partition order.
+         *
+         * @param side      build rows read before the budget ran out
+         * @param fileSize  build file size in bytes
+         * @param build     build reader positioned after those rows
+         * @param probe     probe reader positioned after the header
+         * @param out       output
+         * @param directory spill directory for this join
+         * @throws IOException          if reading or writing fails
+         * @throws ExecutionException   if a worker fails
+         * @throws InterruptedException if interrupted while waiting
+         */
+        void joinSpilled(BuildSide side, long fileSize, BufferedReader build, BufferedReader probe, Writer out,
+                         Path directory) throws IOException, ExecutionException, InterruptedException {
+            long taskBudget = Math.max(1, memoryBudget / threads);
+            int count = spillPartitions(side, fileSize, taskBudget);
+            Path[] buildParts = spill(side, build, buildColumn, 0, count, directory, "build");
+            Path[] probeParts = spill(null, probe, probeColumn, 0, count, directory, "probe");
+            tables = count;
+
+            List<Future<Path>> pending = new ArrayList<>(count);
+            for (int p = 0; p < count; p++) {
+                Path buildPart = buildParts[p];
+                Path probePart = probeParts[p];
+                Path output = directory.resolve("out-" + p);
+                pending.add(pool.submit(() -> {
+                    try (BufferedWriter partOut = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                        joinPartition(buildPart, probePart, partOut, 1, taskBudget, directory);
+                    }
+                    return output;
+                }));
+            }
+            for (Future<Path> output : pending) {
+                Path file = output.get();
+                try (BufferedReader reader = open(file)) {
+                    reader.transferTo(out);
+                }
+                Files.delete(file);
+            }
+        }
+
+        /**
+         * Joins one pair of partition files, splitting them again on the
+         * next hash bits if the build partition is still over budget.
+         *
+         * @param buildPart build partition file
+         * @param probePart probe partition file
+         * @param out       output
+         * @param level     partitioning level of these files
+         * @param budget    build budget of this partition
+         * @param directory spill directory for this join
+         * @throws IOException if reading or writing fails
+         */
+        private void joinPartition(Path buildPart, Path probePart, Writer out, int level, long budget,
+                                   Path directory) throws IOException {
+            deepestLevel.accumulateAndGet(level, Math::max);
+            try (BufferedReader build = open(buildPart); BufferedReader probe = open(probePart)) {
+                BuildSide side = BuildSide.read(build, buildColumn, level >= MAX_SPILL_DEPTH ? Long.MAX_VALUE : budget);
+                if (side.complete) {
+                    JoinTable[] table = {new JoinTable(side, null, new int[side.size])};
+                    StringBuilder text = new StringBuilder();
+                    String line;
+                    while ((line = probe.readLine()) != null) {
+                        outputRows.addAndGet(probeLine(line, table, text));
+                        if (text.length() >= 1 << 16) {
+                            out.append(text);
+                            text.setLength(0);
+                        }
+                    }
+                    out.append(text);
+                } else {
+                    Path subdirectory = Files.createTempDirectory(directory, "level" + level + "-");
+                    int count = spillPartitions(side, Files.size(buildPart), budget);
+                    Path[] buildParts = spill(side, build, buildColumn, level, count, subdirectory, "build");
+                    Path[] probeParts = spill(null, probe, probeColumn, level, count, subdirectory, "probe");
+                    for (int p = 0; p < count; p++) {
+                        joinPartition(buildParts[p], probeParts[p], out, level + 1, budget, subdirectory);
+                    }
+                    deleteTree(subdirectory);
+                }
+            } finally {
+                Files.deleteIfExists(buildPart);
+                Files.deleteIfExists(probePart);
+            }
+        }
+
+        /**
+         * Chooses how many partitions to spill into, so that each build
+         * partition is expected to use about half its budget.
+         *
+         * @param side     build rows read before the budget ran out
+         * @param fileSize size of the whole build input in bytes
+         * @param budget   build budget per partition
+         * @return partition count, a power of two
+         */
+        private int spillPartitions(BuildSide side, long fileSize, long budget) {
+            double perByte = (double) side.bytes / Math.max(1, side.charsRead);
+            long estimate = (long) (perByte * fileSize);
+            return Math.max(partitions, powerOfTwo(2 * (estimate / budget + 1)));
+        }
+
+        /**
+         * Splits rows into partition files by key hash: first the rows
+         * already in memory, then the rest of the reader. Build rows without
+         * a key are dropped; probe rows without a key go to partition 0 so
+         * an outer join still writes them. At level 0 the rows taken from
+         * the reader are added to the row counts.
+         *
+         * @param side      rows already read, or null
+         * @param reader    remaining rows
+         * @param column    key column
+         * @param level     partitioning level
+         * @param count     partitions
+         * @param directory directory for the files
+         * @param prefix    file name prefix
+         * @return partition files
+         * @throws IOException if reading or writing fails
+         */
+        private Path[] spill(BuildSide side, BufferedReader reader, int column, int level, int count,
+                             Path directory, String prefix) throws IOException {
+            Path[] files = new Path[count];
+            BufferedWriter[] writers = new BufferedWriter[count];
+            long rows = 0;
+            try {
+                for (int p = 0; p < count; p++) {
+                    files[p] = directory.resolve(prefix + "-" + p);
+                    writers[p] = Files.newBufferedWriter(files[p], StandardCharsets.UTF_8);
+                }
+                if (side != null) {
+                    spilledPartitions.addAndGet(count);
+                    for (int row = 0; row < side.size; row++) {
+                        BufferedWriter writer = writers[partitionOf(side.hashes[row], level, count)];
+                        writer.write(side.lines[row]);
+                        writer.write('\n');
+                    }
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    rows++;
+                    String key = keyOf(line, column);
+                    if (key.isEmpty() && side != null) {
+                        continue;
+                    }
+                    BufferedWriter writer = writers[key.isEmpty() ? 0 : partitionOf(hashKey(key), level, count)];
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } finally {
+                for (BufferedWriter writer : writers) {
+                    if (writer != null) {
+                        writer.close();
+                    }
+                }
+            }
+            if (level == 0 && side != null) {
+                buildRows += rows;
+            } else if (level == 0) {
+                probeRows += rows;
+            }
+            return files;
+        }
+    }
+
+    /**
+     * Build rows held in memory with their normalized keys and hashes.
+     * Rows without a key are counted but not kept, since they never match.
+     */
+    private static final class BuildSide {
+        private String[] lines = new String[1024];
+        private String[] keys = new String[1024];
+        private long[] hashes = new long[1024];
+        private int size;
+        private long rowsRead;
+        private long charsRead;
+        private long bytes;
+        private boolean complete;
+
+        /**
+         * Reads rows until the input ends or the estimated size passes the
+         * budget.
+         *
+         * @param reader rows to read
+         * @param column key column
+         * @param budget estimated heap bytes allowed
+         * @return rows read; {@code complete} is false if rows remain
+         * @throws IOException if reading fails
+         */
+        static BuildSide read(BufferedReader reader, int column, long budget) throws IOException {
+            BuildSide side = new BuildSide();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                side.rowsRead++;
+                side.charsRead += line.length() + 1;
+                String key = keyOf(line, column);
+                if (!key.isEmpty()) {
+                    side.add(line, key);
+                    if (side.bytes > budget) {
+                        return side;
+                    }
+                }
+            }
+            side.complete = true;
+            return side;
+        }
+
+        /**
+         * Keeps a row.
+         *
+         * @param line raw row
+         * @param key  normalized key
+         */
+        private void add(String line, String key) {
+            if (size == lines.length) {
+                lines = Arrays.copyOf(lines, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            lines[size] = line;
+            keys[size] = key;
+            hashes[size] = hashKey(key);
+            size++;
+            bytes += 2L * (line.length() + key.length()) + ROW_OVERHEAD_BYTES;
+        }
+    }
+
+    /**
+     * Open-addressing table from key hash to a chain of build rows. Slots
+     * hold the hash and the first row; rows with the same hash are linked
+     * in file order through a per-row array.
+     */
+    private static final class JoinTable {
+        private final BuildSide side;
+        private final long[] slotHashes;
+        private final int[] heads;
+        private final int[] next;
+        private final int shift;
+        private final int mask;
+
+        /**
+         * Builds a table over some rows of a build side.
+         *
+         * @param side build side
+         * @param rows row ids in file order, or null for all rows
+         * @param next chain links indexed by row id, written for these rows only
+         */
+        JoinTable(BuildSide side, int[] rows, int[] next) {
+            this.side = side;
+            int size = rows == null ? side.size : rows.length;
+            int capacity = Integer.highestOneBit(Math.max(16, size * 2 - 1)) << 1;
+            this.slotHashes = new long[capacity];
+            this.heads = new int[capacity];
+            this.next = next;
+            this.shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+            this.mask = capacity - 1;
+
+            // Inserting in reverse leaves each chain in file order
+            for (int i = size - 1; i >= 0; i--) {
+                int row = rows == null ? i : rows[i];
+                long hash = side.hashes[row];
+                int slot = (int) (hash >>> shift);
+                while (heads[slot] != 0 && slotHashes[slot] != hash) {
+                    slot = (slot + 1) & mask;
+                }
+                slotHashes[slot] = hash;
+                next[row] = heads[slot] - 1;
+                heads[slot] = row + 1;
+            }
+        }
+
+        /**
+         * Finds the first row with a key.
+         *
+         * @param hash key hash
+         * @param key  normalized key
+         * @return row id, or -1 when there is none
+         */
+        int first(long hash, String key) {
+            int slot = (int) (hash >>> shift);
+            while (heads[slot] != 0) {
+                if (slotHashes[slot] == hash) {
+                    return matching(heads[slot] - 1, key);
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Finds the next row after a match with the same key.
+         *
+         * @param row current row id
+         * @param key normalized key
+         * @return row id, or -1 when there is none
+         */
+        int next(int row, String key) {
+            return matching(next[row], key);
+        }
+
+        /**
+         * Walks a chain to the first row whose key really matches, skipping
+         * rows whose different key has the same hash.
+         *
+         * @param row first row id to check, or -1
+         * @param key normalized key
+         * @return row id, or -1 when there is none
+         */
+        private int matching(int row, String key) {
+            while (row >= 0 && !side.keys[row].equals(key)) {
+                row = next[row];
+            }
+            return row;
+        }
+    }
+
+    /**
+     * Summary of a finished join.
+     */
+    public static final class Result {
+        private final long probeRows;
+        private final long buildRows;
+        private final long outputRows;
+        private final int tables;
+        private final int spilledPartitions;
+        private final int spillDepth;
+        private final long elapsedNanos;
+
+        /**
+         * Captures the counters of a run.
+         *
+         * @param run          finished run
+         * @param elapsedNanos wall time
+         */
+        private Result(Run run, long elapsedNanos) {
+            this.probeRows = run.probeRows;
+            this.buildRows = run.buildRows;
+            this.outputRows = run.outputRows.get();
+            this.tables = run.tables;
+            this.spilledPartitions = run.spilledPartitions.get();
+            this.spillDepth = run.deepestLevel.get();
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of probe rows read.
+         *
+         * @return probe rows
+         */
+        public long getProbeRows() {
+            return probeRows;
+        }
+
+        /**
+         * Returns the number of build rows read.
+         *
+         * @return build rows
+         */
+        public long getBuildRows() {
+            return buildRows;
+        }
+
+        /**
+         * Returns the number of rows written, not counting the header.
+         *
+         * @return output rows
+         */
+        public long getOutputRows() {
+            return outputRows;
+        }
+
+        /**
+         * Returns whether the build side was spilled to disk.
+         *
+         * @return true for a grace hash join
+         */
+        public boolean isSpilled() {
+            return spilledPartitions > 0;
+        }
+
+        /**
+         * Returns the number of build partition files written at every level.
+         *
+         * @return spilled partitions, 0 for an in-memory join
+         */
+        public int getSpilledPartitions() {
+            return spilledPartitions;
+        }
+
+        /**
+         * Returns the join duration.
+         *
+         * @return elapsed nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Formats the summary.
+         *
+         * @return printable lines
+         */
+        public List<String> formatDetails() {
+            List<String> lines = new ArrayList<>();
+            lines.add("Probe rows: " + probeRows);
+            lines.add("Build rows: " + buildRows);
+            lines.add("Output rows: " + outputRows);
+            if (isSpilled()) {
+                lines.add("Strategy: grace hash join, " + tables + " partitions, " + spilledPartitions
+                        + " partition files spilled, " + spillDepth + " level(s) deep");
+            } else {
+                lines.add("Strategy: in-memory hash join, " + tables + (tables == 1 ? " table" : " tables"));
+            }
+            lines.add("Elapsed: " + elapsedNanos / 1_000_000 + " ms");
+            return lines;
+        }
+    }
+}
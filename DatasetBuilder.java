@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link PokemonDataset} from one or more CSV files. Files are read
+ * and indexed as shards in parallel; each shard's columnar stat table is
+ * filled from the tokens its loader already split, and the tables are
+ * concatenated. Each shard's {@link StatCube} is aggregated from its table
+ * in the same load task, unless the dataset being replaced already holds the shard, table and cube
+ * of the unchanged file, in which case all three are reused and the file is
+ * not read at all. A builder is meant to be used by one thread; the dataset
+ * it produces is safe for any number.
+ */
+public class DatasetBuilder {
+    private final List<String> fileNames = new ArrayList<>();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int slowQueryCapacity = SlowQueryLog.DEFAULT_CAPACITY;
+    private long slowQueryThresholdNanos = SlowQueryLog.DEFAULT_THRESHOLD_NANOS;
+    private PokemonDataset previous;
+
+    /**
+     * Creates an empty builder.
+     */
+    public DatasetBuilder() {
+        // Default constructor
+    }
+
+    /**
+     * Adds a file to load as its own shard.
+     *
+     * @param fileName path to a CSV file
+     * @return this builder
+     */
+    public DatasetBuilder addFile(String fileName) {
+        fileNames.add(fileName);
+        return this;
+    }
+
+    /**
+     * Adds several files, one shard each.
+     *
+     * @param names paths to CSV files
+     * @return this builder
+     */
+    public DatasetBuilder addFiles(List<String> names) {
+        fileNames.addAll(names);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of build threads.
+     *
+     * @param threads thread count, at least 1
+     * @return this builder
+     */
+    public DatasetBuilder parallelism(int threads) {
+        this.parallelism = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Configures the dataset's slow query log.
+     *
+     * @param capacity       most recent slow queries kept
+     * @param thresholdNanos minimum duration of a logged query
+     * @return this builder
+     */
+    public DatasetBuilder slowQueryLog(int capacity, long thresholdNanos) {
+        this.slowQueryCapacity = capacity;
+        this.slowQueryThresholdNanos = thresholdNanos;
+        return this;
+    }
+
+    /**
+     * Lets a reload reuse the shards, stat tables and stat cubes of files
+     * that have not changed since an earlier dataset was built. Files are
+     * compared by path, size and modification time.
+     *
+     * @param dataset dataset being replaced, or null
+     * @return this builder
+     */
+    public DatasetBuilder reuseUnchangedFrom(PokemonDataset dataset) {
+        this.previous = dataset;
+        return this;
+    }
+
+    /**
+     * Loads every changed file and builds the dataset.
+     *
+     * @return dataset, or null if no files were added or any file cannot be read
+     */
+    public PokemonDataset build() {
+        Map<String, Integer> reusable = new HashMap<>();
+        if (previous != null) {
+            List<StatCube> previousCubes = previous.getShardCubes();
+            for (int i = 0; i < previousCubes.size(); i++) {
+                if (previousCubes.get(i).getSource() != null) {
+                    reusable.put(previousCubes.get(i).getSource(), i);
+                }
+            }
+        }
+
+        // Fingerprints are taken before loading so a file changed mid-load is not trusted later
+        List<String> fingerprints = new ArrayList<>();
+        List<PokemonShard> reusedShards = new ArrayList<>();
+        List<StatCube> cubes = new ArrayList<>();
+        for (String fileName : fileNames) {
+            String fingerprint = fileName == null ? null : StatCube.fingerprint(fileName);
+            Integer known = fingerprint == null ? null : reusable.get(fingerprint);
+            fingerprints.add(fingerprint);
+            reusedShards.add(known == null ? null : previous.getShards().get(known));
+            cubes.add(known == null ? null : previous.getShardCubes().get(known));
+        }
+        ShardedPokemonData shards = ShardedPokemonData.load(fileNames, reusedShards, parallelism);
+        if (shards == null) {
+            return null;
+        }
+
+        List<PokemonStatTable> parts = new ArrayList<>();
+        for (int i = 0; i < shards.getShards().size(); i++) {
+            PokemonShard shard = shards.getShards().get(i);
+            parts.add(shard.getStatTable());
+            if (cubes.get(i) == null) {
+                // The cube was aggregated by the load task; only its fingerprint is added here
+                cubes.set(i, shard.getStatCube().withSource(fingerprints.get(i)));
+            }
+        }
+        return new PokemonDataset(shards, PokemonStatTable.concat(parts), cubes,
+                new SlowQueryLog(slowQueryCapacity, slowQueryThresholdNanos));
+    }
+}
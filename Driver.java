@@ -1,5 +1,5 @@
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -55,10 +55,8 @@ public class Driver {
     private static final String DEFAULT_FILE = "pokemon.csv";
     private static final String RESULTS_FILE = "character_names.txt";
     private static final int MAX_FILENAME_ATTEMPTS = 2;
-    private static final String NAME_COLUMN = "name";
-    private static final String JAPANESE_NAME_COLUMN = "japanese_name";
-    private static final String SPEED_COLUMN = "speed";
-    private static final String HP_COLUMN = "hp";
+    private static final String FILE_NAME_SEPARATOR = ",";
+    private static final int SHARD_WORKERS = Runtime.getRuntime().availableProcessors();
 
     /**
      * Hidden constructor because this class only provides static helpers.
@@ -71,16 +69,8 @@ public class Driver {
     private static final IAnalyzePokemonData DATA_ANALYZER = new AnalyzePokemonData();
     private static final TestData TEST_DATA = new TestData(new WriteData());
 
-    private static ArrayList<String> rawData = new ArrayList<>();
-    private static HashSet<String> cachedNames = new HashSet<>();
-    private static ArrayList<String> sortedNames = new ArrayList<>();
-    private static final Map<String, String> NAME_TO_ROW = new HashMap<>();
-    private static final Map<String, PokemonCharacter> CHARACTER_BY_NAME = new HashMap<>();
-    private static final List<PokemonCharacter> CHARACTERS = new ArrayList<>();
-    private static int minHpValue = Integer.MAX_VALUE;
-    private static int maxHpValue = Integer.MIN_VALUE;
-    private static int minSpeedValue = Integer.MAX_VALUE;
-    private static int maxSpeedValue = Integer.MIN_VALUE;
+    // The console is one client of the engine; all loaded state lives in the immutable dataset
+    private static volatile PokemonDataset dataset;
 
     /**
      * Launches the menu loop.
@@ -143,50 +133,98 @@ public class Driver {
     }
 
     /**
-     * Opens a CSV file, reads data, and caches values for later searches.
+     * Opens one or more CSV files, loads each into its own shard, and caches
+     * values for later searches.
      */
     private static void handleOpenAndRead() {
         for (int attempt = 1; attempt <= MAX_FILENAME_ATTEMPTS; attempt++) {
-            System.out.print("Enter data file name (default " + DEFAULT_FILE + "): ");
-            String fileName = SCANNER.nextLine().trim();
+            System.out.print("Enter data file name(s), comma-separated (default " + DEFAULT_FILE + "): ");
+            List<String> fileNames = parseFileNames(SCANNER.nextLine());
 
-            if (fileName.isEmpty()) {
-                fileName = DEFAULT_FILE;
-            }
-
-            if (!DATA_READER.openDataFile(fileName)) {
-                System.out.println("Could not find the file: " + fileName);
+            String missing = findMissingFile(fileNames);
+            if (missing != null) {
+                System.out.println("Could not find the file: " + missing);
                 continue;
             }
 
-            if (!DATA_READER.readDataFile()) {
-                System.out.println("Failed to read the file: " + fileName);
+            PokemonDataset loaded = new DatasetBuilder()
+                    .addFiles(fileNames)
+                    .parallelism(SHARD_WORKERS)
+                    .reuseUnchangedFrom(dataset)
+                    .build();
+            if (loaded == null) {
+                System.out.println("Failed to read the file(s): " + String.join(", ", fileNames));
                 continue;
             }
 
-            rawData = DATA_READER.getRawDataList();
-            cachedNames = DATA_ANALYZER.getAllCharacterNames(rawData);
-            sortedNames = new ArrayList<>(cachedNames);
-            Collections.sort(sortedNames, String.CASE_INSENSITIVE_ORDER);   // alphabetizes list allowing for binary seach for "Search for a character" menu option
-            buildSearchIndex();
-            buildPokemonCharacters();
-            System.out.println("Successfully loaded " + rawData.size() + " rows.");
+            replaceDataset(loaded);
+            System.out.println("Successfully loaded " + loaded.getRawData().size() + " rows from "
+                    + loaded.getShards().size() + " file(s).");
+            if (!loaded.getValidationReport().isClean()) {
+                for (String line : loaded.getValidationReport().formatDetails()) {
+                    System.out.println(line);
+                }
+            }
             return;
         }
 
-        rawData.clear();
-        cachedNames.clear();
-        sortedNames.clear();
-        NAME_TO_ROW.clear();
-        resetCharacterCollections();
+        replaceDataset(null);
         System.out.println("Unable to open the file after " + MAX_FILENAME_ATTEMPTS + " attempts.");
     }
 
+    /**
+     * Splits user input into file names, falling back to the default file.
+     *
+     * @param input comma-separated file names
+     * @return non-empty list of trimmed file names
+     */
+    private static List<String> parseFileNames(String input) {
+        List<String> fileNames = new ArrayList<>();
+        for (String part : input.split(FILE_NAME_SEPARATOR)) {
+            String fileName = part.trim();
+            if (!fileName.isEmpty()) {
+                fileNames.add(fileName);
+            }
+        }
+        if (fileNames.isEmpty()) {
+            fileNames.add(DEFAULT_FILE);
+        }
+        return fileNames;
+    }
+
+    /**
+     * Returns the first file name that cannot be opened.
+     *
+     * @param fileNames files to check
+     * @return missing file name, or null if all exist
+     */
+    private static String findMissingFile(List<String> fileNames) {
+        for (String fileName : fileNames) {
+            if (!DATA_READER.openDataFile(fileName)) {
+                return fileName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Publishes a newly built dataset and releases the previous one.
+     *
+     * @param loaded new dataset, or null to clear everything
+     */
+    private static void replaceDataset(PokemonDataset loaded) {
+        PokemonDataset previous = dataset;
+        dataset = loaded;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
     /**
      * Runs unit-test style actions such as printing lines or writing names.
      */
     private static void handleUnitTests() {
-        if (rawData.isEmpty()) {
+        if (dataset == null || dataset.getRawData().isEmpty()) {
             System.out.println("Load data before running tests.");
             return;
         }
@@ -196,10 +234,10 @@ public class Driver {
             case SUB_MENU_BACK:
                 return;
             case SUB_MENU1_PRINT_LINES:
-                TEST_DATA.printFirstAndLastSeven(rawData);
+                TEST_DATA.printFirstAndLastSeven(dataset.getRawDataList());
                 break;
             case SUB_MENU1_WRITE_NAMES:
-                HashSet<String> names = DATA_ANALYZER.getAllCharacterNames(rawData);
+                HashSet<String> names = DATA_ANALYZER.getAllCharacterNames(dataset.getRawDataList());
                 TEST_DATA.writeCharacterNames(names, RESULTS_FILE);
                 break;
             default:
@@ -231,35 +269,36 @@ public class Driver {
     }
 
     /**
-     * Searches for a character by name using cached indexes.
+     * Searches for a character by name or pokedex number across all loaded
+     * files. A query of digits only is taken as a pokedex number; a name
+     * that is not an English name is tried as a romaji or kana name.
      */
     private static void handleSearchByName() {
-        if (sortedNames.isEmpty() || NAME_TO_ROW.isEmpty()) {
+        if (dataset == null || dataset.getNameCount() == 0) {
             System.out.println("Load data before searching.");
             return;
         }
 
-        System.out.print("Enter character name to search: ");
+        System.out.print("Enter character name or pokedex number to search: ");
         String query = SCANNER.nextLine().trim();
         if (query.isEmpty()) {
             System.out.println("Search term cannot be empty.");
             return;
         }
 
-        int index = Collections.binarySearch(sortedNames, query, String.CASE_INSENSITIVE_ORDER);
-        if (index < 0) {
-            System.out.println("Could not find " + query + " in the dataset.");
-            return;
+        boolean byNumber = query.matches("\\d{1,9}");
+        String row = byNumber
+                ? dataset.findRowByPokedexNumber(Integer.parseInt(query))
+                : dataset.findRowByName(query);
+        if (row == null && !byNumber) {
+            row = dataset.findRowByJapaneseName(query);
         }
-
-        String matchedName = sortedNames.get(index);
-        String row = NAME_TO_ROW.get(matchedName.toLowerCase());
         if (row == null) {
-            System.out.println("Row data missing for " + matchedName + ".");
+            System.out.println("Could not find " + query + " in the dataset.");
             return;
         }
 
-        System.out.println(rawData.get(0));
+        System.out.println(dataset.getHeader());
         System.out.println(row);
     }
 
@@ -408,9 +447,9 @@ public class Driver {
      * Finds characters with an exact HP value.
      */
     private static void handleSpecificHpSearch() {
-        displayRange("HP", minHpValue, maxHpValue);
-        int targetHp = promptForIntWithinRange("Enter the HP value to search for: ", minHpValue, maxHpValue);
-        TreeSet<PokemonCharacter> matches = collectCharactersByHpRange(targetHp, targetHp);
+        displayRange("HP", dataset.getMinHp(), dataset.getMaxHp());
+        int targetHp = promptForIntWithinRange("Enter the HP value to search for: ", dataset.getMinHp(), dataset.getMaxHp());
+        List<PokemonCharacter> matches = collectCharactersByHpRange(targetHp, targetHp);
         if (matches.isEmpty()) {
             System.out.println("No characters found with HP value " + targetHp + ".");
             return;
@@ -424,16 +463,16 @@ public class Driver {
      * Finds characters whose HP falls within a given range.
      */
     private static void handleHpRangeSearch() {
-        displayRange("HP", minHpValue, maxHpValue);
-        int minHp = promptForIntWithinRange("Enter minimum HP (inclusive): ", minHpValue, maxHpValue);
-        int maxHp = promptForIntWithinRange("Enter maximum HP (inclusive): ", minHpValue, maxHpValue);
+        displayRange("HP", dataset.getMinHp(), dataset.getMaxHp());
+        int minHp = promptForIntWithinRange("Enter minimum HP (inclusive): ", dataset.getMinHp(), dataset.getMaxHp());
+        int maxHp = promptForIntWithinRange("Enter maximum HP (inclusive): ", dataset.getMinHp(), dataset.getMaxHp());
         if (minHp > maxHp) {
             int temp = minHp;
             minHp = maxHp;
             maxHp = temp;
         }
 
-        TreeSet<PokemonCharacter> matches = collectCharactersByHpRange(minHp, maxHp);
+        List<PokemonCharacter> matches = collectCharactersByHpRange(minHp, maxHp);
         if (matches.isEmpty()) {
             System.out.println("No characters found within the HP range " + minHp + "-" + maxHp + ".");
             return;
@@ -449,8 +488,8 @@ public class Driver {
      * @param findLowest true to find the minimum HP, false for maximum
      */
     private static void handleExtremumHpSearch(boolean findLowest) {
-        int targetHp = findLowest ? minHpValue : maxHpValue;
-        TreeSet<PokemonCharacter> matches = collectCharactersByHpRange(targetHp, targetHp);
+        int targetHp = findLowest ? dataset.getMinHp() : dataset.getMaxHp();
+        List<PokemonCharacter> matches = collectCharactersByHpRange(targetHp, targetHp);
         if (matches.isEmpty()) {
             System.out.println("No HP data available.");
             return;
@@ -507,16 +546,16 @@ public class Driver {
      * Finds characters whose speed falls within a given range.
      */
     private static void handleSpeedRangeSearch() {
-        displayRange("Speed", minSpeedValue, maxSpeedValue);
-        int minSpeed = promptForIntWithinRange("Enter minimum speed (inclusive): ", minSpeedValue, maxSpeedValue);
-        int maxSpeed = promptForIntWithinRange("Enter maximum speed (inclusive): ", minSpeedValue, maxSpeedValue);
+        displayRange("Speed", dataset.getMinSpeed(), dataset.getMaxSpeed());
+        int minSpeed = promptForIntWithinRange("Enter minimum speed (inclusive): ", dataset.getMinSpeed(), dataset.getMaxSpeed());
+        int maxSpeed = promptForIntWithinRange("Enter maximum speed (inclusive): ", dataset.getMinSpeed(), dataset.getMaxSpeed());
         if (minSpeed > maxSpeed) {
             int temp = minSpeed;
             minSpeed = maxSpeed;
             maxSpeed = temp;
         }
 
-        TreeSet<PokemonCharacter> matches = collectCharactersBySpeedRange(minSpeed, maxSpeed);
+        List<PokemonCharacter> matches = collectCharactersBySpeedRange(minSpeed, maxSpeed);
         if (matches.isEmpty()) {
             System.out.println("No characters found within the speed range " + minSpeed + "-" + maxSpeed + ".");
             return;
@@ -532,8 +571,8 @@ public class Driver {
      * @param findLowest true to show the slowest value, false for fastest
      */
     private static void handleExtremumSpeedSearch(boolean findLowest) {
-        int targetSpeed = findLowest ? minSpeedValue : maxSpeedValue;
-        TreeSet<PokemonCharacter> matches = collectCharactersBySpeedRange(targetSpeed, targetSpeed);
+        int targetSpeed = findLowest ? dataset.getMinSpeed() : dataset.getMaxSpeed();
+        List<PokemonCharacter> matches = collectCharactersBySpeedRange(targetSpeed, targetSpeed);
         if (matches.isEmpty()) {
             System.out.println("No speed data available.");
             return;
@@ -550,26 +589,19 @@ public class Driver {
      * @param fastest true for fastest top values, false for slowest bottom values
      */
     private static void handleTopSpeedValues(boolean fastest) {
-        Map<Integer, TreeSet<PokemonCharacter>> groups = buildSpeedBuckets();
-        if (groups.isEmpty()) {
+        List<Integer> speeds = dataset.topSpeedValues(3, fastest);
+        if (speeds.isEmpty()) {
             System.out.println("No speed data available.");
             return;
         }
 
-        ArrayList<Integer> speeds = new ArrayList<>(groups.keySet());
-        if (fastest) {
-            speeds.sort(Collections.reverseOrder());
-        } else {
-            Collections.sort(speeds);
-        }
-
-        int limit = Math.min(3, speeds.size());
+        int limit = speeds.size();
         String descriptor = fastest ? "fastest" : "slowest";
         String qualifier = fastest ? "Top" : "Bottom";
         System.out.println(qualifier + " " + limit + " " + descriptor + " speed values:");
         for (int i = 0; i < limit; i++) {
             int speed = speeds.get(i);
-            TreeSet<PokemonCharacter> names = groups.get(speed);
+            List<PokemonCharacter> names = dataset.getSpeedGroup(speed);
             System.out.println("Speed " + speed + " (" + names.size() + " characters):");
             printCharacterDetails(names);
         }
@@ -579,15 +611,15 @@ public class Driver {
      * Shows the three largest speed groups by number of characters.
      */
     private static void handleTopSpeedGroupsBySize() {
-        Map<Integer, TreeSet<PokemonCharacter>> groups = buildSpeedBuckets();
-        if (groups.isEmpty()) {
+        TreeMap<Integer, Integer> groupSizes = dataset.getSpeedGroupSizes();
+        if (groupSizes.isEmpty()) {
             System.out.println("No speed data available.");
             return;
         }
 
-        ArrayList<Map.Entry<Integer, TreeSet<PokemonCharacter>>> entries = new ArrayList<>(groups.entrySet());
+        ArrayList<Map.Entry<Integer, Integer>> entries = new ArrayList<>(groupSizes.entrySet());
         entries.sort((a, b) -> {
-            int sizeCompare = Integer.compare(b.getValue().size(), a.getValue().size());
+            int sizeCompare = Integer.compare(b.getValue(), a.getValue());
             if (sizeCompare != 0) {
                 return sizeCompare;
             }
@@ -600,7 +632,7 @@ public class Driver {
 
         for (int i = 0; i < Math.min(keys.length, entries.size()); i++) {
             TreeSet<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-            for (PokemonCharacter character : entries.get(i).getValue()) {
+            for (PokemonCharacter character : dataset.getSpeedGroup(entries.get(i).getKey())) {
                 names.add(character.getName());
             }
             rankedGroups.put(keys[i], names);
@@ -628,15 +660,15 @@ public class Driver {
      * Shows the single largest speed group.
      */
     private static void handleLargestSpeedGroup() {
-        Map<Integer, TreeSet<PokemonCharacter>> groups = buildSpeedBuckets();
-        if (groups.isEmpty()) {
+        TreeMap<Integer, Integer> groupSizes = dataset.getSpeedGroupSizes();
+        if (groupSizes.isEmpty()) {
             System.out.println("No speed data available.");
             return;
         }
 
-        Map.Entry<Integer, TreeSet<PokemonCharacter>> largest = groups.entrySet().stream()
+        Map.Entry<Integer, Integer> largest = groupSizes.entrySet().stream()
                 .max((a, b) -> {
-                    int sizeCompare = Integer.compare(a.getValue().size(), b.getValue().size());
+                    int sizeCompare = Integer.compare(a.getValue(), b.getValue());
                     if (sizeCompare != 0) {
                         return sizeCompare;
                     }
@@ -649,91 +681,9 @@ public class Driver {
             return;
         }
 
-        System.out.println("Largest speed group (speed " + largest.getKey() + ", " + largest.getValue().size() + " characters):");
-        printCharacterDetails(largest.getValue());
-    }
-
-    /**
-     * Builds maps for quick lookups by lowercased name.
-     */
-    private static void buildSearchIndex() {
-        NAME_TO_ROW.clear();
-        if (rawData.isEmpty()) {
-            return;
-        }
-
-        int nameIndex = PokemonCsvUtils.findColumnIndex(rawData.get(0), NAME_COLUMN);
-        if (nameIndex < 0) {
-            return;
-        }
-
-        for (int i = 1; i < rawData.size(); i++) {
-            String row = rawData.get(i);
-            List<String> tokens = PokemonCsvUtils.splitCsvRecord(row);
-            if (nameIndex < tokens.size()) {
-                String name = tokens.get(nameIndex).trim();
-                if (!name.isEmpty()) {
-                    NAME_TO_ROW.put(name.toLowerCase(), row);
-                }
-            }
-        }
-    }
-
-    /**
-     * Parses raw rows into PokemonCharacter objects and caches min/max stats.
-     */
-    private static void buildPokemonCharacters() {
-        resetCharacterCollections();
-        if (rawData.size() <= 1) {
-            return;
-        }
-
-        String header = rawData.get(0);
-        int nameIndex = PokemonCsvUtils.findColumnIndex(header, NAME_COLUMN);
-        int japaneseIndex = PokemonCsvUtils.findColumnIndex(header, JAPANESE_NAME_COLUMN);
-        int hpIndex = PokemonCsvUtils.findColumnIndex(header, HP_COLUMN);
-        int speedIndex = PokemonCsvUtils.findColumnIndex(header, SPEED_COLUMN);
-
-        if (nameIndex < 0 || japaneseIndex < 0 || hpIndex < 0 || speedIndex < 0) {
-            System.out.println("Unable to locate required columns for character data.");
-            return;
-        }
-
-        for (int i = 1; i < rawData.size(); i++) {
-            List<String> tokens = PokemonCsvUtils.splitCsvRecord(rawData.get(i));
-            if (nameIndex >= tokens.size() || hpIndex >= tokens.size() || speedIndex >= tokens.size()) {
-                continue;
-            }
-
-            String name = tokens.get(nameIndex).trim();
-            String japaneseName = japaneseIndex < tokens.size() ? tokens.get(japaneseIndex).trim() : "";
-            Integer hp = parseInteger(tokens.get(hpIndex));
-            Integer speed = parseInteger(tokens.get(speedIndex));
-
-            if (name.isEmpty() || hp == null || speed == null) {
-                continue;
-            }
-
-            PokemonCharacter character = new PokemonCharacter(name, japaneseName, hp, speed);
-            CHARACTERS.add(character);
-            CHARACTER_BY_NAME.put(name.toLowerCase(), character);
-            minHpValue = Math.min(minHpValue, hp);
-            maxHpValue = Math.max(maxHpValue, hp);
-            minSpeedValue = Math.min(minSpeedValue, speed);
-            maxSpeedValue = Math.max(maxSpeedValue, speed);
-        }
-    }
-
-    /**
-     * Clears cached character lists and resets extrema.
-     */
-    private static void resetCharacterCollections() {
-        CHARACTERS.clear();
-        CHARACTER_BY_NAME.clear();
-        minHpValue = Integer.MAX_VALUE;
-        maxHpValue = Integer.MIN_VALUE;
-        minSpeedValue = Integer.MAX_VALUE;
-        maxSpeedValue = Integer.MIN_VALUE;
+        List<PokemonCharacter> group = dataset.getSpeedGroup(largest.getKey());
+        System.out.println("Largest speed group (speed " + largest.getKey() + ", " + group.size() + " characters):");
+        printCharacterDetails(group);
     }
 
     /**
@@ -742,7 +692,7 @@ public class Driver {
      * @return true if data exists
      */
     private static boolean hasCharacterData() {
-        if (CHARACTERS.isEmpty()) {
+        if (dataset == null || dataset.getCharacterCount() == 0) {
             System.out.println("Load data before searching.");
             return false;
         }
@@ -791,16 +741,10 @@ public class Driver {
      *
      * @param minHp minimum HP inclusive
      * @param maxHp maximum HP inclusive
-     * @return ordered set of matches
+     * @return ordered matches
      */
-    private static TreeSet<PokemonCharacter> collectCharactersByHpRange(int minHp, int maxHp) {
-        TreeSet<PokemonCharacter> matches = new TreeSet<>(PokemonCharacter.BY_HP_ASC);
-        for (PokemonCharacter character : CHARACTERS) {
-            if (character.getHp() >= minHp && character.getHp() <= maxHp) {
-                matches.add(character);
-            }
-        }
-        return matches;
+    private static List<PokemonCharacter> collectCharactersByHpRange(int minHp, int maxHp) {
+        return dataset.collectByHpRange(minHp, maxHp);
     }
 
     /**
@@ -808,38 +752,18 @@ public class Driver {
      *
      * @param minSpeed minimum speed inclusive
      * @param maxSpeed maximum speed inclusive
-     * @return ordered set of matches
+     * @return ordered matches
      */
-    private static TreeSet<PokemonCharacter> collectCharactersBySpeedRange(int minSpeed, int maxSpeed) {
-        TreeSet<PokemonCharacter> matches = new TreeSet<>(PokemonCharacter.BY_SPEED_ASC);
-        for (PokemonCharacter character : CHARACTERS) {
-            if (character.getSpeed() >= minSpeed && character.getSpeed() <= maxSpeed) {
-                matches.add(character);
-            }
-        }
-        return matches;
-    }
-
-    /**
-     * Groups characters by their speed value.
-     *
-     * @return map from speed to ordered set of characters
-     */
-    private static Map<Integer, TreeSet<PokemonCharacter>> buildSpeedBuckets() {
-        Map<Integer, TreeSet<PokemonCharacter>> groups = new HashMap<>();
-        for (PokemonCharacter character : CHARACTERS) {
-            groups.computeIfAbsent(character.getSpeed(), k -> new TreeSet<>(PokemonCharacter.BY_SPEED_ASC))
-                    .add(character);
-        }
-        return groups;
+    private static List<PokemonCharacter> collectCharactersBySpeedRange(int minSpeed, int maxSpeed) {
+        return dataset.collectBySpeedRange(minSpeed, maxSpeed);
     }
 
     /**
      * Prints a formatted line for each character in a set.
      *
-     * @param characters ordered set of characters
+     * @param characters ordered characters
      */
-    private static void printCharacterDetails(TreeSet<PokemonCharacter> characters) {
+    private static void printCharacterDetails(Collection<PokemonCharacter> characters) {
         for (PokemonCharacter character : characters) {
             System.out.println(" - " + character.formatDetails());
         }
@@ -869,16 +793,7 @@ public class Driver {
         if (name == null) {
             return null;
         }
-        PokemonCharacter character = CHARACTER_BY_NAME.get(name.toLowerCase());
-        if (character != null) {
-            return character;
-        }
-        for (PokemonCharacter candidate : CHARACTERS) {
-            if (candidate.getName().equalsIgnoreCase(name)) {
-                return candidate;
-            }
-        }
-        return null;
+        return dataset.findCharacterByName(name);
     }
 
     /**
@@ -894,27 +809,6 @@ public class Driver {
         return Character.toUpperCase(word.charAt(0)) + word.substring(1);
     }
 
-    /**
-     * Safely parses an integer or returns null on failure.
-     *
-     * @param value text to parse
-     * @return integer value or null
-     */
-    private static Integer parseInteger(String value) {
-        if (value == null) {
-            return null;
-        }
-        String trimmed = value.trim();
-        if (trimmed.isEmpty()) {
-            return null;
-        }
-        try {
-            return Integer.parseInt(trimmed);
-        } catch (NumberFormatException ex) {
-            return null;
-        }
-    }
-
     /**
      * Prompts repeatedly until a valid integer is entered.
      *
@@ -0,0 +1,128 @@
+import java.text.Normalizer;
+
+/**
+ * Splits and normalizes the {@code japanese_name} column, which stores the
+ * romaji and kana forms glued together, for example {@code Fushigidane}
+ * directly followed by the same name in katakana.
+ *
+ * <p>The kana form starts at the first kana, CJK or full-width character;
+ * everything before it is the romaji form. Search keys are folded with NFKC,
+ * so full-width digits and letters match their ASCII forms, then katakana is
+ * folded to hiragana and Latin letters to lower case. A name then matches by
+ * its romaji, its katakana or the same kana typed as hiragana.</p>
+ */
+public final class JapaneseNames {
+    private static final char KATAKANA_FIRST = '\u30A1';
+    private static final char KATAKANA_LAST = '\u30F6';
+    private static final char KATAKANA_ITERATION_MARK = '\u30FD';
+    private static final char KATAKANA_VOICED_ITERATION_MARK = '\u30FE';
+    private static final char HIRAGANA_FIRST = '\u3041';
+    private static final char HIRAGANA_LAST = '\u3096';
+    private static final char PROLONGED_SOUND_MARK = '\u30FC';
+    private static final int KATAKANA_TO_HIRAGANA = 0x60;
+
+    private JapaneseNames() {
+        // Utility class
+    }
+
+    /**
+     * Finds where the kana form of a glued name starts.
+     *
+     * @param japaneseName raw column value
+     * @return index of the first kana, CJK or full-width character, or the
+     *         length of the name when it has none
+     */
+    public static int kanaStart(String japaneseName) {
+        for (int i = 0; i < japaneseName.length(); i++) {
+            if (isJapanese(japaneseName.charAt(i))) {
+                return i;
+            }
+        }
+        return japaneseName.length();
+    }
+
+    /**
+     * Returns the romaji form of a glued name, as written in the data.
+     *
+     * @param japaneseName raw column value, may be null
+     * @return romaji, or an empty string when there is none
+     */
+    public static String romajiOf(String japaneseName) {
+        if (japaneseName == null) {
+            return "";
+        }
+        return japaneseName.substring(0, kanaStart(japaneseName)).trim();
+    }
+
+    /**
+     * Returns the kana form of a glued name, as written in the data.
+     *
+     * @param japaneseName raw column value, may be null
+     * @return kana, or an empty string when there is none
+     */
+    public static String kanaOf(String japaneseName) {
+        if (japaneseName == null) {
+            return "";
+        }
+        return japaneseName.substring(kanaStart(japaneseName)).trim();
+    }
+
+    /**
+     * Folds a romaji or kana name, or a query for one, into a search key.
+     *
+     * @param text name or query, may be null
+     * @return folded key, empty when the text is null or blank
+     */
+    public static String searchKey(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        String normalized = isNfkcStable(trimmed) ? trimmed : Normalizer.normalize(trimmed, Normalizer.Form.NFKC);
+        char[] chars = normalized.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if ((c >= KATAKANA_FIRST && c <= KATAKANA_LAST)
+                    || c == KATAKANA_ITERATION_MARK || c == KATAKANA_VOICED_ITERATION_MARK) {
+                chars[i] = (char) (c - KATAKANA_TO_HIRAGANA);
+            } else {
+                chars[i] = Character.toLowerCase(c);
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Tests whether NFKC would leave text unchanged because it holds only
+     * ASCII and precomposed kana, the common case of a typed query.
+     *
+     * @param text text to test
+     * @return true when normalization can be skipped
+     */
+    private static boolean isNfkcStable(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 && (c < HIRAGANA_FIRST || c > HIRAGANA_LAST)
+                    && (c < KATAKANA_FIRST || c > KATAKANA_LAST) && c != PROLONGED_SOUND_MARK) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests whether a character belongs to the kana side of a glued name.
+     *
+     * @param c character
+     * @return true for kana, CJK ideographs and punctuation, and full-width forms
+     */
+    private static boolean isJapanese(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.KATAKANA_PHONETIC_EXTENSIONS
+                || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION;
+    }
+}
@@ -0,0 +1,275 @@
+import java.util.Arrays;
+
+/**
+ * Point-lookup index from the two keys of a Pokedex row, its pokedex number
+ * and its name, to a row id chosen by the caller.
+ *
+ * <p>Pokedex numbers are dense small integers, so they index an
+ * {@code int[]} directly; the rare number far beyond the row count goes to a
+ * small sorted overflow array instead of growing the direct array. Names
+ * live in one open-addressing table compared with
+ * {@link String#equalsIgnoreCase}, behind a {@link NameBloomFilter} that
+ * turns most misses away before the table is probed. Indexes are built
+ * once with a {@link Builder} and are immutable afterwards.</p>
+ */
+public final class KeyLookupIndex {
+    private static final int DIRECT_SLACK = 1024;
+    private static final int DIRECT_FACTOR = 4;
+
+    private final int[] rowByNumber;
+    private final long[] overflow;
+    private final int numberCount;
+    private final String[] names;
+    private final int[] nameRows;
+    private final int slotMask;
+    private final int nameCount;
+    private final NameBloomFilter bloom;
+
+    /**
+     * Freezes a builder's keys.
+     *
+     * @param builder collected keys
+     */
+    private KeyLookupIndex(Builder builder) {
+        names = builder.names;
+        nameRows = builder.nameRows;
+        slotMask = names.length - 1;
+        nameCount = builder.nameCount;
+        bloom = new NameBloomFilter(nameCount);
+        for (String name : names) {
+            if (name != null) {
+                bloom.add(NameBloomFilter.hash(name));
+            }
+        }
+
+        // Numbers up to a few times the row count are addressed directly
+        int count = builder.numberPairs;
+        long limit = Math.max(DIRECT_SLACK, (long) DIRECT_FACTOR * count);
+        int maxDirect = 0;
+        int overflowCount = 0;
+        for (int i = 0; i < count; i++) {
+            int number = builder.numbers[2 * i];
+            if (number <= limit) {
+                maxDirect = Math.max(maxDirect, number);
+            } else {
+                overflowCount++;
+            }
+        }
+        rowByNumber = new int[maxDirect + 1];
+        Arrays.fill(rowByNumber, -1);
+        long[] packed = new long[overflowCount];
+        int packedCount = 0;
+        for (int i = 0; i < count; i++) {
+            int number = builder.numbers[2 * i];
+            int row = builder.numbers[2 * i + 1];
+            if (number <= limit) {
+                rowByNumber[number] = row;
+            } else {
+                // The pair position breaks ties so the last pair sorts last
+                packed[packedCount++] = (long) number << 32 | i;
+            }
+        }
+        Arrays.sort(packed);
+        int kept = 0;
+        for (int i = 0; i < packed.length; i++) {
+            if (i + 1 < packed.length && packed[i + 1] >>> 32 == packed[i] >>> 32) {
+                continue;
+            }
+            int pair = (int) packed[i];
+            packed[kept++] = (packed[i] & 0xFFFFFFFF00000000L) | builder.numbers[2 * pair + 1];
+        }
+        overflow = Arrays.copyOf(packed, kept);
+
+        int distinct = kept;
+        for (int row : rowByNumber) {
+            if (row >= 0) {
+                distinct++;
+            }
+        }
+        numberCount = distinct;
+    }
+
+    /**
+     * Tests whether a name may be in the index, without probing the table.
+     *
+     * @param name name to test, case-insensitive
+     * @return false when the name is certainly missing
+     */
+    public boolean mightContainName(String name) {
+        return name != null && bloom.mightContain(NameBloomFilter.hash(name));
+    }
+
+    /**
+     * Finds the row of a name.
+     *
+     * @param name name to look up, case-insensitive
+     * @return row id, or -1 when missing
+     */
+    public int findName(String name) {
+        if (name == null) {
+            return -1;
+        }
+        long hash = NameBloomFilter.hash(name);
+        if (!bloom.mightContain(hash)) {
+            return -1;
+        }
+        int slot = slotOf(hash, slotMask);
+        while (names[slot] != null) {
+            if (names[slot].equalsIgnoreCase(name)) {
+                return nameRows[slot];
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the row of a pokedex number.
+     *
+     * @param number pokedex number
+     * @return row id, or -1 when missing
+     */
+    public int findNumber(int number) {
+        if (number <= 0) {
+            return -1;
+        }
+        if (number < rowByNumber.length) {
+            return rowByNumber[number];
+        }
+        int low = 0;
+        int high = overflow.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = (int) (overflow[mid] >>> 32);
+            if (key < number) {
+                low = mid + 1;
+            } else if (key > number) {
+                high = mid - 1;
+            } else {
+                return (int) overflow[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of distinct names.
+     *
+     * @return name count
+     */
+    public int getNameCount() {
+        return nameCount;
+    }
+
+    /**
+     * Returns the number of distinct pokedex numbers.
+     *
+     * @return number count
+     */
+    public int getNumberCount() {
+        return numberCount;
+    }
+
+    /**
+     * Maps a name hash to its home slot.
+     *
+     * @param hash name hash
+     * @param mask table size minus one
+     * @return slot
+     */
+    private static int slotOf(long hash, int mask) {
+        return (int) (hash >>> 32) & mask;
+    }
+
+    /**
+     * Collects keys for an index. With repeated keys the last row added wins.
+     */
+    public static final class Builder {
+        private static final int INITIAL_SLOTS = 16;
+
+        private String[] names = new String[INITIAL_SLOTS];
+        private int[] nameRows = new int[INITIAL_SLOTS];
+        private int nameCount;
+        private int[] numbers = new int[INITIAL_SLOTS];
+        private int numberPairs;
+
+        /**
+         * Adds a name. A name equal ignoring case to one already added
+         * replaces it.
+         *
+         * @param name name, not null
+         * @param row  row id, at least 0
+         * @return row the name had before, or -1 when it is new
+         */
+        public int putName(String name, int row) {
+            int mask = names.length - 1;
+            int slot = slotOf(NameBloomFilter.hash(name), mask);
+            while (names[slot] != null) {
+                if (names[slot].equalsIgnoreCase(name)) {
+                    int previous = nameRows[slot];
+                    nameRows[slot] = row;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            names[slot] = name;
+            nameRows[slot] = row;
+            nameCount++;
+            // Keep the table at most half full
+            if (nameCount * 2 > names.length) {
+                grow();
+            }
+            return -1;
+        }
+
+        /**
+         * Adds a pokedex number. Numbers below 1, which mark blank cells,
+         * are ignored.
+         *
+         * @param number pokedex number
+         * @param row    row id, at least 0
+         */
+        public void putNumber(int number, int row) {
+            if (number <= 0) {
+                return;
+            }
+            if (2 * numberPairs + 2 > numbers.length) {
+                numbers = Arrays.copyOf(numbers, numbers.length * 2);
+            }
+            numbers[2 * numberPairs] = number;
+            numbers[2 * numberPairs + 1] = row;
+            numberPairs++;
+        }
+
+        /**
+         * Doubles the name table.
+         */
+        private void grow() {
+            String[] oldNames = names;
+            int[] oldRows = nameRows;
+            names = new String[oldNames.length * 2];
+            nameRows = new int[oldNames.length * 2];
+            int mask = names.length - 1;
+            for (int i = 0; i < oldNames.length; i++) {
+                if (oldNames[i] == null) {
+                    continue;
+                }
+                int slot = slotOf(NameBloomFilter.hash(oldNames[i]), mask);
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = oldNames[i];
+                nameRows[slot] = oldRows[i];
+            }
+        }
+
+        /**
+         * Builds the index. The builder must not be used afterwards.
+         *
+         * @return immutable index
+         */
+        public KeyLookupIndex build() {
+            return new KeyLookupIndex(this);
+        }
+    }
+}
@@ -0,0 +1,591 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Column store that parses a CSV column only when it is first used.
+ *
+ * <p>Opening a file maps it read-only and records where each row starts;
+ * nothing else is parsed. The first request for a column scans every row
+ * for that field, in parallel on a fork-join pool, into a primitive array
+ * that is cached for later requests. Each materialization is recorded with
+ * its wall-clock cost and invalid cell count so callers can see which
+ * columns a workload actually paid for.</p>
+ *
+ * <p>Each column representation has its own future, so a column that is
+ * already cached is returned without locking and a parse only makes
+ * callers of that same column wait.</p>
+ *
+ * <p>The store is standalone: {@link DatasetBuilder} and the shards still
+ * read and tokenize every column at load, because their name indexes and
+ * stat tables need every row anyway. Use the store directly for workloads
+ * that touch only a few columns of a large file.</p>
+ *
+ * <p>Files must be smaller than 2 GB, the limit of a single mapped buffer.</p>
+ */
+public class LazyColumnStore {
+    private static final int ROWS_PER_TASK = 16_384;
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final String fileName;
+    private final MappedByteBuffer buffer;
+    private final List<String> columnNames;
+    private final int[] rowStarts;
+    private final int[] rowEnds;
+    private final ForkJoinPool pool;
+    private final ConcurrentHashMap<String, CompletableFuture<ParsedColumn>> materialized =
+            new ConcurrentHashMap<>();
+    private final List<ColumnCost> costs = new ArrayList<>();
+
+    /**
+     * Wraps a mapped file whose rows have been located.
+     *
+     * @param fileName    source file
+     * @param buffer      mapped file contents
+     * @param columnNames header names in order
+     * @param rowStarts   offset of each data row
+     * @param rowEnds     offset just past each data row, excluding line breaks
+     * @param pool        pool used to parse columns
+     */
+    private LazyColumnStore(String fileName, MappedByteBuffer buffer, List<String> columnNames,
+                            int[] rowStarts, int[] rowEnds, ForkJoinPool pool) {
+        this.fileName = fileName;
+        this.buffer = buffer;
+        this.columnNames = Collections.unmodifiableList(columnNames);
+        this.rowStarts = rowStarts;
+        this.rowEnds = rowEnds;
+        this.pool = pool;
+    }
+
+    /**
+     * Maps a file and records row boundaries.
+     *
+     * @param fileName CSV file with a header row
+     * @param pool     pool used to parse columns on first use
+     * @return store, or null if the file cannot be mapped or has no header
+     */
+    public static LazyColumnStore open(String fileName, ForkJoinPool pool) {
+        if (fileName == null || fileName.isBlank()) {
+            return null;
+        }
+        Path path = Paths.get(fileName.trim());
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return null;
+        }
+
+        int limit = buffer.limit();
+        int headerEnd = lineEnd(buffer, 0, limit);
+        if (headerEnd == 0) {
+            return null;
+        }
+        String header = decode(buffer, 0, headerEnd);
+        List<String> columnNames = PokemonCsvUtils.splitCsvRecord(header);
+
+        int[] starts = new int[1024];
+        int[] ends = new int[1024];
+        int rows = 0;
+        int position = nextLine(buffer, headerEnd, limit);
+        while (position < limit) {
+            int end = lineEnd(buffer, position, limit);
+            if (end > position) {
+                if (rows == starts.length) {
+                    starts = Arrays.copyOf(starts, rows * 2);
+                    ends = Arrays.copyOf(ends, rows * 2);
+                }
+                starts[rows] = position;
+                ends[rows] = end;
+                rows++;
+            }
+            position = nextLine(buffer, end, limit);
+        }
+
+        return new LazyColumnStore(fileName.trim(), buffer, new ArrayList<>(columnNames),
+                Arrays.copyOf(starts, rows), Arrays.copyOf(ends, rows), pool);
+    }
+
+    /**
+     * Finds the end of the line starting at an offset, excluding the line break.
+     *
+     * @param buffer file contents
+     * @param from   line start
+     * @param limit  end of file
+     * @return offset of the line break or end of file
+     */
+    private static int lineEnd(MappedByteBuffer buffer, int from, int limit) {
+        int i = from;
+        while (i < limit && buffer.get(i) != NEWLINE) {
+            i++;
+        }
+        return i > from && buffer.get(i - 1) == CARRIAGE_RETURN ? i - 1 : i;
+    }
+
+    /**
+     * Skips the line break after a line end.
+     *
+     * @param buffer file contents
+     * @param end    line end from {@link #lineEnd}
+     * @param limit  end of file
+     * @return start of the next line
+     */
+    private static int nextLine(MappedByteBuffer buffer, int end, int limit) {
+        int i = end;
+        if (i < limit && buffer.get(i) == CARRIAGE_RETURN) {
+            i++;
+        }
+        return i < limit && buffer.get(i) == NEWLINE ? i + 1 : i;
+    }
+
+    /**
+     * Decodes a UTF-8 byte range.
+     *
+     * @param buffer file contents
+     * @param from   first byte inclusive
+     * @param to     last byte exclusive
+     * @return decoded text
+     */
+    private static String decode(MappedByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.slice(from, to - from).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the source file name.
+     *
+     * @return file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the number of data rows.
+     *
+     * @return row count
+     */
+    public int getRowCount() {
+        return rowStarts.length;
+    }
+
+    /**
+     * Returns the header names.
+     *
+     * @return read-only column names
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Returns an integer column, parsing it on first use. Blank or invalid
+     * cells become 0, are left out of {@link #intValidity} and are counted in
+     * the column's cost record.
+     *
+     * @param columnName header name, case-insensitive
+     * @return column values by row; callers must not modify the array
+     */
+    public int[] intColumn(String columnName) {
+        return (int[]) materialize(columnName, ColumnKind.INT).values;
+    }
+
+    /**
+     * Returns a decimal column, parsing it on first use. Blank or invalid
+     * cells become {@link Double#NaN}.
+     *
+     * @param columnName header name, case-insensitive
+     * @return column values by row; callers must not modify the array
+     */
+    public double[] doubleColumn(String columnName) {
+        return (double[]) materialize(columnName, ColumnKind.DOUBLE).values;
+    }
+
+    /**
+     * Returns a text column, decoding it on first use. Surrounding quotes are
+     * removed and values are trimmed, as in {@link PokemonCsvUtils#splitCsvRecord}.
+     *
+     * @param columnName header name, case-insensitive
+     * @return column values by row; callers must not modify the array
+     */
+    public String[] stringColumn(String columnName) {
+        return (String[]) materialize(columnName, ColumnKind.TEXT).values;
+    }
+
+    /**
+     * Returns the rows whose cell parsed as an integer, materializing the
+     * integer column if needed.
+     *
+     * @param columnName header name, case-insensitive
+     * @return validity bitmap
+     */
+    public RowBitmap intValidity(String columnName) {
+        return materialize(columnName, ColumnKind.INT).valid;
+    }
+
+    /**
+     * Returns the rows whose cell parsed as a number, materializing the
+     * decimal column if needed.
+     *
+     * @param columnName header name, case-insensitive
+     * @return validity bitmap
+     */
+    public RowBitmap doubleValidity(String columnName) {
+        return materialize(columnName, ColumnKind.DOUBLE).valid;
+    }
+
+    /**
+     * Returns whether a column has been parsed.
+     *
+     * @param columnName header name, case-insensitive
+     * @return true if cached in any representation
+     */
+    public boolean isMaterialized(String columnName) {
+        int index = columnIndex(columnName);
+        for (ColumnKind kind : ColumnKind.values()) {
+            CompletableFuture<ParsedColumn> future = materialized.get(cacheKey(index, kind));
+            if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the cost of every column parsed so far, in parse order.
+     *
+     * @return cost records
+     */
+    public List<ColumnCost> getColumnCosts() {
+        synchronized (costs) {
+            return new ArrayList<>(costs);
+        }
+    }
+
+    /**
+     * Returns a cached column or parses it. The first caller for a column
+     * installs a future and parses; later callers for that column wait on the
+     * future, so each column is parsed exactly once. A failed parse is
+     * removed so the next caller retries it.
+     *
+     * @param columnName header name
+     * @param kind       target representation
+     * @return parsed column
+     */
+    private ParsedColumn materialize(String columnName, ColumnKind kind) {
+        int index = columnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown column: " + columnName);
+        }
+        String key = cacheKey(index, kind);
+        CompletableFuture<ParsedColumn> future = materialized.get(key);
+        if (future == null) {
+            CompletableFuture<ParsedColumn> created = new CompletableFuture<>();
+            future = materialized.putIfAbsent(key, created);
+            if (future == null) {
+                try {
+                    ParsedColumn column = parse(index, kind);
+                    created.complete(column);
+                    return column;
+                } catch (RuntimeException | Error e) {
+                    materialized.remove(key, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parses one column representation and records its cost.
+     *
+     * @param index column index
+     * @param kind  target representation
+     * @return parsed column
+     */
+    private ParsedColumn parse(int index, ColumnKind kind) {
+        long start = System.nanoTime();
+        int rows = rowStarts.length;
+        Object values;
+        switch (kind) {
+            case INT:
+                values = new int[rows];
+                break;
+            case DOUBLE:
+                values = new double[rows];
+                break;
+            default:
+                values = new String[rows];
+        }
+        RowBitmap valid = new RowBitmap(rows);
+        pool.invoke(new ParseTask(index, kind, values, valid, 0, rows));
+        synchronized (costs) {
+            costs.add(new ColumnCost(columnNames.get(index), kind.name().toLowerCase(),
+                    System.nanoTime() - start, rows - valid.cardinality()));
+        }
+        return new ParsedColumn(values, valid);
+    }
+
+    /**
+     * Finds a column by name.
+     *
+     * @param columnName header name, case-insensitive
+     * @return index, or -1 when missing
+     */
+    private int columnIndex(String columnName) {
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the cache key of a column representation.
+     *
+     * @param index column index
+     * @param kind  representation
+     * @return key
+     */
+    private static String cacheKey(int index, ColumnKind kind) {
+        return index + ":" + kind;
+    }
+
+    /**
+     * Locates a field within a row, honouring quotes.
+     *
+     * @param row   row id
+     * @param index column index
+     * @param span  receives {start, end}, without surrounding quotes and spaces
+     * @return false when the row has fewer fields
+     */
+    private boolean locateField(int row, int index, int[] span) {
+        int position = rowStarts[row];
+        int end = rowEnds[row];
+        int field = 0;
+        boolean insideQuotes = false;
+        int fieldStart = position;
+        for (; position <= end; position++) {
+            byte b = position < end ? buffer.get(position) : COMMA;
+            if (b == QUOTE) {
+                insideQuotes = !insideQuotes;
+            } else if (b == COMMA && !insideQuotes) {
+                if (field == index) {
+                    int from = fieldStart;
+                    int to = position;
+                    while (from < to && (buffer.get(from) == ' ' || buffer.get(from) == QUOTE)) {
+                        from++;
+                    }
+                    while (to > from && (buffer.get(to - 1) == ' ' || buffer.get(to - 1) == QUOTE)) {
+                        to--;
+                    }
+                    span[0] = from;
+                    span[1] = to;
+                    return true;
+                }
+                field++;
+                fieldStart = position + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Representations a column can be materialized as.
+     */
+    private enum ColumnKind {
+        INT,
+        DOUBLE,
+        TEXT
+    }
+
+    /**
+     * Parsed values of one column representation with the rows that parsed.
+     */
+    private static final class ParsedColumn {
+        private final Object values;
+        private final RowBitmap valid;
+
+        /**
+         * Creates a parsed column.
+         *
+         * @param values column array
+         * @param valid  rows whose cell parsed
+         */
+        ParsedColumn(Object values, RowBitmap valid) {
+            this.values = values;
+            this.valid = valid;
+        }
+    }
+
+    /**
+     * Parses a range of rows of one column.
+     */
+    private final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+        private final ColumnKind kind;
+        private final Object values;
+        private final RowBitmap valid;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a task for a block of rows.
+         *
+         * @param index  column index
+         * @param kind   representation
+         * @param values output array
+         * @param valid  receives the rows that parsed
+         * @param from   first row inclusive
+         * @param to     last row exclusive
+         */
+        ParseTask(int index, ColumnKind kind, Object values, RowBitmap valid, int from, int to) {
+            this.index = index;
+            this.kind = kind;
+            this.values = values;
+            this.valid = valid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                // Split on a 64-row boundary so no two tasks share a bitmap word
+                int mid = ((from + to) >>> 1) & ~63;
+                invokeAll(new ParseTask(index, kind, values, valid, from, mid),
+                        new ParseTask(index, kind, values, valid, mid, to));
+                return;
+            }
+
+            int[] span = new int[2];
+            for (int row = from; row < to; row++) {
+                boolean found = locateField(row, index, span);
+                switch (kind) {
+                    case INT:
+                        long parsed = found ? NumericParser.parseInt(buffer, span[0], span[1])
+                                : NumericParser.MISSING;
+                        ((int[]) values)[row] = parsed == NumericParser.MISSING ? 0 : (int) parsed;
+                        found = parsed != NumericParser.MISSING;
+                        break;
+                    case DOUBLE:
+                        double number = found ? NumericParser.parseDouble(buffer, span[0], span[1]) : Double.NaN;
+                        ((double[]) values)[row] = number;
+                        found = !Double.isNaN(number);
+                        break;
+                    default:
+                        ((String[]) values)[row] = found ? decode(buffer, span[0], span[1]) : "";
+                }
+                if (found) {
+                    valid.set(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cost record for one materialized column.
+     */
+    public static final class ColumnCost {
+        private final String columnName;
+        private final String representation;
+        private final long parseNanos;
+        private final int invalidCells;
+
+        /**
+         * Creates a record.
+         *
+         * @param columnName     column header name
+         * @param representation int, double or text
+         * @param parseNanos     wall-clock parse time
+         * @param invalidCells   blank or unparsable cells
+         */
+        ColumnCost(String columnName, String representation, long parseNanos, int invalidCells) {
+            this.columnName = columnName;
+            this.representation = representation;
+            this.parseNanos = parseNanos;
+            this.invalidCells = invalidCells;
+        }
+
+        /**
+         * Returns the column name.
+         *
+         * @return column name
+         */
+        public String getColumnName() {
+            return columnName;
+        }
+
+        /**
+         * Returns the representation the column was parsed into.
+         *
+         * @return int, double or text
+         */
+        public String getRepresentation() {
+            return representation;
+        }
+
+        /**
+         * Returns the wall-clock parse time.
+         *
+         * @return nanoseconds
+         */
+        public long getParseNanos() {
+            return parseNanos;
+        }
+
+        /**
+         * Returns the number of blank or unparsable cells.
+         *
+         * @return invalid cell count
+         */
+        public int getInvalidCells() {
+            return invalidCells;
+        }
+
+        /**
+         * Formats a one-line summary.
+         *
+         * @return printable summary
+         */
+        public String formatDetails() {
+            return columnName + " (" + representation + ") | " + (parseNanos / 1_000) + " us | invalid: "
+                    + invalidCells;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Bloom filter over case-insensitive names. A lookup for a name that was
+ * never added is rejected after a few bit tests, without probing a hash
+ * table or comparing strings; about 1% of such names get through and are
+ * rejected by the table behind the filter. Names that were added always
+ * pass.
+ *
+ * <p>Bits are addressed by double hashing of one 64-bit name hash, so a
+ * caller that already hashed a name for its own table reuses the hash.</p>
+ */
+public final class NameBloomFilter {
+    private static final int BITS_PER_NAME = 10;
+    private static final int PROBES = 4;
+    private static final int MIN_BITS = 64;
+
+    private final long[] words;
+    private final int bitMask;
+
+    /**
+     * Creates an empty filter sized for a number of names.
+     *
+     * @param expectedNames names that will be added
+     */
+    public NameBloomFilter(int expectedNames) {
+        long wanted = Math.max(MIN_BITS, (long) Math.max(0, expectedNames) * BITS_PER_NAME);
+        int bits = (int) Math.min(1L << 30, Long.highestOneBit(wanted - 1) << 1);
+        words = new long[bits >>> 6];
+        bitMask = bits - 1;
+    }
+
+    /**
+     * Hashes a name so that names equal ignoring case hash alike, with the
+     * same case folding as {@link String#equalsIgnoreCase}.
+     *
+     * @param name name to hash
+     * @return 64-bit hash
+     */
+    public static long hash(CharSequence name) {
+        long hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return spread(hash);
+    }
+
+    /**
+     * Spreads a weak hash, such as a 32-bit string hash, over all 64 bits.
+     *
+     * @param hash hash to mix
+     * @return mixed hash
+     */
+    public static long spread(long hash) {
+        long z = hash + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Adds a name by its hash.
+     *
+     * @param hash hash from {@link #hash} or {@link #spread}
+     */
+    public void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (h1 + i * h2) & bitMask;
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Tests whether a name may have been added.
+     *
+     * @param hash hash from {@link #hash} or {@link #spread}
+     * @return false when the name was certainly never added
+     */
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (h1 + i * h2) & bitMask;
+            if ((words[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the size of the filter.
+     *
+     * @return number of bits
+     */
+    public int getBitCount() {
+        return bitMask + 1;
+    }
+}
@@ -0,0 +1,384 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation-free parsing of integers and simple decimals straight from a
+ * range of characters or bytes, such as a field of a CSV line.
+ *
+ * <p>Results match {@link Integer#parseInt}, {@link Double#parseDouble} and
+ * {@link Float#parseFloat} exactly. Plain decimals such as {@code 88.1} are
+ * decoded on a fast path: when the digits fit a double's 53-bit mantissa
+ * (24 bits for floats) and there are at most 22 fraction digits (10 for
+ * floats), both the digits and the power of ten are exact, so one IEEE
+ * division gives the correctly rounded result the JDK would. Anything else,
+ * such as exponents, long fractions or non-ASCII digits, is handed to the
+ * JDK, which allocates.</p>
+ *
+ * <p>Surrounding whitespace is ignored. Blank or invalid input is reported
+ * as {@link #MISSING} for integers and {@link Double#NaN} for decimals, so
+ * callers can record it in a validity bitmap instead of catching
+ * exceptions.</p>
+ */
+public final class NumericParser {
+    /**
+     * Integer result for blank or invalid input.
+     */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private static final long DOUBLE_EXACT_LIMIT = 1L << 53;
+    private static final long FLOAT_EXACT_LIMIT = 1L << 24;
+    private static final int DOUBLE_MAX_SCALE = 22;
+    private static final int FLOAT_MAX_SCALE = 10;
+    private static final double[] DOUBLE_POWERS = new double[DOUBLE_MAX_SCALE + 1];
+    private static final float[] FLOAT_POWERS = new float[FLOAT_MAX_SCALE + 1];
+
+    static {
+        DOUBLE_POWERS[0] = 1.0;
+        for (int i = 1; i < DOUBLE_POWERS.length; i++) {
+            DOUBLE_POWERS[i] = DOUBLE_POWERS[i - 1] * 10.0;
+        }
+        FLOAT_POWERS[0] = 1.0f;
+        for (int i = 1; i < FLOAT_POWERS.length; i++) {
+            FLOAT_POWERS[i] = FLOAT_POWERS[i - 1] * 10.0f;
+        }
+    }
+
+    private NumericParser() {
+        // Utility class
+    }
+
+    /**
+     * Parses a whole string as an integer.
+     *
+     * @param text text to parse, may be null
+     * @return value, or {@link #MISSING} when blank or invalid
+     */
+    public static long parseInt(CharSequence text) {
+        return text == null ? MISSING : parseInt(text, 0, text.length());
+    }
+
+    /**
+     * Parses an integer from a character range.
+     *
+     * @param text  source text
+     * @param start first character inclusive
+     * @param end   last character exclusive
+     * @return value, or {@link #MISSING} when blank, invalid or out of int range
+     */
+    public static long parseInt(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return MISSING;
+        }
+
+        char first = text.charAt(start);
+        boolean negative = first == '-';
+        int i = negative || first == '+' ? start + 1 : start;
+        if (i == end) {
+            return MISSING;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return text.charAt(i) < 0x80 ? MISSING : parseIntSlow(text.subSequence(start, end).toString());
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return MISSING;
+            }
+        }
+        return checkIntRange(negative ? -value : value);
+    }
+
+    /**
+     * Parses an integer from a range of ASCII or UTF-8 bytes.
+     *
+     * @param bytes source bytes, read with absolute gets
+     * @param start first byte inclusive
+     * @param end   last byte exclusive
+     * @return value, or {@link #MISSING} when blank, invalid or out of int range
+     */
+    public static long parseInt(ByteBuffer bytes, int start, int end) {
+        while (start < end && (bytes.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return MISSING;
+        }
+
+        byte first = bytes.get(start);
+        boolean negative = first == '-';
+        int i = negative || first == '+' ? start + 1 : start;
+        if (i == end) {
+            return MISSING;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return bytes.get(i) >= 0 ? MISSING : parseIntSlow(decode(bytes, start, end));
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return MISSING;
+            }
+        }
+        return checkIntRange(negative ? -value : value);
+    }
+
+    /**
+     * Parses a whole string as a double.
+     *
+     * @param text text to parse, may be null
+     * @return value, or {@link Double#NaN} when blank or invalid
+     */
+    public static double parseDouble(CharSequence text) {
+        return text == null ? Double.NaN : parseDouble(text, 0, text.length());
+    }
+
+    /**
+     * Parses a double from a character range.
+     *
+     * @param text  source text
+     * @param start first character inclusive
+     * @param end   last character exclusive
+     * @return value, or {@link Double#NaN} when blank or invalid
+     */
+    public static double parseDouble(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return Double.NaN;
+        }
+
+        char first = text.charAt(start);
+        boolean negative = first == '-';
+        int i = negative || first == '+' ? start + 1 : start;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || mantissa >= DOUBLE_EXACT_LIMIT / 10) {
+                return parseDoubleSlow(text.subSequence(start, end).toString());
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            scale = scale < 0 ? scale : scale + 1;
+        }
+        if (scale > DOUBLE_MAX_SCALE) {
+            return parseDoubleSlow(text.subSequence(start, end).toString());
+        }
+        return fastDouble(negative, mantissa, digits, Math.max(0, scale));
+    }
+
+    /**
+     * Parses a double from a range of ASCII or UTF-8 bytes.
+     *
+     * @param bytes source bytes, read with absolute gets
+     * @param start first byte inclusive
+     * @param end   last byte exclusive
+     * @return value, or {@link Double#NaN} when blank or invalid
+     */
+    public static double parseDouble(ByteBuffer bytes, int start, int end) {
+        while (start < end && (bytes.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return Double.NaN;
+        }
+
+        byte first = bytes.get(start);
+        boolean negative = first == '-';
+        int i = negative || first == '+' ? start + 1 : start;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || mantissa >= DOUBLE_EXACT_LIMIT / 10) {
+                return parseDoubleSlow(decode(bytes, start, end));
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            scale = scale < 0 ? scale : scale + 1;
+        }
+        if (scale > DOUBLE_MAX_SCALE) {
+            return parseDoubleSlow(decode(bytes, start, end));
+        }
+        return fastDouble(negative, mantissa, digits, Math.max(0, scale));
+    }
+
+    /**
+     * Parses a whole string as a float.
+     *
+     * @param text text to parse, may be null
+     * @return value, or {@link Float#NaN} when blank or invalid
+     */
+    public static float parseFloat(CharSequence text) {
+        return text == null ? Float.NaN : parseFloat(text, 0, text.length());
+    }
+
+    /**
+     * Parses a float from a character range. Parsing a double and narrowing
+     * it would round twice and can differ from {@link Float#parseFloat}, so
+     * floats have their own fast path.
+     *
+     * @param text  source text
+     * @param start first character inclusive
+     * @param end   last character exclusive
+     * @return value, or {@link Float#NaN} when blank or invalid
+     */
+    public static float parseFloat(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return Float.NaN;
+        }
+
+        char first = text.charAt(start);
+        boolean negative = first == '-';
+        int i = negative || first == '+' ? start + 1 : start;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || mantissa >= FLOAT_EXACT_LIMIT / 10) {
+                return parseFloatSlow(text.subSequence(start, end).toString());
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            scale = scale < 0 ? scale : scale + 1;
+        }
+        scale = Math.max(0, scale);
+        if (digits == 0) {
+            return Float.NaN;
+        }
+        if (scale > FLOAT_MAX_SCALE) {
+            return parseFloatSlow(text.subSequence(start, end).toString());
+        }
+        float value = (float) mantissa / FLOAT_POWERS[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Finishes a fast-path double.
+     *
+     * @param negative whether a minus sign was read
+     * @param mantissa digits as an exact integer
+     * @param digits   number of digits read
+     * @param scale    digits after the decimal point, at most 22
+     * @return value, or NaN when no digits were read
+     */
+    private static double fastDouble(boolean negative, long mantissa, int digits, int scale) {
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = mantissa / DOUBLE_POWERS[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Narrows a parsed value to int range.
+     *
+     * @param value parsed value
+     * @return value, or {@link #MISSING} when out of range
+     */
+    private static long checkIntRange(long value) {
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? MISSING : value;
+    }
+
+    /**
+     * Decodes a byte range for the slow path.
+     *
+     * @param bytes source bytes
+     * @param start first byte inclusive
+     * @param end   last byte exclusive
+     * @return decoded text
+     */
+    private static String decode(ByteBuffer bytes, int start, int end) {
+        byte[] copy = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            copy[i - start] = bytes.get(i);
+        }
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses an integer with the JDK.
+     *
+     * @param text trimmed text
+     * @return value or {@link #MISSING}
+     */
+    private static long parseIntSlow(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException ex) {
+            return MISSING;
+        }
+    }
+
+    /**
+     * Parses a double with the JDK.
+     *
+     * @param text trimmed text
+     * @return value or NaN
+     */
+    private static double parseDoubleSlow(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Parses a float with the JDK.
+     *
+     * @param text trimmed text
+     * @return value or NaN
+     */
+    private static float parseFloatSlow(String text) {
+        try {
+            return Float.parseFloat(text);
+        } catch (NumberFormatException ex) {
+            return Float.NaN;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-alone benchmark and conformance check for {@link NumericParser}.
+ *
+ * <p>Every numeric-looking cell of a CSV file is parsed both with the JDK and
+ * with the fast path; any difference is reported. Both parsers are then timed
+ * over the same cells after a warm-up. Run with
+ * {@code java NumericParserBenchmark [file.csv] [rounds]}.</p>
+ */
+public final class NumericParserBenchmark {
+    private static final String DEFAULT_FILE = "pokemon.csv";
+    private static final int DEFAULT_ROUNDS = 200;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final String[] EDGE_CASES = {
+        "", " ", "0", "-0", "+7", "-", "+", ".", "1.", ".5", "-.5", "007", "88.1", " 12 ", "1.2.3", "1e3",
+        "2147483647", "2147483648", "-2147483648", "-2147483649", "99999999999999999999", "0.1", "0.30000000000000004",
+        "123456789012345678", "3.4028235E38", "NaN", "Infinity", "0x10", "12abc", "0.0000000000000000000000001",
+        "\u0661\u0662"
+    };
+
+    private NumericParserBenchmark() {
+        // Entry point only
+    }
+
+    /**
+     * Runs the conformance check and the benchmark.
+     *
+     * @param args optional file name and number of timed rounds
+     */
+    public static void main(String[] args) {
+        String fileName = args.length > 0 ? args[0] : DEFAULT_FILE;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        IReadData reader = new ReadData();
+        if (!reader.openDataFile(fileName) || !reader.readDataFile()) {
+            System.out.println("Could not read " + fileName);
+            return;
+        }
+        List<String> cells = collectCells(reader.getRawDataList());
+        for (String edgeCase : EDGE_CASES) {
+            cells.add(edgeCase);
+        }
+
+        int mismatches = 0;
+        for (String cell : cells) {
+            if (!sameInt(cell) || !sameDouble(cell) || !sameFloat(cell)) {
+                mismatches++;
+                System.out.println("Mismatch: [" + cell + "]");
+            }
+        }
+        System.out.println("Checked " + cells.size() + " cells, " + mismatches + " mismatches.");
+
+        String[] values = cells.toArray(new String[0]);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            jdkDoubles(values);
+            fastDoubles(values);
+            jdkInts(values);
+            fastInts(values);
+        }
+        report("Double.parseDouble", rounds, values.length, time(() -> jdkDoubles(values), rounds));
+        report("NumericParser.parseDouble", rounds, values.length, time(() -> fastDoubles(values), rounds));
+        report("Integer.parseInt", rounds, values.length, time(() -> jdkInts(values), rounds));
+        report("NumericParser.parseInt", rounds, values.length, time(() -> fastInts(values), rounds));
+    }
+
+    /**
+     * Collects every cell that starts like a number, plus blank cells.
+     *
+     * @param rawData CSV rows including the header
+     * @return cells
+     */
+    private static List<String> collectCells(List<String> rawData) {
+        List<String> cells = new ArrayList<>();
+        for (int i = 1; i < rawData.size(); i++) {
+            for (String token : PokemonCsvUtils.splitCsvRecord(rawData.get(i))) {
+                String trimmed = token.trim();
+                if (trimmed.isEmpty() || Character.isDigit(trimmed.charAt(0)) || trimmed.charAt(0) == '-') {
+                    cells.add(token);
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Compares integer parsing with the JDK.
+     *
+     * @param cell cell text
+     * @return true when both agree
+     */
+    private static boolean sameInt(String cell) {
+        long expected;
+        try {
+            expected = Integer.parseInt(cell.trim());
+        } catch (NumberFormatException ex) {
+            expected = NumericParser.MISSING;
+        }
+        return expected == NumericParser.parseInt(cell);
+    }
+
+    /**
+     * Compares double parsing with the JDK, bit for bit.
+     *
+     * @param cell cell text
+     * @return true when both agree
+     */
+    private static boolean sameDouble(String cell) {
+        double expected;
+        try {
+            expected = Double.parseDouble(cell);
+        } catch (NumberFormatException ex) {
+            expected = Double.NaN;
+        }
+        return Double.doubleToLongBits(expected) == Double.doubleToLongBits(NumericParser.parseDouble(cell));
+    }
+
+    /**
+     * Compares float parsing with the JDK, bit for bit.
+     *
+     * @param cell cell text
+     * @return true when both agree
+     */
+    private static boolean sameFloat(String cell) {
+        float expected;
+        try {
+            expected = Float.parseFloat(cell);
+        } catch (NumberFormatException ex) {
+            expected = Float.NaN;
+        }
+        return Float.floatToIntBits(expected) == Float.floatToIntBits(NumericParser.parseFloat(cell));
+    }
+
+    /**
+     * Parses every value with the JDK.
+     *
+     * @param values cells
+     * @return checksum that keeps the work alive
+     */
+    private static double jdkDoubles(String[] values) {
+        double sum = 0;
+        for (String value : values) {
+            try {
+                sum += Double.parseDouble(value);
+            } catch (NumberFormatException ex) {
+                sum += 1;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Parses every value with the fast path.
+     *
+     * @param values cells
+     * @return checksum that keeps the work alive
+     */
+    private static double fastDoubles(String[] values) {
+        double sum = 0;
+        for (String value : values) {
+            double parsed = NumericParser.parseDouble(value);
+            sum += Double.isNaN(parsed) ? 1 : parsed;
+        }
+        return sum;
+    }
+
+    /**
+     * Parses every value with the JDK, trimming first as the old loader did.
+     *
+     * @param values cells
+     * @return checksum that keeps the work alive
+     */
+    private static long jdkInts(String[] values) {
+        long sum = 0;
+        for (String value : values) {
+            try {
+                sum += Integer.parseInt(value.trim());
+            } catch (NumberFormatException ex) {
+                sum += 1;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Parses every value with the fast path.
+     *
+     * @param values cells
+     * @return checksum that keeps the work alive
+     */
+    private static long fastInts(String[] values) {
+        long sum = 0;
+        for (String value : values) {
+            long parsed = NumericParser.parseInt(value);
+            sum += parsed == NumericParser.MISSING ? 1 : parsed;
+        }
+        return sum;
+    }
+
+    /**
+     * Times a workload.
+     *
+     * @param work   one round of work
+     * @param rounds repetitions
+     * @return elapsed nanoseconds
+     */
+    private static long time(Runnable work, int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            work.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Prints the cost per parsed cell.
+     *
+     * @param label   parser name
+     * @param rounds  repetitions
+     * @param cells   cells per round
+     * @param elapsed elapsed nanoseconds
+     */
+    private static void report(String label, int rounds, int cells, long elapsed) {
+        System.out.printf("%-28s %8.1f ns/cell%n", label, (double) elapsed / ((long) rounds * cells));
+    }
+}
@@ -0,0 +1,1521 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Pokedex store that keeps its rows outside the Java heap, so the heap and
+ * garbage collection pauses stay the same size however many rows are loaded.
+ *
+ * <p>Stat columns, a string arena holding names and raw rows, the name hash
+ * table, the direct-address pokedex number table and the HP and speed
+ * orderings all live in fixed-size pages of direct memory, or of a
+ * memory-mapped backing file. The heap holds only the page tables, the
+ * speed group sizes and the name Bloom filter, about ten bits per name.
+ * Queries offer the same surface as {@link PokemonDataset}; range results
+ * are views that create a {@link PokemonCharacter} only when an element is
+ * read.</p>
+ *
+ * <p>The store is a standalone alternative to a dataset: it is opened with
+ * {@link #load} rather than through {@link DatasetBuilder}, and
+ * {@code Driver} and {@code QueryServer} serve datasets only.</p>
+ *
+ * <p>Every accessor checks its row against the row count and throws
+ * {@link IndexOutOfBoundsException} otherwise, and every access after
+ * {@link #close} throws {@link IllegalStateException}, including one that
+ * was already running when the store closed. Direct pages are
+ * freed by the collector once the store is closed and unreachable; mapped
+ * pages are unmapped the same way, and the backing file is left on disk.</p>
+ *
+ * <p>Rows need a name to be stored. A row is in the range indexes when it
+ * has HP and speed and the file has a {@code japanese_name} column, the same
+ * rule a {@link PokemonShard} uses for its characters. As in a shard, a later
+ * row with the same name or pokedex number replaces the earlier one in
+ * lookups, and a replacing row without stats keeps the character of the row
+ * it replaces.</p>
+ */
+public final class OffHeapPokemonStore implements AutoCloseable {
+    private static final int DIRECT_PAGE_SHIFT = 20;
+    private static final int MAPPED_PAGE_SHIFT = 22;
+    private static final int STAT_BIAS = 0x8000;
+    private static final int STAT_LIMIT = 0xFFFF;
+    private static final byte FLAG_LEGENDARY = 1;
+    private static final byte FLAG_INDEXED = 2;
+    private static final int DIRECT_NUMBER_SLACK = 1024;
+    private static final int DIRECT_NUMBER_FACTOR = 4;
+
+    private static final String NAME_COLUMN = "name";
+    private static final String JAPANESE_NAME_COLUMN = "japanese_name";
+    private static final String POKEDEX_NUMBER_COLUMN = "pokedex_number";
+    private static final String HP_COLUMN = "hp";
+    private static final String ATTACK_COLUMN = "attack";
+    private static final String DEFENSE_COLUMN = "defense";
+    private static final String SP_ATTACK_COLUMN = "sp_attack";
+    private static final String SP_DEFENSE_COLUMN = "sp_defense";
+    private static final String SPEED_COLUMN = "speed";
+    private static final String BASE_TOTAL_COLUMN = "base_total";
+    private static final String GENERATION_COLUMN = "generation";
+    private static final String LEGENDARY_COLUMN = "is_legendary";
+    private static final String TYPE1_COLUMN = "type1";
+    private static final String TYPE2_COLUMN = "type2";
+
+    // Stored int columns, in the order of INT_COLUMN_NAMES
+    private static final int POKEDEX_NUMBER = 0;
+    private static final int HP = 1;
+    private static final int ATTACK = 2;
+    private static final int DEFENSE = 3;
+    private static final int SP_ATTACK = 4;
+    private static final int SP_DEFENSE = 5;
+    private static final int SPEED = 6;
+    private static final int BASE_TOTAL = 7;
+    private static final int GENERATION = 8;
+    private static final String[] INT_COLUMN_NAMES = {
+        POKEDEX_NUMBER_COLUMN, HP_COLUMN, ATTACK_COLUMN, DEFENSE_COLUMN, SP_ATTACK_COLUMN, SP_DEFENSE_COLUMN,
+        SPEED_COLUMN, BASE_TOTAL_COLUMN, GENERATION_COLUMN
+    };
+
+    private final String fileName;
+    private final String backingFile;
+    private final PageAllocator allocator;
+    private final int rowCount;
+    private final int characterCount;
+    private final int indexedCount;
+    private final int nameCount;
+    private final PagedColumn[] intColumns;
+    private final PagedColumn type1;
+    private final PagedColumn type2;
+    private final PagedColumn flags;
+    private final PagedColumn characterRows;
+    private final PagedColumn nameRefs;
+    private final PagedColumn japaneseRefs;
+    private final PagedColumn rowRefs;
+    private final PagedColumn strings;
+    private final PagedColumn nameSlots;
+    private final int slotMask;
+    private final NameBloomFilter nameFilter;
+    private final PagedColumn numberSlots;
+    private final int numberSlotCount;
+    private final long[] numberOverflow;
+    private final PagedColumn byHp;
+    private final PagedColumn bySpeed;
+    private final TreeMap<Integer, Integer> speedGroupSizes;
+    private final String header;
+    private volatile boolean closed;
+
+    /**
+     * Wraps fully built columns and indexes. Only {@link #load} creates stores.
+     *
+     * @param fileName  source CSV file
+     * @param builder   loaded columns and indexes
+     */
+    private OffHeapPokemonStore(String fileName, Builder builder) {
+        this.fileName = fileName;
+        this.backingFile = builder.backingFile;
+        this.allocator = builder.allocator;
+        this.rowCount = builder.rowCount;
+        this.characterCount = builder.characterCount;
+        this.indexedCount = builder.indexedCount;
+        this.nameCount = builder.nameCount;
+        this.intColumns = builder.intColumns;
+        this.type1 = builder.type1;
+        this.type2 = builder.type2;
+        this.flags = builder.flags;
+        this.characterRows = builder.characterRows;
+        this.nameRefs = builder.nameRefs;
+        this.japaneseRefs = builder.japaneseRefs;
+        this.rowRefs = builder.rowRefs;
+        this.strings = builder.strings;
+        this.nameSlots = builder.nameSlots;
+        this.slotMask = builder.slotMask;
+        this.nameFilter = builder.nameFilter;
+        this.numberSlots = builder.numberSlots;
+        this.numberSlotCount = builder.numberSlotCount;
+        this.numberOverflow = builder.numberOverflow;
+        this.byHp = builder.byHp;
+        this.bySpeed = builder.bySpeed;
+        this.speedGroupSizes = builder.speedGroupSizes;
+        this.header = builder.header;
+    }
+
+    /**
+     * Loads a CSV file into direct memory.
+     *
+     * @param fileName CSV file with a header row
+     * @return store, or null if the file cannot be read or has no header
+     */
+    public static OffHeapPokemonStore load(String fileName) {
+        return load(fileName, null);
+    }
+
+    /**
+     * Loads a CSV file into pages of a memory-mapped backing file, which is
+     * created or overwritten. Use this when the data is larger than the
+     * direct memory limit of the JVM.
+     *
+     * @param fileName    CSV file with a header row
+     * @param backingFile file that holds the pages, or null for direct memory
+     * @return store, or null if either file cannot be used or the CSV has no header
+     */
+    public static OffHeapPokemonStore load(String fileName, String backingFile) {
+        if (fileName == null || fileName.isBlank()) {
+            return null;
+        }
+        FileChannel channel = null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName.trim(), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null) {
+                return null;
+            }
+            PageAllocator allocator;
+            if (backingFile == null || backingFile.isBlank()) {
+                allocator = new PageAllocator(null, DIRECT_PAGE_SHIFT);
+            } else {
+                channel = FileChannel.open(Paths.get(backingFile.trim()), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                allocator = new PageAllocator(channel, MAPPED_PAGE_SHIFT);
+            }
+            Builder builder = new Builder(header, allocator, channel == null ? null : backingFile.trim());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.add(line);
+            }
+            builder.finish();
+            return new OffHeapPokemonStore(fileName.trim(), builder);
+        } catch (IOException | IllegalArgumentException e) {
+            closeQuietly(channel);
+            return null;
+        }
+    }
+
+    /**
+     * Closes a channel, ignoring failures.
+     *
+     * @param channel channel, possibly null
+     */
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Returns the source file.
+     *
+     * @return file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the header row of the source file.
+     *
+     * @return header
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns whether the pages live in a mapped backing file.
+     *
+     * @return true when file-backed
+     */
+    public boolean isFileBacked() {
+        return backingFile != null;
+    }
+
+    /**
+     * Returns the memory reserved outside the heap.
+     *
+     * @return bytes of allocated pages
+     */
+    public long getOffHeapBytes() {
+        return allocator.getAllocatedBytes();
+    }
+
+    /**
+     * Returns the number of stored rows.
+     *
+     * @return row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of rows with HP and speed.
+     *
+     * @return character count
+     */
+    public int getCharacterCount() {
+        return characterCount;
+    }
+
+    /**
+     * Returns the number of distinct names, case-insensitive.
+     *
+     * @return name count
+     */
+    public int getNameCount() {
+        return nameCount;
+    }
+
+    /**
+     * Returns the English name of a row.
+     *
+     * @param row row id
+     * @return name
+     */
+    public String getName(int row) {
+        return strings.getString(nameRefs.getLong(checkRow(row) * Long.BYTES));
+    }
+
+    /**
+     * Returns the Japanese name of a row.
+     *
+     * @param row row id
+     * @return Japanese name, possibly blank
+     */
+    public String getJapaneseName(int row) {
+        return strings.getString(japaneseRefs.getLong(checkRow(row) * Long.BYTES));
+    }
+
+    /**
+     * Returns the raw CSV line of a row.
+     *
+     * @param row row id
+     * @return raw row
+     */
+    public String getRow(int row) {
+        return strings.getString(rowRefs.getLong(checkRow(row) * Long.BYTES));
+    }
+
+    /**
+     * Returns the pokedex number of a row.
+     *
+     * @param row row id
+     * @return pokedex number, or 0 when blank
+     */
+    public int getPokedexNumber(int row) {
+        return intAt(POKEDEX_NUMBER, row);
+    }
+
+    /**
+     * Returns the HP of a row.
+     *
+     * @param row row id
+     * @return hp, or 0 when blank
+     */
+    public int getHp(int row) {
+        return intAt(HP, row);
+    }
+
+    /**
+     * Returns the attack of a row.
+     *
+     * @param row row id
+     * @return attack, or 0 when blank
+     */
+    public int getAttack(int row) {
+        return intAt(ATTACK, row);
+    }
+
+    /**
+     * Returns the defense of a row.
+     *
+     * @param row row id
+     * @return defense, or 0 when blank
+     */
+    public int getDefense(int row) {
+        return intAt(DEFENSE, row);
+    }
+
+    /**
+     * Returns the special attack of a row.
+     *
+     * @param row row id
+     * @return special attack, or 0 when blank
+     */
+    public int getSpAttack(int row) {
+        return intAt(SP_ATTACK, row);
+    }
+
+    /**
+     * Returns the special defense of a row.
+     *
+     * @param row row id
+     * @return special defense, or 0 when blank
+     */
+    public int getSpDefense(int row) {
+        return intAt(SP_DEFENSE, row);
+    }
+
+    /**
+     * Returns the speed of a row.
+     *
+     * @param row row id
+     * @return speed, or 0 when blank
+     */
+    public int getSpeed(int row) {
+        return intAt(SPEED, row);
+    }
+
+    /**
+     * Returns the base stat total of a row.
+     *
+     * @param row row id
+     * @return base total, or 0 when blank
+     */
+    public int getBaseTotal(int row) {
+        return intAt(BASE_TOTAL, row);
+    }
+
+    /**
+     * Returns the generation of a row.
+     *
+     * @param row row id
+     * @return generation, or 0 when blank
+     */
+    public int getGeneration(int row) {
+        return intAt(GENERATION, row);
+    }
+
+    /**
+     * Returns whether a row is legendary.
+     *
+     * @param row row id
+     * @return true if legendary
+     */
+    public boolean isLegendary(int row) {
+        return (flags.getByte(checkRow(row)) & FLAG_LEGENDARY) != 0;
+    }
+
+    /**
+     * Returns the primary type of a row.
+     *
+     * @param row row id
+     * @return type id, or {@link PokemonTypes#NO_TYPE}
+     */
+    public int getType1(int row) {
+        return type1.getByte(checkRow(row));
+    }
+
+    /**
+     * Returns the secondary type of a row.
+     *
+     * @param row row id
+     * @return type id, or {@link PokemonTypes#NO_TYPE}
+     */
+    public int getType2(int row) {
+        return type2.getByte(checkRow(row));
+    }
+
+    /**
+     * Finds the row of a name, case-insensitive. With duplicate names the
+     * last row wins.
+     *
+     * @param name name to look up
+     * @return row id, or -1 when missing
+     */
+    public int findRow(String name) {
+        checkOpen();
+        if (name == null) {
+            return -1;
+        }
+        String trimmed = name.trim();
+        int hash = nameHash(trimmed);
+        if (!nameFilter.mightContain(NameBloomFilter.spread(hash))) {
+            return -1;
+        }
+        int slot = slotOf(hash, slotMask);
+        while (true) {
+            int entry = nameSlots.getInt((long) slot * Integer.BYTES);
+            if (entry == 0) {
+                return -1;
+            }
+            int row = entry - 1;
+            if (getName(row).equalsIgnoreCase(trimmed)) {
+                return row;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Finds the raw row for a name.
+     *
+     * @param name name to search for, case-insensitive
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByName(String name) {
+        int row = findRow(name);
+        return row < 0 ? null : getRow(row);
+    }
+
+    /**
+     * Finds a character by name.
+     *
+     * @param name name to search for, case-insensitive
+     * @return matching character, or null when missing or when neither the
+     *         row nor a row of the same name before it has stats
+     */
+    public PokemonCharacter findCharacterByName(String name) {
+        int row = findRow(name);
+        return row < 0 ? null : characterOf(row);
+    }
+
+    /**
+     * Finds the row of a pokedex number. With duplicate numbers the last row
+     * wins.
+     *
+     * @param number pokedex number
+     * @return row id, or -1 when missing
+     */
+    public int findPokedexRow(int number) {
+        checkOpen();
+        if (number <= 0) {
+            return -1;
+        }
+        if (number < numberSlotCount) {
+            return numberSlots.getInt((long) number * Integer.BYTES) - 1;
+        }
+        int low = 0;
+        int high = numberOverflow.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = (int) (numberOverflow[mid] >>> 32);
+            if (key < number) {
+                low = mid + 1;
+            } else if (key > number) {
+                high = mid - 1;
+            } else {
+                return (int) numberOverflow[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the raw row for a pokedex number.
+     *
+     * @param number pokedex number
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByPokedexNumber(int number) {
+        int row = findPokedexRow(number);
+        return row < 0 ? null : getRow(row);
+    }
+
+    /**
+     * Finds the character of a pokedex number.
+     *
+     * @param number pokedex number
+     * @return matching character, or null when missing or when neither the
+     *         row nor a row of the same name before it has stats
+     */
+    public PokemonCharacter findCharacterByPokedexNumber(int number) {
+        int row = findPokedexRow(number);
+        return row < 0 ? null : characterOf(row);
+    }
+
+    /**
+     * Returns the lowest HP.
+     *
+     * @return minimum HP, or {@link Integer#MAX_VALUE} when empty
+     */
+    public int getMinHp() {
+        return indexedCount == 0 ? Integer.MAX_VALUE : keyAt(byHp, HP, 0);
+    }
+
+    /**
+     * Returns the highest HP.
+     *
+     * @return maximum HP, or {@link Integer#MIN_VALUE} when empty
+     */
+    public int getMaxHp() {
+        return indexedCount == 0 ? Integer.MIN_VALUE : keyAt(byHp, HP, indexedCount - 1);
+    }
+
+    /**
+     * Returns the lowest speed.
+     *
+     * @return minimum speed, or {@link Integer#MAX_VALUE} when empty
+     */
+    public int getMinSpeed() {
+        return speedGroupSizes.isEmpty() ? Integer.MAX_VALUE : speedGroupSizes.firstKey();
+    }
+
+    /**
+     * Returns the highest speed.
+     *
+     * @return maximum speed, or {@link Integer#MIN_VALUE} when empty
+     */
+    public int getMaxSpeed() {
+        return speedGroupSizes.isEmpty() ? Integer.MIN_VALUE : speedGroupSizes.lastKey();
+    }
+
+    /**
+     * Collects characters whose HP falls within the range.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return read-only view in {@link PokemonCharacter#BY_HP_ASC} order
+     */
+    public List<PokemonCharacter> collectByHpRange(int minHp, int maxHp) {
+        return range(byHp, HP, minHp, maxHp);
+    }
+
+    /**
+     * Collects characters whose speed falls within the range.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return read-only view in {@link PokemonCharacter#BY_SPEED_ASC} order
+     */
+    public List<PokemonCharacter> collectBySpeedRange(int minSpeed, int maxSpeed) {
+        return range(bySpeed, SPEED, minSpeed, maxSpeed);
+    }
+
+    /**
+     * Returns the top-K distinct speed values.
+     *
+     * @param k       number of values
+     * @param fastest true for the highest values, false for the lowest
+     * @return distinct speeds, best first
+     */
+    public List<Integer> topSpeedValues(int k, boolean fastest) {
+        checkOpen();
+        List<Integer> result = new ArrayList<>();
+        for (Integer speed : fastest ? speedGroupSizes.descendingKeySet() : speedGroupSizes.keySet()) {
+            if (result.size() >= k) {
+                break;
+            }
+            result.add(speed);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the characters of one speed group.
+     *
+     * @param speed speed value
+     * @return read-only view in {@link PokemonCharacter#BY_SPEED_ASC} order
+     */
+    public List<PokemonCharacter> getSpeedGroup(int speed) {
+        return collectBySpeedRange(speed, speed);
+    }
+
+    /**
+     * Returns the size of every speed group.
+     *
+     * @return map from speed to group size, ascending by speed
+     */
+    public TreeMap<Integer, Integer> getSpeedGroupSizes() {
+        checkOpen();
+        return new TreeMap<>(speedGroupSizes);
+    }
+
+    /**
+     * Formats a summary of the store's size and placement.
+     *
+     * @return printable lines
+     */
+    public List<String> formatDetails() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Off-heap store of " + fileName + ": " + rowCount + " rows, " + indexedCount + " indexed");
+        lines.add("  pages: " + allocator.getPageCount() + " x " + (allocator.getPageSize() / 1024) + " KB = "
+                + (getOffHeapBytes() / (1024 * 1024)) + " MB "
+                + (backingFile == null ? "of direct memory" : "mapped from " + backingFile));
+        lines.add("  string arena: " + (strings.getSize() / 1024) + " KB");
+        return lines;
+    }
+
+    /**
+     * Releases the pages. Later calls fail with {@link IllegalStateException}.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        allocator.close();
+    }
+
+    /**
+     * Returns a view of an index between two key values.
+     *
+     * @param index  row ids in key order
+     * @param column int column holding the key
+     * @param min    lowest key inclusive
+     * @param max    highest key inclusive
+     * @return view of the matching characters
+     */
+    private List<PokemonCharacter> range(PagedColumn index, int column, int min, int max) {
+        checkOpen();
+        if (min > max) {
+            return Collections.emptyList();
+        }
+        return new CharacterView(index, lowerBound(index, column, min), upperBound(index, column, max));
+    }
+
+    /**
+     * Finds the first index position whose key is at least the value.
+     *
+     * @param index  row ids in key order
+     * @param column int column holding the key
+     * @param value  value to search for
+     * @return insertion position
+     */
+    private int lowerBound(PagedColumn index, int column, int value) {
+        int low = 0;
+        int high = indexedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(index, column, mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first index position whose key is greater than the value.
+     *
+     * @param index  row ids in key order
+     * @param column int column holding the key
+     * @param value  value to search for
+     * @return insertion position
+     */
+    private int upperBound(PagedColumn index, int column, int value) {
+        int low = 0;
+        int high = indexedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(index, column, mid) <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the key of the row at an index position.
+     *
+     * @param index    row ids in key order
+     * @param column   int column holding the key
+     * @param position index position
+     * @return key value
+     */
+    private int keyAt(PagedColumn index, int column, int position) {
+        int row = index.getInt((long) position * Integer.BYTES);
+        return intColumns[column].getInt((long) row * Integer.BYTES);
+    }
+
+    /**
+     * Creates the character a lookup of a row answers with: the row's own,
+     * or for a row without stats the one carried over from the earlier row
+     * of the same name it replaced.
+     *
+     * @param row row id
+     * @return character, or null when there is none
+     */
+    private PokemonCharacter characterOf(int row) {
+        int source = characterRows.getInt(checkRow(row) * Integer.BYTES);
+        return source < 0 ? null : character(source);
+    }
+
+    /**
+     * Creates the character of a row.
+     *
+     * @param row row id
+     * @return new character
+     */
+    private PokemonCharacter character(int row) {
+        return new PokemonCharacter(getName(row), getJapaneseName(row), getHp(row), getSpeed(row));
+    }
+
+    /**
+     * Reads an int column.
+     *
+     * @param column column number
+     * @param row    row id
+     * @return value
+     */
+    private int intAt(int column, int row) {
+        return intColumns[column].getInt(checkRow(row) * Integer.BYTES);
+    }
+
+    /**
+     * Checks that the store is open and a row exists.
+     *
+     * @param row row id
+     * @return the row as a long, ready for offset arithmetic
+     */
+    private long checkRow(int row) {
+        checkOpen();
+        return Objects.checkIndex(row, rowCount);
+    }
+
+    /**
+     * Fails if the store has been closed.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Off-heap store is closed");
+        }
+    }
+
+    /**
+     * Returns the first hash table slot for a hash.
+     *
+     * @param hash name hash
+     * @param mask table size minus one
+     * @return slot
+     */
+    private static int slotOf(int hash, int mask) {
+        return (hash * 0x9E3779B9 >>> 7) & mask;
+    }
+
+    /**
+     * Hashes a name so that names equal ignoring case hash alike.
+     *
+     * @param name trimmed name
+     * @return hash
+     */
+    private static int nameHash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return hash;
+    }
+
+    /**
+     * Read-only list of the characters between two positions of an index.
+     * Characters are created when read, so large ranges use no heap.
+     */
+    private final class CharacterView extends AbstractList<PokemonCharacter> {
+        private final PagedColumn index;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a view.
+         *
+         * @param index row ids in key order
+         * @param from  first position inclusive
+         * @param to    last position exclusive
+         */
+        CharacterView(PagedColumn index, int from, int to) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public PokemonCharacter get(int position) {
+            Objects.checkIndex(position, to - from);
+            checkOpen();
+            return character(index.getInt((long) (from + position) * Integer.BYTES));
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Streams rows into off-heap columns and then builds the indexes.
+     */
+    private static final class Builder {
+        private final String header;
+        private final String backingFile;
+        private final PageAllocator allocator;
+        private final int nameIndex;
+        private final int japaneseIndex;
+        private final int[] intIndexes = new int[INT_COLUMN_NAMES.length];
+        private final int type1Index;
+        private final int type2Index;
+        private final int legendaryIndex;
+        private final PagedColumn[] intColumns = new PagedColumn[INT_COLUMN_NAMES.length];
+        private final PagedColumn type1;
+        private final PagedColumn type2;
+        private final PagedColumn flags;
+        private final PagedColumn characterRows;
+        private final PagedColumn nameRefs;
+        private final PagedColumn japaneseRefs;
+        private final PagedColumn rowRefs;
+        private final PagedColumn strings;
+        private final PagedColumn hashes;
+        private PagedColumn nameSlots;
+        private int slotMask;
+        private NameBloomFilter nameFilter;
+        private PagedColumn numberSlots;
+        private int numberSlotCount;
+        private long[] numberOverflow;
+        private PagedColumn byHp;
+        private PagedColumn bySpeed;
+        private final TreeMap<Integer, Integer> speedGroupSizes = new TreeMap<>();
+        private int rowCount;
+        private int characterCount;
+        private int indexedCount;
+        private int nameCount;
+        private boolean wideStats;
+
+        /**
+         * Resolves columns and allocates empty column pages.
+         *
+         * @param header      header row
+         * @param allocator   source of pages
+         * @param backingFile mapped file name, or null
+         */
+        Builder(String header, PageAllocator allocator, String backingFile) {
+            this.header = header;
+            this.allocator = allocator;
+            this.backingFile = backingFile;
+            nameIndex = PokemonCsvUtils.findColumnIndex(header, NAME_COLUMN);
+            japaneseIndex = PokemonCsvUtils.findColumnIndex(header, JAPANESE_NAME_COLUMN);
+            for (int c = 0; c < intIndexes.length; c++) {
+                intIndexes[c] = PokemonCsvUtils.findColumnIndex(header, INT_COLUMN_NAMES[c]);
+                intColumns[c] = new PagedColumn(allocator);
+            }
+            type1Index = PokemonCsvUtils.findColumnIndex(header, TYPE1_COLUMN);
+            type2Index = PokemonCsvUtils.findColumnIndex(header, TYPE2_COLUMN);
+            legendaryIndex = PokemonCsvUtils.findColumnIndex(header, LEGENDARY_COLUMN);
+            type1 = new PagedColumn(allocator);
+            type2 = new PagedColumn(allocator);
+            flags = new PagedColumn(allocator);
+            characterRows = new PagedColumn(allocator);
+            nameRefs = new PagedColumn(allocator);
+            japaneseRefs = new PagedColumn(allocator);
+            rowRefs = new PagedColumn(allocator);
+            strings = new PagedColumn(allocator);
+            hashes = new PagedColumn(allocator);
+        }
+
+        /**
+         * Parses and stores one data row. Rows without a name are skipped.
+         *
+         * @param line CSV data row
+         * @throws IOException if a page cannot be allocated
+         */
+        void add(String line) throws IOException {
+            List<String> tokens = PokemonCsvUtils.splitCsvRecord(line);
+            String name = token(tokens, nameIndex);
+            if (name.isEmpty()) {
+                return;
+            }
+            boolean indexed = japaneseIndex >= 0;
+            boolean wide = false;
+            for (int c = 0; c < intIndexes.length; c++) {
+                long value = NumericParser.parseInt(rawToken(tokens, intIndexes[c]));
+                int stored = value == NumericParser.MISSING ? 0 : (int) value;
+                if (c == HP || c == SPEED) {
+                    indexed &= value != NumericParser.MISSING;
+                    wide |= stored + STAT_BIAS < 0 || stored + STAT_BIAS > STAT_LIMIT;
+                }
+                intColumns[c].appendInt(stored);
+            }
+            wideStats |= indexed && wide;
+            type1.appendByte((byte) PokemonTypes.idOf(token(tokens, type1Index)));
+            type2.appendByte((byte) PokemonTypes.idOf(token(tokens, type2Index)));
+            byte rowFlags = indexed ? FLAG_INDEXED : 0;
+            long legendary = NumericParser.parseInt(rawToken(tokens, legendaryIndex));
+            if (legendary != NumericParser.MISSING && legendary != 0) {
+                rowFlags |= FLAG_LEGENDARY;
+            }
+            flags.appendByte(rowFlags);
+            nameRefs.appendLong(strings.appendString(name));
+            japaneseRefs.appendLong(strings.appendString(token(tokens, japaneseIndex)));
+            rowRefs.appendLong(strings.appendString(line));
+            hashes.appendInt(nameHash(name));
+            rowCount++;
+            if (indexed) {
+                characterCount++;
+            }
+        }
+
+        /**
+         * Builds the name and pokedex number tables and the HP and speed
+         * orderings.
+         *
+         * @throws IOException if a page cannot be allocated
+         */
+        void finish() throws IOException {
+            buildNameTable();
+            buildNumberTable();
+            byHp = buildOrdering(HP, SPEED);
+            bySpeed = buildOrdering(SPEED, HP);
+            indexedCount = (int) (byHp.getSize() / Integer.BYTES);
+            // Group sizes count every row with stats, as the shards' speed groups do
+            for (int row = 0; row < rowCount; row++) {
+                if ((flags.getByte(row) & FLAG_INDEXED) != 0) {
+                    speedGroupSizes.merge(intColumns[SPEED].getInt((long) row * Integer.BYTES), 1, Integer::sum);
+                }
+            }
+            allocator.release(hashes);
+        }
+
+        /**
+         * Fills an open-addressing table of row ids, at most half full, keyed
+         * by the case-insensitive name hash, and records the row whose
+         * character each row's lookups answer with.
+         *
+         * @throws IOException if a page cannot be allocated
+         */
+        private void buildNameTable() throws IOException {
+            int slots = Integer.highestOneBit(Math.max(2, rowCount) * 2 - 1) << 1;
+            slotMask = slots - 1;
+            nameSlots = new PagedColumn(allocator);
+            for (int slot = 0; slot < slots; slot++) {
+                nameSlots.appendInt(0);
+            }
+            for (int row = 0; row < rowCount; row++) {
+                int hash = hashes.getInt((long) row * Integer.BYTES);
+                int slot = slotOf(hash, slotMask);
+                String name = null;
+                int characterRow = (flags.getByte(row) & FLAG_INDEXED) != 0 ? row : -1;
+                while (true) {
+                    long offset = (long) slot * Integer.BYTES;
+                    int entry = nameSlots.getInt(offset);
+                    if (entry == 0) {
+                        nameSlots.putInt(offset, row + 1);
+                        nameCount++;
+                        break;
+                    }
+                    int other = entry - 1;
+                    if (hashes.getInt((long) other * Integer.BYTES) == hash) {
+                        if (name == null) {
+                            name = strings.getString(nameRefs.getLong((long) row * Long.BYTES));
+                        }
+                        if (strings.getString(nameRefs.getLong((long) other * Long.BYTES)).equalsIgnoreCase(name)) {
+                            // A later row with the same name replaces the earlier one, and without
+                            // stats of its own keeps the earlier one's character, as a shard does
+                            nameSlots.putInt(offset, row + 1);
+                            if (characterRow < 0) {
+                                characterRow = characterRows.getInt((long) other * Integer.BYTES);
+                            }
+                            break;
+                        }
+                    }
+                    slot = (slot + 1) & slotMask;
+                }
+                characterRows.appendInt(characterRow);
+            }
+            nameFilter = new NameBloomFilter(nameCount);
+            for (int row = 0; row < rowCount; row++) {
+                nameFilter.add(NameBloomFilter.spread(hashes.getInt((long) row * Integer.BYTES)));
+            }
+        }
+
+        /**
+         * Fills a direct-address table from pokedex number to row id plus
+         * one, zero when missing. Numbers far beyond the row count would make
+         * the table mostly empty, so they go to a sorted overflow array of
+         * packed number and row pairs instead.
+         *
+         * @throws IOException if a page cannot be allocated
+         */
+        private void buildNumberTable() throws IOException {
+            long limit = Math.max(DIRECT_NUMBER_SLACK, (long) DIRECT_NUMBER_FACTOR * rowCount);
+            int maxDirect = 0;
+            int overflowCount = 0;
+            for (int row = 0; row < rowCount; row++) {
+                int number = intColumns[POKEDEX_NUMBER].getInt((long) row * Integer.BYTES);
+                if (number > limit) {
+                    overflowCount++;
+                } else {
+                    maxDirect = Math.max(maxDirect, number);
+                }
+            }
+            numberSlotCount = maxDirect + 1;
+            numberSlots = new PagedColumn(allocator);
+            for (int slot = 0; slot < numberSlotCount; slot++) {
+                numberSlots.appendInt(0);
+            }
+            long[] packed = new long[overflowCount];
+            int count = 0;
+            for (int row = 0; row < rowCount; row++) {
+                int number = intColumns[POKEDEX_NUMBER].getInt((long) row * Integer.BYTES);
+                if (number > limit) {
+                    packed[count++] = (long) number << 32 | row;
+                } else if (number > 0) {
+                    // A later row with the same number replaces the earlier one
+                    numberSlots.putInt((long) number * Integer.BYTES, row + 1);
+                }
+            }
+            Arrays.sort(packed);
+            int kept = 0;
+            for (int i = 0; i < packed.length; i++) {
+                if (i + 1 == packed.length || packed[i + 1] >>> 32 != packed[i] >>> 32) {
+                    packed[kept++] = packed[i];
+                }
+            }
+            numberOverflow = Arrays.copyOf(packed, kept);
+        }
+
+        /**
+         * Orders the indexed rows by two stats and then by name, the order of
+         * {@link PokemonCharacter#BY_HP_ASC} and
+         * {@link PokemonCharacter#BY_SPEED_ASC}. Rows equal in all three are
+         * kept once, the first in file order, as in the merged results of a
+         * {@link PokemonDataset}. The sort packs both stats and
+         * the row id into one long per row; only ties on both stats compare
+         * names. The packed keys are the one heap array the build needs, and
+         * it is dropped before the store is returned.
+         *
+         * @param primary   int column sorted first
+         * @param secondary int column sorted second
+         * @return row ids in order
+         * @throws IOException if a page cannot be allocated
+         */
+        private PagedColumn buildOrdering(int primary, int secondary) throws IOException {
+            if (wideStats) {
+                return buildWideOrdering(primary, secondary);
+            }
+            long[] keys = new long[characterCount];
+            int count = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if ((flags.getByte(row) & FLAG_INDEXED) == 0) {
+                    continue;
+                }
+                long first = intColumns[primary].getInt((long) row * Integer.BYTES) + STAT_BIAS;
+                long second = intColumns[secondary].getInt((long) row * Integer.BYTES) + STAT_BIAS;
+                // Flipping the sign bit makes signed order match the unsigned packed order
+                keys[count++] = (first << 48 | second << 32 | row) ^ Long.MIN_VALUE;
+            }
+            Arrays.sort(keys);
+
+            PagedColumn ordering = new PagedColumn(allocator);
+            int start = 0;
+            while (start < count) {
+                int end = start + 1;
+                while (end < count && keys[end] >>> 32 == keys[start] >>> 32) {
+                    end++;
+                }
+                if (end - start == 1) {
+                    ordering.appendInt((int) keys[start]);
+                } else {
+                    appendByName(ordering, keys, start, end);
+                }
+                start = end;
+            }
+            return ordering;
+        }
+
+        /**
+         * Orders the indexed rows like {@link #buildOrdering} when some stat
+         * does not fit the 16 bits of a packed key. Rows are boxed and sorted
+         * with a comparator instead, which is slower and uses more heap but
+         * only happens for files with such outliers.
+         *
+         * @param primary   int column sorted first
+         * @param secondary int column sorted second
+         * @return row ids in order
+         * @throws IOException if a page cannot be allocated
+         */
+        private PagedColumn buildWideOrdering(int primary, int secondary) throws IOException {
+            Integer[] rows = new Integer[characterCount];
+            int[] first = new int[rowCount];
+            int[] second = new int[rowCount];
+            String[] names = new String[rowCount];
+            int count = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if ((flags.getByte(row) & FLAG_INDEXED) != 0) {
+                    rows[count++] = row;
+                    first[row] = intColumns[primary].getInt((long) row * Integer.BYTES);
+                    second[row] = intColumns[secondary].getInt((long) row * Integer.BYTES);
+                    names[row] = strings.getString(nameRefs.getLong((long) row * Long.BYTES));
+                }
+            }
+            Comparator<Integer> order = Comparator.<Integer>comparingInt(row -> first[row])
+                    .thenComparingInt(row -> second[row])
+                    .thenComparing(row -> names[row], String.CASE_INSENSITIVE_ORDER);
+            // The object sort is stable, so the first row in file order leads each run of equal rows
+            Arrays.sort(rows, 0, count, order);
+
+            PagedColumn ordering = new PagedColumn(allocator);
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || order.compare(rows[i - 1], rows[i]) != 0) {
+                    ordering.appendInt(rows[i]);
+                }
+            }
+            return ordering;
+        }
+
+        /**
+         * Appends a run of rows with equal stats in case-insensitive name
+         * order, keeping only the first row of each name.
+         *
+         * @param ordering receives row ids
+         * @param keys     packed keys, rows in file order within the run
+         * @param start    first key of the run
+         * @param end      key after the run
+         * @throws IOException if a page cannot be allocated
+         */
+        private void appendByName(PagedColumn ordering, long[] keys, int start, int end) throws IOException {
+            Integer[] rows = new Integer[end - start];
+            String[] names = new String[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = i;
+                names[i] = strings.getString(nameRefs.getLong((keys[start + i] & 0xFFFFFFFFL) * Long.BYTES));
+            }
+            Arrays.sort(rows, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(names[a], names[b]));
+            String previous = null;
+            for (Integer i : rows) {
+                if (previous == null || !previous.equalsIgnoreCase(names[i])) {
+                    ordering.appendInt((int) keys[start + i]);
+                    previous = names[i];
+                }
+            }
+        }
+
+        /**
+         * Returns a trimmed column value.
+         *
+         * @param tokens split row
+         * @param index  column index, possibly -1
+         * @return value, or an empty string when absent
+         */
+        private static String token(List<String> tokens, int index) {
+            return index < 0 || index >= tokens.size() ? "" : tokens.get(index).trim();
+        }
+
+        /**
+         * Returns a column value without trimming, for the numeric parser.
+         *
+         * @param tokens split row
+         * @param index  column index, possibly -1
+         * @return value, or an empty string when absent
+         */
+        private static String rawToken(List<String> tokens, int index) {
+            return index < 0 || index >= tokens.size() ? "" : tokens.get(index);
+        }
+    }
+
+    /**
+     * Hands out fixed-size pages of direct memory or of a mapped file. Pages
+     * never move, so offsets into them stay valid for the life of the store.
+     */
+    private static final class PageAllocator {
+        private final FileChannel channel;
+        private final int pageShift;
+        private final List<PagedColumn> columns = new ArrayList<>();
+        private long pageCount;
+        private long releasedPages;
+
+        /**
+         * Creates an allocator.
+         *
+         * @param channel   backing file, or null for direct memory
+         * @param pageShift log2 of the page size
+         */
+        PageAllocator(FileChannel channel, int pageShift) {
+            this.channel = channel;
+            this.pageShift = pageShift;
+        }
+
+        /**
+         * Allocates a zeroed page.
+         *
+         * @return new page
+         * @throws IOException if the backing file cannot be extended
+         */
+        ByteBuffer allocate() throws IOException {
+            int size = getPageSize();
+            ByteBuffer page = channel == null
+                    ? ByteBuffer.allocateDirect(size)
+                    : channel.map(FileChannel.MapMode.READ_WRITE, pageCount * size, size);
+            pageCount++;
+            return page;
+        }
+
+        /**
+         * Registers a column so that closing the allocator drops its pages.
+         *
+         * @param column new column
+         */
+        void register(PagedColumn column) {
+            columns.add(column);
+        }
+
+        /**
+         * Drops a column that is no longer needed. Direct pages go back to
+         * the collector; mapped pages stay reserved in the file.
+         *
+         * @param column column to drop
+         */
+        void release(PagedColumn column) {
+            if (channel == null) {
+                releasedPages += column.getPageCount();
+            }
+            column.clear();
+            columns.remove(column);
+        }
+
+        /**
+         * Returns the page size.
+         *
+         * @return bytes per page
+         */
+        int getPageSize() {
+            return 1 << pageShift;
+        }
+
+        /**
+         * Returns log2 of the page size.
+         *
+         * @return page shift
+         */
+        int getPageShift() {
+            return pageShift;
+        }
+
+        /**
+         * Returns the pages in use.
+         *
+         * @return page count
+         */
+        long getPageCount() {
+            return pageCount - releasedPages;
+        }
+
+        /**
+         * Returns the bytes of the pages in use.
+         *
+         * @return bytes
+         */
+        long getAllocatedBytes() {
+            return getPageCount() << pageShift;
+        }
+
+        /**
+         * Drops every page and closes the backing file.
+         */
+        void close() {
+            for (PagedColumn column : columns) {
+                column.clear();
+            }
+            columns.clear();
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Append-only byte sequence spread over pages. Values never straddle a
+     * page: fixed-size values are aligned to their size, and a string that
+     * does not fit at the end of a page starts on the next one. Reads use
+     * absolute positions and are safe from many threads once loading ends.
+     */
+    private static final class PagedColumn {
+        private final PageAllocator allocator;
+        private final int shift;
+        private final int mask;
+        // Replaced, never modified, so a reader sees a complete page table or null after close
+        private volatile ByteBuffer[] pages = new ByteBuffer[0];
+        private long size;
+
+        /**
+         * Creates an empty column.
+         *
+         * @param allocator source of pages
+         */
+        PagedColumn(PageAllocator allocator) {
+            this.allocator = allocator;
+            this.shift = allocator.getPageShift();
+            this.mask = allocator.getPageSize() - 1;
+            allocator.register(this);
+        }
+
+        /**
+         * Returns the bytes appended so far.
+         *
+         * @return size
+         */
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the pages held.
+         *
+         * @return page count
+         */
+        int getPageCount() {
+            ByteBuffer[] current = pages;
+            return current == null ? 0 : current.length;
+        }
+
+        /**
+         * Drops every page. Later reads fail with
+         * {@link IllegalStateException}; a read that already holds the page
+         * table finishes on pages the collector has not yet freed.
+         */
+        void clear() {
+            pages = null;
+        }
+
+        /**
+         * Makes room for a value, moving to a new page when needed.
+         *
+         * @param bytes value size, at most one page
+         * @return offset of the value
+         * @throws IOException if a page cannot be allocated
+         */
+        private long reserve(int bytes) throws IOException {
+            if (bytes > mask + 1) {
+                throw new IllegalArgumentException("Value of " + bytes + " bytes is larger than a page");
+            }
+            long pageEnd = (long) pages.length << shift;
+            if (size + bytes > pageEnd) {
+                size = pageEnd;
+                ByteBuffer[] grown = Arrays.copyOf(pages, pages.length + 1);
+                grown[pages.length] = allocator.allocate();
+                pages = grown;
+            }
+            long offset = size;
+            size += bytes;
+            return offset;
+        }
+
+        /**
+         * Returns the page holding an offset.
+         *
+         * @param offset byte offset
+         * @return page
+         * @throws IllegalStateException if the store has been closed
+         */
+        private ByteBuffer page(long offset) {
+            ByteBuffer[] current = pages;
+            if (current == null) {
+                throw new IllegalStateException("Off-heap store is closed");
+            }
+            return current[(int) (offset >>> shift)];
+        }
+
+        /**
+         * Appends a byte.
+         *
+         * @param value value
+         * @throws IOException if a page cannot be allocated
+         */
+        void appendByte(byte value) throws IOException {
+            long offset = reserve(1);
+            page(offset).put((int) (offset & mask), value);
+        }
+
+        /**
+         * Appends an int.
+         *
+         * @param value value
+         * @throws IOException if a page cannot be allocated
+         */
+        void appendInt(int value) throws IOException {
+            long offset = reserve(Integer.BYTES);
+            page(offset).putInt((int) (offset & mask), value);
+        }
+
+        /**
+         * Appends a long.
+         *
+         * @param value value
+         * @throws IOException if a page cannot be allocated
+         */
+        void appendLong(long value) throws IOException {
+            long offset = reserve(Long.BYTES);
+            page(offset).putLong((int) (offset & mask), value);
+        }
+
+        /**
+         * Appends a string as its UTF-8 length and bytes.
+         *
+         * @param value text
+         * @return offset to pass to {@link #getString}
+         * @throws IOException if a page cannot be allocated
+         */
+        long appendString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            long offset = reserve(Integer.BYTES + bytes.length);
+            ByteBuffer page = page(offset);
+            int position = (int) (offset & mask);
+            page.putInt(position, bytes.length);
+            page.put(position + Integer.BYTES, bytes);
+            return offset;
+        }
+
+        /**
+         * Overwrites an int.
+         *
+         * @param offset byte offset of an appended int
+         * @param value  new value
+         */
+        void putInt(long offset, int value) {
+            page(offset).putInt((int) (offset & mask), value);
+        }
+
+        /**
+         * Reads a byte.
+         *
+         * @param offset byte offset
+         * @return value
+         */
+        byte getByte(long offset) {
+            return page(offset).get((int) (offset & mask));
+        }
+
+        /**
+         * Reads an int.
+         *
+         * @param offset byte offset
+         * @return value
+         */
+        int getInt(long offset) {
+            return page(offset).getInt((int) (offset & mask));
+        }
+
+        /**
+         * Reads a long.
+         *
+         * @param offset byte offset
+         * @return value
+         */
+        long getLong(long offset) {
+            return page(offset).getLong((int) (offset & mask));
+        }
+
+        /**
+         * Reads a string written by {@link #appendString}.
+         *
+         * @param offset offset returned when the string was appended
+         * @return text
+         */
+        String getString(long offset) {
+            ByteBuffer page = page(offset);
+            int position = (int) (offset & mask);
+            byte[] bytes = new byte[page.getInt(position)];
+            page.get(position + Integer.BYTES, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
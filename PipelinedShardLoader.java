@@ -0,0 +1,304 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Loads one CSV file into a {@link PokemonShard} with three overlapping
+ * stages: a reader thread that cuts the file into batches of lines, a
+ * tokenizer thread that splits and parses each batch, and the calling thread,
+ * which collects batches into the shard's indexes. Stages exchange whole
+ * batches through bounded queues, so synchronization is paid once per batch
+ * and a slow stage holds back the ones before it instead of letting batches
+ * pile up in memory. Total load time approaches that of the slowest stage.
+ *
+ * <p>The tokenizer also infers a {@link PokemonSchema} from the first batch
+ * and validates every row against it, reusing the tokens it has already
+ * split.</p>
+ *
+ * <p>A failure in any stage stops the whole load: the failing stage records
+ * it and interrupts the others, which drop their pending batches instead of
+ * blocking on a queue nobody drains. The file is closed and both threads have
+ * ended before {@link #load} returns or throws.</p>
+ */
+public final class PipelinedShardLoader {
+    /**
+     * Rows per batch handed between stages.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * Batches that may wait between two stages.
+     */
+    public static final int DEFAULT_QUEUE_DEPTH = 8;
+
+    private PipelinedShardLoader() {
+        // Utility class
+    }
+
+    /**
+     * Loads a file with the default batch size and queue depth.
+     *
+     * @param fileName file to load
+     * @return shard, or null if the file cannot be read or is empty
+     */
+    public static PokemonShard load(String fileName) {
+        return load(fileName, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_DEPTH);
+    }
+
+    /**
+     * Loads a file through the pipeline.
+     *
+     * @param fileName   file to load
+     * @param batchSize  rows per batch
+     * @param queueDepth batches buffered between stages
+     * @return shard, or null if the file cannot be read or is empty, or the
+     *         load was interrupted
+     * @throws RuntimeException if parsing or collecting a batch failed; the
+     *                          stage's own exception is rethrown
+     */
+    public static PokemonShard load(String fileName, int batchSize, int queueDepth) {
+        if (fileName == null || fileName.isBlank()) {
+            return null;
+        }
+        String path = fileName.trim();
+
+        String header;
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(new FileReader(path, StandardCharsets.UTF_8));
+            header = reader.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+        if (header == null) {
+            closeQuietly(reader);
+            return null;
+        }
+
+        Pipeline pipeline = new Pipeline(reader, header, path, Math.max(1, batchSize), Math.max(1, queueDepth));
+        PokemonShard.Accumulator rows = new PokemonShard.Accumulator(header, path);
+        if (!pipeline.run(rows)) {
+            return null;
+        }
+        return new PokemonShard(path, rows);
+    }
+
+    /**
+     * Closes a reader, ignoring failures.
+     *
+     * @param reader reader to close
+     */
+    private static void closeQuietly(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // Nothing useful to do
+        }
+    }
+
+    /**
+     * The stage threads and queues of one load.
+     */
+    private static final class Pipeline {
+        // A zero-capacity batch marks the end of the stream
+        private static final PokemonShard.RowBatch END = new PokemonShard.RowBatch(0);
+
+        private final BufferedReader reader;
+        private final String header;
+        private final PokemonShard.Layout layout;
+        private final int batchSize;
+        private final BlockingQueue<PokemonShard.RowBatch> lines;
+        private final BlockingQueue<PokemonShard.RowBatch> tokenized;
+        private final ValidationReport problems;
+        private PokemonSchema schema;
+        private volatile boolean failed;
+        private Throwable failure;
+        private Thread readStage;
+        private Thread tokenizeStage;
+
+        /**
+         * Creates the queues for one load.
+         *
+         * @param reader     open reader positioned after the header
+         * @param header     header row
+         * @param source     file name used in the validation report
+         * @param batchSize  rows per batch
+         * @param queueDepth batches per queue
+         */
+        Pipeline(BufferedReader reader, String header, String source, int batchSize, int queueDepth) {
+            this.reader = reader;
+            this.header = header;
+            this.layout = new PokemonShard.Layout(header);
+            this.problems = new ValidationReport(source);
+            this.batchSize = batchSize;
+            this.lines = new ArrayBlockingQueue<>(queueDepth);
+            this.tokenized = new ArrayBlockingQueue<>(queueDepth);
+        }
+
+        /**
+         * Starts the reader and tokenizer threads and collects batches in the
+         * calling thread. Both threads have ended when this returns.
+         *
+         * @param rows receives every tokenized batch in file order
+         * @return true if the whole file was loaded, false if it could not be
+         *         read or the load was interrupted
+         * @throws RuntimeException if a stage or the collector threw one
+         * @throws Error            if a stage or the collector threw one
+         */
+        boolean run(PokemonShard.Accumulator rows) {
+            readStage = new Thread(this::readLines, "pokemon-load-reader");
+            tokenizeStage = new Thread(this::tokenizeBatches, "pokemon-load-tokenizer");
+            readStage.setDaemon(true);
+            tokenizeStage.setDaemon(true);
+            readStage.start();
+            tokenizeStage.start();
+
+            try {
+                PokemonShard.RowBatch batch = tokenized.take();
+                while (batch != END) {
+                    rows.add(batch);
+                    batch = tokenized.take();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            }
+            joinStages();
+
+            // The joins make the stages' failure, schema and report visible here
+            Throwable cause = failure;
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            if (cause != null) {
+                return false;
+            }
+            rows.addValidation(schema != null ? schema : PokemonSchema.infer(header, List.of()), problems);
+            return true;
+        }
+
+        /**
+         * Waits for both stage threads. An interrupt while waiting fails the
+         * load, which makes the stages stop, and is restored afterwards.
+         */
+        private void joinStages() {
+            boolean interrupted = false;
+            for (Thread stage : new Thread[] {readStage, tokenizeStage}) {
+                while (stage.isAlive()) {
+                    try {
+                        stage.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        fail(e);
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Records the first failure of the load and interrupts the stage
+         * threads other than the caller, so none stays blocked on a queue.
+         *
+         * @param cause what went wrong
+         */
+        private synchronized void fail(Throwable cause) {
+            if (failure == null) {
+                failure = cause;
+            }
+            failed = true;
+            for (Thread stage : new Thread[] {readStage, tokenizeStage}) {
+                if (stage != Thread.currentThread()) {
+                    stage.interrupt();
+                }
+            }
+        }
+
+        /**
+         * Reader stage: cuts the file into batches of lines.
+         */
+        private void readLines() {
+            try {
+                PokemonShard.RowBatch batch = new PokemonShard.RowBatch(batchSize);
+                String line;
+                while (!failed && (line = reader.readLine()) != null) {
+                    if (!batch.add(line)) {
+                        lines.put(batch);
+                        batch = new PokemonShard.RowBatch(batchSize);
+                        batch.add(line);
+                    }
+                }
+                if (batch.size() > 0 && !failed) {
+                    lines.put(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                closeQuietly(reader);
+                putEnd(lines);
+            }
+        }
+
+        /**
+         * Tokenizer stage: splits, validates and parses each batch of lines.
+         * The schema is inferred from the first batch.
+         */
+        private void tokenizeBatches() {
+            try {
+                long firstLine = 2;
+                PokemonShard.RowBatch batch = lines.take();
+                while (batch != END && !failed) {
+                    if (schema == null) {
+                        schema = PokemonSchema.infer(header, batch.lines());
+                    }
+                    batch.tokenize(layout, schema, firstLine, problems);
+                    tokenized.put(batch);
+                    firstLine += batch.size();
+                    batch = lines.take();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                putEnd(tokenized);
+            }
+        }
+
+        /**
+         * Signals the end of the stream to the next stage. After a failure the
+         * pending batches are dropped instead, so the end marker fits without
+         * blocking on a consumer that may have stopped.
+         *
+         * @param queue queue to close; this thread is its only producer
+         */
+        private void putEnd(BlockingQueue<PokemonShard.RowBatch> queue) {
+            if (!failed) {
+                try {
+                    queue.put(END);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                }
+            }
+            queue.clear();
+            queue.offer(END);
+        }
+    }
+}
@@ -68,7 +68,8 @@ public class PokemonCharacter {
     }
 
     /**
-     * Returns the Japanese name, which may be blank.
+     * Returns the Japanese name as stored, the romaji form directly followed
+     * by the kana form. It may be blank.
      *
      * @return Japanese name
      */
@@ -76,6 +77,24 @@ public class PokemonCharacter {
         return japaneseName;
     }
 
+    /**
+     * Returns the romaji form of the Japanese name, such as {@code Fushigidane}.
+     *
+     * @return romaji, or an empty string when there is none
+     */
+    public String getJapaneseRomaji() {
+        return JapaneseNames.romajiOf(japaneseName);
+    }
+
+    /**
+     * Returns the kana form of the Japanese name, as written in the data.
+     *
+     * @return kana, or an empty string when there is none
+     */
+    public String getJapaneseKana() {
+        return JapaneseNames.kanaOf(japaneseName);
+    }
+
     /**
      * Formats a compact summary of this character.
      *
@@ -0,0 +1,498 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Immutable, thread-safe Pokemon query engine. Instances are created by
+ * {@link DatasetBuilder}; every field is final and nothing is modified after
+ * construction, so a dataset can be shared with any number of concurrent
+ * readers without locking. Reloading data means building a new dataset and
+ * swapping the reference.
+ *
+ * <p>The one mutable part is the {@link SlowQueryLog}, which is thread-safe:
+ * every query is timed, and those above the log's threshold are recorded
+ * with their arguments. The {@code explain} methods run a query with a full
+ * per-stage profile.</p>
+ */
+public final class PokemonDataset implements AutoCloseable {
+    private final ShardedPokemonData shards;
+    private final PokemonStatTable statTable;
+    private final List<StatCube> shardCubes;
+    private final StatCube statCube;
+    private final List<String> rawData;
+    private final ValidationReport validationReport;
+    private final SlowQueryLog slowQueries;
+
+    /**
+     * Wraps fully built parts. Only {@link DatasetBuilder} creates datasets.
+     *
+     * @param shards      loaded shards, owned by this dataset
+     * @param statTable   columnar stats of every shard in shard order
+     * @param shardCubes  stat cube of each shard in shard order
+     * @param slowQueries log receiving slow queries
+     */
+    PokemonDataset(ShardedPokemonData shards, PokemonStatTable statTable, List<StatCube> shardCubes,
+                   SlowQueryLog slowQueries) {
+        this.shards = shards;
+        this.statTable = statTable;
+        this.shardCubes = Collections.unmodifiableList(new ArrayList<>(shardCubes));
+        this.statCube = StatCube.merge(shardCubes);
+        this.slowQueries = slowQueries;
+        this.rawData = Collections.unmodifiableList(shards.getCombinedRawData());
+        this.validationReport = shards.getValidationReport();
+    }
+
+    /**
+     * Returns the loaded shards.
+     *
+     * @return read-only shard list
+     */
+    public List<PokemonShard> getShards() {
+        return shards.getShards();
+    }
+
+    /**
+     * Returns the columnar stats of every row.
+     *
+     * @return stat table
+     */
+    public PokemonStatTable getStatTable() {
+        return statTable;
+    }
+
+    /**
+     * Returns the character of each stat table row, for mapping query
+     * results back to rows, e.g. with {@link BitmapIndex#fromCharacters}.
+     *
+     * @return list aligned with {@link #getStatTable()}, with null for rows
+     *         that have no character
+     */
+    public List<PokemonCharacter> getStatRowCharacters() {
+        List<PokemonCharacter> characters = new ArrayList<>(statTable.getRowCount());
+        for (PokemonShard shard : shards.getShards()) {
+            characters.addAll(shard.getStatRowCharacters());
+        }
+        return characters;
+    }
+
+    /**
+     * Returns the pre-aggregated stats by type1, type2, generation and
+     * legendary status, for group-by queries that touch no rows.
+     *
+     * @return cube over every row of the stat table
+     */
+    public StatCube getStatCube() {
+        return statCube;
+    }
+
+    /**
+     * Returns the cube of each shard, which a reload may reuse.
+     *
+     * @return read-only cubes in shard order
+     */
+    List<StatCube> getShardCubes() {
+        return shardCubes;
+    }
+
+    /**
+     * Returns the header row.
+     *
+     * @return header, or an empty string when nothing is loaded
+     */
+    public String getHeader() {
+        return rawData.isEmpty() ? "" : rawData.get(0);
+    }
+
+    /**
+     * Returns all rows as one table: the header followed by every shard's
+     * data rows.
+     *
+     * @return read-only rows
+     */
+    public List<String> getRawData() {
+        return rawData;
+    }
+
+    /**
+     * Returns a mutable copy of all rows for callers that need an
+     * {@link ArrayList}.
+     *
+     * @return copy of the rows
+     */
+    public ArrayList<String> getRawDataList() {
+        return new ArrayList<>(rawData);
+    }
+
+    /**
+     * Returns the problems found while loading, across every shard.
+     *
+     * @return validation report
+     */
+    public ValidationReport getValidationReport() {
+        return validationReport;
+    }
+
+    /**
+     * Returns the number of characters with parsed stats.
+     *
+     * @return character count
+     */
+    public int getCharacterCount() {
+        return shards.getCharacterCount();
+    }
+
+    /**
+     * Returns the number of searchable names.
+     *
+     * @return name count
+     */
+    public int getNameCount() {
+        return shards.getNameCount();
+    }
+
+    /**
+     * Returns the minimum HP.
+     *
+     * @return minimum HP, or {@link Integer#MAX_VALUE} when empty
+     */
+    public int getMinHp() {
+        return shards.getMinHp();
+    }
+
+    /**
+     * Returns the maximum HP.
+     *
+     * @return maximum HP, or {@link Integer#MIN_VALUE} when empty
+     */
+    public int getMaxHp() {
+        return shards.getMaxHp();
+    }
+
+    /**
+     * Returns the minimum speed.
+     *
+     * @return minimum speed, or {@link Integer#MAX_VALUE} when empty
+     */
+    public int getMinSpeed() {
+        return shards.getMinSpeed();
+    }
+
+    /**
+     * Returns the maximum speed.
+     *
+     * @return maximum speed, or {@link Integer#MIN_VALUE} when empty
+     */
+    public int getMaxSpeed() {
+        return shards.getMaxSpeed();
+    }
+
+    /**
+     * Creates a rank and percentile index over HP whose domain starts at
+     * this dataset's HP extrema. The index is a separate, updatable object;
+     * the dataset itself stays immutable.
+     *
+     * @return new index over the stat table rows
+     */
+    public StatRankIndex newHpRankIndex() {
+        return new StatRankIndex(statTable, SkylineQuery.Stat.HP, getMinHp(), getMaxHp());
+    }
+
+    /**
+     * Creates a rank and percentile index over speed whose domain starts at
+     * this dataset's speed extrema.
+     *
+     * @return new index over the stat table rows
+     */
+    public StatRankIndex newSpeedRankIndex() {
+        return new StatRankIndex(statTable, SkylineQuery.Stat.SPEED, getMinSpeed(), getMaxSpeed());
+    }
+
+    /**
+     * Finds the raw row for a name.
+     *
+     * @param name name to search for, case-insensitive
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByName(String name) {
+        long start = System.nanoTime();
+        String row = shards.findRowByName(name);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("row for name = '" + name + "'", ShardedPokemonData.NAME_INDEX, row == null ? 0 : 1, elapsed);
+        }
+        return row;
+    }
+
+    /**
+     * Finds a character by name.
+     *
+     * @param name name to search for, case-insensitive
+     * @return matching character or null
+     */
+    public PokemonCharacter findCharacterByName(String name) {
+        long start = System.nanoTime();
+        PokemonCharacter character = shards.findCharacterByName(name);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("name = '" + name + "'", ShardedPokemonData.NAME_INDEX, character == null ? 0 : 1, elapsed);
+        }
+        return character;
+    }
+
+    /**
+     * Finds the raw row for a pokedex number.
+     *
+     * @param number pokedex number
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByPokedexNumber(int number) {
+        long start = System.nanoTime();
+        String row = shards.findRowByPokedexNumber(number);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("row for pokedex_number = " + number, ShardedPokemonData.NUMBER_INDEX, row == null ? 0 : 1,
+                    elapsed);
+        }
+        return row;
+    }
+
+    /**
+     * Finds the character of a pokedex number.
+     *
+     * @param number pokedex number
+     * @return matching character or null
+     */
+    public PokemonCharacter findCharacterByPokedexNumber(int number) {
+        long start = System.nanoTime();
+        PokemonCharacter character = shards.findCharacterByPokedexNumber(number);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("pokedex_number = " + number, ShardedPokemonData.NUMBER_INDEX, character == null ? 0 : 1,
+                    elapsed);
+        }
+        return character;
+    }
+
+    /**
+     * Finds the raw row of a Japanese name given in romaji, katakana or
+     * hiragana.
+     *
+     * @param name romaji or kana name, case-insensitive
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByJapaneseName(String name) {
+        long start = System.nanoTime();
+        String row = shards.findRowByJapaneseName(name);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("row for japanese_name = '" + name + "'", ShardedPokemonData.JAPANESE_INDEX,
+                    row == null ? 0 : 1, elapsed);
+        }
+        return row;
+    }
+
+    /**
+     * Finds the character of a Japanese name given in romaji, katakana or
+     * hiragana.
+     *
+     * @param name romaji or kana name, case-insensitive
+     * @return matching character or null
+     */
+    public PokemonCharacter findCharacterByJapaneseName(String name) {
+        long start = System.nanoTime();
+        PokemonCharacter character = shards.findCharacterByJapaneseName(name);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("japanese_name = '" + name + "'", ShardedPokemonData.JAPANESE_INDEX,
+                    character == null ? 0 : 1, elapsed);
+        }
+        return character;
+    }
+
+    /**
+     * Collects characters whose HP falls within the range.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return matches in {@link PokemonCharacter#BY_HP_ASC} order
+     */
+    public List<PokemonCharacter> collectByHpRange(int minHp, int maxHp) {
+        long start = System.nanoTime();
+        List<PokemonCharacter> matches = shards.collectByHpRange(minHp, maxHp);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("hp between " + minHp + " and " + maxHp, ShardedPokemonData.HP_INDEX, matches.size(), elapsed);
+        }
+        return matches;
+    }
+
+    /**
+     * Collects characters whose speed falls within the range.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return matches in {@link PokemonCharacter#BY_SPEED_ASC} order
+     */
+    public List<PokemonCharacter> collectBySpeedRange(int minSpeed, int maxSpeed) {
+        long start = System.nanoTime();
+        List<PokemonCharacter> matches = shards.collectBySpeedRange(minSpeed, maxSpeed);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("speed between " + minSpeed + " and " + maxSpeed,
+                    ShardedPokemonData.SPEED_INDEX, matches.size(), elapsed);
+        }
+        return matches;
+    }
+
+    /**
+     * Answers a batch of HP range, speed range and speed group queries
+     * together, sweeping each shard's indexes once for the whole batch.
+     *
+     * @param batch queries to answer
+     * @return matches per query id, each as the single query would return them
+     */
+    public List<List<PokemonCharacter>> executeBatch(RangeQueryBatch batch) {
+        long start = System.nanoTime();
+        List<List<PokemonCharacter>> results = shards.executeBatch(batch);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            long rows = 0;
+            for (List<PokemonCharacter> result : results) {
+                rows += result.size();
+            }
+            logSlow("batch of " + batch.size() + " range queries", ShardedPokemonData.BATCH_INDEX, rows, elapsed);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the top-K distinct speed values.
+     *
+     * @param k       number of values
+     * @param fastest true for the highest values, false for the lowest
+     * @return distinct speeds, best first
+     */
+    public List<Integer> topSpeedValues(int k, boolean fastest) {
+        long start = System.nanoTime();
+        List<Integer> speeds = shards.topSpeedValues(k, fastest);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow((fastest ? "top " : "bottom ") + k + " speed values",
+                    ShardedPokemonData.SPEED_INDEX, speeds.size(), elapsed);
+        }
+        return speeds;
+    }
+
+    /**
+     * Returns the characters of one speed group.
+     *
+     * @param speed speed value
+     * @return characters in {@link PokemonCharacter#BY_SPEED_ASC} order
+     */
+    public List<PokemonCharacter> getSpeedGroup(int speed) {
+        long start = System.nanoTime();
+        List<PokemonCharacter> group = shards.getSpeedGroup(speed);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueries.isSlow(elapsed)) {
+            logSlow("speed group " + speed, ShardedPokemonData.SPEED_INDEX, group.size(), elapsed);
+        }
+        return group;
+    }
+
+    /**
+     * Returns the size of every speed group.
+     *
+     * @return map from speed to group size, ascending by speed
+     */
+    public TreeMap<Integer, Integer> getSpeedGroupSizes() {
+        return shards.getSpeedGroupSizes();
+    }
+
+    /**
+     * Runs an HP range query with a full profile.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return profile with the chosen index, row estimate and stage timings
+     */
+    public QueryProfile explainHpRange(int minHp, int maxHp) {
+        return logged(shards.explainHpRange(minHp, maxHp));
+    }
+
+    /**
+     * Runs a speed range query with a full profile.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return profile with the chosen index, row estimate and stage timings
+     */
+    public QueryProfile explainSpeedRange(int minSpeed, int maxSpeed) {
+        return logged(shards.explainSpeedRange(minSpeed, maxSpeed));
+    }
+
+    /**
+     * Runs a speed group lookup with a full profile.
+     *
+     * @param speed speed value
+     * @return profile with the chosen index, row estimate and stage timings
+     */
+    public QueryProfile explainSpeedGroup(int speed) {
+        return logged(shards.explainSpeedGroup(speed));
+    }
+
+    /**
+     * Runs a name lookup with a full profile.
+     *
+     * @param name name to search for, case-insensitive
+     * @return profile with the chosen index, row estimate and stage timings
+     */
+    public QueryProfile explainFindByName(String name) {
+        return logged(shards.explainFindByName(name));
+    }
+
+    /**
+     * Returns the log of slow queries against this dataset.
+     *
+     * @return slow query log
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueries;
+    }
+
+    /**
+     * Offers an explained query to the slow query log.
+     *
+     * @param profile finished profile
+     * @return the same profile
+     */
+    private QueryProfile logged(QueryProfile profile) {
+        slowQueries.offer(profile);
+        return profile;
+    }
+
+    /**
+     * Records a plain query in the slow query log. Callers check
+     * {@link SlowQueryLog#isSlow} first so fast queries build no description.
+     *
+     * @param description query text
+     * @param index       access path used
+     * @param rows        rows returned
+     * @param elapsed     query duration in nanoseconds
+     */
+    private void logSlow(String description, String index, long rows, long elapsed) {
+        QueryProfile profile = new QueryProfile(description, index, -1);
+        profile.finish(rows, elapsed);
+        slowQueries.offer(profile);
+    }
+
+    /**
+     * Releases the worker threads used for scatter-gather queries once the
+     * queries in flight have finished. Readers may keep querying a closed
+     * dataset; multi-shard queries then run on the calling thread.
+     */
+    @Override
+    public void close() {
+        shards.close();
+    }
+}
@@ -0,0 +1,407 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relationship graph between Pokemon stored in compressed sparse row form.
+ *
+ * <p>Rows are linked when they share an ability, share the same unordered
+ * type pair, or appear as a pair in an optional evolution-chain side file.
+ * Links are undirected, and the kinds linking two rows form a bit set of
+ * {@link #EDGE_ABILITY}, {@link #EDGE_TYPE_PAIR} and {@link #EDGE_EVOLUTION}.</p>
+ *
+ * <p>Shared abilities and type pairs are not stored as row-to-row edges,
+ * since every group of rows sharing one would be a clique with a quadratic
+ * number of edges. The graph keeps a bipartite CSR instead: each row lists
+ * the groups it belongs to, and each group lists its rows. Neighbours are
+ * expanded from the groups when needed, and a traversal expands each group
+ * at most once, so a search costs the size of the memberships rather than
+ * the size of the cliques. Evolution pairs are few and are stored as plain
+ * CSR edges.</p>
+ */
+public class PokemonGraph {
+    /**
+     * Edge kind for rows sharing at least one ability.
+     */
+    public static final int EDGE_ABILITY = 1;
+
+    /**
+     * Edge kind for rows with the same type1/type2 pair.
+     */
+    public static final int EDGE_TYPE_PAIR = 1 << 1;
+
+    /**
+     * Edge kind for rows linked by the evolution side file.
+     */
+    public static final int EDGE_EVOLUTION = 1 << 2;
+
+    /**
+     * Mask accepting every edge kind.
+     */
+    public static final int EDGE_ANY = EDGE_ABILITY | EDGE_TYPE_PAIR | EDGE_EVOLUTION;
+
+    private static final int TYPE_KEYS = (PokemonTypes.TYPE_COUNT + 1) * (PokemonTypes.TYPE_COUNT + 1);
+
+    private final int nodeCount;
+    private final int[] rowOffsets;
+    private final int[] rowGroups;
+    private final int[] groupOffsets;
+    private final int[] groupRows;
+    private final byte[] groupKinds;
+    private final int[] evolutionOffsets;
+    private final int[] evolutionTargets;
+
+    /**
+     * Wraps finished CSR arrays.
+     *
+     * @param nodeCount        number of rows
+     * @param rowOffsets       start of each row's groups, with a final end marker
+     * @param rowGroups        ascending group ids per row
+     * @param groupOffsets     start of each group's rows, with a final end marker
+     * @param groupRows        ascending row ids per group
+     * @param groupKinds       edge kind of each group
+     * @param evolutionOffsets start of each row's evolution links
+     * @param evolutionTargets ascending linked row ids per row
+     */
+    private PokemonGraph(int nodeCount, int[] rowOffsets, int[] rowGroups, int[] groupOffsets, int[] groupRows,
+                         byte[] groupKinds, int[] evolutionOffsets, int[] evolutionTargets) {
+        this.nodeCount = nodeCount;
+        this.rowOffsets = rowOffsets;
+        this.rowGroups = rowGroups;
+        this.groupOffsets = groupOffsets;
+        this.groupRows = groupRows;
+        this.groupKinds = groupKinds;
+        this.evolutionOffsets = evolutionOffsets;
+        this.evolutionTargets = evolutionTargets;
+    }
+
+    /**
+     * Builds the graph for a stat table.
+     *
+     * @param table         source table
+     * @param evolutionRows rows of the evolution side file, each
+     *                      {@code from,to} by name or pokedex number; may be null
+     * @return built graph
+     */
+    public static PokemonGraph build(PokemonStatTable table, List<String> evolutionRows) {
+        int n = table.getRowCount();
+        AbilityIndex abilities = new AbilityIndex(table);
+        int abilityCount = abilities.getAbilityCount();
+
+        // Type pair groups are numbered after the abilities, in order of first use
+        int[] groupByTypeKey = new int[TYPE_KEYS];
+        Arrays.fill(groupByTypeKey, -1);
+        int groupCount = abilityCount;
+        int[] rowOffsets = new int[n + 1];
+        int[] flat = new int[Math.max(16, n * 3)];
+        int written = 0;
+        for (int row = 0; row < n; row++) {
+            rowOffsets[row] = written;
+            int[] rowAbilities = abilities.abilitiesOf(row);
+            if (written + rowAbilities.length + 1 > flat.length) {
+                flat = Arrays.copyOf(flat, Math.max(flat.length * 2, written + rowAbilities.length + 1));
+            }
+            // Ability ids come sorted and all type pair ids are larger, so each row stays sorted
+            System.arraycopy(rowAbilities, 0, flat, written, rowAbilities.length);
+            written += rowAbilities.length;
+            int key = typeKey(table.getType1(row), table.getType2(row));
+            if (groupByTypeKey[key] < 0) {
+                groupByTypeKey[key] = groupCount++;
+            }
+            flat[written++] = groupByTypeKey[key];
+        }
+        rowOffsets[n] = written;
+        int[] rowGroups = Arrays.copyOf(flat, written);
+
+        int[] groupOffsets = new int[groupCount + 1];
+        for (int group : rowGroups) {
+            groupOffsets[group + 1]++;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            groupOffsets[g + 1] += groupOffsets[g];
+        }
+        int[] groupRows = new int[written];
+        int[] cursor = Arrays.copyOf(groupOffsets, groupCount);
+        for (int row = 0; row < n; row++) {
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                groupRows[cursor[rowGroups[i]]++] = row;
+            }
+        }
+        byte[] groupKinds = new byte[groupCount];
+        Arrays.fill(groupKinds, 0, abilityCount, (byte) EDGE_ABILITY);
+        Arrays.fill(groupKinds, abilityCount, groupCount, (byte) EDGE_TYPE_PAIR);
+
+        long[] pairs = evolutionRows == null ? new long[0] : evolutionPairs(table, evolutionRows);
+        int[] evolutionOffsets = new int[n + 1];
+        int[] evolutionTargets = new int[pairs.length];
+        int links = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            if (i > 0 && pairs[i] == pairs[i - 1]) {
+                continue;
+            }
+            int from = (int) (pairs[i] >>> Integer.SIZE);
+            evolutionOffsets[from + 1]++;
+            evolutionTargets[links++] = (int) pairs[i];
+        }
+        for (int v = 0; v < n; v++) {
+            evolutionOffsets[v + 1] += evolutionOffsets[v];
+        }
+
+        return new PokemonGraph(n, rowOffsets, rowGroups, groupOffsets, groupRows, groupKinds,
+                evolutionOffsets, Arrays.copyOf(evolutionTargets, links));
+    }
+
+    /**
+     * Maps an unordered type pair to a dense key.
+     *
+     * @param type1 primary type id or {@link PokemonTypes#NO_TYPE}
+     * @param type2 secondary type id or {@link PokemonTypes#NO_TYPE}
+     * @return key below {@link #TYPE_KEYS}
+     */
+    private static int typeKey(int type1, int type2) {
+        int low = Math.min(type1, type2);
+        int high = Math.max(type1, type2);
+        return (low + 1) * (PokemonTypes.TYPE_COUNT + 1) + high + 1;
+    }
+
+    /**
+     * Resolves evolution links from {@code from,to} rows. Rows whose ends
+     * cannot be resolved, such as a header, are ignored.
+     *
+     * @param table         source table
+     * @param evolutionRows side file rows
+     * @return directed links in both directions as {@code from << 32 | to},
+     *         sorted, possibly with repeats
+     */
+    private static long[] evolutionPairs(PokemonStatTable table, List<String> evolutionRows) {
+        Map<String, Integer> rowByKey = new HashMap<>();
+        for (int row = 0; row < table.getRowCount(); row++) {
+            rowByKey.putIfAbsent(table.getName(row).toLowerCase(), row);
+            rowByKey.putIfAbsent(Integer.toString(table.getPokedexNumber(row)), row);
+        }
+
+        long[] pairs = new long[2 * evolutionRows.size()];
+        int count = 0;
+        for (String line : evolutionRows) {
+            List<String> tokens = PokemonCsvUtils.splitCsvRecord(line);
+            if (tokens.size() < 2) {
+                continue;
+            }
+            Integer from = rowByKey.get(tokens.get(0).toLowerCase());
+            Integer to = rowByKey.get(tokens.get(1).toLowerCase());
+            if (from != null && to != null && !from.equals(to)) {
+                pairs[count++] = (long) from << Integer.SIZE | to;
+                pairs[count++] = (long) to << Integer.SIZE | from;
+            }
+        }
+        long[] result = Arrays.copyOf(pairs, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return node count
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the number of ability and type pair groups.
+     *
+     * @return group count
+     */
+    public int getGroupCount() {
+        return groupKinds.length;
+    }
+
+    /**
+     * Returns the stored size of the graph: row-to-group memberships plus
+     * undirected evolution links. Unlike the number of row-to-row edges, it
+     * grows linearly with the row count.
+     *
+     * @return stored link count
+     */
+    public int getStoredLinkCount() {
+        return rowGroups.length + evolutionTargets.length / 2;
+    }
+
+    /**
+     * Returns the number of neighbours of a row. The neighbours are expanded
+     * from the row's groups, so this costs the size of those groups.
+     *
+     * @param row row id
+     * @return degree over all edge kinds
+     */
+    public int degree(int row) {
+        return neighbors(row, EDGE_ANY).length;
+    }
+
+    /**
+     * Returns the neighbours of a row through edges of the given kinds.
+     *
+     * @param row      row id
+     * @param edgeMask accepted edge kinds
+     * @return neighbour row ids in ascending order
+     */
+    public int[] neighbors(int row, int edgeMask) {
+        int size = 0;
+        for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+            int group = rowGroups[i];
+            if ((groupKinds[group] & edgeMask) != 0) {
+                size += groupOffsets[group + 1] - groupOffsets[group];
+            }
+        }
+        if ((edgeMask & EDGE_EVOLUTION) != 0) {
+            size += evolutionOffsets[row + 1] - evolutionOffsets[row];
+        }
+
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+            int group = rowGroups[i];
+            if ((groupKinds[group] & edgeMask) != 0) {
+                int length = groupOffsets[group + 1] - groupOffsets[group];
+                System.arraycopy(groupRows, groupOffsets[group], result, count, length);
+                count += length;
+            }
+        }
+        if ((edgeMask & EDGE_EVOLUTION) != 0) {
+            int length = evolutionOffsets[row + 1] - evolutionOffsets[row];
+            System.arraycopy(evolutionTargets, evolutionOffsets[row], result, count, length);
+            count += length;
+        }
+
+        Arrays.sort(result, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (result[i] != row && (unique == 0 || result[unique - 1] != result[i])) {
+                result[unique++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, unique);
+    }
+
+    /**
+     * Returns the edge kinds linking two rows.
+     *
+     * @param from first row
+     * @param to   second row
+     * @return kind bits, or 0 when not linked
+     */
+    public int edgeKinds(int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        int kinds = 0;
+        // Both group lists are sorted, so shared groups are found by a merge
+        int i = rowOffsets[from];
+        int j = rowOffsets[to];
+        while (i < rowOffsets[from + 1] && j < rowOffsets[to + 1]) {
+            if (rowGroups[i] < rowGroups[j]) {
+                i++;
+            } else if (rowGroups[i] > rowGroups[j]) {
+                j++;
+            } else {
+                kinds |= groupKinds[rowGroups[i]];
+                i++;
+                j++;
+            }
+        }
+        if (Arrays.binarySearch(evolutionTargets, evolutionOffsets[from], evolutionOffsets[from + 1], to) >= 0) {
+            kinds |= EDGE_EVOLUTION;
+        }
+        return kinds;
+    }
+
+    /**
+     * Breadth-first search recording hop distances. Each group is expanded
+     * the first time one of its rows is dequeued; its other rows are then
+     * all one hop further, so it never needs expanding again.
+     *
+     * @param source   starting row
+     * @param maxHops  maximum hops to expand, or a negative value for no limit
+     * @param edgeMask accepted edge kinds
+     * @return hop distance per row, -1 when not reached
+     */
+    public int[] hopDistances(int source, int maxHops, int edgeMask) {
+        int[] distance = new int[nodeCount];
+        Arrays.fill(distance, -1);
+        boolean[] expanded = new boolean[groupKinds.length];
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            int current = queue[head++];
+            int hops = distance[current];
+            if (maxHops >= 0 && hops >= maxHops) {
+                continue;
+            }
+            for (int i = rowOffsets[current]; i < rowOffsets[current + 1]; i++) {
+                int group = rowGroups[i];
+                if ((groupKinds[group] & edgeMask) == 0 || expanded[group]) {
+                    continue;
+                }
+                expanded[group] = true;
+                for (int m = groupOffsets[group]; m < groupOffsets[group + 1]; m++) {
+                    int next = groupRows[m];
+                    if (distance[next] < 0) {
+                        distance[next] = hops + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            if ((edgeMask & EDGE_EVOLUTION) != 0) {
+                for (int e = evolutionOffsets[current]; e < evolutionOffsets[current + 1]; e++) {
+                    int next = evolutionTargets[e];
+                    if (distance[next] < 0) {
+                        distance[next] = hops + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Returns every row reachable within a number of hops, excluding the source.
+     *
+     * @param source   starting row
+     * @param maxHops  maximum hops, or a negative value for no limit
+     * @param edgeMask accepted edge kinds
+     * @return reachable rows ordered by hop count, then row id
+     */
+    public int[] reachableWithin(int source, int maxHops, int edgeMask) {
+        int[] distance = hopDistances(source, maxHops, edgeMask);
+        int farthest = 0;
+        for (int row = 0; row < nodeCount; row++) {
+            farthest = Math.max(farthest, distance[row]);
+        }
+        int[] byHop = new int[farthest + 2];
+        int count = 0;
+        for (int row = 0; row < nodeCount; row++) {
+            if (distance[row] > 0) {
+                byHop[distance[row] + 1]++;
+                count++;
+            }
+        }
+        for (int h = 1; h < byHop.length; h++) {
+            byHop[h] += byHop[h - 1];
+        }
+
+        int[] result = new int[count];
+        for (int row = 0; row < nodeCount; row++) {
+            if (distance[row] > 0) {
+                result[byHop[distance[row]]++] = row;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Column names and types of a Pokemon CSV file, inferred from the header and
+ * a sample of rows, and used to validate every row during a load.
+ *
+ * <p>A column is {@link ColumnType#INTEGER} when every non-blank sampled cell
+ * is an integer, {@link ColumnType#DECIMAL} when every one is a number, and
+ * {@link ColumnType#TEXT} otherwise. The name and the six base stats are
+ * required: rows where they are blank are the rows the loaders drop. Blank
+ * cells in other columns are allowed.</p>
+ */
+public final class PokemonSchema {
+    /**
+     * Rows read to infer column types.
+     */
+    public static final int SAMPLE_SIZE = 256;
+
+    private static final String[] REQUIRED_COLUMNS = {
+        "name", "hp", "attack", "defense", "sp_attack", "sp_defense", "speed"
+    };
+
+    /**
+     * Inferred type of a column.
+     */
+    public enum ColumnType {
+        INTEGER,
+        DECIMAL,
+        TEXT
+    }
+
+    private final List<String> columnNames;
+    private final ColumnType[] types;
+    private final boolean[] required;
+
+    /**
+     * Creates a schema.
+     *
+     * @param columnNames header names
+     * @param types       type per column
+     * @param required    whether each column must be non-blank
+     */
+    private PokemonSchema(List<String> columnNames, ColumnType[] types, boolean[] required) {
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+        this.types = types;
+        this.required = required;
+    }
+
+    /**
+     * Infers a schema from the header and the first rows of a file.
+     *
+     * @param header header row
+     * @param sample data rows; at most {@link #SAMPLE_SIZE} are read
+     * @return inferred schema
+     */
+    public static PokemonSchema infer(String header, List<String> sample) {
+        List<String> names = PokemonCsvUtils.splitCsvRecord(header);
+        int columns = names.size();
+        boolean[] allIntegers = new boolean[columns];
+        boolean[] allNumbers = new boolean[columns];
+        boolean[] seen = new boolean[columns];
+        for (int c = 0; c < columns; c++) {
+            names.set(c, names.get(c).trim());
+            allIntegers[c] = true;
+            allNumbers[c] = true;
+        }
+
+        int rows = Math.min(sample.size(), SAMPLE_SIZE);
+        for (int r = 0; r < rows; r++) {
+            List<String> tokens = PokemonCsvUtils.splitCsvRecord(sample.get(r));
+            for (int c = 0; c < Math.min(columns, tokens.size()); c++) {
+                String cell = tokens.get(c);
+                if (cell.isBlank()) {
+                    continue;
+                }
+                seen[c] = true;
+                if (allIntegers[c] && NumericParser.parseInt(cell) == NumericParser.MISSING) {
+                    allIntegers[c] = false;
+                }
+                if (allNumbers[c] && Double.isNaN(NumericParser.parseDouble(cell))) {
+                    allNumbers[c] = false;
+                }
+            }
+        }
+
+        ColumnType[] types = new ColumnType[columns];
+        boolean[] required = new boolean[columns];
+        for (int c = 0; c < columns; c++) {
+            if (!seen[c]) {
+                types[c] = ColumnType.TEXT;
+            } else if (allIntegers[c]) {
+                types[c] = ColumnType.INTEGER;
+            } else {
+                types[c] = allNumbers[c] ? ColumnType.DECIMAL : ColumnType.TEXT;
+            }
+            for (String requiredColumn : REQUIRED_COLUMNS) {
+                if (requiredColumn.equalsIgnoreCase(names.get(c))) {
+                    required[c] = true;
+                }
+            }
+        }
+        return new PokemonSchema(names, types, required);
+    }
+
+    /**
+     * Checks one row and records any problems. Only the first problem of
+     * each kind in a row is recorded.
+     *
+     * @param lineNumber 1-based line number in the file
+     * @param tokens     split row
+     * @param report     receives problems
+     */
+    public void validate(long lineNumber, List<String> tokens, ValidationReport report) {
+        report.countRow();
+        boolean problem = false;
+        if (tokens.size() != types.length) {
+            report.add(lineNumber, ValidationReport.Problem.FIELD_COUNT, "",
+                    tokens.size() + " fields, expected " + types.length);
+            problem = true;
+        }
+
+        boolean blankRecorded = false;
+        boolean typeRecorded = false;
+        int columns = Math.min(types.length, tokens.size());
+        for (int c = 0; c < types.length; c++) {
+            String cell = c < columns ? tokens.get(c) : "";
+            if (cell.isBlank()) {
+                if (required[c] && !blankRecorded) {
+                    report.add(lineNumber, ValidationReport.Problem.MISSING_REQUIRED, columnNames.get(c), "");
+                    blankRecorded = true;
+                    problem = true;
+                }
+                continue;
+            }
+            if (!typeRecorded && !matches(types[c], cell)) {
+                report.add(lineNumber, ValidationReport.Problem.TYPE_MISMATCH, columnNames.get(c), cell.trim());
+                typeRecorded = true;
+                problem = true;
+            }
+        }
+        if (problem) {
+            report.countBadRow();
+        }
+    }
+
+    /**
+     * Checks a non-blank cell against a column type.
+     *
+     * @param type column type
+     * @param cell cell text
+     * @return true if the cell is valid
+     */
+    private static boolean matches(ColumnType type, String cell) {
+        if (type == ColumnType.TEXT) {
+            return true;
+        }
+        if (isPlainNumber(cell, type == ColumnType.DECIMAL)) {
+            return true;
+        }
+        // Rare forms such as exponents, padding or ten-digit integers
+        return type == ColumnType.INTEGER
+                ? NumericParser.parseInt(cell) != NumericParser.MISSING
+                : !Double.isNaN(NumericParser.parseDouble(cell));
+    }
+
+    /**
+     * Checks for the common shape of a numeric cell without parsing it: an
+     * optional sign and at most nine digits, or any digits with one decimal
+     * point when decimals are allowed.
+     *
+     * @param cell         cell text
+     * @param allowDecimal whether a decimal point is accepted
+     * @return true if the cell certainly parses; false means "check fully"
+     */
+    private static boolean isPlainNumber(String cell, boolean allowDecimal) {
+        int length = cell.length();
+        int i = length > 0 && (cell.charAt(0) == '-' || cell.charAt(0) == '+') ? 1 : 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < length; i++) {
+            char c = cell.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && allowDecimal && !point) {
+                point = true;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0 && (allowDecimal || digits <= 9);
+    }
+
+    /**
+     * Returns the header names.
+     *
+     * @return read-only names
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Returns the type of a column.
+     *
+     * @param column column index
+     * @return inferred type
+     */
+    public ColumnType getType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Returns whether a column must be non-blank.
+     *
+     * @param column column index
+     * @return true if required
+     */
+    public boolean isRequired(int column) {
+        return required[column];
+    }
+
+    /**
+     * Formats the schema as one {@code name:type} entry per column.
+     *
+     * @return printable schema
+     */
+    public String formatDetails() {
+        StringBuilder builder = new StringBuilder();
+        for (int c = 0; c < types.length; c++) {
+            if (c > 0) {
+                builder.append(", ");
+            }
+            builder.append(columnNames.get(c)).append(':').append(types[c].name().toLowerCase());
+            if (required[c]) {
+                builder.append('*');
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,755 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One slice of the Pokedex loaded from a single CSV file, with its own key,
+ * range and speed group indexes.
+ */
+public class PokemonShard {
+    private static final String NAME_COLUMN = "name";
+    private static final String JAPANESE_NAME_COLUMN = "japanese_name";
+    private static final String POKEDEX_NUMBER_COLUMN = "pokedex_number";
+    private static final String SPEED_COLUMN = "speed";
+    private static final String HP_COLUMN = "hp";
+
+    private final String shardName;
+    private final List<String> rawData;
+    private final KeyLookupIndex keys;
+    private final KeyLookupIndex japaneseKeys;
+    private final PokemonCharacter[] characterByRow;
+    private final PokemonCharacter[] characterByStatRow;
+    private final PokemonStatTable statTable;
+    private final StatCube statCube;
+    private final PokemonCharacter[] byHp;
+    private final int[] hpKeys;
+    private final PokemonCharacter[] bySpeed;
+    private final int[] speedKeys;
+    private final Map<Integer, List<PokemonCharacter>> speedGroups;
+    private final PokemonSchema schema;
+    private final ValidationReport validationReport;
+
+    /**
+     * Builds a shard and all of its indexes from raw CSV rows.
+     *
+     * @param shardName name used in reports, usually the source file
+     * @param rawData   CSV rows including the header
+     */
+    public PokemonShard(String shardName, List<String> rawData) {
+        this(shardName, Accumulator.fromRows(shardName, rawData));
+    }
+
+    /**
+     * Builds a shard from rows that were already tokenized and collected,
+     * for example by {@link PipelinedShardLoader}.
+     *
+     * @param shardName name used in reports, usually the source file
+     * @param rows      collected rows; must not be used afterwards
+     */
+    PokemonShard(String shardName, Accumulator rows) {
+        this.shardName = shardName;
+        this.rawData = Collections.unmodifiableList(rows.rawData);
+        this.keys = rows.keys.build();
+        this.japaneseKeys = rows.japaneseKeys.build();
+        this.characterByRow = rows.characterByRow.toArray(new PokemonCharacter[0]);
+        this.statTable = rows.statRows.build();
+        this.characterByStatRow = new PokemonCharacter[rows.statRowLines.size()];
+        for (int i = 0; i < characterByStatRow.length; i++) {
+            characterByStatRow[i] = characterByRow[rows.statRowLines.get(i)];
+        }
+        // Built here so the cube is aggregated on the worker that loads the shard
+        this.statCube = StatCube.of(statTable);
+
+        // Both orderings share one ranking of the names
+        PokemonCharacter[] characters = rows.characters.toArray(new PokemonCharacter[0]);
+        int[] nameRanks = CharacterSortKeys.collationRanks(characters);
+        byHp = CharacterSortKeys.sort(characters, nameRanks, CharacterSortKeys.Ordering.BY_HP);
+        hpKeys = new int[byHp.length];
+        for (int i = 0; i < byHp.length; i++) {
+            hpKeys[i] = byHp[i].getHp();
+        }
+
+        bySpeed = CharacterSortKeys.sort(characters, nameRanks, CharacterSortKeys.Ordering.BY_SPEED);
+        speedKeys = new int[bySpeed.length];
+        for (int i = 0; i < bySpeed.length; i++) {
+            speedKeys[i] = bySpeed[i].getSpeed();
+        }
+
+        speedGroups = buildSpeedGroups();
+        schema = rows.schema;
+        validationReport = rows.report;
+    }
+
+    /**
+     * Groups the speed-ordered characters into runs of equal speed.
+     *
+     * @return map from speed to characters in {@link PokemonCharacter#BY_SPEED_ASC} order
+     */
+    private Map<Integer, List<PokemonCharacter>> buildSpeedGroups() {
+        Map<Integer, List<PokemonCharacter>> groups = new LinkedHashMap<>();
+        int start = 0;
+        while (start < bySpeed.length) {
+            int end = upperBound(speedKeys, speedKeys[start]);
+            groups.put(speedKeys[start], Collections.unmodifiableList(Arrays.asList(bySpeed).subList(start, end)));
+            start = end;
+        }
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * Returns the shard name.
+     *
+     * @return shard name
+     */
+    public String getShardName() {
+        return shardName;
+    }
+
+    /**
+     * Returns the raw rows of this shard including its header.
+     *
+     * @return read-only list of rows
+     */
+    public List<String> getRawData() {
+        return rawData;
+    }
+
+    /**
+     * Returns the columnar stats of this shard's rows, parsed from the same
+     * tokens as its indexes.
+     *
+     * @return stat table
+     */
+    public PokemonStatTable getStatTable() {
+        return statTable;
+    }
+
+    /**
+     * Returns the character of each stat table row.
+     *
+     * @return read-only list aligned with {@link #getStatTable()}, with null
+     *         for rows that have no character
+     */
+    public List<PokemonCharacter> getStatRowCharacters() {
+        return Collections.unmodifiableList(Arrays.asList(characterByStatRow));
+    }
+
+    /**
+     * Returns the pre-aggregated stats of this shard's rows.
+     *
+     * @return cube built from {@link #getStatTable()}
+     */
+    public StatCube getStatCube() {
+        return statCube;
+    }
+
+    /**
+     * Returns the number of unique names.
+     *
+     * @return name count
+     */
+    public int getNameCount() {
+        return keys.getNameCount();
+    }
+
+    /**
+     * Returns the number of characters with parsed stats.
+     *
+     * @return character count
+     */
+    public int getCharacterCount() {
+        return byHp.length;
+    }
+
+    /**
+     * Returns the schema inferred while loading.
+     *
+     * @return schema, or null for an empty file
+     */
+    public PokemonSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the problems found while loading.
+     *
+     * @return validation report
+     */
+    public ValidationReport getValidationReport() {
+        return validationReport;
+    }
+
+    /**
+     * Tests whether a name may be in this shard using only its Bloom filter.
+     *
+     * @param name name to test, case-insensitive
+     * @return false when the shard certainly lacks the name
+     */
+    public boolean mightContainName(String name) {
+        return keys.mightContainName(name);
+    }
+
+    /**
+     * Finds the raw row for a name using the hashed name index.
+     *
+     * @param name name to search for, case-insensitive
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByName(String name) {
+        int row = keys.findName(name);
+        return row < 0 ? null : rawData.get(row);
+    }
+
+    /**
+     * Finds a character by name, case-insensitive.
+     *
+     * @param name name to search for
+     * @return matching character or null
+     */
+    public PokemonCharacter findCharacterByName(String name) {
+        int row = keys.findName(name);
+        return row < 0 ? null : characterByRow[row];
+    }
+
+    /**
+     * Tests whether a Japanese search key may be in this shard using only
+     * its Bloom filter.
+     *
+     * @param key key from {@link JapaneseNames#searchKey}
+     * @return false when the shard certainly lacks the key
+     */
+    public boolean mightContainJapaneseKey(String key) {
+        return japaneseKeys.mightContainName(key);
+    }
+
+    /**
+     * Finds the raw row whose Japanese name has a romaji or kana form with
+     * the given search key. The keys were folded once at load, so the
+     * lookup is a single hash probe.
+     *
+     * @param key key from {@link JapaneseNames#searchKey}
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByJapaneseKey(String key) {
+        int row = japaneseKeys.findName(key);
+        return row < 0 ? null : rawData.get(row);
+    }
+
+    /**
+     * Finds the character whose Japanese name has a romaji or kana form
+     * with the given search key.
+     *
+     * @param key key from {@link JapaneseNames#searchKey}
+     * @return matching character, or null when missing or without stats
+     */
+    public PokemonCharacter findCharacterByJapaneseKey(String key) {
+        int row = japaneseKeys.findName(key);
+        return row < 0 ? null : characterByRow[row];
+    }
+
+    /**
+     * Finds the raw row for a pokedex number. With duplicate numbers the
+     * last row wins.
+     *
+     * @param number pokedex number
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByPokedexNumber(int number) {
+        int row = keys.findNumber(number);
+        return row < 0 ? null : rawData.get(row);
+    }
+
+    /**
+     * Finds the character of a pokedex number.
+     *
+     * @param number pokedex number
+     * @return matching character, or null when missing or without stats
+     */
+    public PokemonCharacter findCharacterByPokedexNumber(int number) {
+        int row = keys.findNumber(number);
+        return row < 0 ? null : characterByRow[row];
+    }
+
+    /**
+     * Returns the lowest HP in this shard.
+     *
+     * @return minimum HP, or {@link Integer#MAX_VALUE} when empty
+     */
+    public int getMinHp() {
+        return hpKeys.length == 0 ? Integer.MAX_VALUE : hpKeys[0];
+    }
+
+    /**
+     * Returns the highest HP in this shard.
+     *
+     * @return maximum HP, or {@link Integer#MIN_VALUE} when empty
+     */
+    public int getMaxHp() {
+        return hpKeys.length == 0 ? Integer.MIN_VALUE : hpKeys[hpKeys.length - 1];
+    }
+
+    /**
+     * Returns the lowest speed in this shard.
+     *
+     * @return minimum speed, or {@link Integer#MAX_VALUE} when empty
+     */
+    public int getMinSpeed() {
+        return speedKeys.length == 0 ? Integer.MAX_VALUE : speedKeys[0];
+    }
+
+    /**
+     * Returns the highest speed in this shard.
+     *
+     * @return maximum speed, or {@link Integer#MIN_VALUE} when empty
+     */
+    public int getMaxSpeed() {
+        return speedKeys.length == 0 ? Integer.MIN_VALUE : speedKeys[speedKeys.length - 1];
+    }
+
+    /**
+     * Returns characters whose HP is within the inclusive range.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return matches in {@link PokemonCharacter#BY_HP_ASC} order
+     */
+    public List<PokemonCharacter> collectByHpRange(int minHp, int maxHp) {
+        if (minHp > maxHp) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(byHp).subList(lowerBound(hpKeys, minHp), upperBound(hpKeys, maxHp));
+    }
+
+    /**
+     * Counts characters whose HP is within the inclusive range from the
+     * sorted HP keys alone.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return number of matches
+     */
+    public int countByHpRange(int minHp, int maxHp) {
+        if (minHp > maxHp) {
+            return 0;
+        }
+        return Math.max(0, upperBound(hpKeys, maxHp) - lowerBound(hpKeys, minHp));
+    }
+
+    /**
+     * Returns characters whose speed is within the inclusive range.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return matches in {@link PokemonCharacter#BY_SPEED_ASC} order
+     */
+    public List<PokemonCharacter> collectBySpeedRange(int minSpeed, int maxSpeed) {
+        if (minSpeed > maxSpeed) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(bySpeed).subList(lowerBound(speedKeys, minSpeed), upperBound(speedKeys, maxSpeed));
+    }
+
+    /**
+     * Answers every query of a batch. The bounds of all queries on the same
+     * index are located together in one sweep of that index's keys.
+     *
+     * @param batch queries to answer
+     * @return matches per query id, each in the order of the single query
+     */
+    public List<List<PokemonCharacter>> collectBatch(RangeQueryBatch batch) {
+        int size = batch.size();
+        int hpQueries = 0;
+        for (int q = 0; q < size; q++) {
+            if (batch.usesHpIndex(q)) {
+                hpQueries++;
+            }
+        }
+        long[] hpBounds = new long[hpQueries * 2];
+        long[] speedBounds = new long[(size - hpQueries) * 2];
+        int[] slots = new int[size];
+        int hpCount = 0;
+        int speedCount = 0;
+        for (int q = 0; q < size; q++) {
+            // The end of a range is the first key past its maximum
+            if (batch.usesHpIndex(q)) {
+                slots[q] = hpCount;
+                hpBounds[hpCount++] = batch.getMin(q);
+                hpBounds[hpCount++] = batch.getMax(q) + 1L;
+            } else {
+                slots[q] = speedCount;
+                speedBounds[speedCount++] = batch.getMin(q);
+                speedBounds[speedCount++] = batch.getMax(q) + 1L;
+            }
+        }
+        int[] hpPositions = RangeQueryBatch.lowerBounds(hpKeys, hpBounds);
+        int[] speedPositions = RangeQueryBatch.lowerBounds(speedKeys, speedBounds);
+
+        List<PokemonCharacter> hpOrder = Arrays.asList(byHp);
+        List<PokemonCharacter> speedOrder = Arrays.asList(bySpeed);
+        List<List<PokemonCharacter>> results = new ArrayList<>(size);
+        for (int q = 0; q < size; q++) {
+            boolean hp = batch.usesHpIndex(q);
+            int[] positions = hp ? hpPositions : speedPositions;
+            int start = positions[slots[q]];
+            int end = positions[slots[q] + 1];
+            if (start >= end) {
+                results.add(Collections.emptyList());
+            } else {
+                results.add((hp ? hpOrder : speedOrder).subList(start, end));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the speed groups of this shard.
+     *
+     * @return read-only map from speed to ordered characters, ascending by speed
+     */
+    public Map<Integer, List<PokemonCharacter>> getSpeedGroups() {
+        return speedGroups;
+    }
+
+    /**
+     * Returns up to k distinct speed values from one end of the range.
+     *
+     * @param k       number of values
+     * @param fastest true for the highest values, false for the lowest
+     * @return distinct speeds, best first
+     */
+    public int[] topSpeedValues(int k, boolean fastest) {
+        int[] result = new int[Math.min(k, speedGroups.size())];
+        int count = 0;
+        if (fastest) {
+            int end = speedKeys.length;
+            while (count < result.length && end > 0) {
+                int speed = speedKeys[end - 1];
+                result[count++] = speed;
+                end = lowerBound(speedKeys, speed);
+            }
+        } else {
+            int start = 0;
+            while (count < result.length && start < speedKeys.length) {
+                int speed = speedKeys[start];
+                result[count++] = speed;
+                start = upperBound(speedKeys, speed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first index whose key is at least the value.
+     *
+     * @param keys  sorted keys
+     * @param value value to search for
+     * @return insertion index
+     */
+    private static int lowerBound(int[] keys, int value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first index whose key is greater than the value.
+     *
+     * @param keys  sorted keys
+     * @param value value to search for
+     * @return insertion index
+     */
+    private static int upperBound(int[] keys, int value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Positions of the columns a shard indexes, resolved once from the header.
+     */
+    static final class Layout {
+        private final int nameIndex;
+        private final int japaneseIndex;
+        private final int numberIndex;
+        private final int hpIndex;
+        private final int speedIndex;
+
+        /**
+         * Resolves column positions.
+         *
+         * @param header header row
+         */
+        Layout(String header) {
+            nameIndex = PokemonCsvUtils.findColumnIndex(header, NAME_COLUMN);
+            japaneseIndex = PokemonCsvUtils.findColumnIndex(header, JAPANESE_NAME_COLUMN);
+            numberIndex = PokemonCsvUtils.findColumnIndex(header, POKEDEX_NUMBER_COLUMN);
+            hpIndex = PokemonCsvUtils.findColumnIndex(header, HP_COLUMN);
+            speedIndex = PokemonCsvUtils.findColumnIndex(header, SPEED_COLUMN);
+        }
+    }
+
+    /**
+     * A batch of data rows and the fields tokenized from them. Batches are
+     * handed between loader stages as a unit to amortize synchronization.
+     */
+    static final class RowBatch {
+        private static final byte SKIP = 0;
+        private static final byte NAME_ONLY = 1;
+        private static final byte WITH_STATS = 2;
+
+        private final String[] lines;
+        private final List<List<String>> tokens;
+        private final String[] names;
+        private final String[] japaneseNames;
+        private final int[] numbers;
+        private final String[] romajiKeys;
+        private final String[] kanaKeys;
+        private final int[] hp;
+        private final int[] speed;
+        private final byte[] kinds;
+        private int size;
+
+        /**
+         * Creates an empty batch.
+         *
+         * @param capacity maximum rows
+         */
+        RowBatch(int capacity) {
+            lines = new String[capacity];
+            tokens = new ArrayList<>(Collections.nCopies(capacity, null));
+            names = new String[capacity];
+            japaneseNames = new String[capacity];
+            numbers = new int[capacity];
+            romajiKeys = new String[capacity];
+            kanaKeys = new String[capacity];
+            hp = new int[capacity];
+            speed = new int[capacity];
+            kinds = new byte[capacity];
+        }
+
+        /**
+         * Appends a raw line.
+         *
+         * @param line CSV data row
+         * @return false when the batch is full
+         */
+        boolean add(String line) {
+            if (size == lines.length) {
+                return false;
+            }
+            lines[size++] = line;
+            return true;
+        }
+
+        /**
+         * Returns the number of rows in the batch.
+         *
+         * @return row count
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the raw lines of the batch.
+         *
+         * @return read-only view of the lines
+         */
+        List<String> lines() {
+            return Collections.unmodifiableList(Arrays.asList(lines).subList(0, size));
+        }
+
+        /**
+         * Splits every line, validates it against the schema and extracts the
+         * indexed fields. Validation reuses the split tokens, so it adds no
+         * second pass over the text. Japanese names are split and folded
+         * into search keys here, off the collecting thread.
+         *
+         * @param layout    column positions
+         * @param schema    schema to check rows against
+         * @param firstLine 1-based file line number of the first row
+         * @param report    receives validation problems
+         */
+        void tokenize(Layout layout, PokemonSchema schema, long firstLine, ValidationReport report) {
+            boolean hasStats = layout.japaneseIndex >= 0 && layout.hpIndex >= 0 && layout.speedIndex >= 0;
+            for (int i = 0; i < size; i++) {
+                kinds[i] = SKIP;
+                List<String> tokens = PokemonCsvUtils.splitCsvRecord(lines[i]);
+                this.tokens.set(i, tokens);
+                schema.validate(firstLine + i, tokens, report);
+                if (layout.nameIndex < 0) {
+                    continue;
+                }
+                if (layout.nameIndex >= tokens.size()) {
+                    continue;
+                }
+                String name = tokens.get(layout.nameIndex).trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                names[i] = name;
+                kinds[i] = NAME_ONLY;
+                long number = layout.numberIndex >= 0 && layout.numberIndex < tokens.size()
+                        ? NumericParser.parseInt(tokens.get(layout.numberIndex)) : NumericParser.MISSING;
+                numbers[i] = number == NumericParser.MISSING || number > Integer.MAX_VALUE ? 0 : (int) number;
+                String japaneseName = layout.japaneseIndex >= 0 && layout.japaneseIndex < tokens.size()
+                        ? tokens.get(layout.japaneseIndex).trim() : "";
+                romajiKeys[i] = JapaneseNames.searchKey(JapaneseNames.romajiOf(japaneseName));
+                kanaKeys[i] = JapaneseNames.searchKey(JapaneseNames.kanaOf(japaneseName));
+
+                if (!hasStats || layout.hpIndex >= tokens.size() || layout.speedIndex >= tokens.size()) {
+                    continue;
+                }
+                long parsedHp = NumericParser.parseInt(tokens.get(layout.hpIndex));
+                long parsedSpeed = NumericParser.parseInt(tokens.get(layout.speedIndex));
+                if (parsedHp == NumericParser.MISSING || parsedSpeed == NumericParser.MISSING) {
+                    continue;
+                }
+                japaneseNames[i] = japaneseName;
+                hp[i] = (int) parsedHp;
+                speed[i] = (int) parsedSpeed;
+                kinds[i] = WITH_STATS;
+            }
+        }
+    }
+
+    /**
+     * Collects tokenized batches into the key index, character list and stat
+     * table that a shard is built from, and the validation report of the rows.
+     */
+    static final class Accumulator {
+        private static final int BATCH_SIZE = 1024;
+
+        private final List<String> rawData = new ArrayList<>();
+        private final KeyLookupIndex.Builder keys = new KeyLookupIndex.Builder();
+        private final KeyLookupIndex.Builder japaneseKeys = new KeyLookupIndex.Builder();
+        private final List<PokemonCharacter> characterByRow = new ArrayList<>();
+        private final List<PokemonCharacter> characters = new ArrayList<>();
+        private final PokemonStatTable.Builder statRows;
+        private final List<Integer> statRowLines = new ArrayList<>();
+        private final ValidationReport report;
+        private PokemonSchema schema;
+
+        /**
+         * Starts a collection with the header row.
+         *
+         * @param header header row, or null for an empty file
+         * @param source file name used in the validation report
+         */
+        Accumulator(String header, String source) {
+            if (header != null) {
+                rawData.add(header);
+                characterByRow.add(null);
+            }
+            statRows = new PokemonStatTable.Builder(header, 0);
+            report = new ValidationReport(source);
+        }
+
+        /**
+         * Tokenizes, validates and collects rows in the calling thread.
+         *
+         * @param source  file name used in the validation report
+         * @param rawData CSV rows including the header
+         * @return filled accumulator
+         */
+        static Accumulator fromRows(String source, List<String> rawData) {
+            if (rawData.isEmpty()) {
+                return new Accumulator(null, source);
+            }
+            String header = rawData.get(0);
+            Accumulator rows = new Accumulator(header, source);
+            PokemonSchema inferred = PokemonSchema.infer(header, rawData.subList(1, rawData.size()));
+            ValidationReport checked = new ValidationReport(source);
+
+            Layout layout = new Layout(header);
+            RowBatch batch = new RowBatch(BATCH_SIZE);
+            long firstLine = 2;
+            for (int i = 1; i < rawData.size(); i++) {
+                batch.add(rawData.get(i));
+                if (batch.size() == BATCH_SIZE || i == rawData.size() - 1) {
+                    batch.tokenize(layout, inferred, firstLine, checked);
+                    rows.add(batch);
+                    firstLine += batch.size();
+                    batch = new RowBatch(BATCH_SIZE);
+                }
+            }
+            rows.addValidation(inferred, checked);
+            return rows;
+        }
+
+        /**
+         * Records the schema and the schema problems found by a validator.
+         *
+         * @param inferred schema the rows were checked against
+         * @param checked  problems found
+         */
+        void addValidation(PokemonSchema inferred, ValidationReport checked) {
+            schema = inferred;
+            report.merge(checked);
+        }
+
+        /**
+         * Collects a tokenized batch. A later row with the same name replaces
+         * the earlier one in the key index; the stat table keeps every row
+         * with a name and stats, as one parsed from the whole file would.
+         *
+         * @param batch tokenized rows
+         */
+        void add(RowBatch batch) {
+            for (int i = 0; i < batch.size; i++) {
+                String line = batch.lines[i];
+                int row = rawData.size();
+                rawData.add(line);
+                characterByRow.add(null);
+                if (statRows.add(batch.tokens.get(i))) {
+                    statRowLines.add(row);
+                }
+                if (batch.kinds[i] == RowBatch.SKIP) {
+                    continue;
+                }
+
+                String name = batch.names[i];
+                int previous = keys.putName(name, row);
+                if (previous >= 0) {
+                    // The header is line 1 and rawData already holds this row
+                    report.add(rawData.size(), ValidationReport.Problem.DUPLICATE_NAME, NAME_COLUMN, name);
+                }
+                keys.putNumber(batch.numbers[i], row);
+                if (!batch.romajiKeys[i].isEmpty()) {
+                    japaneseKeys.putName(batch.romajiKeys[i], row);
+                }
+                if (!batch.kanaKeys[i].isEmpty()) {
+                    japaneseKeys.putName(batch.kanaKeys[i], row);
+                }
+                if (batch.kinds[i] == RowBatch.WITH_STATS) {
+                    PokemonCharacter character =
+                            new PokemonCharacter(name, batch.japaneseNames[i], batch.hp[i], batch.speed[i]);
+                    characters.add(character);
+                    characterByRow.set(row, character);
+                } else if (previous >= 0) {
+                    // A replacing row without stats keeps the character of the row it replaces
+                    characterByRow.set(row, characterByRow.get(previous));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,684 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented, immutable copy of the numeric and categorical columns of
+ * the Pokemon CSV. Every column is a primitive array indexed by row id, so
+ * analysis code can run tight loops without touching strings or objects.
+ */
+public class PokemonStatTable {
+    private static final String NAME_COLUMN = "name";
+    private static final String ABILITIES_COLUMN = "abilities";
+    private static final String POKEDEX_NUMBER_COLUMN = "pokedex_number";
+    private static final String HP_COLUMN = "hp";
+    private static final String ATTACK_COLUMN = "attack";
+    private static final String DEFENSE_COLUMN = "defense";
+    private static final String SP_ATTACK_COLUMN = "sp_attack";
+    private static final String SP_DEFENSE_COLUMN = "sp_defense";
+    private static final String SPEED_COLUMN = "speed";
+    private static final String BASE_TOTAL_COLUMN = "base_total";
+    private static final String GENERATION_COLUMN = "generation";
+    private static final String LEGENDARY_COLUMN = "is_legendary";
+    private static final String TYPE1_COLUMN = "type1";
+    private static final String TYPE2_COLUMN = "type2";
+    private static final String HEIGHT_COLUMN = "height_m";
+    private static final String WEIGHT_COLUMN = "weight_kg";
+    private static final String PERCENTAGE_MALE_COLUMN = "percentage_male";
+    private static final float NEUTRAL_MULTIPLIER = 1.0f;
+
+    private final int rowCount;
+    private final String[] names;
+    private final String[] abilities;
+    private final int[] pokedexNumber;
+    private final int[] hp;
+    private final int[] attack;
+    private final int[] defense;
+    private final int[] spAttack;
+    private final int[] spDefense;
+    private final int[] speed;
+    private final int[] baseTotal;
+    private final int[] generation;
+    private final boolean[] legendary;
+    private final byte[] type1;
+    private final byte[] type2;
+    private final float[] against;
+    private final float[] height;
+    private final float[] weight;
+    private final float[] percentageMale;
+    private final RowBitmap heightValid;
+    private final RowBitmap weightValid;
+    private final RowBitmap percentageMaleValid;
+    private volatile KeyLookupIndex keys;
+
+    /**
+     * Parses a table from raw CSV rows. Rows without a name or without one of
+     * the six base stats are skipped. Blank height, weight and gender ratio
+     * cells are kept as missing values; other blank columns take neutral values.
+     *
+     * @param rawData CSV rows including the header
+     */
+    public PokemonStatTable(List<String> rawData) {
+        this(Builder.parse(rawData));
+    }
+
+    /**
+     * Copies the filled part of a builder's columns.
+     *
+     * @param rows collected rows
+     */
+    private PokemonStatTable(Builder rows) {
+        int count = rows.count;
+        this.rowCount = count;
+        this.names = Arrays.copyOf(rows.nameColumn, count);
+        this.abilities = Arrays.copyOf(rows.abilitiesColumn, count);
+        this.pokedexNumber = Arrays.copyOf(rows.numberColumn, count);
+        this.hp = Arrays.copyOf(rows.hpColumn, count);
+        this.attack = Arrays.copyOf(rows.attackColumn, count);
+        this.defense = Arrays.copyOf(rows.defenseColumn, count);
+        this.spAttack = Arrays.copyOf(rows.spAttackColumn, count);
+        this.spDefense = Arrays.copyOf(rows.spDefenseColumn, count);
+        this.speed = Arrays.copyOf(rows.speedColumn, count);
+        this.baseTotal = Arrays.copyOf(rows.totalColumn, count);
+        this.generation = Arrays.copyOf(rows.generationColumn, count);
+        this.legendary = Arrays.copyOf(rows.legendaryColumn, count);
+        this.type1 = Arrays.copyOf(rows.type1Column, count);
+        this.type2 = Arrays.copyOf(rows.type2Column, count);
+        this.against = Arrays.copyOf(rows.againstColumn, count * PokemonTypes.TYPE_COUNT);
+        this.height = Arrays.copyOf(rows.heightColumn, count);
+        this.weight = Arrays.copyOf(rows.weightColumn, count);
+        this.percentageMale = Arrays.copyOf(rows.percentageMaleColumn, count);
+        this.heightValid = validity(height);
+        this.weightValid = validity(weight);
+        this.percentageMaleValid = validity(percentageMale);
+    }
+
+    /**
+     * Concatenates tables that were parsed independently, such as one per
+     * shard, keeping their row order.
+     *
+     * @param parts tables in order
+     */
+    private PokemonStatTable(PokemonStatTable[] parts) {
+        int count = 0;
+        for (PokemonStatTable part : parts) {
+            count += part.rowCount;
+        }
+        this.rowCount = count;
+        this.names = new String[count];
+        this.abilities = new String[count];
+        this.pokedexNumber = new int[count];
+        this.hp = new int[count];
+        this.attack = new int[count];
+        this.defense = new int[count];
+        this.spAttack = new int[count];
+        this.spDefense = new int[count];
+        this.speed = new int[count];
+        this.baseTotal = new int[count];
+        this.generation = new int[count];
+        this.legendary = new boolean[count];
+        this.type1 = new byte[count];
+        this.type2 = new byte[count];
+        this.against = new float[count * PokemonTypes.TYPE_COUNT];
+        this.height = new float[count];
+        this.weight = new float[count];
+        this.percentageMale = new float[count];
+
+        int offset = 0;
+        for (PokemonStatTable part : parts) {
+            int n = part.rowCount;
+            System.arraycopy(part.names, 0, names, offset, n);
+            System.arraycopy(part.abilities, 0, abilities, offset, n);
+            System.arraycopy(part.pokedexNumber, 0, pokedexNumber, offset, n);
+            System.arraycopy(part.hp, 0, hp, offset, n);
+            System.arraycopy(part.attack, 0, attack, offset, n);
+            System.arraycopy(part.defense, 0, defense, offset, n);
+            System.arraycopy(part.spAttack, 0, spAttack, offset, n);
+            System.arraycopy(part.spDefense, 0, spDefense, offset, n);
+            System.arraycopy(part.speed, 0, speed, offset, n);
+            System.arraycopy(part.baseTotal, 0, baseTotal, offset, n);
+            System.arraycopy(part.generation, 0, generation, offset, n);
+            System.arraycopy(part.legendary, 0, legendary, offset, n);
+            System.arraycopy(part.type1, 0, type1, offset, n);
+            System.arraycopy(part.type2, 0, type2, offset, n);
+            System.arraycopy(part.against, 0, against, offset * PokemonTypes.TYPE_COUNT, n * PokemonTypes.TYPE_COUNT);
+            System.arraycopy(part.height, 0, height, offset, n);
+            System.arraycopy(part.weight, 0, weight, offset, n);
+            System.arraycopy(part.percentageMale, 0, percentageMale, offset, n);
+            offset += n;
+        }
+        this.heightValid = validity(height);
+        this.weightValid = validity(weight);
+        this.percentageMaleValid = validity(percentageMale);
+    }
+
+    /**
+     * Concatenates independently parsed tables into one.
+     *
+     * @param parts tables in row order
+     * @return combined table
+     */
+    public static PokemonStatTable concat(List<PokemonStatTable> parts) {
+        // Tables are immutable, so a single part can be shared as it is
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        return new PokemonStatTable(parts.toArray(new PokemonStatTable[0]));
+    }
+
+    /**
+     * Parses the six base stats of a row.
+     *
+     * @param tokens  split row
+     * @param indexes column index of each stat
+     * @param stats   receives the parsed values
+     * @return true if every stat is present and numeric
+     */
+    private static boolean parseStats(List<String> tokens, int[] indexes, int[] stats) {
+        for (int s = 0; s < indexes.length; s++) {
+            long value = NumericParser.parseInt(rawToken(tokens, indexes[s]));
+            if (value == NumericParser.MISSING) {
+                return false;
+            }
+            stats[s] = (int) value;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a trimmed column value.
+     *
+     * @param tokens split row
+     * @param index  column index, possibly -1
+     * @return value, or an empty string when absent
+     */
+    private static String token(List<String> tokens, int index) {
+        return index < 0 || index >= tokens.size() ? "" : tokens.get(index).trim();
+    }
+
+    /**
+     * Returns a column value without trimming, for the numeric parser, which
+     * skips surrounding whitespace itself.
+     *
+     * @param tokens split row
+     * @param index  column index, possibly -1
+     * @return value, or an empty string when absent
+     */
+    private static String rawToken(List<String> tokens, int index) {
+        return index < 0 || index >= tokens.size() ? "" : tokens.get(index);
+    }
+
+    /**
+     * Parses an integer with a fallback.
+     *
+     * @param value    text to parse
+     * @param fallback value used when blank or invalid
+     * @return parsed value or fallback
+     */
+    private static int parseInt(String value, int fallback) {
+        long parsed = NumericParser.parseInt(value);
+        return parsed == NumericParser.MISSING ? fallback : (int) parsed;
+    }
+
+    /**
+     * Parses a float with a fallback.
+     *
+     * @param value    text to parse
+     * @param fallback value used when blank or invalid
+     * @return parsed value or fallback
+     */
+    private static float parseFloat(String value, float fallback) {
+        float parsed = NumericParser.parseFloat(value);
+        return Float.isNaN(parsed) ? fallback : parsed;
+    }
+
+    /**
+     * Builds the validity bitmap of a column that stores missing cells as NaN.
+     *
+     * @param column parsed column
+     * @return rows that have a value
+     */
+    private static RowBitmap validity(float[] column) {
+        RowBitmap valid = new RowBitmap(column.length);
+        for (int row = 0; row < column.length; row++) {
+            if (!Float.isNaN(column[row])) {
+                valid.set(row);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Returns the number of rows in the table.
+     *
+     * @return row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the row id for a name, case-insensitive. With duplicate names
+     * the first row wins.
+     *
+     * @param name name to look up
+     * @return row id, or -1 when missing
+     */
+    public int findRow(String name) {
+        return name == null ? -1 : keys().findName(name.trim());
+    }
+
+    /**
+     * Returns the row id for a pokedex number. With duplicate numbers the
+     * first row wins.
+     *
+     * @param number pokedex number
+     * @return row id, or -1 when missing
+     */
+    public int findPokedexRow(int number) {
+        return keys().findNumber(number);
+    }
+
+    /**
+     * Returns the key index, building it on first use. Tables that are only
+     * concatenated into a larger one never pay for an index.
+     *
+     * @return name and pokedex number index
+     */
+    private KeyLookupIndex keys() {
+        KeyLookupIndex index = keys;
+        if (index == null) {
+            synchronized (this) {
+                index = keys;
+                if (index == null) {
+                    KeyLookupIndex.Builder builder = new KeyLookupIndex.Builder();
+                    // Rows are added last to first so that the first row wins
+                    for (int row = rowCount - 1; row >= 0; row--) {
+                        builder.putName(names[row], row);
+                        builder.putNumber(pokedexNumber[row], row);
+                    }
+                    index = builder.build();
+                    keys = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the English name of a row.
+     *
+     * @param row row id
+     * @return name
+     */
+    public String getName(int row) {
+        return names[row];
+    }
+
+    /**
+     * Returns the raw abilities list of a row, such as
+     * {@code ['Overgrow', 'Chlorophyll']}.
+     *
+     * @param row row id
+     * @return abilities text, or an empty string when blank
+     */
+    public String getAbilitiesText(int row) {
+        return abilities[row];
+    }
+
+    /**
+     * Returns the pokedex number of a row.
+     *
+     * @param row row id
+     * @return pokedex number, or 0 when blank
+     */
+    public int getPokedexNumber(int row) {
+        return pokedexNumber[row];
+    }
+
+    /**
+     * Returns the HP of a row.
+     *
+     * @param row row id
+     * @return hp
+     */
+    public int getHp(int row) {
+        return hp[row];
+    }
+
+    /**
+     * Returns the attack of a row.
+     *
+     * @param row row id
+     * @return attack
+     */
+    public int getAttack(int row) {
+        return attack[row];
+    }
+
+    /**
+     * Returns the defense of a row.
+     *
+     * @param row row id
+     * @return defense
+     */
+    public int getDefense(int row) {
+        return defense[row];
+    }
+
+    /**
+     * Returns the special attack of a row.
+     *
+     * @param row row id
+     * @return special attack
+     */
+    public int getSpAttack(int row) {
+        return spAttack[row];
+    }
+
+    /**
+     * Returns the special defense of a row.
+     *
+     * @param row row id
+     * @return special defense
+     */
+    public int getSpDefense(int row) {
+        return spDefense[row];
+    }
+
+    /**
+     * Returns the speed of a row.
+     *
+     * @param row row id
+     * @return speed
+     */
+    public int getSpeed(int row) {
+        return speed[row];
+    }
+
+    /**
+     * Returns the base stat total of a row.
+     *
+     * @param row row id
+     * @return base total
+     */
+    public int getBaseTotal(int row) {
+        return baseTotal[row];
+    }
+
+    /**
+     * Returns the generation of a row.
+     *
+     * @param row row id
+     * @return generation, or 0 when blank
+     */
+    public int getGeneration(int row) {
+        return generation[row];
+    }
+
+    /**
+     * Returns whether a row is legendary.
+     *
+     * @param row row id
+     * @return true if legendary
+     */
+    public boolean isLegendary(int row) {
+        return legendary[row];
+    }
+
+    /**
+     * Returns the primary type id of a row.
+     *
+     * @param row row id
+     * @return type id, or {@link PokemonTypes#NO_TYPE}
+     */
+    public int getType1(int row) {
+        return type1[row];
+    }
+
+    /**
+     * Returns the secondary type id of a row.
+     *
+     * @param row row id
+     * @return type id, or {@link PokemonTypes#NO_TYPE}
+     */
+    public int getType2(int row) {
+        return type2[row];
+    }
+
+    /**
+     * Returns the damage multiplier a row takes from an attacking type.
+     *
+     * @param row    row id
+     * @param typeId attacking type id
+     * @return multiplier from the matching {@code against_*} column
+     */
+    public float getAgainst(int row, int typeId) {
+        return against[row * PokemonTypes.TYPE_COUNT + typeId];
+    }
+
+    /**
+     * Returns a row's height.
+     *
+     * @param row row id
+     * @return height in metres, or NaN when the cell is blank
+     */
+    public float getHeight(int row) {
+        return height[row];
+    }
+
+    /**
+     * Returns a row's weight.
+     *
+     * @param row row id
+     * @return weight in kilograms, or NaN when the cell is blank
+     */
+    public float getWeight(int row) {
+        return weight[row];
+    }
+
+    /**
+     * Returns the share of a row's species that is male.
+     *
+     * @param row row id
+     * @return percentage, or NaN for genderless species
+     */
+    public float getPercentageMale(int row) {
+        return percentageMale[row];
+    }
+
+    /**
+     * Returns the rows that have a height.
+     *
+     * @return validity bitmap
+     */
+    public RowBitmap getHeightValidity() {
+        return heightValid;
+    }
+
+    /**
+     * Returns the rows that have a weight.
+     *
+     * @return validity bitmap
+     */
+    public RowBitmap getWeightValidity() {
+        return weightValid;
+    }
+
+    /**
+     * Returns the rows that have a gender ratio; genderless species are unset.
+     *
+     * @return validity bitmap
+     */
+    public RowBitmap getPercentageMaleValidity() {
+        return percentageMaleValid;
+    }
+
+    /**
+     * Collects rows that were already split into tokens, such as by a
+     * loader that tokenizes each line once for all of its indexes. Rows are
+     * kept or skipped by the same rules as {@link #PokemonStatTable(List)}.
+     */
+    public static final class Builder {
+        private static final int INITIAL_ROWS = 64;
+
+        private final int nameIndex;
+        private final int abilitiesIndex;
+        private final int numberIndex;
+        private final int[] statIndexes;
+        private final int totalIndex;
+        private final int generationIndex;
+        private final int legendaryIndex;
+        private final int type1Index;
+        private final int type2Index;
+        private final int[] againstIndexes = new int[PokemonTypes.TYPE_COUNT];
+        private final int heightIndex;
+        private final int weightIndex;
+        private final int percentageMaleIndex;
+        private final int[] stats;
+        private int count;
+        private String[] nameColumn = new String[0];
+        private String[] abilitiesColumn = new String[0];
+        private int[] numberColumn = new int[0];
+        private int[] hpColumn = new int[0];
+        private int[] attackColumn = new int[0];
+        private int[] defenseColumn = new int[0];
+        private int[] spAttackColumn = new int[0];
+        private int[] spDefenseColumn = new int[0];
+        private int[] speedColumn = new int[0];
+        private int[] totalColumn = new int[0];
+        private int[] generationColumn = new int[0];
+        private boolean[] legendaryColumn = new boolean[0];
+        private byte[] type1Column = new byte[0];
+        private byte[] type2Column = new byte[0];
+        private float[] againstColumn = new float[0];
+        private float[] heightColumn = new float[0];
+        private float[] weightColumn = new float[0];
+        private float[] percentageMaleColumn = new float[0];
+
+        /**
+         * Starts a table with the columns of a header.
+         *
+         * @param header       header row, or null when there is none
+         * @param expectedRows rows to allocate for up front
+         */
+        public Builder(String header, int expectedRows) {
+            nameIndex = PokemonCsvUtils.findColumnIndex(header, NAME_COLUMN);
+            abilitiesIndex = PokemonCsvUtils.findColumnIndex(header, ABILITIES_COLUMN);
+            numberIndex = PokemonCsvUtils.findColumnIndex(header, POKEDEX_NUMBER_COLUMN);
+            statIndexes = new int[] {
+                PokemonCsvUtils.findColumnIndex(header, HP_COLUMN),
+                PokemonCsvUtils.findColumnIndex(header, ATTACK_COLUMN),
+                PokemonCsvUtils.findColumnIndex(header, DEFENSE_COLUMN),
+                PokemonCsvUtils.findColumnIndex(header, SP_ATTACK_COLUMN),
+                PokemonCsvUtils.findColumnIndex(header, SP_DEFENSE_COLUMN),
+                PokemonCsvUtils.findColumnIndex(header, SPEED_COLUMN)
+            };
+            totalIndex = PokemonCsvUtils.findColumnIndex(header, BASE_TOTAL_COLUMN);
+            generationIndex = PokemonCsvUtils.findColumnIndex(header, GENERATION_COLUMN);
+            legendaryIndex = PokemonCsvUtils.findColumnIndex(header, LEGENDARY_COLUMN);
+            type1Index = PokemonCsvUtils.findColumnIndex(header, TYPE1_COLUMN);
+            type2Index = PokemonCsvUtils.findColumnIndex(header, TYPE2_COLUMN);
+            for (int t = 0; t < againstIndexes.length; t++) {
+                againstIndexes[t] = PokemonCsvUtils.findColumnIndex(header, PokemonTypes.againstColumn(t));
+            }
+            heightIndex = PokemonCsvUtils.findColumnIndex(header, HEIGHT_COLUMN);
+            weightIndex = PokemonCsvUtils.findColumnIndex(header, WEIGHT_COLUMN);
+            percentageMaleIndex = PokemonCsvUtils.findColumnIndex(header, PERCENTAGE_MALE_COLUMN);
+            stats = new int[statIndexes.length];
+            allocate(Math.max(0, expectedRows));
+        }
+
+        /**
+         * Parses every data row of a CSV file.
+         *
+         * @param rawData CSV rows including the header, may be null
+         * @return filled builder
+         */
+        private static Builder parse(List<String> rawData) {
+            if (rawData == null || rawData.isEmpty()) {
+                return new Builder(null, 0);
+            }
+            Builder rows = new Builder(rawData.get(0), rawData.size() - 1);
+            for (int i = 1; i < rawData.size(); i++) {
+                rows.add(PokemonCsvUtils.splitCsvRecord(rawData.get(i)));
+            }
+            return rows;
+        }
+
+        /**
+         * Sets every column to a capacity, keeping the rows collected so far.
+         *
+         * @param capacity rows the columns can hold
+         */
+        private void allocate(int capacity) {
+            nameColumn = Arrays.copyOf(nameColumn, capacity);
+            abilitiesColumn = Arrays.copyOf(abilitiesColumn, capacity);
+            numberColumn = Arrays.copyOf(numberColumn, capacity);
+            hpColumn = Arrays.copyOf(hpColumn, capacity);
+            attackColumn = Arrays.copyOf(attackColumn, capacity);
+            defenseColumn = Arrays.copyOf(defenseColumn, capacity);
+            spAttackColumn = Arrays.copyOf(spAttackColumn, capacity);
+            spDefenseColumn = Arrays.copyOf(spDefenseColumn, capacity);
+            speedColumn = Arrays.copyOf(speedColumn, capacity);
+            totalColumn = Arrays.copyOf(totalColumn, capacity);
+            generationColumn = Arrays.copyOf(generationColumn, capacity);
+            legendaryColumn = Arrays.copyOf(legendaryColumn, capacity);
+            type1Column = Arrays.copyOf(type1Column, capacity);
+            type2Column = Arrays.copyOf(type2Column, capacity);
+            againstColumn = Arrays.copyOf(againstColumn, capacity * PokemonTypes.TYPE_COUNT);
+            heightColumn = Arrays.copyOf(heightColumn, capacity);
+            weightColumn = Arrays.copyOf(weightColumn, capacity);
+            percentageMaleColumn = Arrays.copyOf(percentageMaleColumn, capacity);
+        }
+
+        /**
+         * Adds one split data row.
+         *
+         * @param tokens split row
+         * @return false if the row was skipped for a missing name or stat
+         */
+        public boolean add(List<String> tokens) {
+            String name = token(tokens, nameIndex);
+            if (name.isEmpty() || !parseStats(tokens, statIndexes, stats)) {
+                return false;
+            }
+            if (count == nameColumn.length) {
+                allocate(Math.max(INITIAL_ROWS, count * 2));
+            }
+
+            nameColumn[count] = name;
+            abilitiesColumn[count] = token(tokens, abilitiesIndex);
+            numberColumn[count] = parseInt(rawToken(tokens, numberIndex), 0);
+            hpColumn[count] = stats[0];
+            attackColumn[count] = stats[1];
+            defenseColumn[count] = stats[2];
+            spAttackColumn[count] = stats[3];
+            spDefenseColumn[count] = stats[4];
+            speedColumn[count] = stats[5];
+            totalColumn[count] = parseInt(rawToken(tokens, totalIndex),
+                    stats[0] + stats[1] + stats[2] + stats[3] + stats[4] + stats[5]);
+            generationColumn[count] = parseInt(rawToken(tokens, generationIndex), 0);
+            legendaryColumn[count] = parseInt(rawToken(tokens, legendaryIndex), 0) != 0;
+            type1Column[count] = (byte) PokemonTypes.idOf(token(tokens, type1Index));
+            type2Column[count] = (byte) PokemonTypes.idOf(token(tokens, type2Index));
+            int base = count * PokemonTypes.TYPE_COUNT;
+            for (int t = 0; t < againstIndexes.length; t++) {
+                againstColumn[base + t] = parseFloat(rawToken(tokens, againstIndexes[t]), NEUTRAL_MULTIPLIER);
+            }
+            heightColumn[count] = NumericParser.parseFloat(rawToken(tokens, heightIndex));
+            weightColumn[count] = NumericParser.parseFloat(rawToken(tokens, weightIndex));
+            percentageMaleColumn[count] = NumericParser.parseFloat(rawToken(tokens, percentageMaleIndex));
+            count++;
+            return true;
+        }
+
+        /**
+         * Builds the table from the rows added so far.
+         *
+         * @return immutable table
+         */
+        public PokemonStatTable build() {
+            return new PokemonStatTable(this);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * The eighteen elemental types, in the order of the {@code against_*} columns.
+ */
+public final class PokemonTypes {
+    /**
+     * Number of elemental types.
+     */
+    public static final int TYPE_COUNT = 18;
+
+    /**
+     * Marker id for a missing type, such as a blank {@code type2}.
+     */
+    public static final int NO_TYPE = -1;
+
+    private static final String[] TYPE_NAMES = {
+        "bug", "dark", "dragon", "electric", "fairy", "fighting", "fire", "flying", "ghost",
+        "grass", "ground", "ice", "normal", "poison", "psychic", "rock", "steel", "water"
+    };
+
+    private static final String[] AGAINST_SUFFIXES = {
+        "bug", "dark", "dragon", "electric", "fairy", "fight", "fire", "flying", "ghost",
+        "grass", "ground", "ice", "normal", "poison", "psychic", "rock", "steel", "water"
+    };
+
+    // Row = attacking type, column = defending type: 2 double, h half, 0 immune, 1 neutral
+    private static final String[] EFFECTIVENESS = {
+        "1211hhhhh2111h21h1", // bug
+        "1h11hh112111112111", // dark
+        "1121011111111111h1", // dragon
+        "11hh11121h01111112", // electric
+        "122112h111111h11h1", // fairy
+        "h211h11h01122hh221", // fighting
+        "21h111h11212111h2h", // fire
+        "211h12111211111hh1", // flying
+        "1h1111112111012111", // ghost
+        "h1h111hh1h211h12h2", // grass
+        "h11211201h11121221", // ground
+        "112111h2122h1111hh", // ice
+        "111111110111111hh1", // normal
+        "11112111h2h11h1h01", // poison
+        "10111211111112h1h1", // psychic
+        "21111h2211h21111h1", // rock
+        "111h21h111121112hh", // steel
+        "11h111211h2111121h"  // water
+    };
+
+    private PokemonTypes() {
+        // Utility class
+    }
+
+    /**
+     * Returns the type id for a type name as it appears in {@code type1}/{@code type2}.
+     *
+     * @param typeName type name, case-insensitive; "fight" is accepted for fighting
+     * @return type id, or {@link #NO_TYPE} when blank or unknown
+     */
+    public static int idOf(String typeName) {
+        if (typeName == null) {
+            return NO_TYPE;
+        }
+        String trimmed = typeName.trim();
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            if (TYPE_NAMES[i].equalsIgnoreCase(trimmed) || AGAINST_SUFFIXES[i].equalsIgnoreCase(trimmed)) {
+                return i;
+            }
+        }
+        return NO_TYPE;
+    }
+
+    /**
+     * Returns the display name of a type.
+     *
+     * @param typeId type id
+     * @return type name, or an empty string for {@link #NO_TYPE}
+     */
+    public static String nameOf(int typeId) {
+        return typeId < 0 || typeId >= TYPE_COUNT ? "" : TYPE_NAMES[typeId];
+    }
+
+    /**
+     * Returns the CSV column holding damage multipliers taken from a type.
+     *
+     * @param typeId type id
+     * @return column name such as {@code against_fire}
+     */
+    public static String againstColumn(int typeId) {
+        return "against_" + AGAINST_SUFFIXES[typeId];
+    }
+
+    /**
+     * Returns the damage multiplier of an attacking type against a
+     * defending type, ignoring abilities.
+     *
+     * @param attackingType attacking type id
+     * @param defendingType defending type id, or {@link #NO_TYPE} for none
+     * @return 0, 0.5, 1 or 2
+     */
+    public static float effectiveness(int attackingType, int defendingType) {
+        if (defendingType == NO_TYPE) {
+            return 1.0f;
+        }
+        switch (EFFECTIVENESS[attackingType].charAt(defendingType)) {
+            case '2':
+                return 2.0f;
+            case 'h':
+                return 0.5f;
+            case '0':
+                return 0.0f;
+            default:
+                return 1.0f;
+        }
+    }
+}
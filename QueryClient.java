@@ -0,0 +1,356 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Client of a local {@link QueryServer}. Single queries are sent and
+ * answered one at a time; a {@link Pipeline} sends many queries before
+ * reading any answer, which saves a round trip per query.
+ *
+ * <p>A client is not thread-safe; give each thread its own. Any I/O failure
+ * closes the client, and every later query returns null.</p>
+ */
+public class QueryClient implements AutoCloseable {
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    private final SocketChannel channel;
+    private final Selector selector;
+    private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private int nextRequestId;
+
+    /**
+     * Wraps a connected channel.
+     *
+     * @param channel  connected non-blocking channel
+     * @param selector selector the channel is registered with
+     */
+    private QueryClient(SocketChannel channel, Selector selector) {
+        this.channel = channel;
+        this.selector = selector;
+    }
+
+    /**
+     * Connects to a server on the loopback address.
+     *
+     * @param port server port
+     * @return client, or null if the server cannot be reached
+     */
+    public static QueryClient connect(int port) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+            Selector selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+            return new QueryClient(channel, selector);
+        } catch (IOException | IllegalArgumentException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing left to release
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Finds a character by English name.
+     *
+     * @param name name to search for, case-insensitive
+     * @return matching character, or null when missing, on failure or when
+     *         the name is too long to send
+     */
+    public PokemonCharacter findCharacterByName(String name) {
+        Pipeline pipeline;
+        try {
+            pipeline = pipeline().findCharacterByName(name);
+        } catch (IllegalArgumentException e) {
+            // A name too long for one request is reported like any other failure
+            return null;
+        }
+        List<PokemonCharacter> found = single(pipeline);
+        return found == null || found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Collects characters whose HP falls within the range.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return matches in {@link PokemonCharacter#BY_HP_ASC} order, or null on failure
+     */
+    public List<PokemonCharacter> collectByHpRange(int minHp, int maxHp) {
+        return single(pipeline().collectByHpRange(minHp, maxHp));
+    }
+
+    /**
+     * Collects characters whose speed falls within the range.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return matches in {@link PokemonCharacter#BY_SPEED_ASC} order, or null on failure
+     */
+    public List<PokemonCharacter> collectBySpeedRange(int minSpeed, int maxSpeed) {
+        return single(pipeline().collectBySpeedRange(minSpeed, maxSpeed));
+    }
+
+    /**
+     * Returns the characters of the lowest or highest speed.
+     *
+     * @param fastest true for the highest speed, false for the lowest
+     * @return characters, or null on failure
+     */
+    public List<PokemonCharacter> getSpeedExtremum(boolean fastest) {
+        return single(pipeline().getSpeedExtremum(fastest));
+    }
+
+    /**
+     * Returns the characters of one speed group.
+     *
+     * @param speed speed value
+     * @return characters, or null on failure
+     */
+    public List<PokemonCharacter> getSpeedGroup(int speed) {
+        return single(pipeline().getSpeedGroup(speed));
+    }
+
+    /**
+     * Starts a batch of pipelined queries.
+     *
+     * @return empty pipeline
+     */
+    public Pipeline pipeline() {
+        return new Pipeline();
+    }
+
+    /**
+     * Runs a pipeline of one query.
+     *
+     * @param pipeline pipeline holding the query
+     * @return its answer, or null on failure
+     */
+    private static List<PokemonCharacter> single(Pipeline pipeline) {
+        List<List<PokemonCharacter>> answers = pipeline.execute();
+        return answers == null ? null : answers.get(0);
+    }
+
+    /**
+     * Returns whether the client can still send queries.
+     *
+     * @return false after {@link #close} or an I/O failure
+     */
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Closes the connection.
+     */
+    @Override
+    public void close() {
+        try {
+            selector.close();
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Sends encoded requests and reads their responses, writing and reading
+     * as the socket allows so a deep pipeline never stalls both ends.
+     *
+     * @param out   encoded request frames, ready to write
+     * @param ids   request ids in send order
+     * @param count number of requests
+     * @return answers in send order, null entries for non-OK statuses, or
+     *         null on failure
+     */
+    private List<List<PokemonCharacter>> exchange(ByteBuffer out, int[] ids, int count) {
+        if (!channel.isOpen()) {
+            return null;
+        }
+        List<List<PokemonCharacter>> answers = new ArrayList<>(count);
+        try {
+            SelectionKey key = channel.keyFor(selector);
+            while (answers.size() < count) {
+                if (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                int ops = SelectionKey.OP_READ;
+                if (out.hasRemaining()) {
+                    ops |= SelectionKey.OP_WRITE;
+                }
+                key.interestOps(ops);
+                selector.select();
+                selector.selectedKeys().clear();
+                if (channel.read(in) < 0) {
+                    close();
+                    return null;
+                }
+                in.flip();
+                while (answers.size() < count && in.remaining() >= Integer.BYTES) {
+                    int length = in.getInt(in.position());
+                    if (in.remaining() < Integer.BYTES + length) {
+                        break;
+                    }
+                    in.getInt();
+                    int requestId = in.getInt();
+                    byte status = in.get();
+                    if (requestId != ids[answers.size()]) {
+                        close();
+                        return null;
+                    }
+                    answers.add(status == QueryProtocol.STATUS_OK ? QueryProtocol.getCharacters(in) : null);
+                }
+                in.compact();
+                if (!in.hasRemaining()) {
+                    // A large response needs a bigger read buffer
+                    in.flip();
+                    in = ByteBuffer.allocate(in.capacity() * 2).put(in);
+                }
+            }
+            return answers;
+        } catch (IOException | RuntimeException e) {
+            close();
+            return null;
+        }
+    }
+
+    /**
+     * Queries queued to be sent together. Each query method returns the
+     * pipeline, and {@link #execute} sends everything and waits for all
+     * answers.
+     */
+    public final class Pipeline {
+        private ByteBuffer out = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        private int[] ids = new int[16];
+        private int count;
+
+        /**
+         * Queues a name lookup. Its answer holds zero or one character.
+         *
+         * @param name name to search for, case-insensitive
+         * @return this pipeline
+         * @throws IllegalArgumentException if the name is longer than a
+         *                                  request can hold
+         */
+        public Pipeline findCharacterByName(String name) {
+            begin(QueryProtocol.OP_FIND_BY_NAME, QueryProtocol.stringBytes(name));
+            QueryProtocol.putString(out, name);
+            return this;
+        }
+
+        /**
+         * Queues an HP range query.
+         *
+         * @param minHp minimum HP inclusive
+         * @param maxHp maximum HP inclusive
+         * @return this pipeline
+         */
+        public Pipeline collectByHpRange(int minHp, int maxHp) {
+            begin(QueryProtocol.OP_HP_RANGE, 2 * Integer.BYTES);
+            out.putInt(minHp).putInt(maxHp);
+            return this;
+        }
+
+        /**
+         * Queues a speed range query.
+         *
+         * @param minSpeed minimum speed inclusive
+         * @param maxSpeed maximum speed inclusive
+         * @return this pipeline
+         */
+        public Pipeline collectBySpeedRange(int minSpeed, int maxSpeed) {
+            begin(QueryProtocol.OP_SPEED_RANGE, 2 * Integer.BYTES);
+            out.putInt(minSpeed).putInt(maxSpeed);
+            return this;
+        }
+
+        /**
+         * Queues a query for the characters of the lowest or highest speed.
+         *
+         * @param fastest true for the highest speed, false for the lowest
+         * @return this pipeline
+         */
+        public Pipeline getSpeedExtremum(boolean fastest) {
+            begin(QueryProtocol.OP_SPEED_EXTREMUM, 1);
+            out.put((byte) (fastest ? 1 : 0));
+            return this;
+        }
+
+        /**
+         * Queues a speed group query.
+         *
+         * @param speed speed value
+         * @return this pipeline
+         */
+        public Pipeline getSpeedGroup(int speed) {
+            begin(QueryProtocol.OP_SPEED_GROUP, Integer.BYTES);
+            out.putInt(speed);
+            return this;
+        }
+
+        /**
+         * Returns the number of queued queries.
+         *
+         * @return query count
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Sends every queued query and waits for the answers. The pipeline
+         * is empty afterwards and can be reused.
+         *
+         * @return answers in the order the queries were queued, with null
+         *         for queries the server rejected, or null on failure
+         */
+        public List<List<PokemonCharacter>> execute() {
+            out.flip();
+            List<List<PokemonCharacter>> answers = exchange(out, ids, count);
+            out.clear();
+            count = 0;
+            return answers;
+        }
+
+        /**
+         * Writes a request header, growing the buffer for the arguments.
+         *
+         * @param opcode        request opcode
+         * @param argumentBytes encoded size of the arguments
+         * @throws IllegalArgumentException if the request is larger than a
+         *                                  server accepts
+         */
+        private void begin(byte opcode, int argumentBytes) {
+            if (QueryProtocol.REQUEST_HEADER_BYTES + argumentBytes > QueryProtocol.MAX_REQUEST_BYTES) {
+                throw new IllegalArgumentException("Request of " + argumentBytes + " bytes is too large");
+            }
+            int frame = Integer.BYTES + QueryProtocol.REQUEST_HEADER_BYTES + argumentBytes;
+            if (out.remaining() < frame) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + frame));
+                out.flip();
+                out = larger.put(out);
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            int requestId = nextRequestId++;
+            ids[count++] = requestId;
+            out.putInt(QueryProtocol.REQUEST_HEADER_BYTES + argumentBytes);
+            out.putInt(requestId);
+            out.put(opcode);
+        }
+    }
+}
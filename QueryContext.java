@@ -0,0 +1,111 @@
+import java.util.concurrent.CancellationException;
+
+/**
+ * Deadline and cancellation flag of one query. Long scans call
+ * {@link #checkpoint()} between units of work, so a query that was cancelled
+ * or ran past its deadline stops soon after instead of holding its worker
+ * to the end. The flag is volatile and the deadline is fixed, so a context
+ * can be checked from every thread a query forks onto.
+ */
+public final class QueryContext {
+    private static final QueryContext UNBOUNDED = new QueryContext(false, 0);
+
+    private final boolean hasDeadline;
+    private final long deadline;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a context.
+     *
+     * @param hasDeadline whether the deadline applies
+     * @param deadline    {@link System#nanoTime()} value at which the query expires
+     */
+    private QueryContext(boolean hasDeadline, long deadline) {
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns the shared context of queries with no deadline, which is never
+     * cancelled.
+     *
+     * @return unbounded context
+     */
+    public static QueryContext unbounded() {
+        return UNBOUNDED;
+    }
+
+    /**
+     * Creates a context that expires after a timeout from now.
+     *
+     * @param timeoutNanos time allowed, or a negative value for no deadline
+     * @return new context
+     */
+    public static QueryContext withTimeout(long timeoutNanos) {
+        if (timeoutNanos < 0) {
+            return new QueryContext(false, 0);
+        }
+        return new QueryContext(true, System.nanoTime() + timeoutNanos);
+    }
+
+    /**
+     * Asks the query to stop at its next checkpoint. Has no effect on the
+     * unbounded context.
+     */
+    public void cancel() {
+        if (this != UNBOUNDED) {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Returns whether the query was cancelled.
+     *
+     * @return true after {@link #cancel()}
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns whether the deadline has passed.
+     *
+     * @return true once the query has run out of time
+     */
+    public boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Returns whether the query should stop.
+     *
+     * @return true when cancelled or expired
+     */
+    public boolean shouldStop() {
+        return cancelled || isExpired();
+    }
+
+    /**
+     * Returns the time left before the deadline.
+     *
+     * @return nanoseconds left, 0 once expired, or {@link Long#MAX_VALUE}
+     *         without a deadline
+     */
+    public long remainingNanos() {
+        return hasDeadline ? Math.max(0, deadline - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Stops the calling query if it was cancelled or has expired.
+     *
+     * @throws CancellationException if the query should stop
+     */
+    public void checkpoint() {
+        if (cancelled) {
+            throw new CancellationException("Query cancelled");
+        }
+        if (isExpired()) {
+            throw new CancellationException("Query deadline exceeded");
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Execution profile of one query: the index it used, the planner's row
+ * estimate next to the actual row count, and the time and heap allocation
+ * of each stage. Profiles are produced by the {@code explain} methods of
+ * {@link ShardedPokemonData} and are what {@link SlowQueryLog} keeps.
+ *
+ * <p>Allocation is measured per thread with the HotSpot thread MX bean; on
+ * JVMs without it every allocation figure is -1.</p>
+ */
+public final class QueryProfile {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION_SUPPORTED = detectAllocationSupport();
+
+    private final String description;
+    private final String index;
+    private final long estimatedRows;
+    private final long startMillis;
+    private final List<Stage> stages = new ArrayList<>();
+    private long actualRows = -1;
+    private long totalNanos;
+
+    /**
+     * Starts a profile.
+     *
+     * @param description query text, such as {@code hp between 40 and 60}
+     * @param index       access path chosen for the query
+     * @param estimated   rows the planner expects, or -1 when unknown
+     */
+    public QueryProfile(String description, String index, long estimated) {
+        this.description = description;
+        this.index = index;
+        this.estimatedRows = estimated;
+        this.startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks whether per-thread allocation counters are available and on.
+     *
+     * @return true if allocation can be measured
+     */
+    private static boolean detectAllocationSupport() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) THREADS;
+        return hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Returns the bytes allocated so far by the calling thread.
+     *
+     * @return allocated bytes, or -1 when not measurable
+     */
+    public static long allocatedBytes() {
+        if (!ALLOCATION_SUPPORTED) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Records a finished stage.
+     *
+     * @param name           stage name, such as {@code scan pokemon.csv}
+     * @param nanos          elapsed time
+     * @param allocatedBytes heap allocated by the stage, or -1
+     * @param rows           rows produced by the stage
+     */
+    public synchronized void addStage(String name, long nanos, long allocatedBytes, long rows) {
+        stages.add(new Stage(name, nanos, allocatedBytes, rows));
+    }
+
+    /**
+     * Completes the profile.
+     *
+     * @param rows  rows returned to the caller
+     * @param nanos total elapsed time
+     */
+    public synchronized void finish(long rows, long nanos) {
+        this.actualRows = rows;
+        this.totalNanos = nanos;
+    }
+
+    /**
+     * Returns the query text.
+     *
+     * @return description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the access path chosen for the query.
+     *
+     * @return index name
+     */
+    public String getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the planner's row estimate.
+     *
+     * @return estimated rows, or -1 when unknown
+     */
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * Returns the rows the query returned.
+     *
+     * @return actual rows, or -1 before {@link #finish}
+     */
+    public synchronized long getActualRows() {
+        return actualRows;
+    }
+
+    /**
+     * Returns the total elapsed time.
+     *
+     * @return nanoseconds
+     */
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns when the query started.
+     *
+     * @return epoch milliseconds
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Returns the recorded stages in order.
+     *
+     * @return read-only stages
+     */
+    public synchronized List<Stage> getStages() {
+        return Collections.unmodifiableList(new ArrayList<>(stages));
+    }
+
+    /**
+     * Formats the profile as an indented plan.
+     *
+     * @return printable lines
+     */
+    public synchronized List<String> formatDetails() {
+        List<String> lines = new ArrayList<>();
+        lines.add(description + " | " + formatMicros(totalNanos) + " | rows: " + actualRows
+                + " (estimated " + estimatedRows + ")");
+        lines.add("  index: " + index);
+        for (Stage stage : stages) {
+            lines.add("  " + stage.formatDetails());
+        }
+        return lines;
+    }
+
+    /**
+     * Formats nanoseconds as microseconds.
+     *
+     * @param nanos elapsed time
+     * @return text such as {@code 12 us}
+     */
+    private static String formatMicros(long nanos) {
+        return (nanos / 1_000) + " us";
+    }
+
+    /**
+     * One timed step of a query.
+     */
+    public static final class Stage {
+        private final String name;
+        private final long nanos;
+        private final long allocatedBytes;
+        private final long rows;
+
+        /**
+         * Creates a stage record.
+         *
+         * @param name           stage name
+         * @param nanos          elapsed time
+         * @param allocatedBytes heap allocated, or -1
+         * @param rows           rows produced
+         */
+        Stage(String name, long nanos, long allocatedBytes, long rows) {
+            this.name = name;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.rows = rows;
+        }
+
+        /**
+         * Returns the stage name.
+         *
+         * @return name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the elapsed time.
+         *
+         * @return nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Returns the heap allocated by the stage.
+         *
+         * @return bytes, or -1 when not measurable
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Returns the rows the stage produced.
+         *
+         * @return row count
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Formats the stage on one line.
+         *
+         * @return printable stage
+         */
+        public String formatDetails() {
+            return name + " | " + formatMicros(nanos) + " | rows: " + rows
+                    + " | allocated: " + (allocatedBytes < 0 ? "n/a" : allocatedBytes + " B");
+        }
+    }
+}
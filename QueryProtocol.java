@@ -0,0 +1,229 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format shared by {@link QueryServer} and {@link QueryClient}.
+ *
+ * <p>Every frame starts with a four-byte big-endian length that counts the
+ * bytes after it. A request frame continues with a four-byte request id
+ * chosen by the client, a one-byte opcode and the opcode's arguments. A
+ * response frame continues with the request id it answers, a one-byte status
+ * and, when the status is {@link #STATUS_OK}, a four-byte character count
+ * followed by the characters. A character is its HP and speed as four-byte
+ * integers, then its name and Japanese name as strings. Strings are an
+ * unsigned two-byte length followed by that many bytes of UTF-8.</p>
+ *
+ * <p>Requests on one connection may be pipelined: a client can send many
+ * frames before reading any response, and the server answers them in the
+ * order they were sent.</p>
+ */
+public final class QueryProtocol {
+    /**
+     * Finds a character by English name. Argument: the name as a string.
+     * Answers zero or one character.
+     */
+    public static final byte OP_FIND_BY_NAME = 1;
+
+    /**
+     * Collects characters in an HP range. Arguments: minimum and maximum HP,
+     * inclusive. Answers in {@link PokemonCharacter#BY_HP_ASC} order.
+     */
+    public static final byte OP_HP_RANGE = 2;
+
+    /**
+     * Collects characters in a speed range. Arguments: minimum and maximum
+     * speed, inclusive. Answers in {@link PokemonCharacter#BY_SPEED_ASC} order.
+     */
+    public static final byte OP_SPEED_RANGE = 3;
+
+    /**
+     * Returns the characters of the lowest or highest speed. Argument: one
+     * byte, 0 for slowest and 1 for fastest.
+     */
+    public static final byte OP_SPEED_EXTREMUM = 4;
+
+    /**
+     * Returns the characters of one speed group. Argument: the speed.
+     */
+    public static final byte OP_SPEED_GROUP = 5;
+
+    /**
+     * Status of an answered request.
+     */
+    public static final byte STATUS_OK = 0;
+
+    /**
+     * Status of a request with an unknown opcode or malformed arguments.
+     */
+    public static final byte STATUS_BAD_REQUEST = 1;
+
+    /**
+     * Status of a request whose query failed on the server.
+     */
+    public static final byte STATUS_ERROR = 2;
+
+    /**
+     * Largest request frame a server accepts, length field excluded. A
+     * connection that announces a larger frame is closed.
+     */
+    public static final int MAX_REQUEST_BYTES = 4096;
+
+    /**
+     * Bytes of a request header after the length: request id and opcode.
+     */
+    static final int REQUEST_HEADER_BYTES = Integer.BYTES + 1;
+
+    /**
+     * Bytes of a response header after the length: request id and status.
+     */
+    static final int RESPONSE_HEADER_BYTES = Integer.BYTES + 1;
+
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private QueryProtocol() {
+        // Utility class
+    }
+
+    /**
+     * Returns the byte count of a string's UTF-8 form.
+     *
+     * @param value string
+     * @return encoded length
+     */
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes a string as an unsigned two-byte length and UTF-8 bytes. The
+     * bytes are encoded straight into the buffer without a temporary array.
+     * Strings longer than the length field allows are cut at a character
+     * boundary.
+     *
+     * @param buffer receives the string; must have room for it
+     * @param value  string, null for an empty one
+     */
+    static void putString(ByteBuffer buffer, String value) {
+        String text = value == null ? "" : value;
+        int lengthAt = buffer.position();
+        buffer.putShort((short) 0);
+        int start = buffer.position();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int written = buffer.position() - start;
+            if (c < 0x80) {
+                if (written + 1 > MAX_STRING_BYTES) {
+                    break;
+                }
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                if (written + 2 > MAX_STRING_BYTES) {
+                    break;
+                }
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                if (written + 4 > MAX_STRING_BYTES) {
+                    break;
+                }
+                int code = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | code >> 18));
+                buffer.put((byte) (0x80 | code >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | code >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | code & 0x3F));
+            } else {
+                if (written + 3 > MAX_STRING_BYTES) {
+                    break;
+                }
+                // Lone surrogates are encoded as they are, like modified UTF-8
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        buffer.putShort(lengthAt, (short) (buffer.position() - start));
+    }
+
+    /**
+     * Returns the bytes {@link #putString} writes for a string.
+     *
+     * @param value string, null for an empty one
+     * @return length field plus encoded bytes
+     */
+    static int stringBytes(String value) {
+        return Short.BYTES + Math.min(MAX_STRING_BYTES, value == null ? 0 : utf8Length(value));
+    }
+
+    /**
+     * Reads a string written by {@link #putString}.
+     *
+     * @param buffer positioned at the length field
+     * @return decoded string
+     */
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the bytes {@link #putCharacter} writes for a character.
+     *
+     * @param character character
+     * @return encoded size
+     */
+    static int characterBytes(PokemonCharacter character) {
+        return 2 * Integer.BYTES + stringBytes(character.getName()) + stringBytes(character.getJapaneseName());
+    }
+
+    /**
+     * Writes one character.
+     *
+     * @param buffer    receives the character; must have room for it
+     * @param character character
+     */
+    static void putCharacter(ByteBuffer buffer, PokemonCharacter character) {
+        buffer.putInt(character.getHp());
+        buffer.putInt(character.getSpeed());
+        putString(buffer, character.getName());
+        putString(buffer, character.getJapaneseName());
+    }
+
+    /**
+     * Reads the characters of an OK response body.
+     *
+     * @param buffer positioned at the character count
+     * @return characters in the order sent
+     */
+    static List<PokemonCharacter> getCharacters(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<PokemonCharacter> characters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int hp = buffer.getInt();
+            int speed = buffer.getInt();
+            String name = getString(buffer);
+            String japaneseName = getString(buffer);
+            characters.add(new PokemonCharacter(name, japaneseName, hp, speed));
+        }
+        return characters;
+    }
+}
@@ -0,0 +1,431 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs queries in separate lanes so heavy work cannot starve cheap lookups.
+ *
+ * <p>Each lane has its own fixed pool and bounded queue: interactive point
+ * lookups never wait behind an all-pairs matchup or a large export in the
+ * batch lane. A query that finds its lane's queue full is rejected at once
+ * with a {@link Status#REJECTED} ticket, so overload shows up as explicit
+ * rejections instead of growing queues and latency. Every query gets a
+ * {@link QueryContext} with its deadline; queries that expire while queued
+ * never start, and scans that call {@link QueryContext#checkpoint()} stop
+ * soon after their deadline or a cancel.</p>
+ */
+public class QueryScheduler implements AutoCloseable {
+    /**
+     * Default worker threads of the interactive lane.
+     */
+    public static final int DEFAULT_INTERACTIVE_THREADS = 2;
+
+    /**
+     * Default queue capacity of the interactive lane.
+     */
+    public static final int DEFAULT_INTERACTIVE_QUEUE = 256;
+
+    /**
+     * Default worker threads of the batch lane.
+     */
+    public static final int DEFAULT_BATCH_THREADS = 1;
+
+    /**
+     * Default queue capacity of the batch lane.
+     */
+    public static final int DEFAULT_BATCH_QUEUE = 16;
+
+    private static final int LATENCY_SAMPLES = 4096;
+
+    /**
+     * Lanes a query can run in.
+     */
+    public enum Lane {
+        INTERACTIVE,
+        BATCH
+    }
+
+    /**
+     * State of a submitted query.
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED,
+        CANCELLED,
+        TIMED_OUT,
+        REJECTED
+    }
+
+    private final LaneExecutor[] lanes = new LaneExecutor[Lane.values().length];
+
+    /**
+     * Creates a scheduler with the default lane sizes.
+     */
+    public QueryScheduler() {
+        this(DEFAULT_INTERACTIVE_THREADS, DEFAULT_INTERACTIVE_QUEUE, DEFAULT_BATCH_THREADS, DEFAULT_BATCH_QUEUE);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param interactiveThreads workers of the interactive lane, at least 1
+     * @param interactiveQueue   queued queries the interactive lane accepts, at least 1
+     * @param batchThreads       workers of the batch lane, at least 1
+     * @param batchQueue         queued queries the batch lane accepts, at least 1
+     */
+    public QueryScheduler(int interactiveThreads, int interactiveQueue, int batchThreads, int batchQueue) {
+        lanes[Lane.INTERACTIVE.ordinal()] = new LaneExecutor("query-interactive", interactiveThreads, interactiveQueue);
+        lanes[Lane.BATCH.ordinal()] = new LaneExecutor("query-batch", batchThreads, batchQueue);
+    }
+
+    /**
+     * Submits a query.
+     *
+     * @param lane         lane to run in
+     * @param timeoutNanos deadline from now, or a negative value for none
+     * @param query        work to run; receives its context for checkpoints
+     * @param <T>          result type
+     * @return ticket for the result, with status {@link Status#REJECTED} if
+     *         the lane's queue is full or the scheduler is closed
+     */
+    public <T> Ticket<T> submit(Lane lane, long timeoutNanos, Function<QueryContext, T> query) {
+        LaneExecutor executor = lanes[lane.ordinal()];
+        Ticket<T> ticket = new Ticket<>(executor, QueryContext.withTimeout(timeoutNanos), query);
+        executor.submitted.incrementAndGet();
+        try {
+            executor.pool.execute(ticket.task);
+        } catch (RejectedExecutionException e) {
+            executor.rejected.incrementAndGet();
+            ticket.status = Status.REJECTED;
+        }
+        return ticket;
+    }
+
+    /**
+     * Returns the number of queries a lane has rejected.
+     *
+     * @param lane lane
+     * @return rejections so far
+     */
+    public long getRejectedCount(Lane lane) {
+        return lanes[lane.ordinal()].rejected.get();
+    }
+
+    /**
+     * Returns a percentile of the recent latencies of a lane's completed
+     * queries, from submission to completion.
+     *
+     * @param lane       lane
+     * @param percentile percentile between 0 and 100
+     * @return latency in nanoseconds, or -1 before any query completes
+     */
+    public long getLatencyPercentile(Lane lane, double percentile) {
+        return lanes[lane.ordinal()].percentile(percentile);
+    }
+
+    /**
+     * Formats the counters and latencies of every lane.
+     *
+     * @return printable lines, one per lane
+     */
+    public List<String> formatDetails() {
+        List<String> lines = new ArrayList<>();
+        for (Lane lane : Lane.values()) {
+            LaneExecutor executor = lanes[lane.ordinal()];
+            lines.add(lane.name().toLowerCase() + ": submitted " + executor.submitted.get()
+                    + ", completed " + executor.completed.get()
+                    + ", rejected " + executor.rejected.get()
+                    + ", timed out " + executor.timedOut.get()
+                    + ", cancelled " + executor.cancelled.get()
+                    + ", failed " + executor.failed.get()
+                    + ", p50 " + formatMillis(executor.percentile(50))
+                    + ", p99 " + formatMillis(executor.percentile(99)));
+        }
+        return lines;
+    }
+
+    /**
+     * Formats a latency.
+     *
+     * @param nanos latency, or -1 when unknown
+     * @return milliseconds with two decimals, or "-"
+     */
+    private static String formatMillis(long nanos) {
+        return nanos < 0 ? "-" : String.format("%.2f ms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Stops accepting queries, cancels queued ones and asks running ones to
+     * stop at their next checkpoint. Queued queries end as
+     * {@link Status#CANCELLED} and are counted as cancelled.
+     */
+    @Override
+    public void close() {
+        for (LaneExecutor executor : lanes) {
+            for (Runnable queued : executor.pool.shutdownNow()) {
+                if (queued instanceof QueryTask) {
+                    ((QueryTask<?>) queued).ticket.drop(Status.CANCELLED);
+                }
+            }
+            executor.cancelRunning();
+        }
+    }
+
+    /**
+     * The pool, bounded queue and counters of one lane.
+     */
+    private static final class LaneExecutor {
+        private final ThreadPoolExecutor pool;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong timedOut = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private final List<Ticket<?>> running = new ArrayList<>();
+        private long latencyCount;
+
+        /**
+         * Creates a lane.
+         *
+         * @param name     worker thread name
+         * @param threads  workers, at least 1
+         * @param capacity queue capacity, at least 1
+         */
+        LaneExecutor(String name, int threads, int capacity) {
+            int workers = Math.max(1, threads);
+            pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, capacity)), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        /**
+         * Records the latency of a completed query.
+         *
+         * @param nanos submission-to-completion time
+         */
+        synchronized void recordLatency(long nanos) {
+            latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = nanos;
+        }
+
+        /**
+         * Computes a percentile of the recorded latencies.
+         *
+         * @param percentile percentile between 0 and 100
+         * @return latency in nanoseconds, or -1 when none are recorded
+         */
+        synchronized long percentile(double percentile) {
+            int size = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+            if (size == 0) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * size) - 1;
+            return sorted[Math.max(0, index)];
+        }
+
+        /**
+         * Tracks a ticket while it runs.
+         *
+         * @param ticket  running ticket
+         * @param started true when it starts, false when it ends
+         */
+        synchronized void track(Ticket<?> ticket, boolean started) {
+            if (started) {
+                running.add(ticket);
+            } else {
+                running.remove(ticket);
+            }
+        }
+
+        /**
+         * Cancels every running query.
+         */
+        synchronized void cancelRunning() {
+            for (Ticket<?> ticket : running) {
+                ticket.context.cancel();
+            }
+        }
+    }
+
+    /**
+     * Task a lane runs for a ticket, so tickets can be found from the tasks
+     * a closed pool hands back.
+     *
+     * @param <T> result type
+     */
+    private static final class QueryTask<T> extends FutureTask<T> {
+        private final Ticket<T> ticket;
+
+        /**
+         * Creates the task of a ticket.
+         *
+         * @param ticket ticket that owns the task
+         * @param query  work to run
+         */
+        QueryTask(Ticket<T> ticket, Function<QueryContext, T> query) {
+            super(() -> ticket.run(query));
+            this.ticket = ticket;
+        }
+    }
+
+    /**
+     * Handle to one submitted query.
+     *
+     * @param <T> result type
+     */
+    public static final class Ticket<T> {
+        private final LaneExecutor lane;
+        private final QueryContext context;
+        private final QueryTask<T> task;
+        private final long submittedAt = System.nanoTime();
+        private volatile Status status = Status.QUEUED;
+
+        /**
+         * Wraps a query in a task that honours the context.
+         *
+         * @param lane    lane the query runs in
+         * @param context deadline and cancellation flag
+         * @param query   work to run
+         */
+        Ticket(LaneExecutor lane, QueryContext context, Function<QueryContext, T> query) {
+            this.lane = lane;
+            this.context = context;
+            this.task = new QueryTask<>(this, query);
+        }
+
+        /**
+         * Runs the query on a lane worker and records how it ended. Anything
+         * other than a result or a checkpoint stop, errors included, ends the
+         * query as {@link Status#FAILED}.
+         *
+         * @param query work to run
+         * @return result
+         */
+        private T run(Function<QueryContext, T> query) {
+            lane.track(this, true);
+            status = Status.RUNNING;
+            Status outcome = Status.FAILED;
+            try {
+                // Queries that expired or were cancelled while queued never start
+                context.checkpoint();
+                T result = query.apply(context);
+                outcome = Status.DONE;
+                return result;
+            } catch (CancellationException e) {
+                outcome = context.isCancelled() ? Status.CANCELLED : Status.TIMED_OUT;
+                throw e;
+            } finally {
+                finish(outcome);
+                lane.track(this, false);
+            }
+        }
+
+        /**
+         * Counts how a query ended and records it as the ticket's status.
+         *
+         * @param outcome final status
+         */
+        private void finish(Status outcome) {
+            switch (outcome) {
+                case DONE:
+                    lane.completed.incrementAndGet();
+                    lane.recordLatency(System.nanoTime() - submittedAt);
+                    break;
+                case CANCELLED:
+                    lane.cancelled.incrementAndGet();
+                    break;
+                case TIMED_OUT:
+                    lane.timedOut.incrementAndGet();
+                    break;
+                default:
+                    lane.failed.incrementAndGet();
+            }
+            status = outcome;
+        }
+
+        /**
+         * Ends a query that never started. Does nothing if it already started.
+         *
+         * @param outcome {@link Status#CANCELLED} or {@link Status#TIMED_OUT}
+         */
+        private void drop(Status outcome) {
+            if (task.cancel(false)) {
+                finish(outcome);
+            }
+        }
+
+        /**
+         * Waits for the result until the query's deadline.
+         *
+         * @return result, or null if the query was rejected, cancelled,
+         *         failed or ran out of time
+         */
+        public T get() {
+            if (status == Status.REJECTED) {
+                return null;
+            }
+            try {
+                long remaining = context.remainingNanos();
+                return remaining == Long.MAX_VALUE ? task.get() : task.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // A queued query is dropped now; a running one stops at its next checkpoint
+                if (lane.pool.remove(task)) {
+                    drop(Status.TIMED_OUT);
+                }
+                return null;
+            } catch (CancellationException | ExecutionException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        /**
+         * Cancels the query. A queued query is removed from its lane; a
+         * running one stops at its next checkpoint.
+         */
+        public void cancel() {
+            context.cancel();
+            if (lane.pool.remove(task)) {
+                drop(Status.CANCELLED);
+            }
+        }
+
+        /**
+         * Returns the state of the query.
+         *
+         * @return status
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Returns the query's context.
+         *
+         * @return deadline and cancellation flag
+         */
+        public QueryContext getContext() {
+            return context;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stand-alone benchmark of {@link QueryScheduler} under mixed load.
+ *
+ * <p>Name lookups arrive at a steady rate while all-pairs matchups keep the
+ * batch work saturated. The run is made twice: once with every query in one
+ * shared lane, and once with lookups in the interactive lane and matchups in
+ * the batch lane. The lookup percentiles show how much the lanes protect
+ * point queries. Run with {@code java QuerySchedulerBenchmark <file>
+ * [seconds] [lookupsPerSecond]}.</p>
+ */
+public final class QuerySchedulerBenchmark {
+    private static final int DEFAULT_SECONDS = 5;
+    private static final int DEFAULT_LOOKUP_RATE = 500;
+    private static final int ROSTER_SIZE = 120;
+    private static final int BATTLES = 20;
+    private static final int MATCHUPS_IN_FLIGHT = 4;
+    private static final long LOOKUP_TIMEOUT_NANOS = 1_000_000_000L;
+    private static final long MATCHUP_TIMEOUT_NANOS = 2_000_000_000L;
+    private static final long SEED = 47;
+
+    private QuerySchedulerBenchmark() {
+        // Entry point only
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args data file, optional duration in seconds and lookup rate
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: QuerySchedulerBenchmark <file> [seconds] [lookupsPerSecond]");
+            return;
+        }
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_LOOKUP_RATE;
+        try (PokemonDataset dataset = new DatasetBuilder().addFile(args[0]).build()) {
+            if (dataset == null) {
+                System.out.println("Failed to load " + args[0]);
+                return;
+            }
+            System.out.println("Shared lane:");
+            run(dataset, seconds, rate, true);
+            System.out.println("Separate lanes:");
+            run(dataset, seconds, rate, false);
+        }
+    }
+
+    /**
+     * Runs one phase of mixed load and prints the scheduler's counters.
+     *
+     * @param dataset loaded data
+     * @param seconds duration
+     * @param rate    lookups per second
+     * @param shared  true to run lookups in the batch lane with the matchups
+     */
+    private static void run(PokemonDataset dataset, int seconds, int rate, boolean shared) {
+        PokemonStatTable table = dataset.getStatTable();
+        BattleSimulator simulator = new BattleSimulator(table);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] roster = new int[Math.min(ROSTER_SIZE, table.getRowCount())];
+        for (int i = 0; i < roster.length; i++) {
+            roster[i] = random.nextInt(table.getRowCount());
+        }
+
+        QueryScheduler.Lane lookupLane = shared ? QueryScheduler.Lane.BATCH : QueryScheduler.Lane.INTERACTIVE;
+        try (QueryScheduler scheduler = new QueryScheduler(2, 1024, 2, 1024)) {
+            List<QueryScheduler.Ticket<?>> matchups = new ArrayList<>();
+            List<QueryScheduler.Ticket<?>> lookups = new ArrayList<>();
+            long interval = 1_000_000_000L / Math.max(1, rate);
+            long start = System.nanoTime();
+            long nextLookup = start;
+            long end = start + seconds * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                // Keep the batch workers busy with a few matchups queued behind them
+                matchups.removeIf(ticket -> ticket.getStatus() != QueryScheduler.Status.QUEUED
+                        && ticket.getStatus() != QueryScheduler.Status.RUNNING);
+                if (matchups.size() < MATCHUPS_IN_FLIGHT) {
+                    matchups.add(scheduler.submit(QueryScheduler.Lane.BATCH, MATCHUP_TIMEOUT_NANOS,
+                            context -> simulator.computeWinRates(roster, BATTLES, SEED, pool, context)));
+                }
+                String name = table.getName(random.nextInt(table.getRowCount()));
+                lookups.add(scheduler.submit(lookupLane, LOOKUP_TIMEOUT_NANOS,
+                        context -> dataset.findCharacterByName(name)));
+                nextLookup += interval;
+                long wait = nextLookup - System.nanoTime();
+                if (wait > 0) {
+                    sleep(wait);
+                }
+            }
+            for (QueryScheduler.Ticket<?> ticket : lookups) {
+                ticket.get();
+            }
+            for (QueryScheduler.Ticket<?> ticket : matchups) {
+                ticket.get();
+            }
+            for (String line : scheduler.formatDetails()) {
+                System.out.println("  " + line);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sleeps for a number of nanoseconds.
+     *
+     * @param nanos time to sleep
+     */
+    private static void sleep(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
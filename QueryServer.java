@@ -0,0 +1,546 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves {@link QueryProtocol} requests from local processes, so tools can
+ * query a loaded {@link PokemonDataset} thousands of times per second
+ * without starting a JVM per query.
+ *
+ * <p>One thread runs a {@link Selector} event loop over every connection.
+ * All complete request frames that one read brings in are answered before
+ * anything is written, so a client that pipelines requests gets their
+ * responses back in one gathering write. Responses are encoded straight
+ * into direct buffers taken from a pool owned by the loop thread, and the
+ * buffers go back to the pool once written. A connection whose unsent
+ * responses pass a limit has its remaining requests held, and is not read,
+ * until they drain.</p>
+ *
+ * <p>Queries run on the loop thread. Point lookups and speed groups take
+ * microseconds; a very wide range query delays the other connections for
+ * as long as it takes. The server listens on the loopback address only.</p>
+ */
+public class QueryServer implements AutoCloseable {
+    /**
+     * Size of each pooled buffer, also the read buffer of a connection.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_POOLED_BUFFERS = 64;
+    private static final long MAX_PENDING_BYTES = 4L * 1024 * 1024;
+
+    private final PokemonDataset dataset;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final BufferPool pool = new BufferPool();
+    private final Thread loop;
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong badRequests = new AtomicLong();
+    private final AtomicLong protocolErrors = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Binds the server socket. Only {@link #start} creates servers.
+     *
+     * @param dataset data to query
+     * @param port    port to listen on, or 0 for any free port
+     * @throws IOException if the socket cannot be bound
+     */
+    private QueryServer(PokemonDataset dataset, int port) throws IOException {
+        this.dataset = dataset;
+        selector = Selector.open();
+        try {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+        loop = new Thread(this::run, "query-server");
+        loop.setDaemon(true);
+    }
+
+    /**
+     * Starts a server on the loopback address.
+     *
+     * @param dataset data to query
+     * @param port    port to listen on, or 0 for any free port
+     * @return running server, or null if the port cannot be bound
+     */
+    public static QueryServer start(PokemonDataset dataset, int port) {
+        if (dataset == null) {
+            return null;
+        }
+        try {
+            QueryServer queryServer = new QueryServer(dataset, port);
+            queryServer.loop.start();
+            return queryServer;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return local port, or -1 once closed
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the number of requests answered, including bad ones.
+     *
+     * @return requests so far
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Formats the counters of the server.
+     *
+     * @return printable lines
+     */
+    public List<String> formatDetails() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Port: " + getPort());
+        lines.add("Connections accepted: " + connections.get());
+        lines.add("Requests answered: " + requests.get() + " (" + badRequests.get() + " bad)");
+        lines.add("Connections dropped for protocol errors: " + protocolErrors.get());
+        lines.add("Direct buffers allocated: " + pool.allocated + " of " + (BUFFER_SIZE / 1024) + " KB");
+        return lines;
+    }
+
+    /**
+     * Stops the event loop and closes every connection.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            loop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the event loop until the server is closed.
+     */
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.pump();
+                        }
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // The selector failed; fall through and release everything
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            closeQuietly(server);
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * Accepts every waiting connection.
+     *
+     * @throws IOException if the server socket fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.incrementAndGet();
+        }
+    }
+
+    /**
+     * Closes a channel or selector, ignoring failures.
+     *
+     * @param closeable resource to close
+     */
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Serves a data file until standard input is closed.
+     *
+     * @param args data file and optional port
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: QueryServer <file> [port]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        try (PokemonDataset dataset = new DatasetBuilder().addFile(args[0]).build()) {
+            if (dataset == null) {
+                System.out.println("Failed to load " + args[0]);
+                return;
+            }
+            QueryServer queryServer = start(dataset, port);
+            if (queryServer == null) {
+                System.out.println("Could not listen on port " + port);
+                return;
+            }
+            System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                    + queryServer.getPort() + "; close standard input to stop");
+            try {
+                while (System.in.read() >= 0) {
+                    // Keep serving
+                }
+            } catch (IOException e) {
+                // Standard input is gone; stop serving
+            }
+            queryServer.close();
+            for (String line : queryServer.formatDetails()) {
+                System.out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Direct buffers recycled between responses. Only the loop thread uses
+     * the pool, so it needs no locking.
+     */
+    private static final class BufferPool {
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private long allocated;
+
+        /**
+         * Takes a cleared buffer of at least the given size.
+         *
+         * @param minimum bytes needed
+         * @return pooled buffer, or a one-off buffer for oversized needs
+         */
+        ByteBuffer acquire(int minimum) {
+            if (minimum > BUFFER_SIZE) {
+                return ByteBuffer.allocateDirect(minimum);
+            }
+            ByteBuffer buffer = free.poll();
+            if (buffer == null) {
+                allocated++;
+                return ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            buffer.clear();
+            return buffer;
+        }
+
+        /**
+         * Returns a buffer to the pool.
+         *
+         * @param buffer buffer no longer in use
+         */
+        void release(ByteBuffer buffer) {
+            if (buffer.capacity() == BUFFER_SIZE && free.size() < MAX_POOLED_BUFFERS) {
+                free.push(buffer);
+            }
+        }
+    }
+
+    /**
+     * One client connection: its read buffer and the responses not yet
+     * written.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private ByteBuffer tail;
+        private long pendingBytes;
+        private SelectionKey key;
+
+        /**
+         * Creates a connection.
+         *
+         * @param channel accepted channel
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = pool.acquire(BUFFER_SIZE);
+        }
+
+        /**
+         * Reads what has arrived, then answers and writes.
+         *
+         * @throws IOException if the channel fails
+         */
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            pump();
+        }
+
+        /**
+         * Answers buffered frames and writes the answers until the socket
+         * is full or nothing is left. Frames stay buffered while the unsent
+         * answers are over the limit, and the connection is read again only
+         * once they drain.
+         *
+         * @throws IOException if the channel fails
+         */
+        void pump() throws IOException {
+            while (true) {
+                if (!answerBuffered()) {
+                    return;
+                }
+                write();
+                if (!pending.isEmpty() || !hasBufferedFrame()) {
+                    break;
+                }
+            }
+            int ops = pendingBytes < MAX_PENDING_BYTES && in.hasRemaining() ? SelectionKey.OP_READ : 0;
+            if (!pending.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        /**
+         * Answers complete frames in the read buffer while the unsent
+         * answers are under the limit.
+         *
+         * @return false if a bad frame length closed the connection
+         */
+        private boolean answerBuffered() {
+            in.flip();
+            while (pendingBytes < MAX_PENDING_BYTES && in.remaining() >= Integer.BYTES) {
+                int start = in.position();
+                int length = in.getInt(start);
+                if (length < QueryProtocol.REQUEST_HEADER_BYTES || length > QueryProtocol.MAX_REQUEST_BYTES) {
+                    protocolErrors.incrementAndGet();
+                    close();
+                    return false;
+                }
+                if (in.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                int end = start + Integer.BYTES + length;
+                int limit = in.limit();
+                in.position(start + Integer.BYTES).limit(end);
+                answer();
+                in.limit(limit).position(end);
+            }
+            in.compact();
+            return true;
+        }
+
+        /**
+         * Tests whether the read buffer holds a complete frame.
+         *
+         * @return true when a frame is waiting to be answered
+         */
+        private boolean hasBufferedFrame() {
+            return in.position() >= Integer.BYTES && in.position() >= Integer.BYTES + in.getInt(0);
+        }
+
+        /**
+         * Answers the request frame between the buffer's position and limit.
+         */
+        private void answer() {
+            int requestId = in.getInt();
+            byte opcode = in.get();
+            requests.incrementAndGet();
+            List<PokemonCharacter> result;
+            try {
+                result = execute(opcode);
+            } catch (BufferUnderflowException e) {
+                result = null;
+            } catch (RuntimeException e) {
+                writeStatus(requestId, QueryProtocol.STATUS_ERROR);
+                return;
+            }
+            if (result == null || in.hasRemaining()) {
+                badRequests.incrementAndGet();
+                writeStatus(requestId, QueryProtocol.STATUS_BAD_REQUEST);
+            } else {
+                writeCharacters(requestId, result);
+            }
+        }
+
+        /**
+         * Decodes the arguments of a request and runs its query.
+         *
+         * @param opcode request opcode
+         * @return matches, or null for an unknown opcode
+         */
+        private List<PokemonCharacter> execute(byte opcode) {
+            switch (opcode) {
+                case QueryProtocol.OP_FIND_BY_NAME:
+                    PokemonCharacter character = dataset.findCharacterByName(QueryProtocol.getString(in));
+                    return character == null ? List.of() : List.of(character);
+                case QueryProtocol.OP_HP_RANGE:
+                    return dataset.collectByHpRange(in.getInt(), in.getInt());
+                case QueryProtocol.OP_SPEED_RANGE:
+                    return dataset.collectBySpeedRange(in.getInt(), in.getInt());
+                case QueryProtocol.OP_SPEED_EXTREMUM:
+                    boolean fastest = in.get() != 0;
+                    if (dataset.getCharacterCount() == 0) {
+                        return List.of();
+                    }
+                    return dataset.getSpeedGroup(fastest ? dataset.getMaxSpeed() : dataset.getMinSpeed());
+                case QueryProtocol.OP_SPEED_GROUP:
+                    return dataset.getSpeedGroup(in.getInt());
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Encodes a response without a body.
+         *
+         * @param requestId request answered
+         * @param status    non-OK status
+         */
+        private void writeStatus(int requestId, byte status) {
+            ensure(Integer.BYTES + QueryProtocol.RESPONSE_HEADER_BYTES);
+            tail.putInt(QueryProtocol.RESPONSE_HEADER_BYTES);
+            tail.putInt(requestId);
+            tail.put(status);
+        }
+
+        /**
+         * Encodes an OK response. The frame may span several pooled
+         * buffers; its length is patched into the first one at the end.
+         *
+         * @param requestId  request answered
+         * @param characters matches
+         */
+        private void writeCharacters(int requestId, List<PokemonCharacter> characters) {
+            ensure(Integer.BYTES + QueryProtocol.RESPONSE_HEADER_BYTES + Integer.BYTES);
+            ByteBuffer lengthBuffer = tail;
+            int lengthAt = tail.position();
+            tail.putInt(0);
+            tail.putInt(requestId);
+            tail.put(QueryProtocol.STATUS_OK);
+            tail.putInt(characters.size());
+            int length = QueryProtocol.RESPONSE_HEADER_BYTES + Integer.BYTES;
+            for (PokemonCharacter character : characters) {
+                int size = QueryProtocol.characterBytes(character);
+                ensure(size);
+                QueryProtocol.putCharacter(tail, character);
+                length += size;
+            }
+            lengthBuffer.putInt(lengthAt, length);
+        }
+
+        /**
+         * Makes room for a value that must not be split across buffers.
+         *
+         * @param bytes size of the value
+         */
+        private void ensure(int bytes) {
+            if (tail != null && tail.remaining() >= bytes) {
+                return;
+            }
+            if (tail != null) {
+                tail.flip();
+                pending.add(tail);
+                pendingBytes += tail.remaining();
+            }
+            tail = pool.acquire(bytes);
+        }
+
+        /**
+         * Writes as many pending answers as the socket takes with one
+         * gathering write per round, returning written buffers to the pool.
+         *
+         * @throws IOException if the channel fails
+         */
+        private void write() throws IOException {
+            if (tail != null && tail.position() > 0) {
+                tail.flip();
+                pending.add(tail);
+                pendingBytes += tail.remaining();
+                tail = null;
+            }
+            while (!pending.isEmpty()) {
+                long written = channel.write(pending.toArray(new ByteBuffer[0]));
+                pendingBytes -= written;
+                while (!pending.isEmpty() && !pending.peek().hasRemaining()) {
+                    pool.release(pending.poll());
+                }
+                if (written == 0) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Closes the channel and returns its buffers to the pool.
+         */
+        void close() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            closeQuietly(channel);
+            pool.release(in);
+            for (ByteBuffer buffer : pending) {
+                pool.release(buffer);
+            }
+            pending.clear();
+            if (tail != null) {
+                pool.release(tail);
+                tail = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-alone throughput benchmark of {@link QueryServer} against local
+ * {@link QueryClient}s.
+ *
+ * <p>Loads a file, starts a server on a free loopback port and has each
+ * client thread send a mix of queries for a fixed time: mostly name
+ * lookups, with some speed groups and narrow HP ranges. The run is made
+ * once with one query per round trip and once with pipelines of the given
+ * depth, and prints the queries per second of each. Run with
+ * {@code java QueryServerBenchmark <file> [seconds] [clients] [depth]}.</p>
+ */
+public final class QueryServerBenchmark {
+    private static final int DEFAULT_SECONDS = 5;
+    private static final int DEFAULT_CLIENTS = 2;
+    private static final int DEFAULT_DEPTH = 32;
+    private static final int HP_RANGE_WIDTH = 2;
+    private static final long SEED = 50;
+
+    private QueryServerBenchmark() {
+        // Entry point only
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args data file, optional duration in seconds, client threads
+     *             and pipeline depth
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: QueryServerBenchmark <file> [seconds] [clients] [depth]");
+            return;
+        }
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CLIENTS;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_DEPTH;
+        try (PokemonDataset dataset = new DatasetBuilder().addFile(args[0]).build()) {
+            if (dataset == null || dataset.getStatTable().getRowCount() == 0) {
+                System.out.println("Failed to load " + args[0]);
+                return;
+            }
+            try (QueryServer server = QueryServer.start(dataset, 0)) {
+                if (server == null) {
+                    System.out.println("Could not start the server");
+                    return;
+                }
+                PokemonStatTable table = dataset.getStatTable();
+                // A short first phase warms up both ends
+                run(server.getPort(), table, 1, clients, depth);
+                report("One query per round trip", seconds, run(server.getPort(), table, seconds, clients, 1));
+                report("Pipelines of " + depth, seconds, run(server.getPort(), table, seconds, clients, depth));
+                for (String line : server.formatDetails()) {
+                    System.out.println("  " + line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs client threads for a fixed time.
+     *
+     * @param port    server port
+     * @param table   source of names to look up
+     * @param seconds duration
+     * @param clients client threads, each with its own connection
+     * @param depth   queries per pipeline
+     * @return queries answered, or -1 if a client failed
+     */
+    private static long run(int port, PokemonStatTable table, int seconds, int clients, int depth) {
+        AtomicLong answered = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < Math.max(1, clients); c++) {
+            long seed = SEED + c;
+            Thread thread = new Thread(() -> {
+                try (QueryClient client = QueryClient.connect(port)) {
+                    if (client == null) {
+                        failures.incrementAndGet();
+                        return;
+                    }
+                    SplittableRandom random = new SplittableRandom(seed);
+                    QueryClient.Pipeline pipeline = client.pipeline();
+                    while (System.nanoTime() < end) {
+                        for (int i = 0; i < depth; i++) {
+                            addQuery(pipeline, table, random);
+                        }
+                        List<List<PokemonCharacter>> answers = pipeline.execute();
+                        if (answers == null) {
+                            failures.incrementAndGet();
+                            return;
+                        }
+                        answered.addAndGet(answers.size());
+                    }
+                }
+            }, "benchmark-client-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+        return failures.get() > 0 ? -1 : answered.get();
+    }
+
+    /**
+     * Queues one query of the mix: eight in ten are name lookups, the rest
+     * are split between speed groups and narrow HP ranges.
+     *
+     * @param pipeline receives the query
+     * @param table    source of names to look up
+     * @param random   random source
+     */
+    private static void addQuery(QueryClient.Pipeline pipeline, PokemonStatTable table, SplittableRandom random) {
+        int kind = random.nextInt(10);
+        if (kind < 8) {
+            pipeline.findCharacterByName(table.getName(random.nextInt(table.getRowCount())));
+        } else if (kind == 8) {
+            pipeline.getSpeedGroup(random.nextInt(20, 160));
+        } else {
+            int minHp = random.nextInt(20, 150);
+            pipeline.collectByHpRange(minHp, minHp + HP_RANGE_WIDTH);
+        }
+    }
+
+    /**
+     * Prints the throughput of a phase.
+     *
+     * @param label   phase name
+     * @param seconds duration
+     * @param queries queries answered, or -1 on failure
+     */
+    private static void report(String label, int seconds, long queries) {
+        if (queries < 0) {
+            System.out.println(label + ": a client failed");
+            return;
+        }
+        System.out.println(label + ": " + queries / Math.max(1, seconds) + " queries per second");
+    }
+}
@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+/**
+ * A batch of HP range, speed range and speed group queries that are
+ * answered together by {@link PokemonDataset#executeBatch}.
+ *
+ * <p>Each shard answers a whole batch in one pass per index: the query
+ * bounds are sorted and swept along the shard's sorted stat array, so the
+ * cost grows with rows plus queries rather than rows times queries. Each
+ * query's matches are then collected into its own result list, in the
+ * same order a single query returns.</p>
+ */
+public class RangeQueryBatch {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Kind of query in a batch.
+     */
+    public enum Kind {
+        HP_RANGE,
+        SPEED_RANGE,
+        SPEED_GROUP
+    }
+
+    private Kind[] kinds = new Kind[INITIAL_CAPACITY];
+    private int[] minimums = new int[INITIAL_CAPACITY];
+    private int[] maximums = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds an HP range query.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return query id, the position of its result
+     */
+    public int addHpRange(int minHp, int maxHp) {
+        return add(Kind.HP_RANGE, minHp, maxHp);
+    }
+
+    /**
+     * Adds a speed range query.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return query id, the position of its result
+     */
+    public int addSpeedRange(int minSpeed, int maxSpeed) {
+        return add(Kind.SPEED_RANGE, minSpeed, maxSpeed);
+    }
+
+    /**
+     * Adds a speed group query.
+     *
+     * @param speed speed value
+     * @return query id, the position of its result
+     */
+    public int addSpeedGroup(int speed) {
+        return add(Kind.SPEED_GROUP, speed, speed);
+    }
+
+    /**
+     * Appends a query.
+     *
+     * @param kind kind of query
+     * @param min  lower bound inclusive
+     * @param max  upper bound inclusive
+     * @return query id
+     */
+    private int add(Kind kind, int min, int max) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            minimums = Arrays.copyOf(minimums, size * 2);
+            maximums = Arrays.copyOf(maximums, size * 2);
+        }
+        kinds[size] = kind;
+        minimums[size] = min;
+        maximums[size] = max;
+        return size++;
+    }
+
+    /**
+     * Returns the number of queries.
+     *
+     * @return query count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the kind of a query.
+     *
+     * @param query query id
+     * @return kind
+     */
+    public Kind getKind(int query) {
+        return kinds[query];
+    }
+
+    /**
+     * Returns the lower bound of a query.
+     *
+     * @param query query id
+     * @return lower bound inclusive
+     */
+    public int getMin(int query) {
+        return minimums[query];
+    }
+
+    /**
+     * Returns the upper bound of a query.
+     *
+     * @param query query id
+     * @return upper bound inclusive
+     */
+    public int getMax(int query) {
+        return maximums[query];
+    }
+
+    /**
+     * Returns whether a query runs against the HP index.
+     *
+     * @param query query id
+     * @return true for HP ranges; speed ranges and groups use the speed index
+     */
+    boolean usesHpIndex(int query) {
+        return kinds[query] == Kind.HP_RANGE;
+    }
+
+    /**
+     * Finds, for many bounds at once, the first position in sorted keys
+     * whose key is at least the bound. Bounds are sorted and swept along
+     * the keys in one pass; when there are few bounds compared with keys,
+     * a binary search per bound is cheaper and is used instead.
+     *
+     * @param keys   ascending keys
+     * @param bounds bounds as longs, so that {@code max + 1} cannot overflow
+     * @return position per bound
+     */
+    static int[] lowerBounds(int[] keys, long[] bounds) {
+        int[] positions = new int[bounds.length];
+        int n = keys.length;
+        if ((long) bounds.length * (32 - Integer.numberOfLeadingZeros(n)) < n) {
+            for (int b = 0; b < bounds.length; b++) {
+                positions[b] = binaryLowerBound(keys, bounds[b]);
+            }
+            return positions;
+        }
+
+        // Offset so every bound is non-negative and sorts as unsigned
+        long[] sorted = new long[bounds.length];
+        int[] order = new int[bounds.length];
+        for (int b = 0; b < bounds.length; b++) {
+            sorted[b] = bounds[b] - Integer.MIN_VALUE;
+            order[b] = b;
+        }
+        CharacterSortKeys.radixSort(sorted, order);
+
+        int position = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            long bound = bounds[order[i]];
+            while (position < n && keys[position] < bound) {
+                position++;
+            }
+            positions[order[i]] = position;
+        }
+        return positions;
+    }
+
+    /**
+     * Finds the first position whose key is at least a bound.
+     *
+     * @param keys  ascending keys
+     * @param bound bound
+     * @return insertion position
+     */
+    private static int binaryLowerBound(int[] keys, long bound) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < bound) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -2,6 +2,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
 /**
@@ -48,7 +49,7 @@ public class ReadData implements IReadData {
 
         rawData.clear();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(currentFileName))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(currentFileName, StandardCharsets.UTF_8))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 rawData.add(line);
@@ -0,0 +1,227 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size set of row ids backed by a {@code long[]}. Combining operations
+ * return new bitmaps and never modify their inputs, so bitmaps held by an
+ * index can be shared freely.
+ */
+public final class RowBitmap {
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_BITS = 64;
+
+    private final int size;
+    private final long[] words;
+
+    /**
+     * Creates an empty bitmap.
+     *
+     * @param size number of rows in the universe
+     */
+    public RowBitmap(int size) {
+        this(size, new long[wordCount(size)]);
+    }
+
+    /**
+     * Wraps existing words.
+     *
+     * @param size  number of rows in the universe
+     * @param words backing words, owned by this bitmap
+     */
+    private RowBitmap(int size, long[] words) {
+        this.size = size;
+        this.words = words;
+    }
+
+    /**
+     * Creates a bitmap with every row set.
+     *
+     * @param size number of rows in the universe
+     * @return full bitmap
+     */
+    public static RowBitmap all(int size) {
+        RowBitmap bitmap = new RowBitmap(size);
+        Arrays.fill(bitmap.words, -1L);
+        bitmap.clearTail();
+        return bitmap;
+    }
+
+    /**
+     * Creates a bitmap from row ids.
+     *
+     * @param size number of rows in the universe
+     * @param rows row ids to set
+     * @return bitmap
+     */
+    public static RowBitmap of(int size, int... rows) {
+        RowBitmap bitmap = new RowBitmap(size);
+        for (int row : rows) {
+            bitmap.set(row);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns the number of words needed for a universe.
+     *
+     * @param size number of rows
+     * @return word count
+     */
+    private static int wordCount(int size) {
+        return (size + WORD_BITS - 1) >>> WORD_SHIFT;
+    }
+
+    /**
+     * Clears the unused bits of the last word.
+     */
+    private void clearTail() {
+        int tail = size & (WORD_BITS - 1);
+        if (tail != 0) {
+            words[words.length - 1] &= (1L << tail) - 1;
+        }
+    }
+
+    /**
+     * Adds a row. Only used while an index is being built.
+     *
+     * @param row row id
+     */
+    void set(int row) {
+        words[row >>> WORD_SHIFT] |= 1L << row;
+    }
+
+    /**
+     * Returns the size of the row universe.
+     *
+     * @return universe size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns whether a row is set.
+     *
+     * @param row row id
+     * @return true if present
+     */
+    public boolean contains(int row) {
+        return row >= 0 && row < size && (words[row >>> WORD_SHIFT] & (1L << row)) != 0;
+    }
+
+    /**
+     * Counts the set rows.
+     *
+     * @return cardinality
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns rows present in both bitmaps.
+     *
+     * @param other bitmap over the same universe
+     * @return intersection
+     */
+    public RowBitmap and(RowBitmap other) {
+        checkUniverse(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        return new RowBitmap(size, result);
+    }
+
+    /**
+     * Returns rows present in either bitmap.
+     *
+     * @param other bitmap over the same universe
+     * @return union
+     */
+    public RowBitmap or(RowBitmap other) {
+        checkUniverse(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] | other.words[i];
+        }
+        return new RowBitmap(size, result);
+    }
+
+    /**
+     * Returns rows present here but not in the other bitmap.
+     *
+     * @param other bitmap over the same universe
+     * @return difference
+     */
+    public RowBitmap andNot(RowBitmap other) {
+        checkUniverse(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] & ~other.words[i];
+        }
+        return new RowBitmap(size, result);
+    }
+
+    /**
+     * Returns every row not in this bitmap.
+     *
+     * @return complement within the universe
+     */
+    public RowBitmap not() {
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = ~words[i];
+        }
+        RowBitmap complement = new RowBitmap(size, result);
+        complement.clearTail();
+        return complement;
+    }
+
+    /**
+     * Counts rows in both bitmaps without building the intersection.
+     *
+     * @param other bitmap over the same universe
+     * @return intersection cardinality
+     */
+    public int andCardinality(RowBitmap other) {
+        checkUniverse(other);
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] & other.words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the set rows in ascending order.
+     *
+     * @return row ids
+     */
+    public int[] toArray() {
+        int[] rows = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                rows[count++] = (i << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Verifies two bitmaps describe the same universe.
+     *
+     * @param other bitmap to check
+     */
+    private void checkUniverse(RowBitmap other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Bitmap sizes differ: " + size + " vs " + other.size);
+        }
+    }
+}
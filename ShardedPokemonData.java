@@ -0,0 +1,801 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * A Pokedex split across several CSV files. Each file is loaded into its own
+ * {@link PokemonShard} on a worker thread, and queries are scattered to every
+ * shard and gathered back into one globally ordered answer.
+ */
+public class ShardedPokemonData implements AutoCloseable {
+    /**
+     * Access path of HP range queries, as reported by explain.
+     */
+    public static final String HP_INDEX = "hp-sorted array, binary search per shard";
+
+    /**
+     * Access path of speed range and speed group queries.
+     */
+    public static final String SPEED_INDEX = "speed-sorted array, binary search per shard";
+
+    /**
+     * Access path of name lookups.
+     */
+    public static final String NAME_INDEX = "hashed name index behind a Bloom filter per shard";
+
+    /**
+     * Access path of Japanese name lookups.
+     */
+    public static final String JAPANESE_INDEX = "hashed romaji and kana key index behind a Bloom filter per shard";
+
+    /**
+     * Access path of pokedex number lookups.
+     */
+    public static final String NUMBER_INDEX = "direct-address pokedex number array per shard";
+
+    /**
+     * Access path of batched range queries.
+     */
+    public static final String BATCH_INDEX = "hp- and speed-sorted arrays, one sweep per shard";
+
+    private final List<PokemonShard> shards;
+    private final ExecutorService workers;
+    private final Object lifecycle = new Object();
+    private int activeScatters;
+    private boolean closed;
+    private final int minHp;
+    private final int maxHp;
+    private final int minSpeed;
+    private final int maxSpeed;
+
+    /**
+     * Wraps already built shards.
+     *
+     * @param shards  loaded shards in file order
+     * @param workers pool used to scatter queries, owned by this instance
+     */
+    private ShardedPokemonData(List<PokemonShard> shards, ExecutorService workers) {
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.workers = workers;
+
+        int lowHp = Integer.MAX_VALUE;
+        int highHp = Integer.MIN_VALUE;
+        int lowSpeed = Integer.MAX_VALUE;
+        int highSpeed = Integer.MIN_VALUE;
+        for (PokemonShard shard : shards) {
+            lowHp = Math.min(lowHp, shard.getMinHp());
+            highHp = Math.max(highHp, shard.getMaxHp());
+            lowSpeed = Math.min(lowSpeed, shard.getMinSpeed());
+            highSpeed = Math.max(highSpeed, shard.getMaxSpeed());
+        }
+        this.minHp = lowHp;
+        this.maxHp = highHp;
+        this.minSpeed = lowSpeed;
+        this.maxSpeed = highSpeed;
+    }
+
+    /**
+     * Loads every file into its own shard, one worker per file up to the
+     * requested parallelism.
+     *
+     * @param fileNames   files to load, in shard order
+     * @param parallelism maximum number of worker threads
+     * @return loaded data, or null if any file cannot be opened or read
+     */
+    public static ShardedPokemonData load(List<String> fileNames, int parallelism) {
+        return load(fileNames, null, parallelism);
+    }
+
+    /**
+     * Loads the files that have no already built shard, one worker per file
+     * up to the requested parallelism. Shards are immutable, so a shard of
+     * an earlier instance can be shared with this one.
+     *
+     * @param fileNames   files to load, in shard order
+     * @param reused      shard to use for each file instead of loading it,
+     *                    with null entries for files to load; may be null
+     * @param parallelism maximum number of worker threads
+     * @return loaded data, or null if any file cannot be opened or read
+     */
+    public static ShardedPokemonData load(List<String> fileNames, List<PokemonShard> reused, int parallelism) {
+        if (fileNames == null || fileNames.isEmpty()) {
+            return null;
+        }
+
+        int threads = Math.max(1, Math.min(parallelism, fileNames.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pokemon-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<PokemonShard>> pending = new ArrayList<>();
+        for (int i = 0; i < fileNames.size(); i++) {
+            String fileName = fileNames.get(i);
+            PokemonShard known = reused == null ? null : reused.get(i);
+            pending.add(known != null ? CompletableFuture.completedFuture(known)
+                    : pool.submit(() -> loadShard(fileName)));
+        }
+
+        List<PokemonShard> shards = new ArrayList<>();
+        try {
+            for (Future<PokemonShard> future : pending) {
+                PokemonShard shard = future.get();
+                if (shard == null) {
+                    pool.shutdownNow();
+                    return null;
+                }
+                shards.add(shard);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+            return null;
+        } catch (ExecutionException e) {
+            pool.shutdownNow();
+            return null;
+        }
+
+        return new ShardedPokemonData(shards, pool);
+    }
+
+    /**
+     * Reads and indexes one file, overlapping I/O, tokenizing and indexing.
+     *
+     * @param fileName file to load
+     * @return shard, or null if the file cannot be read
+     */
+    private static PokemonShard loadShard(String fileName) {
+        IReadData reader = new ReadData();
+        if (!reader.openDataFile(fileName)) {
+            return null;
+        }
+        return PipelinedShardLoader.load(fileName);
+    }
+
+    /**
+     * Runs a query against every shard in parallel and returns the per-shard
+     * answers in shard order. After {@link #close} the shards are queried
+     * one by one on the calling thread instead.
+     *
+     * @param query per-shard query
+     * @param <T>   answer type
+     * @return answers, one per shard
+     */
+    private <T> List<T> scatter(Function<PokemonShard, T> query) {
+        return scatterByIndex(i -> query.apply(shards.get(i)));
+    }
+
+    /**
+     * Runs a query for every shard index like {@link #scatter}. The same
+     * shard can be listed at two indexes, so per-shard bookkeeping is keyed
+     * by index rather than by shard.
+     *
+     * @param query query taking a shard index
+     * @param <T>   answer type
+     * @return answers, one per shard
+     */
+    private <T> List<T> scatterByIndex(IntFunction<T> query) {
+        int count = shards.size();
+        if (count == 1) {
+            return Collections.singletonList(query.apply(0));
+        }
+        List<T> answers = new ArrayList<>();
+        if (!acquireWorkers()) {
+            for (int i = 0; i < count; i++) {
+                answers.add(query.apply(i));
+            }
+            return answers;
+        }
+
+        try {
+            List<Future<T>> pending = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                pending.add(workers.submit(() -> query.apply(index)));
+            }
+            for (Future<T> future : pending) {
+                answers.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        } finally {
+            releaseWorkers();
+        }
+        return answers;
+    }
+
+    /**
+     * Registers a scatter that is about to use the worker pool.
+     *
+     * @return false if the pool is closed and the caller must run inline
+     */
+    private boolean acquireWorkers() {
+        synchronized (lifecycle) {
+            if (closed) {
+                return false;
+            }
+            activeScatters++;
+            return true;
+        }
+    }
+
+    /**
+     * Ends a scatter, shutting the pool down if it was the last one running
+     * after {@link #close}.
+     */
+    private void releaseWorkers() {
+        synchronized (lifecycle) {
+            activeScatters--;
+            if (closed && activeScatters == 0) {
+                workers.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runs a query against every shard like {@link #scatter}, timing each
+     * shard on the worker that runs it and recording one stage per shard.
+     *
+     * @param profile profile receiving the stages
+     * @param query   per-shard query
+     * @param rows    counts the rows of a per-shard answer
+     * @param <T>     answer type
+     * @return answers, one per shard
+     */
+    private <T> List<T> profiledScatter(QueryProfile profile, Function<PokemonShard, T> query,
+                                        Function<T, Integer> rows) {
+        int count = shards.size();
+        long[] nanos = new long[count];
+        long[] allocated = new long[count];
+        List<T> answers = scatterByIndex(i -> {
+            long before = QueryProfile.allocatedBytes();
+            long start = System.nanoTime();
+            T answer = query.apply(shards.get(i));
+            nanos[i] = System.nanoTime() - start;
+            allocated[i] = before < 0 ? -1 : QueryProfile.allocatedBytes() - before;
+            return answer;
+        });
+        // Future.get in scatter makes the workers' array writes visible here
+        for (int i = 0; i < count; i++) {
+            profile.addStage("scan " + shards.get(i).getShardName(), nanos[i], allocated[i],
+                    rows.apply(answers.get(i)));
+        }
+        return answers;
+    }
+
+    /**
+     * Runs a stage on the calling thread and records it.
+     *
+     * @param profile profile receiving the stage
+     * @param name    stage name
+     * @param stage   work to run
+     * @param rows    counts the rows of the result
+     * @param <T>     result type
+     * @return stage result
+     */
+    private static <T> T profiledStage(QueryProfile profile, String name, Supplier<T> stage,
+                                       Function<T, Integer> rows) {
+        long before = QueryProfile.allocatedBytes();
+        long start = System.nanoTime();
+        T result = stage.get();
+        long nanos = System.nanoTime() - start;
+        profile.addStage(name, nanos, before < 0 ? -1 : QueryProfile.allocatedBytes() - before, rows.apply(result));
+        return result;
+    }
+
+    /**
+     * Merges per-shard lists that are each sorted by the comparator. Entries
+     * the comparator considers equal are kept once, matching TreeSet semantics.
+     *
+     * @param parts      sorted per-shard results
+     * @param comparator ordering shared by all parts
+     * @return merged ordered list
+     */
+    static List<PokemonCharacter> mergeSorted(List<List<PokemonCharacter>> parts,
+                                              Comparator<PokemonCharacter> comparator) {
+        int total = 0;
+        for (List<PokemonCharacter> part : parts) {
+            total += part.size();
+        }
+        List<PokemonCharacter> merged = new ArrayList<>(total);
+
+        // Heap entries are {part index, position in part}
+        PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, parts.size()),
+                (a, b) -> comparator.compare(parts.get(a[0]).get(a[1]), parts.get(b[0]).get(b[1])));
+        for (int i = 0; i < parts.size(); i++) {
+            if (!parts.get(i).isEmpty()) {
+                heap.add(new int[] {i, 0});
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            int[] cursor = heap.poll();
+            List<PokemonCharacter> part = parts.get(cursor[0]);
+            PokemonCharacter next = part.get(cursor[1]);
+            if (merged.isEmpty() || comparator.compare(merged.get(merged.size() - 1), next) != 0) {
+                merged.add(next);
+            }
+            if (++cursor[1] < part.size()) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the loaded shards.
+     *
+     * @return read-only shard list
+     */
+    public List<PokemonShard> getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns the header row of the first shard.
+     *
+     * @return header, or an empty string when nothing is loaded
+     */
+    public String getHeader() {
+        for (PokemonShard shard : shards) {
+            if (!shard.getRawData().isEmpty()) {
+                return shard.getRawData().get(0);
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Returns all rows as one table: the first header followed by every
+     * shard's data rows.
+     *
+     * @return combined rows
+     */
+    public ArrayList<String> getCombinedRawData() {
+        ArrayList<String> combined = new ArrayList<>();
+        for (PokemonShard shard : shards) {
+            List<String> rows = shard.getRawData();
+            if (rows.isEmpty()) {
+                continue;
+            }
+            if (combined.isEmpty()) {
+                combined.add(rows.get(0));
+            }
+            combined.addAll(rows.subList(1, rows.size()));
+        }
+        return combined;
+    }
+
+    /**
+     * Returns the total number of characters with parsed stats.
+     *
+     * @return character count across shards
+     */
+    public int getCharacterCount() {
+        int count = 0;
+        for (PokemonShard shard : shards) {
+            count += shard.getCharacterCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total number of unique names per shard, summed.
+     *
+     * @return name count across shards
+     */
+    public int getNameCount() {
+        int count = 0;
+        for (PokemonShard shard : shards) {
+            count += shard.getNameCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the problems found while loading every shard, with examples
+     * ordered by shard and then by line.
+     *
+     * @return combined validation report
+     */
+    public ValidationReport getValidationReport() {
+        List<ValidationReport> reports = new ArrayList<>();
+        for (PokemonShard shard : shards) {
+            reports.add(shard.getValidationReport());
+        }
+        return ValidationReport.combine(reports);
+    }
+
+    /**
+     * Returns the global minimum HP.
+     *
+     * @return minimum HP, or {@link Integer#MAX_VALUE} when empty
+     */
+    public int getMinHp() {
+        return minHp;
+    }
+
+    /**
+     * Returns the global maximum HP.
+     *
+     * @return maximum HP, or {@link Integer#MIN_VALUE} when empty
+     */
+    public int getMaxHp() {
+        return maxHp;
+    }
+
+    /**
+     * Returns the global minimum speed.
+     *
+     * @return minimum speed, or {@link Integer#MAX_VALUE} when empty
+     */
+    public int getMinSpeed() {
+        return minSpeed;
+    }
+
+    /**
+     * Returns the global maximum speed.
+     *
+     * @return maximum speed, or {@link Integer#MIN_VALUE} when empty
+     */
+    public int getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * Finds the raw row for a name. When several shards contain the name,
+     * the first shard in load order wins. Shards are asked in turn rather
+     * than scattered, since a hash probe is cheaper than a task handoff,
+     * and shards whose Bloom filter rejects the name are skipped.
+     *
+     * @param name name to search for, case-insensitive
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByName(String name) {
+        for (PokemonShard shard : shards) {
+            if (shard.mightContainName(name)) {
+                String row = shard.findRowByName(name);
+                if (row != null) {
+                    return row;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a character by name. When several shards contain the name,
+     * the first shard in load order wins.
+     *
+     * @param name name to search for, case-insensitive
+     * @return matching character or null
+     */
+    public PokemonCharacter findCharacterByName(String name) {
+        for (PokemonShard shard : shards) {
+            if (shard.mightContainName(name)) {
+                PokemonCharacter character = shard.findCharacterByName(name);
+                if (character != null) {
+                    return character;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the raw row for a pokedex number. When several shards contain
+     * the number, the first shard in load order wins.
+     *
+     * @param number pokedex number
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByPokedexNumber(int number) {
+        for (PokemonShard shard : shards) {
+            String row = shard.findRowByPokedexNumber(number);
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the character of a pokedex number. When several shards contain
+     * the number, the first shard in load order wins.
+     *
+     * @param number pokedex number
+     * @return matching character or null
+     */
+    public PokemonCharacter findCharacterByPokedexNumber(int number) {
+        for (PokemonShard shard : shards) {
+            PokemonCharacter character = shard.findCharacterByPokedexNumber(number);
+            if (character != null) {
+                return character;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the raw row of a Japanese name given in romaji, katakana or
+     * hiragana. The query is folded once; when several shards contain it,
+     * the first shard in load order wins.
+     *
+     * @param name romaji or kana name, case-insensitive
+     * @return raw CSV row, or null when missing
+     */
+    public String findRowByJapaneseName(String name) {
+        String key = JapaneseNames.searchKey(name);
+        if (key.isEmpty()) {
+            return null;
+        }
+        for (PokemonShard shard : shards) {
+            if (shard.mightContainJapaneseKey(key)) {
+                String row = shard.findRowByJapaneseKey(key);
+                if (row != null) {
+                    return row;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the character of a Japanese name given in romaji, katakana or
+     * hiragana. When several shards contain it, the first shard in load
+     * order wins.
+     *
+     * @param name romaji or kana name, case-insensitive
+     * @return matching character or null
+     */
+    public PokemonCharacter findCharacterByJapaneseName(String name) {
+        String key = JapaneseNames.searchKey(name);
+        if (key.isEmpty()) {
+            return null;
+        }
+        for (PokemonShard shard : shards) {
+            if (shard.mightContainJapaneseKey(key)) {
+                PokemonCharacter character = shard.findCharacterByJapaneseKey(key);
+                if (character != null) {
+                    return character;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collects characters whose HP falls within the range across all shards.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return matches in {@link PokemonCharacter#BY_HP_ASC} order
+     */
+    public List<PokemonCharacter> collectByHpRange(int minHp, int maxHp) {
+        return mergeSorted(scatter(shard -> shard.collectByHpRange(minHp, maxHp)), PokemonCharacter.BY_HP_ASC);
+    }
+
+    /**
+     * Collects characters whose speed falls within the range across all shards.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return matches in {@link PokemonCharacter#BY_SPEED_ASC} order
+     */
+    public List<PokemonCharacter> collectBySpeedRange(int minSpeed, int maxSpeed) {
+        return mergeSorted(scatter(shard -> shard.collectBySpeedRange(minSpeed, maxSpeed)),
+                PokemonCharacter.BY_SPEED_ASC);
+    }
+
+    /**
+     * Answers a batch of range queries with one scatter. Each shard sweeps
+     * its indexes once for the whole batch; the shards' answers to each
+     * query are then merged into that query's own result.
+     *
+     * @param batch queries to answer
+     * @return matches per query id, each in the order of the single query
+     */
+    public List<List<PokemonCharacter>> executeBatch(RangeQueryBatch batch) {
+        List<List<List<PokemonCharacter>>> answers = scatter(shard -> shard.collectBatch(batch));
+        List<List<PokemonCharacter>> results = new ArrayList<>(batch.size());
+        for (int q = 0; q < batch.size(); q++) {
+            List<List<PokemonCharacter>> parts = new ArrayList<>(answers.size());
+            for (List<List<PokemonCharacter>> answer : answers) {
+                parts.add(answer.get(q));
+            }
+            results.add(mergeSorted(parts, batch.usesHpIndex(q)
+                    ? PokemonCharacter.BY_HP_ASC : PokemonCharacter.BY_SPEED_ASC));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the global top-K distinct speed values. Each shard contributes
+     * its own top K, which is enough to contain the global top K.
+     *
+     * @param k       number of values
+     * @param fastest true for the highest values, false for the lowest
+     * @return distinct speeds, best first
+     */
+    public List<Integer> topSpeedValues(int k, boolean fastest) {
+        TreeMap<Integer, Boolean> candidates = new TreeMap<>();
+        for (int[] local : scatter(shard -> shard.topSpeedValues(k, fastest))) {
+            for (int speed : local) {
+                candidates.put(speed, Boolean.TRUE);
+            }
+        }
+
+        List<Integer> result = new ArrayList<>(fastest ? candidates.descendingKeySet() : candidates.keySet());
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    /**
+     * Returns the characters of one speed group across all shards.
+     *
+     * @param speed speed value
+     * @return characters in {@link PokemonCharacter#BY_SPEED_ASC} order
+     */
+    public List<PokemonCharacter> getSpeedGroup(int speed) {
+        return collectBySpeedRange(speed, speed);
+    }
+
+    /**
+     * Returns the merged size of every speed group. Only the counts travel
+     * back from the shards; characters are fetched separately for the
+     * groups that are actually shown.
+     *
+     * @return map from speed to group size, ascending by speed
+     */
+    public TreeMap<Integer, Integer> getSpeedGroupSizes() {
+        List<Map<Integer, Integer>> localSizes = scatter(shard -> {
+            Map<Integer, Integer> sizes = new HashMap<>();
+            for (Map.Entry<Integer, List<PokemonCharacter>> entry : shard.getSpeedGroups().entrySet()) {
+                sizes.put(entry.getKey(), entry.getValue().size());
+            }
+            return sizes;
+        });
+
+        TreeMap<Integer, Integer> merged = new TreeMap<>();
+        for (Map<Integer, Integer> sizes : localSizes) {
+            for (Map.Entry<Integer, Integer> entry : sizes.entrySet()) {
+                merged.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Runs an HP range query and reports how it executed. The estimate is
+     * the sum of the per-shard counts between the HP key bounds, read
+     * without touching any rows; it can exceed the actual count when the
+     * merge drops duplicates.
+     *
+     * @param minHp minimum HP inclusive
+     * @param maxHp maximum HP inclusive
+     * @return finished profile
+     */
+    public QueryProfile explainHpRange(int minHp, int maxHp) {
+        long estimate = 0;
+        for (PokemonShard shard : shards) {
+            estimate += shard.countByHpRange(minHp, maxHp);
+        }
+
+        QueryProfile profile = new QueryProfile("hp between " + minHp + " and " + maxHp, HP_INDEX, estimate);
+        long start = System.nanoTime();
+        List<List<PokemonCharacter>> parts =
+                profiledScatter(profile, shard -> shard.collectByHpRange(minHp, maxHp), List::size);
+        List<PokemonCharacter> merged = profiledStage(profile, "merge " + parts.size() + " shards",
+                () -> mergeSorted(parts, PokemonCharacter.BY_HP_ASC), List::size);
+        profile.finish(merged.size(), System.nanoTime() - start);
+        return profile;
+    }
+
+    /**
+     * Runs a speed range query and reports how it executed. The estimate
+     * comes from the speed group sizes, which form a per-shard histogram.
+     *
+     * @param minSpeed minimum speed inclusive
+     * @param maxSpeed maximum speed inclusive
+     * @return finished profile
+     */
+    public QueryProfile explainSpeedRange(int minSpeed, int maxSpeed) {
+        long estimate = 0;
+        for (PokemonShard shard : shards) {
+            for (Map.Entry<Integer, List<PokemonCharacter>> group : shard.getSpeedGroups().entrySet()) {
+                if (group.getKey() >= minSpeed && group.getKey() <= maxSpeed) {
+                    estimate += group.getValue().size();
+                }
+            }
+        }
+
+        String description = minSpeed == maxSpeed ? "speed group " + minSpeed
+                : "speed between " + minSpeed + " and " + maxSpeed;
+        QueryProfile profile = new QueryProfile(description, SPEED_INDEX, estimate);
+        long start = System.nanoTime();
+        List<List<PokemonCharacter>> parts =
+                profiledScatter(profile, shard -> shard.collectBySpeedRange(minSpeed, maxSpeed), List::size);
+        List<PokemonCharacter> merged = profiledStage(profile, "merge " + parts.size() + " shards",
+                () -> mergeSorted(parts, PokemonCharacter.BY_SPEED_ASC), List::size);
+        profile.finish(merged.size(), System.nanoTime() - start);
+        return profile;
+    }
+
+    /**
+     * Runs a speed group lookup and reports how it executed.
+     *
+     * @param speed speed value
+     * @return finished profile
+     */
+    public QueryProfile explainSpeedGroup(int speed) {
+        return explainSpeedRange(speed, speed);
+    }
+
+    /**
+     * Runs a name lookup and reports how it executed. Like
+     * {@link #findCharacterByName}, it asks the shards in load order and
+     * stops at the first match, recording one stage per shard: a skip when
+     * the shard's Bloom filter rejects the name, otherwise a probe of its
+     * hashed name index.
+     *
+     * @param name name to search for, case-insensitive
+     * @return finished profile
+     */
+    public QueryProfile explainFindByName(String name) {
+        QueryProfile profile = new QueryProfile("name = '" + name + "'", NAME_INDEX, 1);
+        long start = System.nanoTime();
+        PokemonCharacter found = null;
+        for (PokemonShard shard : shards) {
+            long before = QueryProfile.allocatedBytes();
+            long stageStart = System.nanoTime();
+            boolean candidate = shard.mightContainName(name);
+            PokemonCharacter character = candidate ? shard.findCharacterByName(name) : null;
+            long nanos = System.nanoTime() - stageStart;
+            String stage = candidate ? "probe " + shard.getShardName()
+                    : "skip " + shard.getShardName() + " (Bloom filter rejects)";
+            profile.addStage(stage, nanos, before < 0 ? -1 : QueryProfile.allocatedBytes() - before,
+                    character == null ? 0 : 1);
+            if (character != null) {
+                found = character;
+                break;
+            }
+        }
+        profile.finish(found == null ? 0 : 1, System.nanoTime() - start);
+        return profile;
+    }
+
+    /**
+     * Releases the worker pool. Queries already scattering to the pool
+     * finish normally, and the pool shuts down when the last one ends.
+     * Queries started afterwards still answer, running on the calling
+     * thread, so a reader holding a replaced instance never fails.
+     */
+    @Override
+    public void close() {
+        synchronized (lifecycle) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (activeScatters == 0) {
+                workers.shutdown();
+            }
+        }
+    }
+}
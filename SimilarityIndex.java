@@ -0,0 +1,488 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Nearest-neighbour search over normalized stat vectors ("find Pokemon like
+ * this one").
+ *
+ * <p>Each row becomes a vector of the six base stats, optionally followed by
+ * the eighteen {@code against_*} multipliers, with every dimension min-max
+ * scaled to [0, 1]. Vectors are packed row-major into one {@code float[]}.
+ * Low-dimensional indexes answer queries with a KD-tree laid out in the row
+ * order array itself; above {@link #KD_TREE_MAX_DIMENSIONS} the tree stops
+ * paying off and queries fall back to a brute-force scan written so the JIT
+ * can vectorize the distance loop.</p>
+ */
+public class SimilarityIndex {
+    /**
+     * Highest dimension count that is served by the KD-tree.
+     */
+    public static final int KD_TREE_MAX_DIMENSIONS = 12;
+
+    private static final int STAT_DIMENSIONS = 6;
+    private static final int LEAF_SIZE = 8;
+    private static final int QUERIES_PER_TASK = 64;
+
+    private final int rowCount;
+    private final int dimensions;
+    private final float[] vectors;
+    private final int[] order;
+    private final byte[] splitDimension;
+    private final boolean useTree;
+
+    /**
+     * Builds an index over a stat table.
+     *
+     * @param table        source table
+     * @param includeTypes true to add the type effectiveness multipliers
+     */
+    public SimilarityIndex(PokemonStatTable table, boolean includeTypes) {
+        this.rowCount = table.getRowCount();
+        this.dimensions = STAT_DIMENSIONS + (includeTypes ? PokemonTypes.TYPE_COUNT : 0);
+        this.vectors = new float[rowCount * dimensions];
+
+        for (int row = 0; row < rowCount; row++) {
+            int base = row * dimensions;
+            vectors[base] = table.getHp(row);
+            vectors[base + 1] = table.getAttack(row);
+            vectors[base + 2] = table.getDefense(row);
+            vectors[base + 3] = table.getSpAttack(row);
+            vectors[base + 4] = table.getSpDefense(row);
+            vectors[base + 5] = table.getSpeed(row);
+            if (includeTypes) {
+                for (int t = 0; t < PokemonTypes.TYPE_COUNT; t++) {
+                    vectors[base + STAT_DIMENSIONS + t] = table.getAgainst(row, t);
+                }
+            }
+        }
+        normalize();
+
+        this.order = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            order[i] = i;
+        }
+        this.splitDimension = new byte[rowCount];
+        this.useTree = dimensions <= KD_TREE_MAX_DIMENSIONS;
+        if (useTree) {
+            buildTree(0, rowCount);
+        }
+    }
+
+    /**
+     * Scales every dimension to [0, 1]; constant dimensions become 0.
+     */
+    private void normalize() {
+        for (int d = 0; d < dimensions; d++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = d; i < vectors.length; i += dimensions) {
+                min = Math.min(min, vectors[i]);
+                max = Math.max(max, vectors[i]);
+            }
+            float span = max - min;
+            for (int i = d; i < vectors.length; i += dimensions) {
+                vectors[i] = span > 0 ? (vectors[i] - min) / span : 0f;
+            }
+        }
+    }
+
+    /**
+     * Builds the KD-tree over order[from, to). The median of each range is
+     * the node and remembers the dimension it splits on.
+     *
+     * @param from first position inclusive
+     * @param to   last position exclusive
+     */
+    private void buildTree(int from, int to) {
+        if (to - from <= LEAF_SIZE) {
+            return;
+        }
+        int dimension = widestDimension(from, to);
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, dimension);
+        splitDimension[mid] = (byte) dimension;
+        buildTree(from, mid);
+        buildTree(mid + 1, to);
+    }
+
+    /**
+     * Finds the dimension with the largest spread in a range.
+     *
+     * @param from first position inclusive
+     * @param to   last position exclusive
+     * @return dimension index
+     */
+    private int widestDimension(int from, int to) {
+        int best = 0;
+        float bestSpread = -1f;
+        for (int d = 0; d < dimensions; d++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                float value = vectors[order[i] * dimensions + d];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > bestSpread) {
+                bestSpread = max - min;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Quickselect so that order[k] holds the k-th smallest value along a
+     * dimension, with smaller values before it and larger after.
+     *
+     * @param left      first position inclusive
+     * @param right     last position inclusive
+     * @param k         target position
+     * @param dimension dimension to compare
+     */
+    private void select(int left, int right, int k, int dimension) {
+        while (left < right) {
+            float pivot = coordinate(order[(left + right) >>> 1], dimension);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinate(order[i], dimension) < pivot) {
+                    i++;
+                }
+                while (coordinate(order[j], dimension) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns one coordinate of a row's vector.
+     *
+     * @param row       row id
+     * @param dimension dimension index
+     * @return normalized value
+     */
+    private float coordinate(int row, int dimension) {
+        return vectors[row * dimensions + dimension];
+    }
+
+    /**
+     * Returns the number of dimensions per vector.
+     *
+     * @return dimensions
+     */
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Returns whether queries use the KD-tree rather than a full scan.
+     *
+     * @return true when the tree is used
+     */
+    public boolean usesTree() {
+        return useTree;
+    }
+
+    /**
+     * Returns the squared Euclidean distance between two rows.
+     *
+     * @param a first row
+     * @param b second row
+     * @return squared distance in normalized space
+     */
+    public float distance(int a, int b) {
+        return squaredDistance(a * dimensions, b * dimensions);
+    }
+
+    /**
+     * Squared distance between two packed vectors.
+     *
+     * @param a offset of the first vector
+     * @param b offset of the second vector
+     * @return squared distance
+     */
+    private float squaredDistance(int a, int b) {
+        float sum = 0f;
+        for (int d = 0; d < dimensions; d++) {
+            float diff = vectors[a + d] - vectors[b + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the rows most similar to a row, excluding the row itself.
+     *
+     * @param row row id to compare against
+     * @param k   number of neighbours
+     * @return neighbour row ids, nearest first; ties go to the lower row id
+     */
+    public int[] nearest(int row, int k) {
+        if (row < 0 || row >= rowCount) {
+            throw new IllegalArgumentException("Row out of range: " + row);
+        }
+        Neighbors neighbors = new Neighbors(Math.max(0, Math.min(k, rowCount - 1)));
+        if (neighbors.capacity == 0) {
+            return new int[0];
+        }
+        if (useTree) {
+            searchTree(0, rowCount, row, neighbors);
+        } else {
+            int query = row * dimensions;
+            for (int candidate = 0; candidate < rowCount; candidate++) {
+                if (candidate != row) {
+                    neighbors.offer(candidate, squaredDistance(query, candidate * dimensions));
+                }
+            }
+        }
+        return neighbors.sortedIds();
+    }
+
+    /**
+     * Answers many queries in parallel.
+     *
+     * @param rows row ids to query
+     * @param k    neighbours per query
+     * @param pool pool to run on
+     * @return one neighbour array per query, in query order
+     */
+    public int[][] nearestBatch(int[] rows, int k, ForkJoinPool pool) {
+        int[][] results = new int[rows.length][];
+        if (rows.length > 0) {
+            pool.invoke(new BatchTask(rows, k, results, 0, rows.length));
+        }
+        return results;
+    }
+
+    /**
+     * Visits the subtree over order[from, to), nearer side first.
+     *
+     * @param from      first position inclusive
+     * @param to        last position exclusive
+     * @param query     query row id
+     * @param neighbors best candidates so far
+     */
+    private void searchTree(int from, int to, int query, Neighbors neighbors) {
+        int queryBase = query * dimensions;
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                int candidate = order[i];
+                if (candidate != query) {
+                    neighbors.offer(candidate, squaredDistance(queryBase, candidate * dimensions));
+                }
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        int node = order[mid];
+        if (node != query) {
+            neighbors.offer(node, squaredDistance(queryBase, node * dimensions));
+        }
+
+        int dimension = splitDimension[mid];
+        float delta = vectors[queryBase + dimension] - coordinate(node, dimension);
+        if (delta < 0) {
+            searchTree(from, mid, query, neighbors);
+            if (delta * delta <= neighbors.worst()) {
+                searchTree(mid + 1, to, query, neighbors);
+            }
+        } else {
+            searchTree(mid + 1, to, query, neighbors);
+            if (delta * delta <= neighbors.worst()) {
+                searchTree(from, mid, query, neighbors);
+            }
+        }
+    }
+
+    /**
+     * Bounded max-heap of the best k candidates on primitive arrays.
+     */
+    private static final class Neighbors {
+        private final int capacity;
+        private final int[] ids;
+        private final float[] distances;
+        private int size;
+
+        /**
+         * Creates an empty heap.
+         *
+         * @param capacity maximum neighbours kept
+         */
+        Neighbors(int capacity) {
+            this.capacity = capacity;
+            this.ids = new int[capacity];
+            this.distances = new float[capacity];
+        }
+
+        /**
+         * Returns the distance a candidate must beat to be kept.
+         *
+         * @return worst kept distance, or infinity while not full
+         */
+        float worst() {
+            return size < capacity ? Float.POSITIVE_INFINITY : distances[0];
+        }
+
+        /**
+         * Offers a candidate.
+         *
+         * @param id       row id
+         * @param distance squared distance
+         */
+        void offer(int id, float distance) {
+            if (size < capacity) {
+                ids[size] = id;
+                distances[size] = distance;
+                siftUp(size++);
+            } else if (worse(ids[0], distances[0], id, distance)) {
+                ids[0] = id;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Orders two candidates by distance, then by row id.
+         *
+         * @param idA       first id
+         * @param distanceA first distance
+         * @param idB       second id
+         * @param distanceB second distance
+         * @return true if the first candidate ranks after the second
+         */
+        private static boolean worse(int idA, float distanceA, int idB, float distanceB) {
+            return distanceA != distanceB ? distanceA > distanceB : idA > idB;
+        }
+
+        /**
+         * Restores the heap upward from a slot.
+         *
+         * @param slot slot index
+         */
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (!worse(ids[slot], distances[slot], ids[parent], distances[parent])) {
+                    return;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        /**
+         * Restores the heap downward from a slot.
+         *
+         * @param slot slot index
+         */
+        private void siftDown(int slot) {
+            while (true) {
+                int largest = slot;
+                int left = 2 * slot + 1;
+                int right = left + 1;
+                if (left < size && worse(ids[left], distances[left], ids[largest], distances[largest])) {
+                    largest = left;
+                }
+                if (right < size && worse(ids[right], distances[right], ids[largest], distances[largest])) {
+                    largest = right;
+                }
+                if (largest == slot) {
+                    return;
+                }
+                swap(slot, largest);
+                slot = largest;
+            }
+        }
+
+        /**
+         * Swaps two heap slots.
+         *
+         * @param a first slot
+         * @param b second slot
+         */
+        private void swap(int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            float distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+
+        /**
+         * Drains the heap into nearest-first order.
+         *
+         * @return sorted row ids
+         */
+        int[] sortedIds() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = ids[0];
+                size--;
+                ids[0] = ids[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Answers a block of batch queries.
+     */
+    private final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] rows;
+        private final int k;
+        private final int[][] results;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a task for a block of queries.
+         *
+         * @param rows    query rows
+         * @param k       neighbours per query
+         * @param results output slots
+         * @param from    first query inclusive
+         * @param to      last query exclusive
+         */
+        BatchTask(int[] rows, int k, int[][] results, int from, int to) {
+            this.rows = rows;
+            this.k = k;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > QUERIES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BatchTask(rows, k, results, from, mid), new BatchTask(rows, k, results, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                results[i] = nearest(rows[i], k);
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Skyline (Pareto frontier) queries over any subset of the numeric stat
+ * columns: the rows that no other row matches or beats in every chosen stat
+ * while beating them in at least one. Higher is better in every stat.
+ *
+ * <p>Uses sort-filter-skyline. Rows are ordered by the sum of their chosen
+ * stats, highest first, with the packed-key radix sort of
+ * {@link CharacterSortKeys}. A row can only be dominated by a row with a
+ * larger sum, so each row is compared with the skyline found so far and is
+ * final as soon as it survives. With a pool, the rows are split into ranges
+ * whose skylines are computed in parallel and then merged by running the
+ * same filter over their union.</p>
+ */
+public class SkylineQuery {
+    private static final int ROWS_PER_TASK = 1 << 16;
+
+    /**
+     * Stats a skyline can be computed over.
+     */
+    public enum Stat {
+        HP("hp"),
+        ATTACK("attack"),
+        DEFENSE("defense"),
+        SP_ATTACK("sp_attack"),
+        SP_DEFENSE("sp_defense"),
+        SPEED("speed"),
+        BASE_TOTAL("base_total");
+
+        private final String columnName;
+
+        Stat(String columnName) {
+            this.columnName = columnName;
+        }
+
+        /**
+         * Returns the CSV column of the stat.
+         *
+         * @return column name
+         */
+        public String getColumnName() {
+            return columnName;
+        }
+
+        /**
+         * Reads the stat of a row.
+         *
+         * @param table stat table
+         * @param row   row id
+         * @return value
+         */
+        int valueOf(PokemonStatTable table, int row) {
+            switch (this) {
+                case HP:
+                    return table.getHp(row);
+                case ATTACK:
+                    return table.getAttack(row);
+                case DEFENSE:
+                    return table.getDefense(row);
+                case SP_ATTACK:
+                    return table.getSpAttack(row);
+                case SP_DEFENSE:
+                    return table.getSpDefense(row);
+                case SPEED:
+                    return table.getSpeed(row);
+                default:
+                    return table.getBaseTotal(row);
+            }
+        }
+    }
+
+    private final PokemonStatTable table;
+
+    /**
+     * Creates a query engine over a stat table.
+     *
+     * @param table source table
+     */
+    public SkylineQuery(PokemonStatTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Computes a skyline on the calling thread.
+     *
+     * @param stats stats to compare, at least one
+     * @return row ids of the skyline, ascending
+     */
+    public int[] skyline(List<Stat> stats) {
+        return skyline(stats, null);
+    }
+
+    /**
+     * Computes a skyline, splitting large tables across a pool.
+     *
+     * @param stats stats to compare, at least one
+     * @param pool  pool for parallel ranges, or null to run on the calling thread
+     * @return row ids of the skyline, ascending
+     */
+    public int[] skyline(List<Stat> stats, ForkJoinPool pool) {
+        int rows = table.getRowCount();
+        if (stats == null || stats.isEmpty() || rows == 0) {
+            return new int[0];
+        }
+        int dimensions = stats.size();
+        int[] values = new int[rows * dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            Stat stat = stats.get(d);
+            for (int row = 0; row < rows; row++) {
+                values[row * dimensions + d] = stat.valueOf(table, row);
+            }
+        }
+
+        int[] result;
+        if (pool == null || rows <= ROWS_PER_TASK) {
+            int[] all = new int[rows];
+            for (int row = 0; row < rows; row++) {
+                all[row] = row;
+            }
+            result = sortFilter(values, dimensions, all);
+        } else {
+            result = pool.invoke(new RangeTask(values, dimensions, 0, rows));
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Formats skyline rows with the stats they were compared on.
+     *
+     * @param rows  skyline row ids
+     * @param stats stats the skyline was computed over
+     * @return printable lines, one per row
+     */
+    public List<String> formatDetails(int[] rows, List<Stat> stats) {
+        List<String> lines = new ArrayList<>();
+        for (int row : rows) {
+            StringBuilder line = new StringBuilder(table.getName(row));
+            for (Stat stat : stats) {
+                line.append(" | ").append(stat.getColumnName()).append(": ").append(stat.valueOf(table, row));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Runs sort-filter-skyline over some rows.
+     *
+     * @param values     stat values, row-major
+     * @param dimensions stats per row
+     * @param rows       candidate row ids
+     * @return row ids of the candidates' skyline
+     */
+    private static int[] sortFilter(int[] values, int dimensions, int[] rows) {
+        int count = rows.length;
+        long[] keys = new long[count];
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            long sum = 0;
+            int base = rows[i] * dimensions;
+            for (int d = 0; d < dimensions; d++) {
+                sum += values[base + d];
+            }
+            // Unsigned ascending keys give descending signed sums
+            keys[i] = ~(sum ^ Long.MIN_VALUE);
+            order[i] = rows[i];
+        }
+        CharacterSortKeys.radixSort(keys, order);
+
+        int[] window = new int[Math.min(count, 64) * dimensions];
+        int[] skyline = new int[Math.min(count, 64)];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int row = order[i];
+            int base = row * dimensions;
+            boolean dominated = false;
+            for (int s = 0; s < size && !dominated; s++) {
+                dominated = dominates(window, s * dimensions, values, base, dimensions);
+            }
+            if (dominated) {
+                continue;
+            }
+            if (size == skyline.length) {
+                skyline = Arrays.copyOf(skyline, size * 2);
+                window = Arrays.copyOf(window, size * 2 * dimensions);
+            }
+            System.arraycopy(values, base, window, size * dimensions, dimensions);
+            skyline[size++] = row;
+        }
+        return Arrays.copyOf(skyline, size);
+    }
+
+    /**
+     * Checks whether one point dominates another: at least as high in every
+     * dimension and higher in one.
+     *
+     * @param a          array holding the first point
+     * @param aBase      offset of the first point
+     * @param b          array holding the second point
+     * @param bBase      offset of the second point
+     * @param dimensions values per point
+     * @return true if the first point dominates the second
+     */
+    private static boolean dominates(int[] a, int aBase, int[] b, int bBase, int dimensions) {
+        boolean better = false;
+        for (int d = 0; d < dimensions; d++) {
+            int x = a[aBase + d];
+            int y = b[bBase + d];
+            if (x < y) {
+                return false;
+            }
+            better |= x > y;
+        }
+        return better;
+    }
+
+    /**
+     * Computes the skyline of a row range, splitting large ranges in two
+     * and filtering the union of the halves' skylines.
+     */
+    private static final class RangeTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] values;
+        private final int dimensions;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a task.
+         *
+         * @param values     stat values, row-major
+         * @param dimensions stats per row
+         * @param from       first row inclusive
+         * @param to         last row exclusive
+         */
+        RangeTask(int[] values, int dimensions, int from, int to) {
+            this.values = values;
+            this.dimensions = dimensions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                int[] rows = new int[to - from];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = from + i;
+                }
+                return sortFilter(values, dimensions, rows);
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask left = new RangeTask(values, dimensions, from, mid);
+            left.fork();
+            int[] right = new RangeTask(values, dimensions, mid, to).compute();
+            int[] leftSkyline = left.join();
+
+            int[] union = Arrays.copyOf(leftSkyline, leftSkyline.length + right.length);
+            System.arraycopy(right, 0, union, leftSkyline.length, right.length);
+            return sortFilter(values, dimensions, union);
+        }
+    }
+}
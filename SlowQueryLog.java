@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer of queries that took longer than a threshold. Once
+ * full, each new slow query overwrites the oldest one, so the log always
+ * holds the most recent slow queries and never grows. Safe for concurrent
+ * use; the threshold can be changed while queries run.
+ */
+public final class SlowQueryLog {
+    /**
+     * Entries kept when no capacity is given.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Threshold used when none is given.
+     */
+    public static final long DEFAULT_THRESHOLD_NANOS = 1_000_000L;
+
+    private final QueryProfile[] entries;
+    private volatile long thresholdNanos;
+    private int next;
+    private long recorded;
+
+    /**
+     * Creates a log with the default capacity and threshold.
+     */
+    public SlowQueryLog() {
+        this(DEFAULT_CAPACITY, DEFAULT_THRESHOLD_NANOS);
+    }
+
+    /**
+     * Creates a log.
+     *
+     * @param capacity       entries kept, at least 1
+     * @param thresholdNanos minimum elapsed time of a logged query
+     */
+    public SlowQueryLog(int capacity, long thresholdNanos) {
+        this.entries = new QueryProfile[Math.max(1, capacity)];
+        this.thresholdNanos = Math.max(0, thresholdNanos);
+    }
+
+    /**
+     * Returns the current threshold.
+     *
+     * @return nanoseconds
+     */
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * Changes the threshold.
+     *
+     * @param nanos minimum elapsed time of a logged query
+     */
+    public void setThresholdNanos(long nanos) {
+        thresholdNanos = Math.max(0, nanos);
+    }
+
+    /**
+     * Returns whether a query of this duration would be logged. Callers check
+     * this before building a description so fast queries cost nothing extra.
+     *
+     * @param elapsedNanos query duration
+     * @return true if at or above the threshold
+     */
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * Logs a finished query if it was slow.
+     *
+     * @param profile finished profile
+     * @return true if the profile was logged
+     */
+    public boolean offer(QueryProfile profile) {
+        if (!isSlow(profile.getTotalNanos())) {
+            return false;
+        }
+        synchronized (this) {
+            entries[next] = profile;
+            next = (next + 1) % entries.length;
+            recorded++;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the total number of slow queries seen, including overwritten ones.
+     *
+     * @return count
+     */
+    public synchronized long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * Returns the logged queries, oldest first.
+     *
+     * @return snapshot of the buffer
+     */
+    public synchronized List<QueryProfile> snapshot() {
+        List<QueryProfile> result = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            QueryProfile profile = entries[(next + i) % entries.length];
+            if (profile != null) {
+                result.add(profile);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the logged queries, oldest first, and empties the buffer.
+     *
+     * @return drained entries
+     */
+    public synchronized List<QueryProfile> drain() {
+        List<QueryProfile> result = snapshot();
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        next = 0;
+        return result;
+    }
+
+    /**
+     * Formats every logged query, oldest first.
+     *
+     * @return printable lines
+     */
+    public List<String> formatDetails() {
+        List<String> lines = new ArrayList<>();
+        List<QueryProfile> profiles = snapshot();
+        lines.add("Slow queries (threshold " + (thresholdNanos / 1_000) + " us): " + profiles.size()
+                + " kept, " + getRecordedCount() + " recorded");
+        for (QueryProfile profile : profiles) {
+            lines.addAll(profile.formatDetails());
+        }
+        return lines;
+    }
+}
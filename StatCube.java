@@ -0,0 +1,505 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pre-aggregated count, sum, minimum and maximum of HP, speed and base total
+ * for every combination of type1, type2, generation and legendary status.
+ *
+ * <p>The cube is built in one pass over a stat table and is immutable
+ * afterwards. Any group-by over the four dimensions, and any slice of them,
+ * is answered from the cells alone, so its cost depends on the number of
+ * cells (a few thousand) and never on the number of rows. Cubes of separate
+ * row sets merge by adding cells, which is how a dataset combines its
+ * shards' cubes and how a reload reuses the cubes of unchanged files.</p>
+ */
+public final class StatCube {
+    /**
+     * Dimension value of a group that was rolled up over that dimension.
+     */
+    public static final int ALL = Integer.MIN_VALUE;
+
+    // Generations above this share cell 0 with blank ones
+    private static final int MAX_GENERATION = 255;
+    private static final int TYPE_SLOTS = PokemonTypes.TYPE_COUNT + 1;
+    private static final int MEASURES = Measure.values().length;
+
+    /**
+     * Dimensions the cube is grouped by.
+     */
+    public enum Dimension {
+        TYPE1,
+        TYPE2,
+        GENERATION,
+        LEGENDARY
+    }
+
+    /**
+     * Stats aggregated in every cell.
+     */
+    public enum Measure {
+        HP,
+        SPEED,
+        BASE_TOTAL
+    }
+
+    private final int generations;
+    private final long[] counts;
+    private final long[] sums;
+    private final int[] minimums;
+    private final int[] maximums;
+    private final String source;
+
+    /**
+     * Creates an empty cube.
+     *
+     * @param generations generation slots, including slot 0 for blank
+     * @param source      fingerprint of the file the cube was built from, or null
+     */
+    private StatCube(int generations, String source) {
+        int cells = generations * 2 * TYPE_SLOTS * TYPE_SLOTS;
+        this.generations = generations;
+        this.counts = new long[cells];
+        this.sums = new long[cells * MEASURES];
+        this.minimums = new int[cells * MEASURES];
+        this.maximums = new int[cells * MEASURES];
+        this.source = source;
+        Arrays.fill(minimums, Integer.MAX_VALUE);
+        Arrays.fill(maximums, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Creates a cube that shares another cube's cells under a new source.
+     * Cells are never written after a cube is built, so sharing is safe.
+     *
+     * @param cells  cube whose cells are shared
+     * @param source fingerprint of the file the cells were built from, or null
+     */
+    private StatCube(StatCube cells, String source) {
+        this.generations = cells.generations;
+        this.counts = cells.counts;
+        this.sums = cells.sums;
+        this.minimums = cells.minimums;
+        this.maximums = cells.maximums;
+        this.source = source;
+    }
+
+    /**
+     * Aggregates every row of a table.
+     *
+     * @param table stat table
+     * @return new cube
+     */
+    public static StatCube of(PokemonStatTable table) {
+        return of(table, null);
+    }
+
+    /**
+     * Aggregates every row of a table read from one file, remembering the
+     * file's fingerprint so a reload can tell whether the cube is still valid.
+     *
+     * @param table  stat table
+     * @param source fingerprint from {@link #fingerprint}, or null
+     * @return new cube
+     */
+    static StatCube of(PokemonStatTable table, String source) {
+        int rows = table.getRowCount();
+        int highest = 0;
+        for (int row = 0; row < rows; row++) {
+            highest = Math.max(highest, generationSlot(table.getGeneration(row)));
+        }
+        StatCube cube = new StatCube(highest + 1, source);
+        for (int row = 0; row < rows; row++) {
+            int cell = cube.cellOf(table.getType1(row), table.getType2(row),
+                    generationSlot(table.getGeneration(row)), table.isLegendary(row) ? 1 : 0);
+            cube.counts[cell]++;
+            cube.accumulate(cell, Measure.HP, table.getHp(row));
+            cube.accumulate(cell, Measure.SPEED, table.getSpeed(row));
+            cube.accumulate(cell, Measure.BASE_TOTAL, table.getBaseTotal(row));
+        }
+        return cube;
+    }
+
+    /**
+     * Adds cubes of disjoint row sets into one.
+     *
+     * @param parts cubes to add
+     * @return merged cube
+     */
+    public static StatCube merge(List<StatCube> parts) {
+        int generations = 1;
+        for (StatCube part : parts) {
+            generations = Math.max(generations, part.generations);
+        }
+        StatCube merged = new StatCube(generations, null);
+        // Generation is the outermost index, so smaller cubes align with a prefix
+        for (StatCube part : parts) {
+            for (int cell = 0; cell < part.counts.length; cell++) {
+                if (part.counts[cell] == 0) {
+                    continue;
+                }
+                merged.counts[cell] += part.counts[cell];
+                for (int m = 0; m < MEASURES; m++) {
+                    int at = cell * MEASURES + m;
+                    merged.sums[at] += part.sums[at];
+                    merged.minimums[at] = Math.min(merged.minimums[at], part.minimums[at]);
+                    merged.maximums[at] = Math.max(merged.maximums[at], part.maximums[at]);
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Identifies the current contents of a file by path, size and
+     * modification time.
+     *
+     * @param fileName file path
+     * @return fingerprint, or null if the file does not exist
+     */
+    static String fingerprint(String fileName) {
+        File file = new File(fileName.trim());
+        if (!file.isFile()) {
+            return null;
+        }
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+
+    /**
+     * Returns this cube's cells tagged with the fingerprint of the file they
+     * were built from, without copying them.
+     *
+     * @param fingerprint fingerprint from {@link #fingerprint}, or null
+     * @return cube sharing this cube's cells
+     */
+    StatCube withSource(String fingerprint) {
+        return new StatCube(this, fingerprint);
+    }
+
+    /**
+     * Returns the fingerprint of the file this cube was built from.
+     *
+     * @return fingerprint, or null for merged cubes
+     */
+    String getSource() {
+        return source;
+    }
+
+    /**
+     * Maps a generation to its slot.
+     *
+     * @param generation parsed generation
+     * @return slot, 0 for blank or out-of-range values
+     */
+    private static int generationSlot(int generation) {
+        return generation < 0 || generation > MAX_GENERATION ? 0 : generation;
+    }
+
+    /**
+     * Returns the cell of a combination of dimension values.
+     *
+     * @param type1      primary type id
+     * @param type2      secondary type id, or {@link PokemonTypes#NO_TYPE}
+     * @param generation generation slot
+     * @param legendary  1 if legendary, else 0
+     * @return cell index
+     */
+    private int cellOf(int type1, int type2, int generation, int legendary) {
+        return ((generation * 2 + legendary) * TYPE_SLOTS + typeSlot(type2)) * TYPE_SLOTS + typeSlot(type1);
+    }
+
+    /**
+     * Maps a type id to its slot; slot 0 holds rows without the type.
+     *
+     * @param type type id
+     * @return slot
+     */
+    private static int typeSlot(int type) {
+        return type < 0 || type >= PokemonTypes.TYPE_COUNT ? 0 : type + 1;
+    }
+
+    /**
+     * Adds one value to a cell's measure.
+     *
+     * @param cell    cell index
+     * @param measure measure
+     * @param value   value
+     */
+    private void accumulate(int cell, Measure measure, int value) {
+        int at = cell * MEASURES + measure.ordinal();
+        sums[at] += value;
+        minimums[at] = Math.min(minimums[at], value);
+        maximums[at] = Math.max(maximums[at], value);
+    }
+
+    /**
+     * Returns the value of one dimension for a cell.
+     *
+     * @param cell      cell index
+     * @param dimension dimension
+     * @return type id, generation or legendary flag
+     */
+    private static int valueOf(int cell, Dimension dimension) {
+        switch (dimension) {
+            case TYPE1:
+                return cell % TYPE_SLOTS - 1;
+            case TYPE2:
+                return cell / TYPE_SLOTS % TYPE_SLOTS - 1;
+            case GENERATION:
+                return cell / (TYPE_SLOTS * TYPE_SLOTS) / 2;
+            default:
+                return cell / (TYPE_SLOTS * TYPE_SLOTS) % 2;
+        }
+    }
+
+    /**
+     * Returns the slot of a dimension value within its dimension.
+     *
+     * @param dimension dimension
+     * @param value     type id, generation or legendary flag
+     * @return slot from 0
+     */
+    private static int slotOf(Dimension dimension, int value) {
+        return dimension == Dimension.TYPE1 || dimension == Dimension.TYPE2 ? value + 1 : value;
+    }
+
+    /**
+     * Returns the number of slots of a dimension.
+     *
+     * @param dimension dimension
+     * @return slot count
+     */
+    private int sizeOf(Dimension dimension) {
+        switch (dimension) {
+            case TYPE1:
+            case TYPE2:
+                return TYPE_SLOTS;
+            case GENERATION:
+                return generations;
+            default:
+                return 2;
+        }
+    }
+
+    /**
+     * Keeps only the cells with one value of a dimension. Slicing twice
+     * drills down through several dimensions.
+     *
+     * @param dimension dimension to fix
+     * @param value     type id ({@link PokemonTypes#NO_TYPE} for none),
+     *                  generation (0 for blank) or legendary flag (0 or 1)
+     * @return new cube with the other cells empty
+     */
+    public StatCube slice(Dimension dimension, int value) {
+        StatCube sliced = new StatCube(generations, null);
+        for (int cell = 0; cell < counts.length; cell++) {
+            if (counts[cell] == 0 || valueOf(cell, dimension) != value) {
+                continue;
+            }
+            sliced.counts[cell] = counts[cell];
+            int from = cell * MEASURES;
+            System.arraycopy(sums, from, sliced.sums, from, MEASURES);
+            System.arraycopy(minimums, from, sliced.minimums, from, MEASURES);
+            System.arraycopy(maximums, from, sliced.maximums, from, MEASURES);
+        }
+        return sliced;
+    }
+
+    /**
+     * Rolls the cube up to the given dimensions. Dimensions not listed are
+     * aggregated away; listing none gives the single grand total.
+     *
+     * @param dimensions dimensions to keep, outermost first
+     * @return non-empty groups, ordered by the listed dimensions with
+     *         missing types and blank generations first
+     */
+    public List<Group> groupBy(Dimension... dimensions) {
+        int groupCount = 1;
+        for (Dimension dimension : dimensions) {
+            groupCount *= sizeOf(dimension);
+        }
+        long[] groupCounts = new long[groupCount];
+        long[] groupSums = new long[groupCount * MEASURES];
+        int[] groupMinimums = new int[groupCount * MEASURES];
+        int[] groupMaximums = new int[groupCount * MEASURES];
+        Arrays.fill(groupMinimums, Integer.MAX_VALUE);
+        Arrays.fill(groupMaximums, Integer.MIN_VALUE);
+
+        int[] representative = new int[groupCount];
+        for (int cell = 0; cell < counts.length; cell++) {
+            if (counts[cell] == 0) {
+                continue;
+            }
+            int group = 0;
+            for (Dimension dimension : dimensions) {
+                group = group * sizeOf(dimension) + slotOf(dimension, valueOf(cell, dimension));
+            }
+            representative[group] = cell;
+            groupCounts[group] += counts[cell];
+            for (int m = 0; m < MEASURES; m++) {
+                int from = cell * MEASURES + m;
+                int to = group * MEASURES + m;
+                groupSums[to] += sums[from];
+                groupMinimums[to] = Math.min(groupMinimums[to], minimums[from]);
+                groupMaximums[to] = Math.max(groupMaximums[to], maximums[from]);
+            }
+        }
+
+        List<Group> groups = new ArrayList<>();
+        for (int group = 0; group < groupCount; group++) {
+            if (groupCounts[group] == 0) {
+                continue;
+            }
+            int[] key = {ALL, ALL, ALL, ALL};
+            for (Dimension dimension : dimensions) {
+                key[dimension.ordinal()] = valueOf(representative[group], dimension);
+            }
+            int from = group * MEASURES;
+            groups.add(new Group(key, groupCounts[group],
+                    Arrays.copyOfRange(groupSums, from, from + MEASURES),
+                    Arrays.copyOfRange(groupMinimums, from, from + MEASURES),
+                    Arrays.copyOfRange(groupMaximums, from, from + MEASURES)));
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the aggregate over every row.
+     *
+     * @return grand total, with a count of 0 for an empty cube
+     */
+    public Group total() {
+        List<Group> groups = groupBy();
+        return groups.isEmpty() ? new Group(new int[] {ALL, ALL, ALL, ALL}, 0, new long[MEASURES],
+                new int[MEASURES], new int[MEASURES]) : groups.get(0);
+    }
+
+    /**
+     * Formats groups as one line each.
+     *
+     * @param groups groups from {@link #groupBy}
+     * @return printable lines
+     */
+    public static List<String> formatDetails(List<Group> groups) {
+        List<String> lines = new ArrayList<>();
+        for (Group group : groups) {
+            lines.add(group.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Aggregates of one group of a roll-up.
+     */
+    public static final class Group {
+        private final int[] key;
+        private final long count;
+        private final long[] sums;
+        private final int[] minimums;
+        private final int[] maximums;
+
+        /**
+         * Creates a group.
+         *
+         * @param key      value per dimension, {@link #ALL} when rolled up
+         * @param count    rows in the group
+         * @param sums     sum per measure
+         * @param minimums minimum per measure
+         * @param maximums maximum per measure
+         */
+        private Group(int[] key, long count, long[] sums, int[] minimums, int[] maximums) {
+            this.key = key;
+            this.count = count;
+            this.sums = sums;
+            this.minimums = minimums;
+            this.maximums = maximums;
+        }
+
+        /**
+         * Returns the group's value of a dimension.
+         *
+         * @param dimension dimension
+         * @return type id, generation or legendary flag, or {@link #ALL}
+         */
+        public int getValue(Dimension dimension) {
+            return key[dimension.ordinal()];
+        }
+
+        /**
+         * Returns the number of rows in the group.
+         *
+         * @return row count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of a measure.
+         *
+         * @param measure measure
+         * @return sum
+         */
+        public long getSum(Measure measure) {
+            return sums[measure.ordinal()];
+        }
+
+        /**
+         * Returns the average of a measure.
+         *
+         * @param measure measure
+         * @return average, or NaN for an empty group
+         */
+        public double getAverage(Measure measure) {
+            return count == 0 ? Double.NaN : (double) sums[measure.ordinal()] / count;
+        }
+
+        /**
+         * Returns the minimum of a measure.
+         *
+         * @param measure measure
+         * @return minimum
+         */
+        public int getMin(Measure measure) {
+            return minimums[measure.ordinal()];
+        }
+
+        /**
+         * Returns the maximum of a measure.
+         *
+         * @param measure measure
+         * @return maximum
+         */
+        public int getMax(Measure measure) {
+            return maximums[measure.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder();
+            for (Dimension dimension : Dimension.values()) {
+                int value = key[dimension.ordinal()];
+                if (value == ALL) {
+                    continue;
+                }
+                if (line.length() > 0) {
+                    line.append(", ");
+                }
+                line.append(dimension.name().toLowerCase()).append(": ");
+                if (dimension == Dimension.TYPE1 || dimension == Dimension.TYPE2) {
+                    line.append(value == PokemonTypes.NO_TYPE ? "none" : PokemonTypes.nameOf(value));
+                } else {
+                    line.append(value);
+                }
+            }
+            line.append(line.length() > 0 ? " | " : "all | ").append("count: ").append(count);
+            for (Measure measure : Measure.values()) {
+                line.append(" | ").append(measure.name().toLowerCase())
+                        .append(String.format(" avg %.1f min %d max %d", getAverage(measure),
+                                getMin(measure), getMax(measure)));
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,573 @@
+import java.util.Arrays;
+
+/**
+ * Rank and percentile index over one stat, overall and within each primary
+ * type.
+ *
+ * <p>Stats have small bounded domains, so the index keeps a Fenwick tree of
+ * value counts over the domain instead of sorted rows: counting, ranking
+ * and finding the k-th smallest value take O(log V) for a domain of V
+ * values, and changing a row's value or type costs two tree updates. The
+ * domain starts at the dataset's extrema, such as
+ * {@link PokemonDataset#getMinHp()} and {@link PokemonDataset#getMaxHp()},
+ * and is widened when an update falls outside it. After updates,
+ * {@link #getMin} and {@link #getMax} keep those extrema current.</p>
+ *
+ * <p>The domain is a sorted array of values. While it spans at most
+ * {@link #MAX_DENSE_DOMAIN} values it holds every value in its range, and a
+ * value's tree position is its offset from the lowest one. An outlier that
+ * would stretch it further switches the index to the distinct values that
+ * are actually present, found by binary search, so memory stays bounded by
+ * the row count whatever the values are. Widening rebuilds the trees in
+ * linear time, and the index only changes once the new trees are built.</p>
+ *
+ * <p>Rows are the row ids of the {@link PokemonStatTable} the index was
+ * built from; {@link #add} appends new ones. Methods are synchronized, so
+ * one index can be queried and updated from several threads.</p>
+ */
+public class StatRankIndex {
+    /**
+     * Largest range of values kept as a dense domain.
+     */
+    public static final int MAX_DENSE_DOMAIN = 1 << 16;
+
+    private static final int INITIAL_ROWS = 16;
+
+    private final SkylineQuery.Stat stat;
+    private int[] domain;
+    private boolean dense;
+    private Fenwick overall;
+    private Fenwick[] byType;
+    private int[] values;
+    private byte[] types;
+    private boolean[] present;
+    private int rowCount;
+
+    /**
+     * Builds an index over a stat table.
+     *
+     * @param table    source table
+     * @param stat     stat to index
+     * @param minValue lowest expected value, usually the tracked minimum
+     * @param maxValue highest expected value, usually the tracked maximum
+     */
+    public StatRankIndex(PokemonStatTable table, SkylineQuery.Stat stat, int minValue, int maxValue) {
+        this.stat = stat;
+        this.rowCount = table.getRowCount();
+        this.values = new int[Math.max(INITIAL_ROWS, rowCount)];
+        this.types = new byte[values.length];
+        this.present = new boolean[values.length];
+
+        int lowest = minValue;
+        int highest = maxValue;
+        for (int row = 0; row < rowCount; row++) {
+            values[row] = stat.valueOf(table, row);
+            types[row] = (byte) table.getType1(row);
+            present[row] = true;
+            lowest = Math.min(lowest, values[row]);
+            highest = Math.max(highest, values[row]);
+        }
+        if (lowest > highest) {
+            lowest = 0;
+            highest = 0;
+        }
+        rebuild(domainFor(lowest, highest, lowest));
+    }
+
+    /**
+     * Chooses a domain covering a range and one extra value: every value of
+     * the range when it is small enough, otherwise the distinct values of
+     * the indexed rows plus the extra one.
+     *
+     * @param newLow  lowest value the domain should cover
+     * @param newHigh highest value the domain should cover
+     * @param value   value that must be in the domain
+     * @return sorted domain values
+     */
+    private int[] domainFor(long newLow, long newHigh, int value) {
+        if (newHigh - newLow < MAX_DENSE_DOMAIN) {
+            int[] range = new int[(int) (newHigh - newLow + 1)];
+            for (int i = 0; i < range.length; i++) {
+                range[i] = (int) newLow + i;
+            }
+            return range;
+        }
+        int[] distinct = new int[rowCount + 1];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (present[row]) {
+                distinct[count++] = values[row];
+            }
+        }
+        distinct[count++] = value;
+        Arrays.sort(distinct, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || distinct[unique - 1] != distinct[i]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+
+    /**
+     * Rebuilds every tree over a new domain in linear time. The new trees
+     * are built first, so a failure leaves the index as it was.
+     *
+     * @param newDomain sorted domain values holding every indexed value
+     */
+    private void rebuild(int[] newDomain) {
+        boolean newDense = (long) newDomain[newDomain.length - 1] - newDomain[0] + 1 == newDomain.length;
+        int size = newDomain.length;
+        int[] counts = new int[size];
+        int[][] typeCounts = new int[PokemonTypes.TYPE_COUNT][size];
+        for (int row = 0; row < rowCount; row++) {
+            if (present[row]) {
+                int position = positionIn(newDomain, newDense, values[row]);
+                counts[position]++;
+                if (types[row] >= 0) {
+                    typeCounts[types[row]][position]++;
+                }
+            }
+        }
+        Fenwick newOverall = new Fenwick(counts);
+        Fenwick[] newByType = new Fenwick[PokemonTypes.TYPE_COUNT];
+        for (int t = 0; t < newByType.length; t++) {
+            newByType[t] = new Fenwick(typeCounts[t]);
+        }
+        domain = newDomain;
+        dense = newDense;
+        overall = newOverall;
+        byType = newByType;
+    }
+
+    /**
+     * Widens the domain, with some headroom while it stays dense, so that it
+     * holds a value.
+     *
+     * @param value value that must fit
+     */
+    private void ensureDomain(int value) {
+        if (positionOf(value) >= 0) {
+            return;
+        }
+        long low = domain[0];
+        long high = domain[domain.length - 1];
+        long headroom = Math.max(1, (high - low + 1) / 4);
+        long newLow = value < low ? Math.max(Integer.MIN_VALUE, value - headroom) : low;
+        long newHigh = value > high ? Math.min(Integer.MAX_VALUE, value + headroom) : high;
+        rebuild(domainFor(newLow, newHigh, value));
+    }
+
+    /**
+     * Finds a value's position in a domain.
+     *
+     * @param keys    sorted domain values
+     * @param isDense true when the domain holds every value in its range
+     * @param value   value to find
+     * @return position, or a negative value when the value is not in the domain
+     */
+    private static int positionIn(int[] keys, boolean isDense, int value) {
+        if (isDense) {
+            long offset = (long) value - keys[0];
+            return offset >= 0 && offset < keys.length ? (int) offset : -1;
+        }
+        return Arrays.binarySearch(keys, value);
+    }
+
+    /**
+     * Finds a value's position in the current domain.
+     *
+     * @param value value to find
+     * @return position, or a negative value when the value is not in the domain
+     */
+    private int positionOf(int value) {
+        return positionIn(domain, dense, value);
+    }
+
+    /**
+     * Returns the indexed stat.
+     *
+     * @return stat
+     */
+    public SkylineQuery.Stat getStat() {
+        return stat;
+    }
+
+    /**
+     * Returns the number of indexed rows.
+     *
+     * @return row count
+     */
+    public synchronized int size() {
+        return overall.total();
+    }
+
+    /**
+     * Returns the number of indexed rows of a primary type.
+     *
+     * @param typeId type id
+     * @return row count
+     */
+    public synchronized int size(int typeId) {
+        return tree(typeId).total();
+    }
+
+    /**
+     * Counts rows whose stat is below a value.
+     *
+     * @param value exclusive bound
+     * @return count
+     */
+    public synchronized int countBelow(int value) {
+        return countBelow(overall, value);
+    }
+
+    /**
+     * Counts rows of a primary type whose stat is below a value.
+     *
+     * @param value  exclusive bound
+     * @param typeId type id
+     * @return count
+     */
+    public synchronized int countBelow(int value, int typeId) {
+        return countBelow(tree(typeId), value);
+    }
+
+    /**
+     * Returns a row's rank from the top: 1 plus the number of rows with a
+     * higher stat, so tied rows share a rank.
+     *
+     * @param row row id
+     * @return rank, or -1 for a missing row
+     */
+    public synchronized int rank(int row) {
+        return isIndexed(row) ? rankIn(overall, values[row]) : -1;
+    }
+
+    /**
+     * Returns a row's rank from the top among rows of its primary type.
+     *
+     * @param row row id
+     * @return rank, or -1 for a missing row or one without a type
+     */
+    public synchronized int rankInType(int row) {
+        return isIndexed(row) && types[row] >= 0 ? rankIn(byType[types[row]], values[row]) : -1;
+    }
+
+    /**
+     * Returns a row's percentile rank: the share of rows below it, counting
+     * ties as half below.
+     *
+     * @param row row id
+     * @return percentile from 0 to 100, or NaN for a missing row
+     */
+    public synchronized double percentile(int row) {
+        return isIndexed(row) ? percentileIn(overall, values[row]) : Double.NaN;
+    }
+
+    /**
+     * Returns a row's percentile rank among rows of its primary type.
+     *
+     * @param row row id
+     * @return percentile from 0 to 100, or NaN for a missing row or one without a type
+     */
+    public synchronized double percentileInType(int row) {
+        return isIndexed(row) && types[row] >= 0 ? percentileIn(byType[types[row]], values[row]) : Double.NaN;
+    }
+
+    /**
+     * Returns the k-th smallest stat value.
+     *
+     * @param k 1-based position
+     * @return value, or {@link Integer#MIN_VALUE} when k is out of range
+     */
+    public synchronized int kthSmallest(int k) {
+        return kthIn(overall, k);
+    }
+
+    /**
+     * Returns the k-th smallest stat value among rows of a primary type.
+     *
+     * @param k      1-based position
+     * @param typeId type id
+     * @return value, or {@link Integer#MIN_VALUE} when k is out of range
+     */
+    public synchronized int kthSmallest(int k, int typeId) {
+        return kthIn(tree(typeId), k);
+    }
+
+    /**
+     * Returns the lowest indexed value.
+     *
+     * @return minimum, or {@link Integer#MAX_VALUE} when empty
+     */
+    public synchronized int getMin() {
+        return overall.total() == 0 ? Integer.MAX_VALUE : kthIn(overall, 1);
+    }
+
+    /**
+     * Returns the highest indexed value.
+     *
+     * @return maximum, or {@link Integer#MIN_VALUE} when empty
+     */
+    public synchronized int getMax() {
+        return overall.total() == 0 ? Integer.MIN_VALUE : kthIn(overall, overall.total());
+    }
+
+    /**
+     * Changes a row's stat and primary type.
+     *
+     * @param row    row id
+     * @param value  new stat value
+     * @param typeId new primary type, or {@link PokemonTypes#NO_TYPE}
+     * @return false if the row does not exist
+     */
+    public synchronized boolean update(int row, int value, int typeId) {
+        if (!isIndexed(row)) {
+            return false;
+        }
+        ensureDomain(value);
+        remove(row);
+        put(row, value, typeId);
+        return true;
+    }
+
+    /**
+     * Adds a row.
+     *
+     * @param value  stat value
+     * @param typeId primary type, or {@link PokemonTypes#NO_TYPE}
+     * @return new row id
+     */
+    public synchronized int add(int value, int typeId) {
+        ensureDomain(value);
+        if (rowCount == values.length) {
+            int capacity = values.length * 2;
+            int[] newValues = Arrays.copyOf(values, capacity);
+            byte[] newTypes = Arrays.copyOf(types, capacity);
+            boolean[] newPresent = Arrays.copyOf(present, capacity);
+            values = newValues;
+            types = newTypes;
+            present = newPresent;
+        }
+        int row = rowCount++;
+        put(row, value, typeId);
+        return row;
+    }
+
+    /**
+     * Removes a row from the index. Its id is not reused.
+     *
+     * @param row row id
+     * @return false if the row does not exist
+     */
+    public synchronized boolean remove(int row) {
+        if (!isIndexed(row)) {
+            return false;
+        }
+        int position = positionOf(values[row]);
+        overall.add(position, -1);
+        if (types[row] >= 0) {
+            byType[types[row]].add(position, -1);
+        }
+        present[row] = false;
+        return true;
+    }
+
+    /**
+     * Stores a row's value and counts it.
+     *
+     * @param row    row id
+     * @param value  stat value, already in the domain
+     * @param typeId primary type, or {@link PokemonTypes#NO_TYPE}
+     */
+    private void put(int row, int value, int typeId) {
+        int position = positionOf(value);
+        values[row] = value;
+        types[row] = (byte) (typeId >= 0 && typeId < PokemonTypes.TYPE_COUNT ? typeId : PokemonTypes.NO_TYPE);
+        present[row] = true;
+        overall.add(position, 1);
+        if (types[row] >= 0) {
+            byType[types[row]].add(position, 1);
+        }
+    }
+
+    /**
+     * Checks that a row exists and is indexed.
+     *
+     * @param row row id
+     * @return true if indexed
+     */
+    private boolean isIndexed(int row) {
+        return row >= 0 && row < rowCount && present[row];
+    }
+
+    /**
+     * Returns the tree of a type.
+     *
+     * @param typeId type id
+     * @return tree
+     */
+    private Fenwick tree(int typeId) {
+        return byType[typeId];
+    }
+
+    /**
+     * Counts values below a bound in one tree.
+     *
+     * @param tree  tree to read
+     * @param value exclusive bound
+     * @return count
+     */
+    private int countBelow(Fenwick tree, int value) {
+        return tree.prefix(domainBelow(value));
+    }
+
+    /**
+     * Counts values at or below a bound in one tree.
+     *
+     * @param tree  tree to read
+     * @param value inclusive bound
+     * @return count
+     */
+    private int countAtMost(Fenwick tree, int value) {
+        return value == Integer.MAX_VALUE ? tree.total() : countBelow(tree, value + 1);
+    }
+
+    /**
+     * Counts domain values below a bound.
+     *
+     * @param value exclusive bound
+     * @return number of positions before the bound
+     */
+    private int domainBelow(int value) {
+        if (dense) {
+            long offset = (long) value - domain[0];
+            return (int) Math.max(0, Math.min(domain.length, offset));
+        }
+        int index = Arrays.binarySearch(domain, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns the rank from the top of a value in one tree.
+     *
+     * @param tree  tree to read
+     * @param value value
+     * @return 1 plus the count of higher values
+     */
+    private int rankIn(Fenwick tree, int value) {
+        return 1 + tree.total() - countAtMost(tree, value);
+    }
+
+    /**
+     * Returns the percentile rank of a value in one tree.
+     *
+     * @param tree  tree to read
+     * @param value value
+     * @return percentile from 0 to 100
+     */
+    private double percentileIn(Fenwick tree, int value) {
+        int below = countBelow(tree, value);
+        int equal = countAtMost(tree, value) - below;
+        return 100.0 * (below + 0.5 * equal) / tree.total();
+    }
+
+    /**
+     * Returns the k-th smallest value in one tree.
+     *
+     * @param tree tree to read
+     * @param k    1-based position
+     * @return value, or {@link Integer#MIN_VALUE} when out of range
+     */
+    private int kthIn(Fenwick tree, int k) {
+        if (k < 1 || k > tree.total()) {
+            return Integer.MIN_VALUE;
+        }
+        return domain[tree.select(k)];
+    }
+
+    /**
+     * Fenwick tree of counts over positions 0 to size - 1.
+     */
+    private static final class Fenwick {
+        private final int[] tree;
+        private final int topBit;
+        private int total;
+
+        /**
+         * Builds a tree from counts in linear time.
+         *
+         * @param counts count per position
+         */
+        Fenwick(int[] counts) {
+            tree = new int[counts.length + 1];
+            for (int i = 1; i <= counts.length; i++) {
+                tree[i] += counts[i - 1];
+                total += counts[i - 1];
+                int parent = i + (i & -i);
+                if (parent <= counts.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+            topBit = Integer.highestOneBit(Math.max(1, counts.length));
+        }
+
+        /**
+         * Changes the count at a position.
+         *
+         * @param position 0-based position
+         * @param delta    change
+         */
+        void add(int position, int delta) {
+            for (int i = position + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+            total += delta;
+        }
+
+        /**
+         * Sums the counts of positions below a bound.
+         *
+         * @param end exclusive 0-based position
+         * @return sum
+         */
+        int prefix(int end) {
+            int sum = 0;
+            for (int i = end; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        /**
+         * Finds the position holding the k-th counted item by descending
+         * the implicit tree one bit at a time.
+         *
+         * @param k 1-based item, at most the total
+         * @return 0-based position
+         */
+        int select(int k) {
+            int position = 0;
+            int remaining = k;
+            for (int bit = topBit; bit > 0; bit >>= 1) {
+                int next = position + bit;
+                if (next < tree.length && tree[next] < remaining) {
+                    position = next;
+                    remaining -= tree[next];
+                }
+            }
+            return position;
+        }
+
+        /**
+         * Returns the sum of every count.
+         *
+         * @return total
+         */
+        int total() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,529 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes synthetic Pokedex CSV files of any size for load and scale testing.
+ *
+ * <p>Rows use the real 41-column header. Base stats, types, abilities,
+ * egg steps, capture rates and gender ratios follow the distributions of
+ * the real {@code pokemon.csv}. The {@code against_*} columns come from the
+ * type chart, abilities are quoted list literals, and Japanese names mix
+ * romaji and katakana. Optional skew sends a share of rows to one hot type,
+ * HP and speed. An optional duplicate rate reuses earlier names.</p>
+ *
+ * <p>Rows are generated in fixed-size chunks, each with its own random
+ * stream derived from the seed and the chunk number. Output is therefore
+ * identical for a given seed whatever the thread count. Worker threads
+ * render chunks while the calling thread writes finished chunks, in order,
+ * through a {@link FileChannel}. At most two chunks per thread are in
+ * flight.</p>
+ */
+public class SyntheticPokedexGenerator {
+    /**
+     * Header of the real Pokedex CSV.
+     */
+    public static final String HEADER = "abilities,against_bug,against_dark,against_dragon,against_electric,"
+            + "against_fairy,against_fight,against_fire,against_flying,against_ghost,against_grass,against_ground,"
+            + "against_ice,against_normal,against_poison,against_psychic,against_rock,against_steel,against_water,"
+            + "attack,base_egg_steps,base_happiness,base_total,capture_rate,classfication,defense,"
+            + "experience_growth,height_m,hp,japanese_name,name,percentage_male,pokedex_number,sp_attack,"
+            + "sp_defense,speed,type1,type2,weight_kg,generation,is_legendary";
+
+    private static final int CHUNK_ROWS = 8_192;
+    private static final int GENERATIONS = 7;
+    private static final double LEGENDARY_RATE = 0.087;
+    private static final double LEGENDARY_BOOST = 1.4;
+    private static final double BLANK_SIZE_RATE = 0.025;
+    private static final int HOT_TYPE = PokemonTypes.idOf("water");
+    private static final int HOT_HP = 60;
+    private static final int HOT_SPEED = 50;
+
+    // Type counts of the real data, indexed by type id
+    private static final int[] TYPE1_WEIGHTS = {
+        72, 29, 27, 39, 18, 28, 52, 3, 27, 78, 32, 23, 105, 32, 53, 45, 24, 114
+    };
+    private static final int[] TYPE2_WEIGHTS = {
+        5, 21, 17, 9, 29, 25, 13, 95, 14, 20, 34, 15, 4, 34, 29, 14, 22, 17
+    };
+    private static final int TYPE2_BLANK_WEIGHT = 384;
+
+    private static final String[] ABILITIES = {
+        "Sturdy", "Swift Swim", "Keen Eye", "Chlorophyll", "Levitate", "Inner Focus", "Intimidate", "Swarm",
+        "Sheer Force", "Pressure", "Run Away", "Sand Veil", "Oblivious", "Overgrow", "Blaze", "Torrent",
+        "Gluttony", "Thick Fat", "Water Absorb", "Own Tempo", "Hydration", "Shell Armor", "Guts", "Frisk",
+        "Rock Head", "Telepathy", "Hustle", "Unnerve", "Infiltrator", "Overcoat", "Regenerator", "Leaf Guard",
+        "Rivalry", "Damp", "Pickup", "Weak Armor", "Lightningrod", "Flash Fire", "Sap Sipper", "Shed Skin",
+        "Static", "Synchronize", "Cute Charm", "Magic Guard", "Technician", "Adaptability", "Moxie", "Prankster"
+    };
+    private static final int[] ABILITY_COUNT_WEIGHTS = {0, 109, 245, 427};
+
+    private static final String[] CLASSIFICATION_WORDS = {
+        "Sea", "Poison", "Iron", "Tiny", "Dragon", "Water", "Rock", "Fire", "Big", "Mouse", "Mushroom", "Long",
+        "Land", "Flame", "Fairy", "Fox", "Balloon", "Seed", "Cocoon", "Drill", "Bat", "Tadpole", "Wild", "Ball"
+    };
+    private static final String CLASSIFICATION_SUFFIX = " Pok\u00e9mon";
+
+    private static final int[] EGG_STEPS = {5120, 3840, 6400, 30720, 10240, 7680, 2560, 20480, 8960, 1280};
+    private static final int[] EGG_STEP_WEIGHTS = {436, 140, 55, 49, 42, 26, 22, 16, 13, 2};
+    private static final int[] HAPPINESS = {70, 35, 0, 100, 140, 90};
+    private static final int[] HAPPINESS_WEIGHTS = {667, 69, 36, 14, 10, 5};
+    private static final int[] CAPTURE_RATES = {45, 190, 255, 75, 3, 120, 60, 90, 30, 200, 225, 25};
+    private static final int[] CAPTURE_RATE_WEIGHTS = {250, 75, 69, 61, 58, 55, 50, 38, 20, 19, 15, 13};
+    private static final int[] GROWTH = {1000000, 1059860, 1250000, 800000, 600000, 1640000};
+    private static final int[] GROWTH_WEIGHTS = {335, 202, 172, 56, 22, 14};
+    // Blank means genderless
+    private static final String[] PERCENTAGE_MALE = {"50", "88.1", "", "0", "24.6", "100", "75.4", "11.2"};
+    private static final int[] PERCENTAGE_MALE_WEIGHTS = {501, 111, 98, 27, 24, 19, 19, 2};
+
+    // Consonant-vowel syllables; fixed length keeps every encoded name unique
+    private static final String[] ROMAJI = {
+        "ka", "ki", "ku", "ke", "ko", "sa", "si", "su", "se", "so", "ta", "ti", "tu", "te", "to",
+        "na", "ni", "nu", "ne", "no", "ha", "hi", "hu", "he", "ho", "ma", "mi", "mu", "me", "mo",
+        "ra", "ri", "ru", "re", "ro", "ga", "gi", "gu", "ge", "go", "za", "zi", "zu", "ze", "zo",
+        "da", "di", "du", "de", "do", "ba", "bi", "bu", "be", "bo", "pa", "pi", "pu", "pe", "po"
+    };
+    private static final String KATAKANA =
+            "\u30ab\u30ad\u30af\u30b1\u30b3\u30b5\u30b7\u30b9\u30bb\u30bd\u30bf\u30c1\u30c4\u30c6\u30c8"
+            + "\u30ca\u30cb\u30cc\u30cd\u30ce\u30cf\u30d2\u30d5\u30d8\u30db\u30de\u30df\u30e0\u30e1\u30e2"
+            + "\u30e9\u30ea\u30eb\u30ec\u30ed\u30ac\u30ae\u30b0\u30b2\u30b4\u30b6\u30b8\u30ba\u30bc\u30be"
+            + "\u30c0\u30c2\u30c5\u30c7\u30c9\u30d0\u30d3\u30d6\u30d9\u30dc\u30d1\u30d4\u30d7\u30da\u30dd";
+    private static final int MIN_NAME_SYLLABLES = 3;
+
+    private long rows = 10_000;
+    private long seed = 42;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double duplicateRate;
+    private double skew;
+
+    /**
+     * Creates a generator with default settings: 10,000 rows, seed 42, no
+     * skew and no duplicates.
+     */
+    public SyntheticPokedexGenerator() {
+        // Default settings
+    }
+
+    /**
+     * Sets the number of data rows.
+     *
+     * @param count rows to write, at least 0
+     * @return this generator
+     */
+    public SyntheticPokedexGenerator rows(long count) {
+        this.rows = Math.max(0, count);
+        return this;
+    }
+
+    /**
+     * Sets the seed.
+     *
+     * @param value seed; equal seeds give identical files
+     * @return this generator
+     */
+    public SyntheticPokedexGenerator seed(long value) {
+        this.seed = value;
+        return this;
+    }
+
+    /**
+     * Sets the number of worker threads.
+     *
+     * @param count threads, at least 1
+     * @return this generator
+     */
+    public SyntheticPokedexGenerator threads(int count) {
+        this.threads = Math.max(1, count);
+        return this;
+    }
+
+    /**
+     * Sets the share of rows that reuse the name of an earlier row.
+     *
+     * @param rate probability between 0 and 1
+     * @return this generator
+     */
+    public SyntheticPokedexGenerator duplicateRate(double rate) {
+        this.duplicateRate = Math.max(0, Math.min(1, rate));
+        return this;
+    }
+
+    /**
+     * Sets the share of rows that get the hot type, HP and speed.
+     *
+     * @param share probability between 0 and 1
+     * @return this generator
+     */
+    public SyntheticPokedexGenerator skew(double share) {
+        this.skew = Math.max(0, Math.min(1, share));
+        return this;
+    }
+
+    /**
+     * Writes the file, replacing any existing one.
+     *
+     * @param fileName output path
+     * @return true if every row was written
+     */
+    public boolean generate(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            return false;
+        }
+        long chunks = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        int syllables = nameSyllables(rows);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pokedex-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName.trim()), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap((HEADER + "\n").getBytes(StandardCharsets.UTF_8)));
+
+            Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+            long submitted = 0;
+            for (long written = 0; written < chunks; written++) {
+                while (submitted < chunks && inFlight.size() < threads * 2) {
+                    long chunk = submitted++;
+                    inFlight.add(pool.submit(() -> renderChunk(chunk, syllables)));
+                }
+                writeFully(channel, inFlight.poll().get());
+            }
+            return true;
+        } catch (IOException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes a whole buffer to a channel.
+     *
+     * @param channel open channel
+     * @param buffer  bytes to write
+     * @throws IOException if the write fails
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns the number of syllables in every generated name, enough to
+     * give each row a distinct one.
+     *
+     * @param rowCount rows in the file
+     * @return syllables per name
+     */
+    private static int nameSyllables(long rowCount) {
+        int syllables = 1;
+        long capacity = ROMAJI.length;
+        while (capacity < rowCount) {
+            capacity *= ROMAJI.length;
+            syllables++;
+        }
+        return Math.max(MIN_NAME_SYLLABLES, syllables);
+    }
+
+    /**
+     * Derives the seed of one chunk's random stream.
+     *
+     * @param chunk chunk number
+     * @return well-mixed seed
+     */
+    private long chunkSeed(long chunk) {
+        long z = seed + (chunk + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Renders one chunk of rows as UTF-8.
+     *
+     * @param chunk     chunk number
+     * @param syllables syllables per name
+     * @return encoded rows
+     */
+    private ByteBuffer renderChunk(long chunk, int syllables) {
+        SplittableRandom random = new SplittableRandom(chunkSeed(chunk));
+        long first = chunk * CHUNK_ROWS;
+        long last = Math.min(rows, first + CHUNK_ROWS);
+        StringBuilder out = new StringBuilder((int) (last - first) * 200);
+        for (long row = first; row < last; row++) {
+            appendRow(out, row, random, syllables);
+        }
+        return ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends one CSV row.
+     *
+     * @param out       receives the row and its line break
+     * @param row       0-based row number
+     * @param random    chunk random stream
+     * @param syllables syllables per name
+     */
+    private void appendRow(StringBuilder out, long row, SplittableRandom random, int syllables) {
+        boolean legendary = random.nextDouble() < LEGENDARY_RATE;
+        boolean hot = random.nextDouble() < skew;
+        double boost = legendary ? LEGENDARY_BOOST : 1.0;
+
+        int type1 = hot ? HOT_TYPE : pick(random, TYPE1_WEIGHTS);
+        int type2 = random.nextInt(TYPE2_BLANK_WEIGHT + sum(TYPE2_WEIGHTS)) < TYPE2_BLANK_WEIGHT
+                ? PokemonTypes.NO_TYPE : pick(random, TYPE2_WEIGHTS);
+        if (type2 == type1) {
+            type2 = PokemonTypes.NO_TYPE;
+        }
+
+        int hp = hot ? HOT_HP : stat(random, 69.0, 26.6, 1, 255, boost);
+        int attack = stat(random, 77.9, 32.1, 5, 185, boost);
+        int defense = stat(random, 73.0, 30.7, 5, 230, boost);
+        int spAttack = stat(random, 71.3, 32.3, 10, 194, boost);
+        int spDefense = stat(random, 70.9, 27.9, 20, 230, boost);
+        int speed = hot ? HOT_SPEED : stat(random, 66.3, 28.9, 5, 180, boost);
+
+        appendAbilities(out, random);
+        for (int attacking = 0; attacking < PokemonTypes.TYPE_COUNT; attacking++) {
+            float multiplier = PokemonTypes.effectiveness(attacking, type1)
+                    * PokemonTypes.effectiveness(attacking, type2);
+            out.append(',').append(formatMultiplier(multiplier));
+        }
+        out.append(',').append(attack);
+        out.append(',').append(EGG_STEPS[pick(random, EGG_STEP_WEIGHTS)]);
+        out.append(',').append(HAPPINESS[pick(random, HAPPINESS_WEIGHTS)]);
+        out.append(',').append(hp + attack + defense + spAttack + spDefense + speed);
+        out.append(',').append(legendary ? 3 : CAPTURE_RATES[pick(random, CAPTURE_RATE_WEIGHTS)]);
+        out.append(',').append(CLASSIFICATION_WORDS[random.nextInt(CLASSIFICATION_WORDS.length)])
+                .append(CLASSIFICATION_SUFFIX);
+        out.append(',').append(defense);
+        out.append(',').append(GROWTH[pick(random, GROWTH_WEIGHTS)]);
+
+        boolean blankSize = random.nextDouble() < BLANK_SIZE_RATE;
+        out.append(',');
+        if (!blankSize) {
+            appendTenths(out, logNormal(random, -0.11, 0.71, 0.1, 14.5));
+        }
+        out.append(',').append(hp);
+
+        long nameId = row > 0 && random.nextDouble() < duplicateRate ? random.nextLong(row) : row;
+        out.append(',');
+        appendName(out, nameId, syllables, true);
+        out.append(',');
+        appendName(out, nameId, syllables, false);
+
+        out.append(',').append(legendary ? "" : PERCENTAGE_MALE[pick(random, PERCENTAGE_MALE_WEIGHTS)]);
+        out.append(',').append(row + 1);
+        out.append(',').append(spAttack);
+        out.append(',').append(spDefense);
+        out.append(',').append(speed);
+        out.append(',').append(PokemonTypes.nameOf(type1));
+        out.append(',').append(PokemonTypes.nameOf(type2));
+        out.append(',');
+        if (!blankSize) {
+            appendTenths(out, logNormal(random, 3.14, 1.55, 0.1, 999.9));
+        }
+        out.append(',').append(1 + row * GENERATIONS / Math.max(1, rows));
+        out.append(',').append(legendary ? 1 : 0);
+        out.append('\n');
+    }
+
+    /**
+     * Appends a quoted ability list literal such as
+     * {@code "['Overgrow', 'Chlorophyll']"}. Lower indexes of the ability
+     * pool are picked more often, as common abilities are in the real data.
+     *
+     * @param out    receives the field
+     * @param random random stream
+     */
+    private static void appendAbilities(StringBuilder out, SplittableRandom random) {
+        int count = pick(random, ABILITY_COUNT_WEIGHTS);
+        int[] chosen = new int[count];
+        out.append("\"[");
+        for (int i = 0; i < count; i++) {
+            int ability;
+            boolean repeated;
+            do {
+                double u = random.nextDouble();
+                ability = (int) (u * u * ABILITIES.length);
+                repeated = false;
+                for (int j = 0; j < i; j++) {
+                    repeated |= chosen[j] == ability;
+                }
+            } while (repeated);
+            chosen[i] = ability;
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append('\'').append(ABILITIES[ability]).append('\'');
+        }
+        out.append("]\"");
+    }
+
+    /**
+     * Appends a name encoded from an id. The English form is capitalized
+     * romaji; the Japanese form is the romaji followed by the katakana, as
+     * in the real {@code japanese_name} column.
+     *
+     * @param out       receives the name
+     * @param id        name id
+     * @param syllables syllables per name
+     * @param japanese  true for the Japanese form
+     */
+    private static void appendName(StringBuilder out, long id, int syllables, boolean japanese) {
+        int start = out.length();
+        long remaining = id;
+        int[] digits = new int[syllables];
+        for (int i = syllables - 1; i >= 0; i--) {
+            digits[i] = (int) (remaining % ROMAJI.length);
+            remaining /= ROMAJI.length;
+        }
+        for (int digit : digits) {
+            out.append(ROMAJI[digit]);
+        }
+        out.setCharAt(start, Character.toUpperCase(out.charAt(start)));
+        if (japanese) {
+            for (int digit : digits) {
+                out.append(KATAKANA.charAt(digit));
+            }
+        }
+    }
+
+    /**
+     * Draws a base stat from a clipped normal distribution.
+     *
+     * @param random random stream
+     * @param mean   distribution mean
+     * @param stdDev standard deviation
+     * @param min    lowest value
+     * @param max    highest value
+     * @param boost  multiplier applied before clipping
+     * @return stat
+     */
+    private static int stat(SplittableRandom random, double mean, double stdDev, int min, int max, double boost) {
+        long value = Math.round((mean + random.nextGaussian() * stdDev) * boost);
+        return (int) Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Draws a size from a clipped log-normal distribution.
+     *
+     * @param random  random stream
+     * @param logMean mean of the logarithm
+     * @param logSd   standard deviation of the logarithm
+     * @param min     smallest value
+     * @param max     largest value
+     * @return size
+     */
+    private static double logNormal(SplittableRandom random, double logMean, double logSd, double min, double max) {
+        return Math.max(min, Math.min(max, Math.exp(logMean + random.nextGaussian() * logSd)));
+    }
+
+    /**
+     * Appends a value with one decimal, such as {@code 13.0}.
+     *
+     * @param out   receives the value
+     * @param value non-negative value
+     */
+    private static void appendTenths(StringBuilder out, double value) {
+        long tenths = Math.round(value * 10);
+        out.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    /**
+     * Formats a damage multiplier the way the real CSV does.
+     *
+     * @param multiplier product of two chart entries
+     * @return text such as {@code 0.25}, {@code 1} or {@code 4}
+     */
+    private static String formatMultiplier(float multiplier) {
+        if (multiplier == 0.25f) {
+            return "0.25";
+        }
+        if (multiplier == 0.5f) {
+            return "0.5";
+        }
+        return Integer.toString((int) multiplier);
+    }
+
+    /**
+     * Picks an index with probability proportional to its weight.
+     *
+     * @param random  random stream
+     * @param weights non-negative weights
+     * @return chosen index
+     */
+    private static int pick(SplittableRandom random, int[] weights) {
+        int target = random.nextInt(sum(weights));
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Sums weights.
+     *
+     * @param weights weights
+     * @return total
+     */
+    private static int sum(int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        return total;
+    }
+
+    /**
+     * Generates a file from the command line:
+     * {@code java SyntheticPokedexGenerator out.csv rows [seed] [threads] [duplicateRate] [skew]}.
+     *
+     * @param args output file, row count and optional settings
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: SyntheticPokedexGenerator <file> <rows> [seed] [threads] "
+                    + "[duplicateRate] [skew]");
+            return;
+        }
+        SyntheticPokedexGenerator generator = new SyntheticPokedexGenerator().rows(Long.parseLong(args[1]));
+        if (args.length > 2) {
+            generator.seed(Long.parseLong(args[2]));
+        }
+        if (args.length > 3) {
+            generator.threads(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            generator.duplicateRate(Double.parseDouble(args[4]));
+        }
+        if (args.length > 5) {
+            generator.skew(Double.parseDouble(args[5]));
+        }
+
+        long start = System.nanoTime();
+        boolean written = generator.generate(args[0]);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(written ? "Wrote " + args[1] + " rows to " + args[0] + " in " + millis + " ms."
+                : "Failed to write " + args[0]);
+    }
+}
@@ -0,0 +1,422 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the best teams under roster constraints with a parallel
+ * branch-and-bound search.
+ *
+ * <p>A team covers an attacking type when at least one member takes less
+ * than neutral damage from it, so each Pokemon is reduced to an 18-bit
+ * resistance mask and its speed. Teams are ranked by the number of covered
+ * types first and total speed second. Candidates are searched fastest first,
+ * so a suffix OR of masks and a prefix sum of speeds give tight upper bounds
+ * for any partial team.</p>
+ *
+ * <p>Teams with equal scores are ordered by their members, fastest first
+ * and then by row id, and the search prunes on that same order, so the
+ * top teams do not depend on how the pool schedules the search.</p>
+ */
+public class TeamBuilder {
+    private static final float RESIST_THRESHOLD = 1.0f;
+    private static final int SPEED_BITS = 32;
+    private static final long SPEED_MASK = (1L << SPEED_BITS) - 1;
+
+    private final PokemonStatTable table;
+
+    /**
+     * Creates a builder over a stat table.
+     *
+     * @param table source table
+     */
+    public TeamBuilder(PokemonStatTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Returns the resistance mask of a row.
+     *
+     * @param row row id
+     * @return bit t set when the row resists attacking type t
+     */
+    public int resistanceMask(int row) {
+        int mask = 0;
+        for (int t = 0; t < PokemonTypes.TYPE_COUNT; t++) {
+            if (table.getAgainst(row, t) < RESIST_THRESHOLD) {
+                mask |= 1 << t;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Searches for the highest scoring teams.
+     *
+     * @param teamSize       number of members per team
+     * @param maxPerType     maximum members sharing any one type
+     * @param allowLegendary false to exclude legendary Pokemon
+     * @param topK           number of teams to return
+     * @param pool           pool to run on
+     * @return best teams, best first
+     */
+    public List<Team> findBestTeams(int teamSize, int maxPerType, boolean allowLegendary, int topK,
+                                    ForkJoinPool pool) {
+        return findBestTeams(teamSize, maxPerType, allowLegendary, topK, pool, QueryContext.unbounded());
+    }
+
+    /**
+     * Searches for the highest scoring teams, checking the context before
+     * each choice of second member.
+     *
+     * @param teamSize       number of members per team
+     * @param maxPerType     maximum members sharing any one type
+     * @param allowLegendary false to exclude legendary Pokemon
+     * @param topK           number of teams to return
+     * @param pool           pool to run on
+     * @param context        deadline and cancellation flag of the query
+     * @return best teams, best first
+     * @throws java.util.concurrent.CancellationException if the query is
+     *         cancelled or runs past its deadline
+     */
+    public List<Team> findBestTeams(int teamSize, int maxPerType, boolean allowLegendary, int topK,
+                                    ForkJoinPool pool, QueryContext context) {
+        if (teamSize <= 0 || topK <= 0) {
+            return Collections.emptyList();
+        }
+
+        Search search = new Search(teamSize, maxPerType, allowLegendary, topK, context);
+        if (search.count < teamSize) {
+            return Collections.emptyList();
+        }
+        pool.invoke(new FirstMemberTask(search, 0, search.count - teamSize + 1));
+        return search.results();
+    }
+
+    /**
+     * Packs coverage and speed into one comparable score.
+     *
+     * @param coverage covered types
+     * @param speed    total speed
+     * @return packed score
+     */
+    private static long score(int coverage, long speed) {
+        return ((long) coverage << SPEED_BITS) | Math.min(speed, SPEED_MASK);
+    }
+
+    /**
+     * Shared, precomputed state of one search.
+     */
+    private final class Search {
+        private final int teamSize;
+        private final int maxPerType;
+        private final int topK;
+        private final int count;
+        private final int[] rows;
+        private final int[] masks;
+        private final int[] speeds;
+        private final byte[] type1;
+        private final byte[] type2;
+        private final int[] suffixMask;
+        private final long[] speedPrefix;
+        private final QueryContext context;
+        private final PriorityQueue<Team> best = new PriorityQueue<>();
+        private volatile Team cutoff;
+
+        /**
+         * Filters candidates and precomputes their score vectors and bounds.
+         *
+         * @param teamSize       members per team
+         * @param maxPerType     maximum members per type
+         * @param allowLegendary false to skip legendaries
+         * @param topK           teams to keep
+         * @param context        checked during the search
+         */
+        Search(int teamSize, int maxPerType, boolean allowLegendary, int topK, QueryContext context) {
+            this.teamSize = teamSize;
+            this.context = context;
+            this.maxPerType = maxPerType;
+            this.topK = topK;
+
+            List<Integer> candidates = new ArrayList<>();
+            for (int row = 0; row < table.getRowCount(); row++) {
+                if (allowLegendary || !table.isLegendary(row)) {
+                    candidates.add(row);
+                }
+            }
+            candidates.sort((a, b) -> {
+                int compare = Integer.compare(table.getSpeed(b), table.getSpeed(a));
+                return compare != 0 ? compare : Integer.compare(a, b);
+            });
+
+            count = candidates.size();
+            rows = new int[count];
+            masks = new int[count];
+            speeds = new int[count];
+            type1 = new byte[count];
+            type2 = new byte[count];
+            for (int i = 0; i < count; i++) {
+                int row = candidates.get(i);
+                rows[i] = row;
+                masks[i] = resistanceMask(row);
+                speeds[i] = table.getSpeed(row);
+                type1[i] = (byte) table.getType1(row);
+                type2[i] = (byte) table.getType2(row);
+            }
+
+            suffixMask = new int[count + 1];
+            for (int i = count - 1; i >= 0; i--) {
+                suffixMask[i] = suffixMask[i + 1] | masks[i];
+            }
+            speedPrefix = new long[count + 1];
+            for (int i = 0; i < count; i++) {
+                speedPrefix[i + 1] = speedPrefix[i] + speeds[i];
+            }
+        }
+
+        /**
+         * Depth-first search over candidates from a start index.
+         *
+         * @param start      next candidate index
+         * @param depth      members chosen so far
+         * @param mask       combined resistance mask
+         * @param speed      combined speed
+         * @param chosen     chosen candidate indexes
+         * @param typeCounts members per type
+         */
+        void search(int start, int depth, int mask, long speed, int[] chosen, int[] typeCounts) {
+            if (depth == teamSize) {
+                offer(score(Integer.bitCount(mask), speed), chosen);
+                return;
+            }
+
+            int remaining = teamSize - depth;
+            for (int i = start; i <= count - remaining; i++) {
+                if (depth == 1) {
+                    context.checkpoint();
+                }
+                // Candidates are fastest first, so the next picks bound the best reachable speed
+                long bound = score(Integer.bitCount(mask | suffixMask[i]),
+                        speed + speedPrefix[i + remaining] - speedPrefix[i]);
+                chosen[depth] = i;
+                if (belowCutoff(bound, chosen, depth + 1)) {
+                    return;
+                }
+                if (!fits(i, typeCounts)) {
+                    continue;
+                }
+
+                adjust(i, typeCounts, 1);
+                search(i + 1, depth + 1, mask | masks[i], speed + speeds[i], chosen, typeCounts);
+                adjust(i, typeCounts, -1);
+            }
+        }
+
+        /**
+         * Checks the per-type limit for a candidate.
+         *
+         * @param i          candidate index
+         * @param typeCounts members per type
+         * @return true if the candidate can join
+         */
+        private boolean fits(int i, int[] typeCounts) {
+            return (type1[i] < 0 || typeCounts[type1[i]] < maxPerType)
+                    && (type2[i] < 0 || typeCounts[type2[i]] < maxPerType);
+        }
+
+        /**
+         * Adds or removes a candidate's types from the counts.
+         *
+         * @param i          candidate index
+         * @param typeCounts members per type
+         * @param delta      +1 or -1
+         */
+        private void adjust(int i, int[] typeCounts, int delta) {
+            if (type1[i] >= 0) {
+                typeCounts[type1[i]] += delta;
+            }
+            if (type2[i] >= 0) {
+                typeCounts[type2[i]] += delta;
+            }
+        }
+
+        /**
+         * Checks whether every team starting with the chosen candidates ranks
+         * below the current K-th best team. Candidate indexes follow the
+         * member order, so a prefix that sorts after the K-th team's prefix
+         * loses every tie on score.
+         *
+         * @param bound  best score any such team can reach
+         * @param chosen candidate indexes chosen so far
+         * @param length number of chosen candidates
+         * @return true if the branch can be pruned
+         */
+        boolean belowCutoff(long bound, int[] chosen, int length) {
+            Team last = cutoff;
+            if (last == null) {
+                return false;
+            }
+            long score = last.score();
+            if (bound != score) {
+                return bound < score;
+            }
+            return Arrays.compare(chosen, 0, length, last.picks, 0, length) > 0;
+        }
+
+        /**
+         * Records a complete team if it beats the current K-th best team.
+         *
+         * @param score  packed team score
+         * @param chosen candidate indexes
+         */
+        private void offer(long score, int[] chosen) {
+            if (belowCutoff(score, chosen, teamSize)) {
+                return;
+            }
+            int[] picks = Arrays.copyOf(chosen, teamSize);
+            int[] members = new int[teamSize];
+            for (int i = 0; i < teamSize; i++) {
+                members[i] = rows[picks[i]];
+            }
+            synchronized (best) {
+                best.add(new Team(members, picks, (int) (score >>> SPEED_BITS), score & SPEED_MASK));
+                if (best.size() > topK) {
+                    best.poll();
+                }
+                if (best.size() == topK) {
+                    cutoff = best.peek();
+                }
+            }
+        }
+
+        /**
+         * Returns the collected teams, best first.
+         *
+         * @return teams
+         */
+        List<Team> results() {
+            List<Team> teams;
+            synchronized (best) {
+                teams = new ArrayList<>(best);
+            }
+            teams.sort(Collections.reverseOrder());
+            return teams;
+        }
+    }
+
+    /**
+     * Explores every team whose fastest member is in a range of candidates.
+     */
+    private final class FirstMemberTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a task for a range of first members.
+         *
+         * @param search shared search state
+         * @param from   first candidate inclusive
+         * @param to     last candidate exclusive
+         */
+        FirstMemberTask(Search search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FirstMemberTask(search, from, mid), new FirstMemberTask(search, mid, to));
+                return;
+            }
+
+            int[] chosen = new int[search.teamSize];
+            int[] typeCounts = new int[PokemonTypes.TYPE_COUNT];
+            int i = from;
+            long bound = score(Integer.bitCount(search.suffixMask[i]),
+                    search.speedPrefix[i + search.teamSize] - search.speedPrefix[i]);
+            chosen[0] = i;
+            if (search.belowCutoff(bound, chosen, 1) || !search.fits(i, typeCounts)) {
+                return;
+            }
+            search.adjust(i, typeCounts, 1);
+            search.search(i + 1, 1, search.masks[i], search.speeds[i], chosen, typeCounts);
+        }
+    }
+
+    /**
+     * An immutable team and its score.
+     */
+    public static final class Team implements Comparable<Team> {
+        private final int[] members;
+        private final int[] picks;
+        private final int coverage;
+        private final long totalSpeed;
+
+        /**
+         * Creates a team.
+         *
+         * @param members    member row ids, fastest first
+         * @param picks      candidate index of each member, ascending
+         * @param coverage   number of covered attacking types
+         * @param totalSpeed sum of member speeds
+         */
+        Team(int[] members, int[] picks, int coverage, long totalSpeed) {
+            this.members = members;
+            this.picks = picks;
+            this.coverage = coverage;
+            this.totalSpeed = totalSpeed;
+        }
+
+        /**
+         * Returns the member row ids, fastest first and then by row id.
+         *
+         * @return copy of the members
+         */
+        public int[] getMembers() {
+            return Arrays.copyOf(members, members.length);
+        }
+
+        /**
+         * Returns the number of covered attacking types.
+         *
+         * @return coverage out of {@link PokemonTypes#TYPE_COUNT}
+         */
+        public int getCoverage() {
+            return coverage;
+        }
+
+        /**
+         * Returns the total speed of the team.
+         *
+         * @return total speed
+         */
+        public long getTotalSpeed() {
+            return totalSpeed;
+        }
+
+        /**
+         * Returns the packed ranking score.
+         *
+         * @return score
+         */
+        long score() {
+            return TeamBuilder.score(coverage, totalSpeed);
+        }
+
+        @Override
+        public int compareTo(Team other) {
+            int compare = Long.compare(score(), other.score());
+            // On equal scores the team whose members come first in candidate order ranks higher
+            return compare != 0 ? compare : Arrays.compare(other.picks, picks);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounded summary of the problems found while loading a file. Every problem
+ * is counted, but only the first few examples of each kind are kept, with
+ * their line numbers, so a badly broken file cannot exhaust memory.
+ *
+ * <p>A report is filled by one loader thread and is read-only once the load
+ * finishes; reports from different shards are combined with
+ * {@link #combine}.</p>
+ */
+public final class ValidationReport {
+    /**
+     * Examples kept per kind of problem.
+     */
+    public static final int MAX_EXAMPLES_PER_PROBLEM = 5;
+
+    /**
+     * Kinds of problem a row can have.
+     */
+    public enum Problem {
+        FIELD_COUNT("wrong number of fields"),
+        MISSING_REQUIRED("blank required column"),
+        TYPE_MISMATCH("value does not match column type"),
+        DUPLICATE_NAME("name already loaded, earlier row replaced");
+
+        private final String description;
+
+        Problem(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Returns a short description.
+         *
+         * @return description
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static final Comparator<Example> BY_POSITION =
+            Comparator.comparingInt((Example e) -> e.sourceOrder).thenComparingLong(e -> e.lineNumber);
+
+    private final String source;
+    private final int sourceOrder;
+    private final long[] counts = new long[Problem.values().length];
+    private final List<List<Example>> examples = new ArrayList<>();
+    private long rowsChecked;
+    private long badRows;
+
+    /**
+     * Creates an empty report.
+     *
+     * @param source file the rows come from
+     */
+    public ValidationReport(String source) {
+        this(source, 0);
+    }
+
+    /**
+     * Creates an empty report for one of several sources.
+     *
+     * @param source      file the rows come from
+     * @param sourceOrder position of the source, used to order merged examples
+     */
+    private ValidationReport(String source, int sourceOrder) {
+        this.source = source;
+        this.sourceOrder = sourceOrder;
+        for (int i = 0; i < counts.length; i++) {
+            examples.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Combines reports, for example one per shard, into a new report.
+     *
+     * @param reports reports in source order
+     * @return combined report
+     */
+    public static ValidationReport combine(List<ValidationReport> reports) {
+        ValidationReport combined = new ValidationReport("", 0);
+        for (int i = 0; i < reports.size(); i++) {
+            combined.merge(reports.get(i), i);
+        }
+        return combined;
+    }
+
+    /**
+     * Adds another report of the same source into this one.
+     *
+     * @param other report to add
+     */
+    void merge(ValidationReport other) {
+        merge(other, other.sourceOrder);
+    }
+
+    /**
+     * Adds another report, keeping the earliest examples of each kind.
+     *
+     * @param other       report to add
+     * @param sourceOrder position of the other report's source
+     */
+    private void merge(ValidationReport other, int sourceOrder) {
+        rowsChecked += other.rowsChecked;
+        badRows += other.badRows;
+        for (int p = 0; p < counts.length; p++) {
+            counts[p] += other.counts[p];
+            List<Example> kept = examples.get(p);
+            for (Example example : other.examples.get(p)) {
+                kept.add(new Example(example.source, sourceOrder, example.lineNumber, example.problem,
+                        example.column, example.value));
+            }
+            kept.sort(BY_POSITION);
+            while (kept.size() > MAX_EXAMPLES_PER_PROBLEM) {
+                kept.remove(kept.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Counts a validated row.
+     */
+    void countRow() {
+        rowsChecked++;
+    }
+
+    /**
+     * Counts a row that failed at least one schema check.
+     */
+    void countBadRow() {
+        badRows++;
+    }
+
+    /**
+     * Records a problem.
+     *
+     * @param lineNumber 1-based line number in the file
+     * @param problem    kind of problem
+     * @param column     affected column, or an empty string
+     * @param value      offending value or detail
+     */
+    void add(long lineNumber, Problem problem, String column, String value) {
+        counts[problem.ordinal()]++;
+        List<Example> kept = examples.get(problem.ordinal());
+        if (kept.size() < MAX_EXAMPLES_PER_PROBLEM) {
+            kept.add(new Example(source, sourceOrder, lineNumber, problem, column, value));
+        }
+    }
+
+    /**
+     * Returns the number of rows validated.
+     *
+     * @return row count
+     */
+    public long getRowsChecked() {
+        return rowsChecked;
+    }
+
+    /**
+     * Returns the number of rows that failed a schema check. Duplicate names
+     * are counted separately.
+     *
+     * @return bad row count
+     */
+    public long getBadRowCount() {
+        return badRows;
+    }
+
+    /**
+     * Returns how often a problem occurred.
+     *
+     * @param problem kind of problem
+     * @return occurrences
+     */
+    public long getCount(Problem problem) {
+        return counts[problem.ordinal()];
+    }
+
+    /**
+     * Returns whether no problem was found.
+     *
+     * @return true when clean
+     */
+    public boolean isClean() {
+        for (long count : counts) {
+            if (count > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the kept examples of a problem.
+     *
+     * @param problem kind of problem
+     * @return examples in file order
+     */
+    public List<Example> getExamples(Problem problem) {
+        return Collections.unmodifiableList(examples.get(problem.ordinal()));
+    }
+
+    /**
+     * Formats a summary line followed by the kept examples.
+     *
+     * @return printable lines
+     */
+    public List<String> formatDetails() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Validated " + rowsChecked + " rows: " + badRows + " failed schema checks, "
+                + getCount(Problem.DUPLICATE_NAME) + " duplicate names.");
+        for (Problem problem : Problem.values()) {
+            if (counts[problem.ordinal()] == 0) {
+                continue;
+            }
+            lines.add("  " + problem.getDescription() + ": " + counts[problem.ordinal()]);
+            for (Example example : examples.get(problem.ordinal())) {
+                lines.add("    " + example.formatDetails());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * One recorded problem.
+     */
+    public static final class Example {
+        private final String source;
+        private final int sourceOrder;
+        private final long lineNumber;
+        private final Problem problem;
+        private final String column;
+        private final String value;
+
+        /**
+         * Creates an example.
+         *
+         * @param source      file name
+         * @param sourceOrder position of the file among merged sources
+         * @param lineNumber  1-based line number
+         * @param problem     kind of problem
+         * @param column      affected column, or an empty string
+         * @param value       offending value or detail
+         */
+        Example(String source, int sourceOrder, long lineNumber, Problem problem, String column, String value) {
+            this.source = source;
+            this.sourceOrder = sourceOrder;
+            this.lineNumber = lineNumber;
+            this.problem = problem;
+            this.column = column;
+            this.value = value;
+        }
+
+        /**
+         * Returns the file name.
+         *
+         * @return source
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * Returns the line number.
+         *
+         * @return 1-based line number, the header being line 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Returns the kind of problem.
+         *
+         * @return problem
+         */
+        public Problem getProblem() {
+            return problem;
+        }
+
+        /**
+         * Returns the affected column.
+         *
+         * @return column name, or an empty string
+         */
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * Returns the offending value or detail.
+         *
+         * @return value
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Formats the example on one line.
+         *
+         * @return printable example
+         */
+        public String formatDetails() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(source).append(':').append(lineNumber);
+            if (!column.isEmpty()) {
+                builder.append(" [").append(column).append(']');
+            }
+            if (!value.isEmpty()) {
+                builder.append(" ").append(value);
+            }
+            return builder.toString();
+        }
+    }
+}